@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openinfinity.core.aspect.ArgumentBuilder;
+import org.openinfinity.core.common.domain.Account;
+import org.openinfinity.core.reflection.ObjectGraphWalker;
+import org.openinfinity.core.util.StringUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the <code>org.openinfinity.core.aspect.ArgumentBuilder</code> paths used by the aspects without the advice dispatch: 
+ * the ALL argument strategy rendered with <code>toString</code> and through the object graph walker, the CUSTOM argument strategy,
+ * the return value details and an object rendered by its fields with <code>org.openinfinity.core.util.StringUtil</code>. 
+ * The CUSTOM capture by generated extractors is compared in <code>ArgumentExtractionBenchmark</code>.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArgumentBuilderBenchmark {
+	
+	private static final String[] PATHS = {"id", "name", "quantity", "customer/name"};
+	
+	private Object[] arguments;
+	
+	private Account account;
+	
+	private ObjectGraphWalker objectGraphWalker;
+
+	@Setup
+	public void setUp() {
+		Logger.getLogger(ArgumentBuilder.class).setLevel(Level.OFF);
+		account = new Account("1", "Account");
+		account.setAddress("Street 1");
+		arguments = new Object[] {new OrderArgument(42, "order", 7, new OrderArgument.Customer("customer")), account, "text"};
+		objectGraphWalker = new ObjectGraphWalker(2, 16, 64);
+	}
+	
+	@Benchmark
+	public String allArguments() {
+		ArgumentBuilder builder = new ArgumentBuilder();
+		builder.extractArgumentInfo(arguments);
+		return builder.toString();
+	}
+	
+	@Benchmark
+	public String allArgumentsByWalkingFields() {
+		ArgumentBuilder builder = new ArgumentBuilder();
+		builder.extractArgumentInfoByWalkingFields(arguments, objectGraphWalker);
+		return builder.toString();
+	}
+	
+	@Benchmark
+	public String customArguments() {
+		ArgumentBuilder builder = new ArgumentBuilder();
+		builder.extractArgumentInfoByFilteringFields(arguments, PATHS);
+		return builder.toString();
+	}
+	
+	@Benchmark
+	public String returnValue() {
+		ArgumentBuilder builder = new ArgumentBuilder();
+		builder.buildReturnValueDetails("Return value", account);
+		return builder.toString();
+	}
+	
+	@Benchmark
+	public String renderedFields() {
+		return StringUtil.toString(arguments[0]);
+	}
+
+}
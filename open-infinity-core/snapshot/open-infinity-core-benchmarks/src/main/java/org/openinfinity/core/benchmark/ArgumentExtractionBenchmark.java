@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openinfinity.core.aspect.ArgumentBuilder;
+import org.openinfinity.core.aspect.GeneratedArgumentExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the capture of the CUSTOM argument strategy fields. <code>reflective</code> is the <code>org.openinfinity.core.aspect.ArgumentBuilder</code>
+ * path with the compiled property path accessors, <code>generated</code> the extractor generated with 
+ * <code>generateExtractor = true</code> and <code>handWritten</code> the same output appended by hand, the lower bound of the capture.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArgumentExtractionBenchmark {
+	
+	private static final String[] PATHS = {"id", "name", "quantity", "customer/name"};
+	
+	private Object[] arguments;
+	
+	private GeneratedArgumentExtractor generatedExtractor;
+
+	@Setup
+	public void setUp() {
+		Logger.getLogger(ArgumentBuilder.class).setLevel(Level.OFF);
+		arguments = new Object[] {new OrderArgument(42, "order", 7, new OrderArgument.Customer("customer"))};
+		generatedExtractor = new GeneratedArgumentExtractor(PATHS, arguments.length);
+		String expected = reflective();
+		if (!expected.equals(generated()) || !expected.equals(handWritten()))
+			throw new IllegalStateException("Extractors differ: " + expected + " / " + generated() + " / " + handWritten());
+	}
+	
+	@Benchmark
+	public String reflective() {
+		ArgumentBuilder builder = new ArgumentBuilder();
+		builder.extractArgumentInfoByFilteringFields(arguments, PATHS);
+		return builder.toString();
+	}
+	
+	@Benchmark
+	public String generated() {
+		return generatedExtractor.extract(arguments);
+	}
+	
+	@Benchmark
+	public String handWritten() {
+		OrderArgument order = (OrderArgument) arguments[0];
+		String type = OrderArgument.class.getName();
+		return new StringBuilder()
+		.append(type).append(".id=[").append(order.getId()).append("] ")
+		.append(type).append(".name=[").append(order.getName()).append("] ")
+		.append(type).append(".quantity=[").append(order.getQuantity()).append("] ")
+		.append(type).append(".customer/name=[").append(order.getCustomer().getName()).append("] ")
+		.toString();
+	}
+
+}
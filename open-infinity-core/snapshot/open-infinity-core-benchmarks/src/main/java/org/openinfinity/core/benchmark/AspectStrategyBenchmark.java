@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openinfinity.core.aspect.AuditTrailAspect;
+import org.openinfinity.core.aspect.FusedCoreAspect;
+import org.openinfinity.core.aspect.LogAspect;
+import org.openinfinity.core.aspect.MultiTenantAspect;
+import org.openinfinity.core.common.domain.Account;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares unadvised calls with Spring AOP proxied calls for every argument strategy of the log and audit trail aspects, the 
+ * multi-tenant aspect and the log, audit trail and multi-tenant annotations stacked on one method, advised by the separate aspects
+ * and by <code>org.openinfinity.core.aspect.FusedCoreAspect</code>. The loggers of the aspects are enabled with the output discarded,
+ * so that the scores include capturing the arguments and formatting the events. The encrypt strategies are measured by 
+ * <code>CryptoSupportBenchmark</code>, because they need the Keyczar keys.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AspectStrategyBenchmark {
+	
+	private StrategyTarget unadvised;
+	
+	private StrategyTarget proxied;
+	
+	private StrategyTarget fused;
+	
+	private Account account;
+
+	@Setup
+	public void setUp() {
+		BenchmarkSupport.enableLoggingWithoutOutput(LogAspect.class, AuditTrailAspect.class, MultiTenantAspect.class, FusedCoreAspect.class);
+		BenchmarkSupport.authenticate();
+		account = new Account("1", "Account");
+		account.setAddress("Street 1");
+		unadvised = new StrategyTarget();
+		proxied = BenchmarkSupport.proxy(new StrategyTarget(), new LogAspect(), new AuditTrailAspect(), new MultiTenantAspect());
+		FusedCoreAspect fusedCoreAspect = new FusedCoreAspect();
+		fusedCoreAspect.setLogAspect(new LogAspect());
+		fusedCoreAspect.setAuditTrailAspect(new AuditTrailAspect());
+		fusedCoreAspect.setMultiTenantAspect(new MultiTenantAspect());
+		fused = BenchmarkSupport.proxy(new StrategyTarget(), fusedCoreAspect);
+	}
+	
+	@Benchmark
+	public Account unadvisedCall() {
+		return unadvised.stacked(account);
+	}
+	
+	@Benchmark
+	public Account logAll() {
+		return proxied.logAll(account);
+	}
+	
+	@Benchmark
+	public Account logCustom() {
+		return proxied.logCustom(account);
+	}
+	
+	@Benchmark
+	public Account logNone() {
+		return proxied.logNone(account);
+	}
+	
+	@Benchmark
+	public Account auditTrailAll() {
+		return proxied.auditTrailAll(account);
+	}
+	
+	@Benchmark
+	public Account auditTrailCustom() {
+		return proxied.auditTrailCustom(account);
+	}
+	
+	@Benchmark
+	public Account auditTrailNone() {
+		return proxied.auditTrailNone(account);
+	}
+	
+	@Benchmark
+	public Account multiTenant() {
+		return proxied.multiTenant(account);
+	}
+	
+	@Benchmark
+	public Account stackedAspects() {
+		return proxied.stacked(account);
+	}
+	
+	@Benchmark
+	public Account fusedAspects() {
+		return fused.stacked(account);
+	}
+
+}
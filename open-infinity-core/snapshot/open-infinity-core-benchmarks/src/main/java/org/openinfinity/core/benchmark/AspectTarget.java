@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.benchmark;
+
+import static org.openinfinity.core.aspect.ArgumentStrategy.NONE;
+
+import org.openinfinity.core.annotation.AuditTrail;
+import org.openinfinity.core.annotation.Encrypt;
+import org.openinfinity.core.annotation.Log;
+import org.openinfinity.core.annotation.MultiTenant;
+
+/**
+ * Target bean with one method per annotation driven core aspect for the Spring AOP proxy mode benchmarks.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class AspectTarget {
+	
+	@Log
+	public int logged(int value) {
+		return value + 1;
+	}
+	
+	@AuditTrail
+	public int audited(int value) {
+		return value + 1;
+	}
+	
+	@MultiTenant
+	public int multiTenant(int value) {
+		return value + 1;
+	}
+	
+	@Encrypt(argumentStrategy = NONE)
+	public int encrypted(int value) {
+		return value + 1;
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.benchmark;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+import org.openinfinity.core.aspect.AuditTrailAspect;
+import org.openinfinity.core.aspect.CryptoAspect;
+import org.openinfinity.core.aspect.ExceptionTranslatorAspect;
+import org.openinfinity.core.aspect.LogAspect;
+import org.openinfinity.core.aspect.MultiTenantAspect;
+import org.openinfinity.core.benchmark.woven.WovenAspectTarget;
+import org.openinfinity.core.benchmark.woven.WovenServiceTarget;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the per call cost of the core aspects in Spring AOP proxy mode and in AspectJ woven mode. The proxied targets are advised
+ * by all five core aspects the same way as <code>aop:aspectj-autoproxy</code> does, the woven targets are compiled with ajc by the 
+ * benchmark build. Log output is disabled by the log4j configuration, so that the scores show the advice overhead.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AspectWeavingBenchmark {
+	
+	private AspectTarget proxiedTarget;
+	
+	private ServiceTarget proxiedService;
+	
+	private WovenAspectTarget wovenTarget;
+	
+	private WovenServiceTarget wovenService;
+	
+	private int value;
+
+	@Setup
+	public void setUp() {
+		if (!isWoven(WovenAspectTarget.class))
+			throw new IllegalStateException("Woven targets have not been compiled with ajc, package the benchmarks with Maven.");
+		proxiedTarget = BenchmarkSupport.proxy(new AspectTarget(), createAspects());
+		proxiedService = BenchmarkSupport.proxy(new ServiceTarget(), createAspects());
+		wovenTarget = new WovenAspectTarget();
+		wovenService = new WovenServiceTarget();
+	}
+	
+	private static Object[] createAspects() {
+		return new Object[] {new ExceptionTranslatorAspect(), new LogAspect(), new AuditTrailAspect(), new MultiTenantAspect(), new CryptoAspect()};
+	}
+	
+	private static boolean isWoven(Class<?> type) {
+		for (Field field : type.getDeclaredFields()) {
+			if (field.getName().startsWith("ajc$"))
+				return true;
+		}
+		return false;
+	}
+	
+	@Benchmark
+	public int proxiedLog() {
+		return proxiedTarget.logged(value);
+	}
+	
+	@Benchmark
+	public int wovenLog() {
+		return wovenTarget.logged(value);
+	}
+	
+	@Benchmark
+	public int proxiedAuditTrail() {
+		return proxiedTarget.audited(value);
+	}
+	
+	@Benchmark
+	public int wovenAuditTrail() {
+		return wovenTarget.audited(value);
+	}
+	
+	@Benchmark
+	public int proxiedMultiTenant() {
+		return proxiedTarget.multiTenant(value);
+	}
+	
+	@Benchmark
+	public int wovenMultiTenant() {
+		return wovenTarget.multiTenant(value);
+	}
+	
+	@Benchmark
+	public int proxiedCrypto() {
+		return proxiedTarget.encrypted(value);
+	}
+	
+	@Benchmark
+	public int wovenCrypto() {
+		return wovenTarget.encrypted(value);
+	}
+	
+	@Benchmark
+	public int proxiedExceptionTranslator() {
+		return proxiedService.translated(value);
+	}
+	
+	@Benchmark
+	public int wovenExceptionTranslator() {
+		return wovenService.translated(value);
+	}
+
+}
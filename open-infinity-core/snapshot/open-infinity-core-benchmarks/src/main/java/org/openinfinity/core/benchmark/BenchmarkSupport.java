@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.varia.NullAppender;
+import org.openinfinity.core.security.principal.Identity;
+import org.openinfinity.core.security.principal.RolePrincipal;
+import org.openinfinity.core.security.principal.TenantPrincipal;
+import org.openinfinity.core.security.principal.UserPrincipal;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.aspectj.AspectJProxyUtils;
+import org.springframework.aop.aspectj.annotation.ReflectiveAspectJAdvisorFactory;
+import org.springframework.aop.aspectj.annotation.SingletonMetadataAwareAspectInstanceFactory;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.OrderComparator;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Support for creating Spring AOP proxies in the benchmarks the same way as <code>aop:aspectj-autoproxy</code> does.
+ * The advisors are built directly instead of with <code>org.springframework.aop.aspectj.annotation.AspectJProxyFactory</code>,
+ * because the benchmark build weaves the core aspects with ajc and Spring refuses ajc compiled aspects in proxy mode.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.2.0 - Accepts aspects compiled with ajc, enables logging without output and authenticates the benchmark threads.
+ * @since 1.6.0
+ */
+public final class BenchmarkSupport {
+	
+	/**
+	 * Represents the advisor factory accepting the <code>org.aspectj.lang.annotation.Aspect</code> annotated classes also when compiled with ajc.
+	 */
+	private static final ReflectiveAspectJAdvisorFactory ADVISOR_FACTORY = new ReflectiveAspectJAdvisorFactory() {
+		@Override
+		public boolean isAspect(Class<?> clazz) {
+			return clazz.getAnnotation(org.aspectj.lang.annotation.Aspect.class) != null;
+		}
+	};
+	
+	private BenchmarkSupport() {}
+	
+	/**
+	 * Creates a class based proxy for the target advised by the given aspects.
+	 * 
+	 * @param target Represents the proxied bean.
+	 * @param aspects Represents the aspect instances, none for a proxy without advice.
+	 * @return T Represents the proxy.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T proxy(T target, Object... aspects) {
+		List<Advisor> advisors = new ArrayList<Advisor>();
+		for (Object aspect : aspects) {
+			advisors.addAll(ADVISOR_FACTORY.getAdvisors(new SingletonMetadataAwareAspectInstanceFactory(aspect, aspect.getClass().getName())));
+		}
+		advisors = AopUtils.findAdvisorsThatCanApply(advisors, target.getClass());
+		AspectJProxyUtils.makeAdvisorChainAspectJCapableIfNecessary(advisors);
+		OrderComparator.sort(advisors);
+		ProxyFactory factory = new ProxyFactory(target);
+		factory.setProxyTargetClass(true);
+		factory.addAdvisors(advisors);
+		return (T) factory.getProxy();
+	}
+	
+	/**
+	 * Enables all log levels of the loggers of the given classes and discards the output, so that the scores include the formatting
+	 * of the log events but not the console I/O.
+	 * 
+	 * @param types Represents the classes of the loggers.
+	 */
+	public static void enableLoggingWithoutOutput(Class<?>... types) {
+		for (Class<?> type : types) {
+			Logger logger = Logger.getLogger(type);
+			logger.setLevel(Level.ALL);
+			logger.setAdditivity(false);
+			logger.removeAllAppenders();
+			logger.addAppender(new NullAppender());
+		}
+	}
+	
+	/**
+	 * Sets an authenticated identity with a tenant and two roles as the global security context, visible to all benchmark threads.
+	 * 
+	 * @return Identity Represents the authenticated identity.
+	 */
+	public static Identity authenticate() {
+		Identity identity = new Identity();
+		identity.setAuthenticated(true);
+		identity.setUserPrincipal(new UserPrincipal("benchmark"));
+		identity.setRolePrincipals(Arrays.asList(new RolePrincipal("user"), new RolePrincipal("admin")));
+		identity.setTenantPrincipal(new TenantPrincipal<String>("42"));
+		SecurityContextHolder.setStrategyName(SecurityContextHolder.MODE_GLOBAL);
+		SecurityContextHolder.getContext().setAuthentication(identity);
+		return identity;
+	}
+
+}
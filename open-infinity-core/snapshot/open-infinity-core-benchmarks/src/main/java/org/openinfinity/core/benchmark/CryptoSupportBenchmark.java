@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openinfinity.core.aspect.CryptoAspect;
+import org.openinfinity.core.common.domain.Account;
+import org.openinfinity.core.crypto.CryptoSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures <code>org.openinfinity.core.crypto.CryptoSupport</code> symmetric and asymmetric encryption and decryption across payload 
+ * sizes, and the ALL and CUSTOM argument strategies of <code>org.openinfinity.core.aspect.CryptoAspect</code> in Spring AOP proxy mode.
+ * Asymmetric payloads are limited by the RSA key size. The Keyczar key locations are given with the same names as in 
+ * <code>crypto.properties</code>, for example:
+ * <br/><br/>
+ * <code>
+ * java -Dsymmetric.key.path=&lt;location&gt;/symmetric -Dasymmetric.public.key.path=&lt;location&gt;/pubkey 
+ * -Dasymmetric.private.key.path=&lt;location&gt;/asymmetric -jar target/benchmarks.jar CryptoSupportBenchmark
+ * </code>
+ * <br/><br/>
+ * The aspect benchmarks create a new account per call, because the aspect encrypts the fields of the argument in place.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoSupportBenchmark {
+	
+	@State(Scope.Benchmark)
+	public static class SymmetricPayload {
+		
+		@Param({"16", "1024", "65536"})
+		public int payloadSize;
+		
+		CryptoSupport cryptoSupport;
+		
+		byte[] plain;
+		
+		byte[] encrypted;
+		
+		@Setup
+		public void setUp() {
+			cryptoSupport = new CryptoSupport(getKeyPath("symmetric.key.path"));
+			plain = createPayload(payloadSize);
+			encrypted = cryptoSupport.encrypt(plain);
+			if (!Arrays.equals(plain, cryptoSupport.decrypt(encrypted)))
+				throw new IllegalStateException("Symmetric decryption failed.");
+		}
+		
+	}
+	
+	@State(Scope.Benchmark)
+	public static class AsymmetricPayload {
+		
+		@Param({"16", "128"})
+		public int payloadSize;
+		
+		CryptoSupport cryptoSupport;
+		
+		byte[] plain;
+		
+		byte[] encrypted;
+		
+		@Setup
+		public void setUp() {
+			cryptoSupport = new CryptoSupport(getKeyPath("asymmetric.public.key.path"), getKeyPath("asymmetric.private.key.path"));
+			plain = createPayload(payloadSize);
+			encrypted = cryptoSupport.encrypt(plain);
+			if (!Arrays.equals(plain, cryptoSupport.decrypt(encrypted)))
+				throw new IllegalStateException("Asymmetric decryption failed.");
+		}
+		
+	}
+	
+	@State(Scope.Benchmark)
+	public static class ProxiedTarget {
+		
+		StrategyTarget target;
+		
+		@Setup
+		public void setUp() {
+			CryptoAspect cryptoAspect = new CryptoAspect();
+			cryptoAspect.setCryptoSupport(new CryptoSupport(getKeyPath("symmetric.key.path")));
+			target = BenchmarkSupport.proxy(new StrategyTarget(), cryptoAspect);
+		}
+		
+	}
+	
+	private static String getKeyPath(String name) {
+		String keyPath = System.getProperty(name);
+		if (keyPath == null || keyPath.length() == 0)
+			throw new IllegalStateException("Keyczar key location is not defined, run the benchmark with -D" + name + "=<location>.");
+		return keyPath;
+	}
+	
+	private static byte[] createPayload(int size) {
+		byte[] payload = new byte[size];
+		for (int i = 0; i < size; i++)
+			payload[i] = (byte) ('a' + i % 26);
+		return payload;
+	}
+	
+	@Benchmark
+	public byte[] symmetricEncrypt(SymmetricPayload payload) {
+		return payload.cryptoSupport.encrypt(payload.plain);
+	}
+	
+	@Benchmark
+	public byte[] symmetricDecrypt(SymmetricPayload payload) {
+		return payload.cryptoSupport.decrypt(payload.encrypted);
+	}
+	
+	@Benchmark
+	public byte[] asymmetricEncrypt(AsymmetricPayload payload) {
+		return payload.cryptoSupport.encrypt(payload.plain);
+	}
+	
+	@Benchmark
+	public byte[] asymmetricDecrypt(AsymmetricPayload payload) {
+		return payload.cryptoSupport.decrypt(payload.encrypted);
+	}
+	
+	@Benchmark
+	public Account encryptAspectAll(ProxiedTarget proxied) {
+		return proxied.target.encryptAll(new Account("1", "Account"));
+	}
+	
+	@Benchmark
+	public Account encryptAspectCustom(ProxiedTarget proxied) {
+		return proxied.target.encryptCustom(new Account("1", "Account"));
+	}
+
+}
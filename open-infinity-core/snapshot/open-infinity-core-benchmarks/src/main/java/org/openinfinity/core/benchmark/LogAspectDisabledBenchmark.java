@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openinfinity.core.aspect.LogAspect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the overhead of <code>org.openinfinity.core.aspect.LogAspect</code> when the effective log level is disabled. 
+ * The <code>loggingDisabled</code> score should stay within a few nanoseconds of <code>noOpAdvice</code>, which measures 
+ * the Spring AOP dispatch of an around advice binding the same annotation. <code>proxiedWithoutAdvice</code> and 
+ * <code>unadvisedCall</code> show the bare proxy and plain call costs.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogAspectDisabledBenchmark {
+	
+	private BenchmarkTarget unadvised;
+	
+	private BenchmarkTarget proxied;
+	
+	private BenchmarkTarget noOp;
+	
+	private BenchmarkTarget logged;
+	
+	private int value;
+
+	@Setup
+	public void setUp() {
+		Logger.getLogger(LogAspect.class).setLevel(Level.OFF);
+		unadvised = new BenchmarkTarget();
+		proxied = BenchmarkSupport.proxy(new BenchmarkTarget());
+		noOp = BenchmarkSupport.proxy(new BenchmarkTarget(), new NoOpLogAspect());
+		logged = BenchmarkSupport.proxy(new BenchmarkTarget(), new LogAspect());
+	}
+	
+	@Benchmark
+	public int unadvisedCall() {
+		return unadvised.logged(value);
+	}
+	
+	@Benchmark
+	public int proxiedWithoutAdvice() {
+		return proxied.plain(value);
+	}
+	
+	@Benchmark
+	public int noOpAdvice() {
+		return noOp.logged(value);
+	}
+	
+	@Benchmark
+	public int loggingDisabled() {
+		return logged.logged(value);
+	}
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.benchmark;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.openinfinity.core.annotation.Log;
+
+/**
+ * Aspect binding the same pointcut as <code>org.openinfinity.core.aspect.LogAspect</code> without doing anything else. 
+ * Used as the baseline for the Spring AOP advice dispatch cost.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+@Aspect
+public class NoOpLogAspect {
+	
+	@Around("@annotation(org.openinfinity.core.annotation.Log) && @annotation(log)")
+	public Object proceed(ProceedingJoinPoint method, Log log) throws Throwable {
+		return method.proceed();
+	}
+
+}
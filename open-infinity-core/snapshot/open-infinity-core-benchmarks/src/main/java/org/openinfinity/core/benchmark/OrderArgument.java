@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.benchmark;
+
+/**
+ * Argument of the argument capture benchmarks.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class OrderArgument {
+	
+	private final long id;
+	
+	private final String name;
+	
+	private final int quantity;
+	
+	private final Customer customer;
+	
+	public OrderArgument(long id, String name, int quantity, Customer customer) {
+		this.id = id;
+		this.name = name;
+		this.quantity = quantity;
+		this.customer = customer;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public Customer getCustomer() {
+		return customer;
+	}
+	
+	/**
+	 * Nested argument of the argument capture benchmarks.
+	 */
+	public static class Customer {
+		
+		private final String name;
+		
+		public Customer(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+		
+	}
+
+}
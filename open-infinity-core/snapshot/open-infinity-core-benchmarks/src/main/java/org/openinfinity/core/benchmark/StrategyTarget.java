@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.benchmark;
+
+import static org.openinfinity.core.aspect.ArgumentStrategy.ALL;
+import static org.openinfinity.core.aspect.ArgumentStrategy.CUSTOM;
+import static org.openinfinity.core.aspect.ArgumentStrategy.NONE;
+
+import org.openinfinity.core.annotation.AuditTrail;
+import org.openinfinity.core.annotation.Encrypt;
+import org.openinfinity.core.annotation.Log;
+import org.openinfinity.core.annotation.Log.LogLevel;
+import org.openinfinity.core.annotation.MultiTenant;
+import org.openinfinity.core.common.domain.Account;
+
+/**
+ * Target bean with one method per core aspect and argument strategy for the Spring AOP proxy mode benchmarks. The methods
+ * take an <code>org.openinfinity.core.common.domain.Account</code>, so that the argument strategies have fields to capture.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class StrategyTarget {
+	
+	@Log(level = LogLevel.INFO, argumentStrategy = ALL)
+	public Account logAll(Account account) {
+		return account;
+	}
+	
+	@Log(level = LogLevel.INFO, argumentStrategy = CUSTOM, value = {"id", "name"})
+	public Account logCustom(Account account) {
+		return account;
+	}
+	
+	@Log(level = LogLevel.INFO, argumentStrategy = NONE)
+	public Account logNone(Account account) {
+		return account;
+	}
+	
+	@AuditTrail(argumentStrategy = ALL)
+	public Account auditTrailAll(Account account) {
+		return account;
+	}
+	
+	@AuditTrail(argumentStrategy = CUSTOM, value = {"id", "name"})
+	public Account auditTrailCustom(Account account) {
+		return account;
+	}
+	
+	@AuditTrail(argumentStrategy = NONE)
+	public Account auditTrailNone(Account account) {
+		return account;
+	}
+	
+	@MultiTenant
+	public Account multiTenant(Account account) {
+		return account;
+	}
+	
+	@Encrypt(argumentStrategy = ALL)
+	public Account encryptAll(Account account) {
+		return account;
+	}
+	
+	@Encrypt(argumentStrategy = CUSTOM, value = {"name"})
+	public Account encryptCustom(Account account) {
+		return account;
+	}
+	
+	@Log(level = LogLevel.INFO)
+	@AuditTrail
+	@MultiTenant
+	public Account stacked(Account account) {
+		return account;
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openinfinity.core.annotation.NotScript;
+import org.openinfinity.core.common.domain.Account;
+import org.openinfinity.core.security.principal.Identity;
+import org.openinfinity.core.util.ExceptionUtil;
+import org.openinfinity.core.util.IOUtil;
+import org.openinfinity.core.util.TimestampUtil;
+import org.openinfinity.core.validation.NotScriptValidation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Measures the core utilities on the hot paths of the applications: <code>org.openinfinity.core.validation.NotScriptValidation</code>
+ * of valid input, <code>org.openinfinity.core.util.ExceptionUtil.getStackTraceString</code> of a nested exception, 
+ * <code>org.openinfinity.core.util.IOUtil.copyStream</code>, <code>org.openinfinity.core.security.principal.Identity.getAuthorities</code>
+ * and <code>org.openinfinity.core.util.TimestampUtil.formatIsoTimestamp</code> of the current time.
+ * The text and stream sizes are given by <code>size</code>. Rejected input is not measured, because it needs a bean validation
+ * context.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.1.0 - Timestamp formatting.
+ * @since 1.6.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilityBenchmark {
+	
+	private static final int STACK_DEPTH = 32;
+	
+	@Param({"16", "1024"})
+	public int size;
+	
+	private NotScriptValidation notScriptValidation;
+	
+	private String input;
+	
+	private Throwable throwable;
+	
+	private byte[] bytes;
+	
+	private Identity identity;
+
+	@Setup
+	public void setUp() throws NoSuchFieldException {
+		notScriptValidation = new NotScriptValidation();
+		notScriptValidation.initialize(Account.class.getDeclaredField("name").getAnnotation(NotScript.class));
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < size; i++)
+			builder.append(i % 8 == 7 ? ' ' : (char) ('a' + i % 26));
+		input = builder.toString();
+		if (!notScriptValidation.isValid(input, null))
+			throw new IllegalStateException("Input is not valid: " + input);
+		throwable = createThrowable(STACK_DEPTH);
+		bytes = input.getBytes();
+		identity = BenchmarkSupport.authenticate();
+	}
+	
+	private static Throwable createThrowable(int depth) {
+		if (depth > 0)
+			return createThrowable(depth - 1);
+		return new IllegalStateException("Benchmark", new IllegalArgumentException("Cause"));
+	}
+	
+	@Benchmark
+	public boolean notScriptValidation() {
+		return notScriptValidation.isValid(input, null);
+	}
+	
+	@Benchmark
+	public String stackTraceString() {
+		return ExceptionUtil.getStackTraceString(throwable);
+	}
+	
+	@Benchmark
+	public int copyStream() {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length);
+		IOUtil.copyStream(new ByteArrayInputStream(bytes), outputStream);
+		return outputStream.size();
+	}
+	
+	@Benchmark
+	public Collection<GrantedAuthority> identityAuthorities() {
+		return identity.getAuthorities();
+	}
+	
+	@Benchmark
+	public String isoTimestamp() {
+		return TimestampUtil.formatIsoTimestamp(System.currentTimeMillis());
+	}
+
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.benchmark.woven;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Service bean for the woven mode, compiled with ajc by the benchmark build benchmarks of <code>org.openinfinity.core.aspect.ExceptionTranslatorAspect</code>.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+@Service
+public class WovenServiceTarget {
+	
+	public int translated(int value) {
+		return value + 1;
+	}
+
+}
@@ -40,7 +40,7 @@ import org.openinfinity.core.aspect.ArgumentStrategy;
  *  </code>
  * 
  * @author Ilkka Leinonen
- * @version 1.1.0 - Default behaviour for the argument strategy is ALL.
+ * @version 1.2.0 - Default behaviour for the argument strategy is ALL, CUSTOM fields can be read by a generated extractor.
  * @since 1.0.0
  */
 @Retention(RetentionPolicy.RUNTIME)
@@ -100,5 +100,14 @@ public @interface AuditTrail {
 	 * @return ArgumentStrategy - based on the strategy.
 	 */
 	public ArgumentStrategy argumentStrategy() default ArgumentStrategy.ALL;
+	
+	/**
+	 * Represents whether the audited fields of the CUSTOM argument strategy are read by a generated extractor instead of reflection.
+	 * The audit trail aspect generates the extractor on the first audited call of the method and reuses it for the later calls of the method, 
+	 * paths which can not be generated are read by reflection. Default is <code>false</code>.
+	 * 
+	 * @return boolean Returns whether the extractor is generated.
+	 */
+	public boolean generateExtractor() default false;
 
 }
\ No newline at end of file
@@ -27,7 +27,7 @@ import org.openinfinity.core.aspect.ArgumentStrategy;
  * The metadata executes the <code>org.openinfinity.core.aspect.LogAspect</code> aspect when defined. Annotation can be defined in the method level.
  * 
  * @author Ilkka Leinonen 
- * @version 1.0.0
+ * @version 1.2.0 - Sampling and slow call threshold of the logged calls.
  * @since 1.0.0
  */
 @Retention(RetentionPolicy.RUNTIME)
@@ -107,4 +107,38 @@ public @interface Log {
 	 */
 	public ArgumentStrategy argumentStrategy() default ArgumentStrategy.ALL;
 	
+	/**
+	 * Represents the sample rate, only every n:th call of the method is logged. The decision is made before any arguments are rendered.
+	 * Default is <code>1</code>, every call is logged.
+	 * 
+	 * @return int Returns the sample rate.
+	 */
+	public int sampleRate() default 1;
+	
+	/**
+	 * Represents the maximum number of logged calls of the method per second, enforced with a token bucket. 
+	 * Calls over the limit are not logged. Default is <code>0</code>, the calls are not limited.
+	 * 
+	 * @return int Returns the maximum number of logged calls per second.
+	 */
+	public int maxPerSecond() default 0;
+	
+	/**
+	 * Represents the threshold of the slow calls in milliseconds. When defined, the method is executed with only the start time recorded
+	 * and the arguments and the return value are logged only if the call takes longer than the threshold. 
+	 * Default is <code>-1</code>, every call is logged.
+	 * 
+	 * @return long Returns the threshold of the slow calls in milliseconds.
+	 */
+	public long slowerThanMillis() default -1;
+	
+	/**
+	 * Represents whether the logged fields of the CUSTOM argument strategy are read by a generated extractor instead of reflection.
+	 * The extractor is part of the advice plan compiled for the method, so the getters are invoked directly on every logged call 
+	 * without reflection or boxing. Paths which can not be generated are read by reflection. Default is <code>false</code>.
+	 * 
+	 * @return boolean Returns whether the extractor is generated.
+	 */
+	public boolean generateExtractor() default false;
+	
 }
\ No newline at end of file
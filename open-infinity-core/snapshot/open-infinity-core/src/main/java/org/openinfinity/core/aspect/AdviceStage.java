@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.aspect;
+
+import org.springframework.core.Ordered;
+
+/**
+ * Stage of the fused advice of <code>org.openinfinity.core.aspect.FusedCoreAspect</code>. A stage runs the advice of a core aspect
+ * with the <code>org.openinfinity.core.aspect.FusedJoinPoint</code>, whose <code>proceed</code> continues with the next stage. The order
+ * of the stage is the order of the aspect.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+interface AdviceStage extends Ordered {
+	
+	/**
+	 * Runs the advice of the stage.
+	 * 
+	 * @param joinPoint Represents the join point shared by the stages.
+	 * @return Object Represents the return value of the advised method.
+	 * @throws Throwable Represents the exception of the advice or of the advised method.
+	 */
+	Object invoke(FusedJoinPoint joinPoint) throws Throwable;
+	
+	/**
+	 * Returns <code>true</code> if the stage modifies the arguments before proceeding, so that the argument information captured 
+	 * by the earlier stages is not reused by the later stages.
+	 */
+	boolean isModifyingArguments();
+	
+}
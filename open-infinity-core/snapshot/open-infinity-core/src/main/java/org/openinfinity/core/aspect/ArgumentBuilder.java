@@ -16,24 +16,26 @@
 package org.openinfinity.core.aspect;
 
 import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.Map;
 
-import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.JXPathNotFoundException;
 import org.aspectj.lang.JoinPoint;
 import org.openinfinity.core.exception.SystemException;
+import org.openinfinity.core.reflection.FieldMetadata;
+import org.openinfinity.core.reflection.FieldPlan;
+import org.openinfinity.core.reflection.ObjectGraphWalker;
+import org.openinfinity.core.reflection.PropertyPathAccessor;
 import org.openinfinity.core.util.ExceptionUtil;
+import org.openinfinity.core.util.StringUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.util.ReflectionUtils;
-import org.springframework.util.ReflectionUtils.FieldCallback;
 
 /**
  * Builder class for argument information. Can be used with logging and audit trail.
  * 
  * @author Ilkka Leinonen
- * @version 1.2.0
+ * @version 1.3.0 - Cached field plans and bounded value rendering.
  * @since 1.2.0
  */
 public class ArgumentBuilder {
@@ -42,6 +44,15 @@ public class ArgumentBuilder {
 	 */
 	private static final Logger LOGGER = LoggerFactory.getLogger(ArgumentBuilder.class);
 	
+	/**
+	 * Represents the value of a property path which has no value.
+	 */
+	static final Object NO_VALUE = new Object();
+	
+	/**
+	 * Represents the maximum capacity of the buffer retained when the builder is reset.
+	 */
+	private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
 	
 	private StringBuilder builder;
 	
@@ -52,12 +63,6 @@ public class ArgumentBuilder {
 		this.builder = new StringBuilder();
 	}
 	
-	private static Map<String, Field> FIELD_CACHE;
-	
-	static {
-		FIELD_CACHE = new HashMap<String, Field>();
-	}
-
 	/**
 	 * Executes field callbacks on found and defined attribute names.
 	 * 
@@ -69,15 +74,17 @@ public class ArgumentBuilder {
 		for (String allowedField : allowedFields) {
 			for (Object object : arguments) {
 				try {
-					JXPathContext context = JXPathContext.newContext(object);
-					Object value = context.getValue(allowedField);
+					Object value = getPathValue(LOGGER, object, allowedField);
+					if (value == NO_VALUE)
+						continue;
 					String argument = object == null ? "null argument" : object.getClass().getName();
 					generateKeyValueString(builder, object, value, argument);
-					Field field = getField(allowedField, object, argument);
-					if (!field.isAccessible()) {
-						field.setAccessible(true);
+					FieldMetadata fieldMetadata = FieldMetadata.forField(object.getClass(), allowedField);
+					if (fieldMetadata == null) {
+						LOGGER.debug("No field " + allowedField + " in " + argument);
+						continue;
 					}
-					argumentGatheringCallback.onField(field, object);
+					argumentGatheringCallback.onField(fieldMetadata.getField(), object);
 				} catch(Throwable throwable) {
 					LOGGER.warn(ExceptionUtil.getStackTraceString(throwable));
 				}
@@ -95,50 +102,123 @@ public class ArgumentBuilder {
 		doRecursiveFieldLookUpAndCallFieldCallback(argumentGatheringCallback, arguments);
 	}
 	
-	private void doRecursiveFieldLookUpAndCallFieldCallback(final ArgumentGatheringFieldCallback<Field, Object> argumentGatheringCallback, final Object[] objects) {
-		for (final Object object : objects) {
-			try {
-				if (object != null) {
-					ReflectionUtils.doWithFields(object.getClass(), new FieldCallback() {
-						public void doWith(Field field) {
-							try {
-								if (!field.isAccessible()) {
-									field.setAccessible(Boolean.TRUE);
-								}
-								if (!(Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers()))) {
-									argumentGatheringCallback.onField(field, object);						
-									LOGGER.debug("Accessing field: " + field.getName());
-								}
-							} catch (Throwable e) {
-								LOGGER.error("Failure occurred while accessing object field.", e);
-							} 
-						} 
-					});
+	/**
+	 * Executes field callbacks on all attribute names of the object graphs of the arguments. Fields holding objects, collections, maps or arrays
+	 * are descended into within the limits of the walker, the callback is executed on the other fields and on the fields at the maximum depth.
+	 * 
+	 * @param argumentGatheringCallback Represents the actual callback method.
+	 * @param arguments Represents the arguments for method.
+	 * @param objectGraphWalker Represents the walker of the object graphs, <code>null</code> when only the fields of the arguments are accessed.
+	 */
+	public void executeArgumentGatheringCallbackOnAllFields(final ArgumentGatheringFieldCallback<Field, Object> argumentGatheringCallback, Object[] arguments, 
+			final ObjectGraphWalker objectGraphWalker) {
+		if (objectGraphWalker == null) {
+			doRecursiveFieldLookUpAndCallFieldCallback(argumentGatheringCallback, arguments);
+			return;
+		}
+		ObjectGraphWalker.Visitor visitor = new ObjectGraphWalker.Visitor() {
+			public boolean visitField(Object owner, FieldMetadata field, Object value, CharSequence path, int depth) {
+				if (objectGraphWalker.canDescend(depth) && ObjectGraphWalker.isNavigable(value))
+					return true;
+				try {
+					argumentGatheringCallback.onField(field.getField(), owner);
+				} catch (Throwable e) {
+					LOGGER.error("Failure occurred while accessing object field.", e);
 				}
+				return false;
+			}
+		};
+		for (Object object : arguments) {
+			try {
+				objectGraphWalker.walk(object, visitor);
+			} catch (Throwable throwable) {
+				throw new SystemException(throwable);
+			}
+		}
+	}
+	
+	private void doRecursiveFieldLookUpAndCallFieldCallback(ArgumentGatheringFieldCallback<Field, Object> argumentGatheringCallback, Object[] objects) {
+		for (Object object : objects) {
+			if (object == null)
+				continue;
+			FieldPlan fieldPlan;
+			try {
+				fieldPlan = FieldPlan.forClass(object.getClass());
 			} catch (Throwable throwable) {
 				throw new SystemException(throwable);
 			}
+			for (int i = 0; i < fieldPlan.size(); i++) {
+				Field field = fieldPlan.get(i).getField();
+				try {
+					argumentGatheringCallback.onField(field, object);
+					if (LOGGER.isDebugEnabled())
+						LOGGER.debug("Accessing field: " + field.getName());
+				} catch (Throwable e) {
+					LOGGER.error("Failure occurred while accessing object field.", e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Reads the value of the property path with the compiled accessor of the argument class. Paths without value are logged 
+	 * as warnings, paths missing from the argument class only once.
+	 * 
+	 * @param logger Represents the logger of the warnings.
+	 * @param object Represents the argument.
+	 * @param path Represents the property path.
+	 * @return Object Represents the value of the path or <code>NO_VALUE</code>.
+	 */
+	static Object getPathValue(Logger logger, Object object, String path) {
+		if (object == null) {
+			logger.warn("No value for xpath: {} (null argument)", path);
+			return NO_VALUE;
+		}
+		PropertyPathAccessor accessor = PropertyPathAccessor.forPath(object.getClass(), path);
+		if (accessor.isMissing()) {
+			if (accessor.reportMissing())
+				logger.warn("No value for xpath: {} in {}, the path will be skipped for the class", path, object.getClass().getName());
+			return NO_VALUE;
+		}
+		try {
+			return accessor.getValue(object);
+		} catch (JXPathNotFoundException e) {
+			logger.warn(e.getMessage());
+			return NO_VALUE;
+		}
+	}
+	
+	/**
+	 * Appends the value of the property path of the argument in the format of the CUSTOM argument strategy, 
+	 * <code>className.path=[value] </code>. Nothing is appended when the path has no value.
+	 * 
+	 * @param builder Represents the buffer.
+	 * @param object Represents the argument.
+	 * @param path Represents the property path.
+	 */
+	static void appendPathValue(StringBuilder builder, Object object, String path) {
+		try {
+			Object value = getPathValue(LOGGER, object, path);
+			if (value == NO_VALUE)
+				return;
+			builder
+			.append(object==null?"null argument":object.getClass().getName()+"."+path)
+			.append("=[");
+			StringUtil.appendValue(builder, value==null?"null value":value)
+			.append("] ");
+		} catch(Throwable throwable) {
+			LOGGER.warn(ExceptionUtil.getStackTraceString(throwable));
 		}
 	}
 	
 	private void generateKeyValueString(StringBuilder builder, Object object, Object value, String argument) {
 		builder
 		.append(object==null ? "null argument" : argument)
-		.append("=[")
-		.append((value==null ? "null value" : (value)))
+		.append("=[");
+		StringUtil.appendValue(builder, value==null ? "null value" : value)
 		.append("] ");
 	}
 	
-	private Field getField(String allowedField, Object object, String argument) {
-		Field field;
-		LOGGER.debug(object.getClass().getName() + "." + allowedField);
-		field = ReflectionUtils.findField(object.getClass(), allowedField);
-		LOGGER.debug("field name: " + field.getName());
-		field.setAccessible(true);
-		FIELD_CACHE.put(argument, field);
-		return field;
-	}
-	
 
 	/**
 	 * Returns builded argument information.
@@ -165,9 +245,9 @@ public class ArgumentBuilder {
 	 */
 	public void buildReturnValueDetails(String name, Object returnValue) {
 		builder.append(name)
-				.append(": ")
-				.append((returnValue != null ? returnValue
-				: "without any return value (void)"));
+				.append(": ");
+		StringUtil.appendValue(builder, returnValue != null ? returnValue
+				: "without any return value (void)");
 	}
 
 	
@@ -179,26 +259,35 @@ public class ArgumentBuilder {
 	 * @return
 	 */
 	public void extractArgumentInfoByFilteringFields(JoinPoint joinPoint, String[] allowedFields) {
-		Object[] objects = joinPoint.getArgs();
+		extractArgumentInfoByFilteringFields(joinPoint.getArgs(), allowedFields);
+	}
+	
+	/**
+	 * Returns builded argument information based on allowed field names presented by using XPATH.
+	 * 
+	 * @param objects Represents the arguments of the method.
+	 * @param allowedFields Represents the allowed argument's field names.
+	 */
+	public void extractArgumentInfoByFilteringFields(Object[] objects, String[] allowedFields) {
 		if (objects.length > 0) {
 			for (String allowedField : allowedFields) {
 				for (Object object : objects) {
-					try {
-						JXPathContext context = JXPathContext.newContext(object);
-						Object value = context.getValue(allowedField);
-						builder
-						.append(object==null?"null argument":object.getClass().getName()+"."+allowedField)
-						.append("=[")
-						.append((value==null?"null value":(value)))
-						.append("] ");
-					} catch(Throwable throwable) {
-						LOGGER.warn(ExceptionUtil.getStackTraceString(throwable));
-					}
+					appendPathValue(builder, object, allowedField);
 				}
 			} 
 		} else {
 			builder.append("without any parameters");
 		}
+	}
+	
+	/**
+	 * Returns builded argument information by the extractor generated for the allowed fields of the method.
+	 * 
+	 * @param objects Represents the arguments of the method.
+	 * @param extractor Represents the generated extractor.
+	 */
+	public void extractArgumentInfoByGeneratedExtractor(Object[] objects, GeneratedArgumentExtractor extractor) {
+		extractor.appendTo(builder, objects);
 	}	
 
 	/**
@@ -209,19 +298,74 @@ public class ArgumentBuilder {
 	 * @return
 	 */
 	public void extractArgumentInfo(JoinPoint joinPoint) {
-		Object[] objects = joinPoint.getArgs();		
+		extractArgumentInfo(joinPoint.getArgs());
+	}
+	
+	/**
+	 * Returns builded argument information.
+	 * 
+	 * @param objects Represents the arguments of the method.
+	 */
+	public void extractArgumentInfo(Object[] objects) {
 		if (objects.length > 0) {		
 			for (Object object : objects) {
 				builder
 				.append(object==null?"null argument":object.getClass().getName())
-				.append("=[")
-				.append((object==null?"null value":object))
+				.append("=[");
+				StringUtil.appendValue(builder, object==null?"null value":object)
 				.append("] ");
 			}
 		} else {
 			builder.append("without any parameters");
 		}
 	}
+	
+	/**
+	 * Returns builded argument information of the object graphs of the arguments, <code>className=[path=value, ...] </code> for every argument. 
+	 * Fields holding objects, collections, maps or arrays are descended into within the limits of the walker and written as <code>{...}</code> 
+	 * at the maximum depth. Other arguments are written with <code>toString</code>.
+	 * 
+	 * @param objects Represents the arguments of the method.
+	 * @param objectGraphWalker Represents the walker of the object graphs.
+	 */
+	public void extractArgumentInfoByWalkingFields(Object[] objects, final ObjectGraphWalker objectGraphWalker) {
+		if (objects.length == 0) {
+			builder.append("without any parameters");
+			return;
+		}
+		for (Object object : objects) {
+			if (!ObjectGraphWalker.isNavigable(object)) {
+				extractArgumentInfo(new Object[] {object});
+				continue;
+			}
+			builder.append(object.getClass().getName()).append("=[");
+			final int start = builder.length();
+			objectGraphWalker.walk(object, new ObjectGraphWalker.Visitor() {
+				public boolean visitField(Object owner, FieldMetadata field, Object value, CharSequence path, int depth) {
+					boolean navigable = ObjectGraphWalker.isNavigable(value);
+					if (navigable && objectGraphWalker.canDescend(depth) && !isEmpty(value))
+						return true;
+					if (builder.length() > start)
+						builder.append(", ");
+					builder.append(path).append('=');
+					if (navigable && !isEmpty(value))
+						builder.append("{...}");
+					else
+						StringUtil.appendValue(builder, value);
+					return false;
+				}
+			});
+			builder.append("] ");
+		}
+	}
+	
+	private static boolean isEmpty(Object value) {
+		if (value instanceof Collection)
+			return ((Collection<?>) value).isEmpty();
+		if (value instanceof Map)
+			return ((Map<?, ?>) value).isEmpty();
+		return value instanceof Object[] && ((Object[]) value).length == 0;
+	}
 
 	/**
 	 * Appends text to the current builder.
@@ -247,6 +391,19 @@ public class ArgumentBuilder {
 		return this;
 	}
 	
+	/**
+	 * Clears the builded argument information so that the builder can be reused. A buffer grown beyond the retained capacity is released.
+	 * 
+	 * @return ArgumentBuilder Represents the cleared builder.
+	 */
+	public ArgumentBuilder reset() {
+		if (builder.capacity() > MAX_RETAINED_CAPACITY)
+			builder = new StringBuilder();
+		else
+			builder.setLength(0);
+		return this;
+	}
+	
 	@Override
 	public String toString() {
 		return builder.toString();
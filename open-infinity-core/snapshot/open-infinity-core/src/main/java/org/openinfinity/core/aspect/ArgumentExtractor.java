@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.aspect;
+
+/**
+ * Extracts the printable argument information of an advised method. Implementations are resolved once per advised method
+ * based on the <code>org.openinfinity.core.aspect.ArgumentStrategy</code> and reused for every invocation.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public interface ArgumentExtractor {
+	
+	/**
+	 * Returns the argument information of the method arguments.
+	 * 
+	 * @param arguments Represents the actual arguments of the invoked method.
+	 * @return String representing the argument information.
+	 */
+	public String extract(Object[] arguments);
+
+}
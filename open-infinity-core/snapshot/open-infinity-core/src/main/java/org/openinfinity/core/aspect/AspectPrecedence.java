@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.aspect;
+
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.DeclarePrecedence;
+
+/**
+ * Declares the precedence of the core aspects when they are woven with AspectJ at compile time or load time, where the 
+ * <code>org.springframework.core.Ordered</code> order of the aspect beans is not applied. Exceptions are translated outermost 
+ * and the log aspect measures the time spent in the other aspects. The aspect has no advice and is ignored in Spring AOP proxy mode.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+@Aspect
+@DeclarePrecedence("org.openinfinity.core.aspect.ExceptionTranslatorAspect, org.openinfinity.core.aspect.LogAspect, org.openinfinity.core.aspect.AuditTrailAspect, " +
+		"org.openinfinity.core.aspect.MultiTenantAspect, org.openinfinity.core.aspect.CryptoAspect")
+public class AspectPrecedence {
+	
+}
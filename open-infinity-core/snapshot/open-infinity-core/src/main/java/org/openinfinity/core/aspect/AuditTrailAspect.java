@@ -15,29 +15,37 @@
  */
 package org.openinfinity.core.aspect;
 
-import java.util.Collection;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.annotation.Pointcut;
-import org.joda.time.DateTime;
-import org.joda.time.format.DateTimeFormatter;
-import org.joda.time.format.ISODateTimeFormat;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.openinfinity.core.annotation.AuditTrail;
+import org.openinfinity.core.annotation.Log.LogLevel;
+import org.openinfinity.core.audit.AuditRecord;
+import org.openinfinity.core.audit.AuditSink;
+import org.openinfinity.core.log.AsyncLogDispatcher;
+import org.openinfinity.core.log.JsonEventWriter;
+import org.openinfinity.core.log.OutputFormat;
+import org.openinfinity.core.monitor.AdvisedMethod;
+import org.openinfinity.core.monitor.AdvisedMethodRegistry;
+import org.openinfinity.core.reflection.ObjectGraphWalker;
+import org.openinfinity.core.security.InvocationContext;
+import org.openinfinity.core.util.TimestampUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.Ordered;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.context.SecurityContext;
-import org.springframework.security.core.context.SecurityContextHolder;
 
 /**
- * Class is responsible for creating audit trail information. Audit trail storage system can be defined through Log4j property files (JDBCAppender, FileAppender, JMSAppender etc).
+ * Class is responsible for creating audit trail information. Audit trail storage system can be defined through Log4j property files (JDBCAppender, FileAppender, JMSAppender etc) 
+ * or with an <code>org.openinfinity.core.audit.AuditSink</code>.
  *  
  * @author Ilkka Leinonen 
- * @version 1.1.0 - Spring Security 3.1.X-modifications.
+ * @version 1.2.0 - Audit trails are written to pluggable audit sinks.
  * @since 1.0.0
  */
 @Aspect
@@ -53,6 +61,41 @@ public class AuditTrailAspect implements Ordered {
 	 */
 	private int order;
 	
+	/**
+	 * Represents the dispatcher writing the audit trail on a separate thread, <code>null</code> when written on the calling thread.
+	 */
+	private AsyncLogDispatcher asyncLogDispatcher;
+	
+	/**
+	 * Represents the output format of the audit trail.
+	 */
+	private OutputFormat outputFormat = OutputFormat.TEXT;
+	
+	/**
+	 * Represents the registry of the advised methods, <code>null</code> when the methods can not be managed at runtime.
+	 */
+	private AdvisedMethodRegistry advisedMethodRegistry;
+	
+	/**
+	 * Represents the registered advised methods by the method.
+	 */
+	private final ConcurrentMap<Method, AdvisedMethod> advisedMethods = new ConcurrentHashMap<Method, AdvisedMethod>();
+	
+	/**
+	 * Represents the generated argument extractors by the method.
+	 */
+	private final ConcurrentMap<Method, GeneratedArgumentExtractor> generatedExtractors = new ConcurrentHashMap<Method, GeneratedArgumentExtractor>();
+	
+	/**
+	 * Represents the walker of the argument object graphs, <code>null</code> when the arguments are written with <code>toString</code>.
+	 */
+	private ObjectGraphWalker objectGraphWalker;
+	
+	/**
+	 * Represents the sink of the audit trail records, <code>null</code> when the audit trail is written to the log.
+	 */
+	private AuditSink auditSink;
+	
 	/**
 	 * Setter for the order.
 	 * 
@@ -62,14 +105,64 @@ public class AuditTrailAspect implements Ordered {
 		this.order = order;
 	}
 	
+	/**
+	 * Setter for the asynchronous log dispatcher. When defined, the audit trail information is built on the calling thread and written by 
+	 * the writer thread of the dispatcher.
+	 * 
+	 * @param asyncLogDispatcher Represents the asynchronous log dispatcher.
+	 */
+	public void setAsyncLogDispatcher(AsyncLogDispatcher asyncLogDispatcher) {
+		this.asyncLogDispatcher = asyncLogDispatcher;
+	}
+	
+	/**
+	 * Setter for the output format. With <code>JSON</code> the audit trail is written as a single JSON object containing the timestamp, method, 
+	 * user, roles, tenant and arguments fields.
+	 * 
+	 * @param outputFormat Represents the output format of the audit trail.
+	 */
+	public void setOutputFormat(OutputFormat outputFormat) {
+		this.outputFormat = outputFormat;
+	}
+	
+	/**
+	 * Setter for the advised method registry. When defined, the audit trail of a method can be disabled through JMX.
+	 * 
+	 * @param advisedMethodRegistry Represents the registry of the advised methods.
+	 */
+	public void setAdvisedMethodRegistry(AdvisedMethodRegistry advisedMethodRegistry) {
+		this.advisedMethodRegistry = advisedMethodRegistry;
+		this.advisedMethods.clear();
+	}
+	
+	/**
+	 * Setter for the object graph walker. When defined, the ALL argument strategy writes the fields of the arguments and of their nested objects, 
+	 * collections, maps and arrays within the limits of the walker instead of the <code>toString</code> of the arguments.
+	 * 
+	 * @param objectGraphWalker Represents the walker of the argument object graphs.
+	 */
+	public void setObjectGraphWalker(ObjectGraphWalker objectGraphWalker) {
+		this.objectGraphWalker = objectGraphWalker;
+	}
+	
+	/**
+	 * Setter for the audit sink. When defined, the audit trail records are written to the sink instead of the log. With the text output format 
+	 * the text of a record is rendered from its fields only when the sink reads it, the <code>BINARY</code> journal never does.
+	 * 
+	 * @param auditSink Represents the sink of the audit trail records.
+	 */
+	public void setAuditSink(AuditSink auditSink) {
+		this.auditSink = auditSink;
+	}
+	
 	/**
 	 *  Uses <code>org.openinfinity.core.annotation.AuditTrail</code> annotation for the AspectJ's pointcut resolving.
 	 */
 	@Pointcut("execution (* ((@org.openinfinity.core.annotation.AuditTrail *))+.*(..))")
 	public void anyAuditTrailClass() {}
 	
-	@Pointcut("@annotation(org.openinfinity.core.annotation.AuditTrail)")
-	public void auditTrailAnnotatedMethod() {}
+	@Pointcut(value="execution(* *(..)) && @annotation(auditTrail)", argNames="auditTrail")
+	public void auditTrailAnnotatedMethod(AuditTrail auditTrail) {}
 	
 	/**
 	 *  Method prints audit trail information to a Log4j appender.
@@ -87,19 +180,87 @@ public class AuditTrailAspect implements Ordered {
 	 *  @AuditTrail(isUsernameEnabled = true, isRolesEnabled = false, isTimeStampEnabled=true, value={"auto/tire/screw","personId"}, argumentStrategy=CUSTOM)
 	 *  public SomeObject someMethod(AnotherObject anotherObject() {...}
 	 *  </code>
+	 *  <br/><br/>
+	 *  The audit trail reads the invocation context bound by the enclosing advice of a core aspect, or a context of its own when none is bound.
 	 */
-	@Before(value="auditTrailAnnotatedMethod() && @annotation(auditTrail)")
+	@Before(value="auditTrailAnnotatedMethod(auditTrail)", argNames="auditTrail")
 	public void auditTrailedMethod(JoinPoint joinPoint, AuditTrail auditTrail) throws Throwable {
-		ArgumentBuilder builder = new ArgumentBuilder();
-		writeTimestampToAuditTrailIfEnabled(builder, auditTrail);
-		writeMethodToAuditTrailIfEnabled(joinPoint, builder);
-		SecurityContext securityContext = SecurityContextHolder.getContext();
-		Authentication authentication = securityContext.getAuthentication();
-		writeUsernameToAuditTrailIfEnabled(builder, auditTrail, authentication);
-		writeRolesToAuditTrailIfEnabled(builder, auditTrail, authentication);
+		if (advisedMethodRegistry != null && !getAdvisedMethod(joinPoint).getSettings().isEnabled())
+			return;
+		InvocationContext invocationContext = FusedJoinPoint.getInvocationContext(joinPoint);
+		long timestampMillis = System.currentTimeMillis();
+		String argumentInfo;
+		String auditTrailInformation = null;
+		AuditTrailBuilder builder = AuditTrailBuilder.begin();
+		try {
+			argumentInfo = createArgumentInfo(joinPoint, auditTrail, builder.getArgumentBuilder());
+			if (outputFormat == OutputFormat.JSON)
+				auditTrailInformation = createJsonAuditTrail(joinPoint, auditTrail, invocationContext, timestampMillis, argumentInfo);
+			else if (auditSink == null)
+				auditTrailInformation = createAuditTrail(joinPoint, auditTrail, invocationContext, timestampMillis, argumentInfo, builder);
+		} finally {
+			builder.end();
+		}
+		if (auditSink != null)
+			auditSink.write(createAuditRecord(joinPoint, auditTrail, invocationContext, timestampMillis, argumentInfo, auditTrailInformation));
+		else if (asyncLogDispatcher != null)
+			asyncLogDispatcher.dispatch(LOGGER, LogLevel.INFO, auditTrailInformation);
+		else
+			LOGGER.info(auditTrailInformation);
+	}
+
+	private AdvisedMethod getAdvisedMethod(JoinPoint joinPoint) {
+		Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+		AdvisedMethod advisedMethod = advisedMethods.get(method);
+		if (advisedMethod == null) {
+			advisedMethod = advisedMethodRegistry.register(AuditTrailAspect.class.getSimpleName(), method);
+			advisedMethods.put(method, advisedMethod);
+		}
+		return advisedMethod;
+	}
+	
+	private AuditRecord createAuditRecord(JoinPoint joinPoint, AuditTrail auditTrail, InvocationContext invocationContext, long timestampMillis, 
+			String argumentInfo, String auditTrailInformation) {
+		Object tenantId = invocationContext.getTenantId();
+		return new AuditRecord(timestampMillis, joinPoint.getSignature().getName(), 
+				auditTrail.isUsernameEnabled() ? invocationContext.getUsername() : null, 
+				auditTrail.isRolesEnabled() ? invocationContext.getRenderedRoles() : null, 
+				tenantId != null ? tenantId.toString() : null, argumentInfo, auditTrailInformation);
+	}
+	
+	private String createArgumentInfo(JoinPoint joinPoint, AuditTrail auditTrail, ArgumentBuilder builder) {
+		if (auditTrail.argumentStrategy() == ArgumentStrategy.NONE)
+			return null;
 		writeArgumentDetailsToAuditTrailBasedOnDesicionLogic(joinPoint, builder, auditTrail);
-		String auditTrailInformation = builder.toString();
-		LOGGER.info(auditTrailInformation);
+		return builder.toString();
+	}
+	
+	private String createAuditTrail(JoinPoint joinPoint, AuditTrail auditTrail, InvocationContext invocationContext, long timestampMillis, String argumentInfo, 
+			AuditTrailBuilder builder) {
+		writeTimestampToAuditTrailIfEnabled(builder, auditTrail, timestampMillis);
+		StringBuilder text = builder.getText();
+		writeMethodToAuditTrailIfEnabled(joinPoint, text);
+		writeUsernameToAuditTrailIfEnabled(text, auditTrail, invocationContext);
+		writeRolesToAuditTrailIfEnabled(text, auditTrail, invocationContext);
+		if (argumentInfo != null)
+			text.append(argumentInfo);
+		return text.toString();
+	}
+	
+	private String createJsonAuditTrail(JoinPoint joinPoint, AuditTrail auditTrail, InvocationContext invocationContext, long timestampMillis, String argumentInfo) {
+		JsonEventWriter writer = JsonEventWriter.begin();
+		try {
+			if (auditTrail.isTimeStampEnabled())
+				writer.writeTimestamp(TimestampUtil.formatIsoTimestamp(timestampMillis));
+			writer.writeMethod(joinPoint.getSignature().getName());
+			writer.writeInvocationContext(invocationContext, auditTrail.isUsernameEnabled(), auditTrail.isRolesEnabled());
+			writer.writeTraceIds();
+			if (argumentInfo != null)
+				writer.writeArguments(argumentInfo);
+			return writer.end();
+		} finally {
+			writer.release();
+		}
 	}
 
 	private void writeArgumentDetailsToAuditTrailBasedOnDesicionLogic(JoinPoint joinPoint, ArgumentBuilder builder, AuditTrail auditTrail) {
@@ -113,41 +274,52 @@ public class AuditTrailAspect implements Ordered {
 	}
 	
 	private void addCustomFieldsToAuditTrail(JoinPoint joinPoint, ArgumentBuilder builder, AuditTrail auditTrail) {
-		builder.extractArgumentInfoByFilteringFields(joinPoint, auditTrail.value());
+		if (auditTrail.generateExtractor())
+			builder.extractArgumentInfoByGeneratedExtractor(joinPoint.getArgs(), getGeneratedExtractor(joinPoint, auditTrail));
+		else
+			builder.extractArgumentInfoByFilteringFields(joinPoint, auditTrail.value());
+	}
+	
+	private GeneratedArgumentExtractor getGeneratedExtractor(JoinPoint joinPoint, AuditTrail auditTrail) {
+		Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+		GeneratedArgumentExtractor generatedExtractor = generatedExtractors.get(method);
+		if (generatedExtractor == null) {
+			generatedExtractor = new GeneratedArgumentExtractor(auditTrail.value(), method.getParameterTypes().length);
+			GeneratedArgumentExtractor existing = generatedExtractors.putIfAbsent(method, generatedExtractor);
+			if (existing != null)
+				generatedExtractor = existing;
+		}
+		return generatedExtractor;
 	}
 
 	private void addAllArgumentsToAuditTrail(JoinPoint joinPoint, ArgumentBuilder builder) {
-		builder.extractArgumentInfo(joinPoint);
+		if (objectGraphWalker != null)
+			builder.extractArgumentInfoByWalkingFields(joinPoint.getArgs(), objectGraphWalker);
+		else if (joinPoint instanceof FusedJoinPoint)
+			builder.append(((FusedJoinPoint) joinPoint).getArgumentInfo());
+		else
+			builder.extractArgumentInfo(joinPoint);
 	}
 
-	private void writeMethodToAuditTrailIfEnabled(JoinPoint joinPoint, ArgumentBuilder builder) {
+	private void writeMethodToAuditTrailIfEnabled(JoinPoint joinPoint, StringBuilder builder) {
 		builder.append(" Method: [").append(joinPoint.getSignature().getName()).append("] ");
 	}
 
-	private void writeRolesToAuditTrailIfEnabled(ArgumentBuilder builder, AuditTrail auditTrail, Authentication authentication) {
-		if (auditTrail.isRolesEnabled() && authentication != null && authentication.getAuthorities() != null) {
-			Collection<? extends GrantedAuthority> grantedAuthorities = authentication.getAuthorities();
-			builder.append(" with granted authorities: [");
-			for (GrantedAuthority grantedAuthority : grantedAuthorities) 
-				builder.append("{" + grantedAuthority.getAuthority() + "}");
-			builder.append("] ");
-		}
+	private void writeRolesToAuditTrailIfEnabled(StringBuilder builder, AuditTrail auditTrail, InvocationContext invocationContext) {
+		if (auditTrail.isRolesEnabled() && invocationContext.getAuthentication() != null)
+			builder.append(" with granted authorities: [").append(invocationContext.getRenderedRoles()).append("] ");
 	}
 
-	private void writeUsernameToAuditTrailIfEnabled(ArgumentBuilder builder, AuditTrail auditTrail, Authentication authentication) {
+	private void writeUsernameToAuditTrailIfEnabled(StringBuilder builder, AuditTrail auditTrail, InvocationContext invocationContext) {
 		if (auditTrail.isUsernameEnabled()) {	
-			String username = authentication!=null?authentication.getName():"user not authenticated";
-			builder.append(" Username: ").append("[").append(username).append("] ");
+			String username = invocationContext.getUsername()!=null?invocationContext.getUsername():"user not authenticated";
+			builder.append(" Username: [").append(username).append("] ");
 		}
 	}
 
-	private void writeTimestampToAuditTrailIfEnabled(ArgumentBuilder builder, AuditTrail auditTrail) {
-		if (auditTrail.isTimeStampEnabled()) { 
-			DateTime dateTime = new DateTime();
-			DateTimeFormatter fmt = ISODateTimeFormat.dateTime();
-			String timeStamp = fmt.print(dateTime);
-			builder.append("Timestamp: ").append("[").append(timeStamp).append("] ");
-		}
+	private void writeTimestampToAuditTrailIfEnabled(AuditTrailBuilder builder, AuditTrail auditTrail, long timestampMillis) {
+		if (auditTrail.isTimeStampEnabled())
+			builder.appendTimestamp(timestampMillis);
 	}
 
 	@Override
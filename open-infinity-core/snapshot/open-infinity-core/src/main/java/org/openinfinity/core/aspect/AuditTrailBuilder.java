@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.aspect;
+
+import org.openinfinity.core.util.TimestampUtil;
+
+/**
+ * Builds the audit trail information of <code>org.openinfinity.core.aspect.AuditTrailAspect</code> into buffers reused by the calling thread, 
+ * so that the only allocations of an audited call are the argument information and the resulting text. A nested audited call on the same 
+ * thread gets a builder of its own.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+final class AuditTrailBuilder {
+
+	/**
+	 * Represents the maximum capacity of the text buffer retained between the calls.
+	 */
+	private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+	/**
+	 * Represents the builder of the current thread.
+	 */
+	private static final ThreadLocal<AuditTrailBuilder> BUILDERS = new ThreadLocal<AuditTrailBuilder>() {
+		@Override
+		protected AuditTrailBuilder initialValue() {
+			return new AuditTrailBuilder();
+		}
+	};
+
+	/**
+	 * Represents the builder of the argument information.
+	 */
+	private final ArgumentBuilder argumentBuilder = new ArgumentBuilder();
+
+	/**
+	 * Represents the buffer of the audit trail text.
+	 */
+	private StringBuilder text = new StringBuilder(256);
+
+	/**
+	 * Represents whether the builder is building the audit trail of a call.
+	 */
+	private boolean inUse;
+
+	private AuditTrailBuilder() {}
+
+	/**
+	 * Starts the audit trail of a call on the builder of the current thread.
+	 *
+	 * @return AuditTrailBuilder Represents the cleared builder.
+	 */
+	static AuditTrailBuilder begin() {
+		AuditTrailBuilder builder = BUILDERS.get();
+		if (builder.inUse)
+			builder = new AuditTrailBuilder();
+		builder.inUse = true;
+		builder.argumentBuilder.reset();
+		if (builder.text.capacity() > MAX_RETAINED_CAPACITY)
+			builder.text = new StringBuilder(256);
+		else
+			builder.text.setLength(0);
+		return builder;
+	}
+
+	/**
+	 * Returns the builder of the argument information.
+	 */
+	ArgumentBuilder getArgumentBuilder() {
+		return argumentBuilder;
+	}
+
+	/**
+	 * Returns the buffer of the audit trail text.
+	 */
+	StringBuilder getText() {
+		return text;
+	}
+
+	/**
+	 * Appends the timestamp formatted in the ISO-8601 format to the text.
+	 */
+	AuditTrailBuilder appendTimestamp(long timestampMillis) {
+		text.append("Timestamp: [");
+		TimestampUtil.appendIsoTimestamp(text, timestampMillis).append("] ");
+		return this;
+	}
+
+	/**
+	 * Ends the audit trail of the call, releasing the builder to the next call of the thread.
+	 */
+	void end() {
+		inUse = false;
+	}
+
+}
@@ -24,6 +24,7 @@ import org.aspectj.lang.annotation.Pointcut;
 import org.openinfinity.core.annotation.Decrypt;
 import org.openinfinity.core.annotation.Encrypt;
 import org.openinfinity.core.crypto.CryptoSupport;
+import org.openinfinity.core.reflection.ObjectGraphWalker;
 import org.openinfinity.core.util.ExceptionUtil;
 import org.openinfinity.core.util.IOUtil;
 import org.slf4j.Logger;
@@ -33,7 +34,7 @@ import org.springframework.core.Ordered;
  * Aspect for handling cryptography on method level with entities and their attributes.
  * 
  * @author Ilkka Leinonen
- * @version 1.3.0
+ * @version 1.4.0 - Nested fields are reached with an object graph walker.
  * @since 1.0.0
  */
 @Aspect
@@ -89,17 +90,32 @@ public class CryptoAspect implements Ordered {
 		this.order = order;
 	}
 	
+	/**
+	 * Represents the walker of the argument object graphs, <code>null</code> when only the fields of the arguments are encrypted and decrypted.
+	 */
+	private ObjectGraphWalker objectGraphWalker;
+	
+	/**
+	 * Setter for the object graph walker. When defined, the ALL argument strategy reaches the fields of the nested objects, collections, 
+	 * maps and arrays of the arguments within the limits of the walker.
+	 * 
+	 * @param objectGraphWalker Represents the walker of the argument object graphs.
+	 */
+	public void setObjectGraphWalker(ObjectGraphWalker objectGraphWalker) {
+		this.objectGraphWalker = objectGraphWalker;
+	}
+	
 	/**
 	 * Pointcut for each <code>org.openinfinity.core.annotation.Crypto</code> found from methods. 
 	 */
-	@Pointcut("@annotation(org.openinfinity.core.annotation.Encrypt)")
-	public void encryptObjectContentAfterOperation(){}
+	@Pointcut(value="execution(* *(..)) && @annotation(encrypt)", argNames="encrypt")
+	public void encryptObjectContentAfterOperation(Encrypt encrypt){}
 
 	/**
 	 * Pointcut for each <code>org.openinfinity.core.annotation.Decrypt</code> found from methods. 
 	 */
-	@Pointcut("@annotation(org.openinfinity.core.annotation.Decrypt)")
-	public void decryptObjectContentBeforeOperation(){}
+	@Pointcut(value="execution(* *(..)) && @annotation(decrypt)", argNames="decrypt")
+	public void decryptObjectContentBeforeOperation(Decrypt decrypt){}
 	
 	/**
 	 * Method for managing encryption of the entity fields. 
@@ -108,7 +124,7 @@ public class CryptoAspect implements Ordered {
 	 * @param encrypt Represents the annotation found from the joinpoint.
 	 * @return The original arguments.
 	 */
-	@Around(value="encryptObjectContentAfterOperation() && @annotation(encrypt)")
+	@Around(value="encryptObjectContentAfterOperation(encrypt)", argNames="encrypt")
 	public Object encryptObjectContentAfterMethod(ProceedingJoinPoint joinPoint, final Encrypt encrypt) {
 		LOGGER.debug("Encryption for the object has started.");
 		try {
@@ -136,7 +152,7 @@ public class CryptoAspect implements Ordered {
 	 * @param encrypt Represents the annotation found from the joinpoint.
 	 * @return The original arguments.
 	 */
-	@Around(value="decryptObjectContentBeforeOperation() && @annotation(decrypt)")
+	@Around(value="decryptObjectContentBeforeOperation(decrypt)", argNames="decrypt")
 	public Object decryptObjectContentAfterMethod(ProceedingJoinPoint joinPoint, final Decrypt decrypt) {
 		LOGGER.debug("Decryption for the object has started.");
 		try {
@@ -173,7 +189,7 @@ public class CryptoAspect implements Ordered {
 			public void onField(Field field, final Object object) {
 				decryptField(field, object);
 			}
-		}, arguments);
+		}, arguments, objectGraphWalker);
 	}
 
 	private void executeGatheringOfAllArguments(Object[] arguments, final Encrypt encrypt, ArgumentBuilder argumentBuilder, StringBuilder builder) {
@@ -182,7 +198,7 @@ public class CryptoAspect implements Ordered {
 			public void onField(Field field, Object object) {
 				encryptField(field, object);
 			}
-		}, arguments);
+		}, arguments, objectGraphWalker);
 	}
 	
 	private void executeGatheringOfDefinedArguments(Object[] arguments, final Encrypt encrypt, ArgumentBuilder argumentBuilder, StringBuilder builder) {
@@ -45,7 +45,7 @@ import org.springframework.core.Ordered;
  * <code>org.openinfinity.core.exception.AbstractCoreException</code>).
  * 
  * @author Ilkka Leinonen
- * @version 1.1.0
+ * @version 1.2.0 - Aspect types are excluded from the pointcuts, so that the aspect can be woven with ajc.
  * @since 1.0.0
  */
 @Aspect
@@ -73,19 +73,19 @@ public class ExceptionTranslatorAspect implements Ordered {
 	/**
 	 *  Uses <code>org.springframework.stereotype.Component</code> annotation for the point cut resolving.
 	 */
-	@Pointcut("execution (* ((@org.springframework.stereotype.Component *))+.*(..))")
+	@Pointcut("execution (* ((@org.springframework.stereotype.Component *))+.*(..)) && !within(@org.aspectj.lang.annotation.Aspect *)")
 	public void anyComponentMethod() {}
 	
 	/**
 	 *  Uses <code>org.springframework.stereotype.Controller</code> annotation for the point cut resolving.
 	 */
-	@Pointcut("execution (* ((@org.springframework.stereotype.Controller *))+.*(..))")
+	@Pointcut("execution (* ((@org.springframework.stereotype.Controller *))+.*(..)) && !within(@org.aspectj.lang.annotation.Aspect *)")
 	public void anyControllerMethod() {}
 	
 	/**
 	 *  Uses <code>org.springframework.stereotype.Service</code> annotation for the point cut resolving.
 	 */
-	@Pointcut("execution (* ((@org.springframework.stereotype.Service *))+.*(..))")
+	@Pointcut("execution (* ((@org.springframework.stereotype.Service *))+.*(..)) && !within(@org.aspectj.lang.annotation.Aspect *)")
 	public void anyServiceMethod() {}
 	
 	/**
@@ -94,7 +94,7 @@ public class ExceptionTranslatorAspect implements Ordered {
 	 * @param throwable Represents the thrown Exception which will be caught and resolved as <code>org.openinfinity.core.exception.BusinessViolationException</code> or <code>org.openinfinity.core.exception.ApplicationException</code> or <code>org.openinfinity.core.exception.SystemException</code>.
 	 * @throws Throwable When exception has been resolved as <code>org.openinfinity.core.exception.BusinessViolationException</code> or <code>org.openinfinity.core.exception.ApplicationException</code> or <code>org.openinfinity.core.exception.SystemException</code>.
 	 */
-	@AfterThrowing(throwing="throwable", pointcut="anyComponentMethod()")
+	@AfterThrowing(throwing="throwable", pointcut="anyComponentMethod()", argNames="throwable")
 	public void translateComponentException(Throwable throwable) throws Throwable {
 		resolveException(throwable);
 	}
@@ -105,7 +105,7 @@ public class ExceptionTranslatorAspect implements Ordered {
 	 * @param throwable Represents the thrown Exception which will be caught and resolved as <code>org.openinfinity.core.exception.BusinessViolationException</code> or <code>org.openinfinity.core.exception.ApplicationException</code> or <code>org.openinfinity.core.exception.SystemException</code>.
 	 * @throws Throwable When exception has been resolved as <code>org.openinfinity.core.exception.BusinessViolationException</code> or <code>org.openinfinity.core.exception.ApplicationException</code> or <code>org.openinfinity.core.exception.SystemException</code>.
 	 */
-	@AfterThrowing(throwing="throwable", pointcut="anyControllerMethod()")
+	@AfterThrowing(throwing="throwable", pointcut="anyControllerMethod()", argNames="throwable")
 	public void translateControllerException(Throwable throwable) throws Throwable {
 		resolveException(throwable);
 	}
@@ -116,7 +116,7 @@ public class ExceptionTranslatorAspect implements Ordered {
 	 * @param throwable Represents the thrown Exception which will be caught and resolved as <code>org.openinfinity.core.exception.BusinessViolationException</code> or <code>org.openinfinity.core.exception.ApplicationException</code> or <code>org.openinfinity.core.exception.SystemException</code>.
 	 * @throws Throwable When exception has been resolved as <code>org.openinfinity.core.exception.BusinessViolationException</code> or <code>org.openinfinity.core.exception.ApplicationException</code> or <code>org.openinfinity.core.exception.SystemException</code>.
 	 */
-	@AfterThrowing(throwing="throwable", pointcut="anyServiceMethod()")
+	@AfterThrowing(throwing="throwable", pointcut="anyServiceMethod()", argNames="throwable")
 	public void translateServiceException(Throwable throwable) throws Throwable {
 		resolveException(throwable);
 	}
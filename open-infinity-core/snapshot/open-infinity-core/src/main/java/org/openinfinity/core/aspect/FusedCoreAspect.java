@@ -0,0 +1,374 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.aspect;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.openinfinity.core.annotation.AuditTrail;
+import org.openinfinity.core.annotation.Decrypt;
+import org.openinfinity.core.annotation.Encrypt;
+import org.openinfinity.core.annotation.Log;
+import org.openinfinity.core.annotation.MultiTenant;
+import org.openinfinity.core.security.InvocationContext;
+import org.openinfinity.core.util.AspectUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.OrderComparator;
+import org.springframework.core.Ordered;
+
+/**
+ * Fused advice for the methods annotated with <code>org.openinfinity.core.annotation.Log</code>, <code>org.openinfinity.core.annotation.AuditTrail</code>,
+ * <code>org.openinfinity.core.annotation.MultiTenant</code>, <code>org.openinfinity.core.annotation.Encrypt</code> and <code>org.openinfinity.core.annotation.Decrypt</code>.
+ * Instead of a separate advisor per annotation, a single advice runs the tenant id injection, crypto, audit trail and log stages of the configured 
+ * aspects as a pipeline over one <code>org.openinfinity.core.aspect.FusedJoinPoint</code>, which captures the arguments and the security context once 
+ * per invocation and shares the argument information of the ALL argument strategy between the log and audit trail stages. The stages of a method are 
+ * resolved once, from the annotations of the method, and run in the <code>org.springframework.core.Ordered</code> order of their aspects, the order of 
+ * <code>org.openinfinity.core.aspect.AspectPrecedence</code> for equal orders.
+ * <br/><br/>
+ * The fused aspect is optional and replaces the separate aspects: the aspects are configured as plain beans injected into the fused aspect, 
+ * and only the fused aspect is applied, for example with <code>&lt;aop:aspectj-autoproxy&gt;&lt;aop:include name="fusedCoreAspect"/&gt;&lt;/aop:aspectj-autoproxy&gt;</code>.
+ * Annotations of aspects which are not configured are ignored.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+@Aspect
+public class FusedCoreAspect implements Ordered {
+	
+	/**
+	 * Logger for this class.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(FusedCoreAspect.class);
+	
+	/**
+	 * Represents the execution order of the aspect.
+	 */
+	private int order;
+	
+	/**
+	 * Represents the aspect of the log stage, <code>null</code> when not configured.
+	 */
+	private LogAspect logAspect;
+	
+	/**
+	 * Represents the aspect of the audit trail stage, <code>null</code> when not configured.
+	 */
+	private AuditTrailAspect auditTrailAspect;
+	
+	/**
+	 * Represents the aspect of the tenant id injection stage, <code>null</code> when not configured.
+	 */
+	private MultiTenantAspect multiTenantAspect;
+	
+	/**
+	 * Represents the aspect of the encryption and decryption stages, <code>null</code> when not configured.
+	 */
+	private CryptoAspect cryptoAspect;
+	
+	/**
+	 * Represents the resolved stages by the advised method and the class of the target.
+	 */
+	private final ConcurrentMap<AdvicePlanKey, AdviceStage[]> advicePlans = new ConcurrentHashMap<AdvicePlanKey, AdviceStage[]>();
+	
+	/**
+	 * Setter for the order.
+	 * 
+	 * @param order Represents the execution order of the aspect.
+	 */
+	public void setOrder(int order) {
+		this.order = order;
+	}
+	
+	/**
+	 * Setter for the log aspect running the log stage.
+	 * 
+	 * @param logAspect Represents the log aspect.
+	 */
+	public void setLogAspect(LogAspect logAspect) {
+		this.logAspect = logAspect;
+		this.advicePlans.clear();
+	}
+	
+	/**
+	 * Setter for the audit trail aspect running the audit trail stage.
+	 * 
+	 * @param auditTrailAspect Represents the audit trail aspect.
+	 */
+	public void setAuditTrailAspect(AuditTrailAspect auditTrailAspect) {
+		this.auditTrailAspect = auditTrailAspect;
+		this.advicePlans.clear();
+	}
+	
+	/**
+	 * Setter for the multi-tenant aspect running the tenant id injection stage.
+	 * 
+	 * @param multiTenantAspect Represents the multi-tenant aspect.
+	 */
+	public void setMultiTenantAspect(MultiTenantAspect multiTenantAspect) {
+		this.multiTenantAspect = multiTenantAspect;
+		this.advicePlans.clear();
+	}
+	
+	/**
+	 * Setter for the crypto aspect running the encryption and decryption stages.
+	 * 
+	 * @param cryptoAspect Represents the crypto aspect.
+	 */
+	public void setCryptoAspect(CryptoAspect cryptoAspect) {
+		this.cryptoAspect = cryptoAspect;
+		this.advicePlans.clear();
+	}
+	
+	/**
+	 *  Uses the core annotations for the point cut resolving. Only execution join points are matched.
+	 */
+	@Pointcut("execution(* *(..)) && (@annotation(org.openinfinity.core.annotation.Log) || @annotation(org.openinfinity.core.annotation.AuditTrail) " +
+			"|| @annotation(org.openinfinity.core.annotation.MultiTenant) || @annotation(org.openinfinity.core.annotation.Encrypt) " +
+			"|| @annotation(org.openinfinity.core.annotation.Decrypt))")
+	public void coreAnnotatedMethod() {}
+	
+	/**
+	 * Runs the stages of the advised method with a shared join point. The invocation context is bound to the thread for the call.
+	 * 
+	 * @param joinPoint Represents the method which has been invoked.
+	 * @return Object Represents the object to be returned.
+	 * @throws Throwable Represents the exception of the stages or of the advised method.
+	 */
+	@Around("coreAnnotatedMethod()")
+	public Object adviseMethod(ProceedingJoinPoint joinPoint) throws Throwable {
+		AdviceStage[] stages = getStages(joinPoint);
+		if (stages.length == 0)
+			return joinPoint.proceed();
+		InvocationContext invocationContext = InvocationContext.begin();
+		try {
+			return new FusedJoinPoint(joinPoint, stages, invocationContext).proceed();
+		} finally {
+			InvocationContext.end();
+		}
+	}
+	
+	private AdviceStage[] getStages(ProceedingJoinPoint joinPoint) {
+		Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+		Object target = joinPoint.getTarget();
+		AdvicePlanKey key = new AdvicePlanKey(method, target != null ? target.getClass() : null);
+		AdviceStage[] stages = advicePlans.get(key);
+		if (stages == null) {
+			stages = createStages(method, target != null ? AopUtils.getTargetClass(target) : null);
+			advicePlans.put(key, stages);
+		}
+		return stages;
+	}
+	
+	private AdviceStage[] createStages(Method method, Class<?> targetClass) {
+		List<AdviceStage> stages = new ArrayList<AdviceStage>();
+		Log log = AspectUtil.findAnnotation(method, targetClass, Log.class);
+		if (log != null && logAspect != null)
+			stages.add(new LogStage(logAspect, log));
+		AuditTrail auditTrail = AspectUtil.findAnnotation(method, targetClass, AuditTrail.class);
+		if (auditTrail != null && auditTrailAspect != null)
+			stages.add(new AuditTrailStage(auditTrailAspect, auditTrail));
+		MultiTenant multiTenant = AspectUtil.findAnnotation(method, targetClass, MultiTenant.class);
+		if (multiTenant != null && multiTenantAspect != null)
+			stages.add(new MultiTenantStage(multiTenantAspect, multiTenant));
+		Encrypt encrypt = AspectUtil.findAnnotation(method, targetClass, Encrypt.class);
+		if (encrypt != null && cryptoAspect != null)
+			stages.add(new EncryptStage(cryptoAspect, encrypt));
+		Decrypt decrypt = AspectUtil.findAnnotation(method, targetClass, Decrypt.class);
+		if (decrypt != null && cryptoAspect != null)
+			stages.add(new DecryptStage(cryptoAspect, decrypt));
+		OrderComparator.sort(stages);
+		if (LOGGER.isDebugEnabled())
+			LOGGER.debug("FusedCoreAspect resolved " + stages.size() + " stages for [" + method + "].");
+		return stages.toArray(new AdviceStage[stages.size()]);
+	}
+
+	@Override
+	public int getOrder() {
+		return order;
+	}
+	
+	/**
+	 * Represents the key of the resolved stages, the advised method and the class of the target.
+	 */
+	private static final class AdvicePlanKey {
+		
+		private final Method method;
+		
+		private final Class<?> targetType;
+		
+		private final int hashCode;
+		
+		AdvicePlanKey(Method method, Class<?> targetType) {
+			this.method = method;
+			this.targetType = targetType;
+			this.hashCode = method.hashCode() * 31 + (targetType == null ? 0 : targetType.hashCode());
+		}
+		
+		@Override
+		public boolean equals(Object object) {
+			if (this == object)
+				return true;
+			if (!(object instanceof AdvicePlanKey))
+				return false;
+			AdvicePlanKey other = (AdvicePlanKey) object;
+			return method.equals(other.method) && targetType == other.targetType;
+		}
+		
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+		
+	}
+	
+	private static final class LogStage implements AdviceStage {
+		
+		private final LogAspect logAspect;
+		
+		private final Log log;
+		
+		LogStage(LogAspect logAspect, Log log) {
+			this.logAspect = logAspect;
+			this.log = log;
+		}
+		
+		public Object invoke(FusedJoinPoint joinPoint) throws Throwable {
+			return logAspect.logMethod(joinPoint, log);
+		}
+		
+		public boolean isModifyingArguments() {
+			return false;
+		}
+		
+		public int getOrder() {
+			return logAspect.getOrder();
+		}
+		
+	}
+	
+	private static final class AuditTrailStage implements AdviceStage {
+		
+		private final AuditTrailAspect auditTrailAspect;
+		
+		private final AuditTrail auditTrail;
+		
+		AuditTrailStage(AuditTrailAspect auditTrailAspect, AuditTrail auditTrail) {
+			this.auditTrailAspect = auditTrailAspect;
+			this.auditTrail = auditTrail;
+		}
+		
+		public Object invoke(FusedJoinPoint joinPoint) throws Throwable {
+			auditTrailAspect.auditTrailedMethod(joinPoint, auditTrail);
+			return joinPoint.proceed();
+		}
+		
+		public boolean isModifyingArguments() {
+			return false;
+		}
+		
+		public int getOrder() {
+			return auditTrailAspect.getOrder();
+		}
+		
+	}
+	
+	private static final class MultiTenantStage implements AdviceStage {
+		
+		private final MultiTenantAspect multiTenantAspect;
+		
+		private final MultiTenant multiTenant;
+		
+		MultiTenantStage(MultiTenantAspect multiTenantAspect, MultiTenant multiTenant) {
+			this.multiTenantAspect = multiTenantAspect;
+			this.multiTenant = multiTenant;
+		}
+		
+		public Object invoke(FusedJoinPoint joinPoint) throws Throwable {
+			return multiTenantAspect.populateTenantIdToMultiTenantEntity(joinPoint, multiTenant);
+		}
+		
+		public boolean isModifyingArguments() {
+			return true;
+		}
+		
+		public int getOrder() {
+			return multiTenantAspect.getOrder();
+		}
+		
+	}
+	
+	private static final class EncryptStage implements AdviceStage {
+		
+		private final CryptoAspect cryptoAspect;
+		
+		private final Encrypt encrypt;
+		
+		EncryptStage(CryptoAspect cryptoAspect, Encrypt encrypt) {
+			this.cryptoAspect = cryptoAspect;
+			this.encrypt = encrypt;
+		}
+		
+		public Object invoke(FusedJoinPoint joinPoint) throws Throwable {
+			return cryptoAspect.encryptObjectContentAfterMethod(joinPoint, encrypt);
+		}
+		
+		public boolean isModifyingArguments() {
+			return true;
+		}
+		
+		public int getOrder() {
+			return cryptoAspect.getOrder();
+		}
+		
+	}
+	
+	private static final class DecryptStage implements AdviceStage {
+		
+		private final CryptoAspect cryptoAspect;
+		
+		private final Decrypt decrypt;
+		
+		DecryptStage(CryptoAspect cryptoAspect, Decrypt decrypt) {
+			this.cryptoAspect = cryptoAspect;
+			this.decrypt = decrypt;
+		}
+		
+		public Object invoke(FusedJoinPoint joinPoint) throws Throwable {
+			return cryptoAspect.decryptObjectContentAfterMethod(joinPoint, decrypt);
+		}
+		
+		public boolean isModifyingArguments() {
+			return true;
+		}
+		
+		public int getOrder() {
+			return cryptoAspect.getOrder();
+		}
+		
+	}
+	
+}
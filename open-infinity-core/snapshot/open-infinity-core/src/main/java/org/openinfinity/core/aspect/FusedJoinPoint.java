@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.aspect;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.reflect.SourceLocation;
+import org.aspectj.runtime.internal.AroundClosure;
+import org.openinfinity.core.security.InvocationContext;
+
+/**
+ * Join point shared by the stages of <code>org.openinfinity.core.aspect.FusedCoreAspect</code>. The arguments and the 
+ * <code>org.openinfinity.core.security.InvocationContext</code> are captured once per invocation, and the argument information of the ALL argument strategy is built once 
+ * and reused by the log and audit trail stages until a stage modifying the arguments proceeds. <code>proceed</code> runs the next 
+ * stage, and the advised method after the last stage. The join point is confined to the invoking thread.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.1.0 - The invocation context is captured instead of the authentication.
+ * @since 1.6.0
+ */
+final class FusedJoinPoint implements ProceedingJoinPoint {
+	
+	/**
+	 * Represents the join point of the advised method.
+	 */
+	private final ProceedingJoinPoint joinPoint;
+	
+	/**
+	 * Represents the stages in the order of execution.
+	 */
+	private final AdviceStage[] stages;
+	
+	/**
+	 * Represents the invocation context when the invocation started.
+	 */
+	private final InvocationContext invocationContext;
+	
+	/**
+	 * Represents the arguments shared by the stages.
+	 */
+	private Object[] arguments;
+	
+	/**
+	 * Represents whether a stage has proceeded with other arguments.
+	 */
+	private boolean argumentsReplaced;
+	
+	/**
+	 * Represents the argument information of the ALL argument strategy, <code>null</code> when not built.
+	 */
+	private String argumentInfo;
+	
+	/**
+	 * Represents the index of the stage run by <code>proceed</code>.
+	 */
+	private int nextStage;
+	
+	FusedJoinPoint(ProceedingJoinPoint joinPoint, AdviceStage[] stages, InvocationContext invocationContext) {
+		this.joinPoint = joinPoint;
+		this.stages = stages;
+		this.arguments = joinPoint.getArgs();
+		this.invocationContext = invocationContext;
+	}
+	
+	/**
+	 * Returns the invocation context of the thread, captured once when the join point is shared by the fused stages, otherwise the context 
+	 * bound by the enclosing advice of a core aspect.
+	 * 
+	 * @param joinPoint Represents the join point of the advice.
+	 * @return InvocationContext Represents the invocation context.
+	 */
+	static InvocationContext getInvocationContext(JoinPoint joinPoint) {
+		if (joinPoint instanceof FusedJoinPoint)
+			return ((FusedJoinPoint) joinPoint).invocationContext;
+		return InvocationContext.current();
+	}
+	
+	/**
+	 * Returns the argument information of the ALL argument strategy, built by <code>ArgumentBuilder.extractArgumentInfo</code> once 
+	 * and rebuilt after a stage modifying the arguments has proceeded.
+	 */
+	String getArgumentInfo() {
+		if (argumentInfo == null) {
+			ArgumentBuilder builder = new ArgumentBuilder();
+			builder.extractArgumentInfo(arguments);
+			argumentInfo = builder.toString();
+		}
+		return argumentInfo;
+	}
+	
+	@Override
+	public Object proceed() throws Throwable {
+		int stage = nextStage;
+		if (stage > 0 && stages[stage - 1].isModifyingArguments())
+			argumentInfo = null;
+		try {
+			if (stage == stages.length)
+				return argumentsReplaced ? joinPoint.proceed(arguments) : joinPoint.proceed();
+			nextStage = stage + 1;
+			return stages[stage].invoke(this);
+		} finally {
+			nextStage = stage;
+		}
+	}
+	
+	@Override
+	public Object proceed(Object[] arguments) throws Throwable {
+		if (arguments != this.arguments) {
+			this.arguments = arguments;
+			this.argumentsReplaced = true;
+			this.argumentInfo = null;
+		}
+		return proceed();
+	}
+	
+	@Override
+	public Object[] getArgs() {
+		return arguments;
+	}
+	
+	@Override
+	public void set$AroundClosure(AroundClosure arc) {
+		joinPoint.set$AroundClosure(arc);
+	}
+
+	@Override
+	public String toShortString() {
+		return joinPoint.toShortString();
+	}
+
+	@Override
+	public String toLongString() {
+		return joinPoint.toLongString();
+	}
+
+	@Override
+	public Object getThis() {
+		return joinPoint.getThis();
+	}
+
+	@Override
+	public Object getTarget() {
+		return joinPoint.getTarget();
+	}
+
+	@Override
+	public Signature getSignature() {
+		return joinPoint.getSignature();
+	}
+
+	@Override
+	public SourceLocation getSourceLocation() {
+		return joinPoint.getSourceLocation();
+	}
+
+	@Override
+	public String getKind() {
+		return joinPoint.getKind();
+	}
+
+	@Override
+	public StaticPart getStaticPart() {
+		return joinPoint.getStaticPart();
+	}
+	
+	@Override
+	public String toString() {
+		return joinPoint.toString();
+	}
+	
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.aspect;
+
+import org.openinfinity.core.reflection.PropertyPathAppender;
+import org.openinfinity.core.reflection.PropertyPathAppenderGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Extracts the argument information of the CUSTOM argument strategy with the appenders generated by
+ * <code>org.openinfinity.core.reflection.PropertyPathAppenderGenerator</code>. The appender of every field and argument position
+ * is cached for the last seen argument class, so that a monomorphic call site reads the fields with direct getter calls only.
+ * Paths which can not be generated, paths without value and appenders failing with an exception are evaluated by 
+ * <code>org.openinfinity.core.aspect.ArgumentBuilder</code>, so the output and the warnings are the same as without the generated extractor. 
+ * An appender failing to link is replaced by the unsupported appender in its slot.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class GeneratedArgumentExtractor implements ArgumentExtractor {
+
+	/**
+	 * Logger for this class.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(GeneratedArgumentExtractor.class);
+
+	/**
+	 * Represents the allowed field names of the method.
+	 */
+	private final String[] allowedFields;
+
+	/**
+	 * Represents the number of arguments of the method.
+	 */
+	private final int argumentCount;
+
+	/**
+	 * Represents the cached appenders by the field and the argument position.
+	 */
+	private final Slot[] slots;
+
+	/**
+	 * Creates the extractor of the method.
+	 *
+	 * @param allowedFields Represents the allowed field names of the method.
+	 * @param argumentCount Represents the number of arguments of the method.
+	 */
+	public GeneratedArgumentExtractor(String[] allowedFields, int argumentCount) {
+		this.allowedFields = allowedFields.clone();
+		this.argumentCount = argumentCount;
+		this.slots = new Slot[allowedFields.length * argumentCount];
+	}
+
+	/**
+	 * Returns the argument information of the method arguments.
+	 *
+	 * @param arguments Represents the actual arguments of the invoked method.
+	 * @return String representing the argument information.
+	 */
+	public String extract(Object[] arguments) {
+		StringBuilder builder = new StringBuilder();
+		appendTo(builder, arguments);
+		return builder.toString();
+	}
+
+	/**
+	 * Appends the argument information of the method arguments to the buffer.
+	 *
+	 * @param builder Represents the buffer.
+	 * @param arguments Represents the actual arguments of the invoked method.
+	 */
+	public void appendTo(StringBuilder builder, Object[] arguments) {
+		if (arguments.length == 0) {
+			builder.append("without any parameters");
+			return;
+		}
+		for (int i = 0; i < allowedFields.length; i++) {
+			for (int j = 0; j < arguments.length; j++) {
+				Object argument = arguments[j];
+				if (argument == null || !appendGenerated(builder, i, j, argument))
+					ArgumentBuilder.appendPathValue(builder, argument, allowedFields[i]);
+			}
+		}
+	}
+
+	private boolean appendGenerated(StringBuilder builder, int fieldIndex, int argumentIndex, Object argument) {
+		int length = builder.length();
+		try {
+			return getAppender(fieldIndex, argumentIndex, argument.getClass()).append(argument, builder) == PropertyPathAppender.APPENDED;
+		} catch (LinkageError error) {
+			builder.setLength(length);
+			disableAppender(fieldIndex, argumentIndex, argument.getClass());
+			LOGGER.warn("Generated appender of " + argument.getClass().getName() + "." + allowedFields[fieldIndex] + " can not be linked, the path is evaluated by reflection: " 
+					+ error);
+			return false;
+		} catch (Throwable throwable) {
+			builder.setLength(length);
+			return false;
+		}
+	}
+
+	private void disableAppender(int fieldIndex, int argumentIndex, Class<?> type) {
+		if (argumentIndex < argumentCount)
+			slots[fieldIndex * argumentCount + argumentIndex] = new Slot(type, PropertyPathAppenderGenerator.UNSUPPORTED_APPENDER);
+	}
+
+	private PropertyPathAppender getAppender(int fieldIndex, int argumentIndex, Class<?> type) {
+		if (argumentIndex >= argumentCount)
+			return PropertyPathAppenderGenerator.forPath(type, allowedFields[fieldIndex]);
+		int index = fieldIndex * argumentCount + argumentIndex;
+		Slot slot = slots[index];
+		if (slot == null || slot.type != type) {
+			slot = new Slot(type, PropertyPathAppenderGenerator.forPath(type, allowedFields[fieldIndex]));
+			slots[index] = slot;
+		}
+		return slot.appender;
+	}
+
+	/**
+	 * Represents the appender of the last seen argument class.
+	 */
+	private static final class Slot {
+
+		private final Class<?> type;
+
+		private final PropertyPathAppender appender;
+
+		Slot(Class<?> type, PropertyPathAppender appender) {
+			this.type = type;
+			this.appender = appender;
+		}
+
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.aspect;
+
+import org.openinfinity.core.annotation.Log.LogLevel;
+import org.slf4j.Logger;
+
+/**
+ * Binds the <code>org.openinfinity.core.annotation.Log.LogLevel</code> to the corresponding SLF4J logger methods, so that the log level 
+ * is resolved once per advised method instead of switching on every invocation.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+enum LevelLogger {
+	
+	TRACE(LogLevel.TRACE) {
+		boolean isEnabled(Logger logger) { return logger.isTraceEnabled(); }
+		void log(Logger logger, String format, Object argument) { logger.trace(format, argument); }
+		void log(Logger logger, String format, Object first, Object second) { logger.trace(format, first, second); }
+	},
+	DEBUG(LogLevel.DEBUG) {
+		boolean isEnabled(Logger logger) { return logger.isDebugEnabled(); }
+		void log(Logger logger, String format, Object argument) { logger.debug(format, argument); }
+		void log(Logger logger, String format, Object first, Object second) { logger.debug(format, first, second); }
+	},
+	INFO(LogLevel.INFO) {
+		boolean isEnabled(Logger logger) { return logger.isInfoEnabled(); }
+		void log(Logger logger, String format, Object argument) { logger.info(format, argument); }
+		void log(Logger logger, String format, Object first, Object second) { logger.info(format, first, second); }
+	},
+	WARN(LogLevel.WARN) {
+		boolean isEnabled(Logger logger) { return logger.isWarnEnabled(); }
+		void log(Logger logger, String format, Object argument) { logger.warn(format, argument); }
+		void log(Logger logger, String format, Object first, Object second) { logger.warn(format, first, second); }
+	},
+	ERROR(LogLevel.ERROR) {
+		boolean isEnabled(Logger logger) { return logger.isErrorEnabled(); }
+		void log(Logger logger, String format, Object argument) { logger.error(format, argument); }
+		void log(Logger logger, String format, Object first, Object second) { logger.error(format, first, second); }
+	};
+	
+	/**
+	 * Represents the log level bound to the logger methods.
+	 */
+	private final LogLevel logLevel;
+	
+	private LevelLogger(LogLevel logLevel) {
+		this.logLevel = logLevel;
+	}
+	
+	/**
+	 * Returns the log level bound to the logger methods.
+	 */
+	LogLevel getLogLevel() {
+		return logLevel;
+	}
+	
+	/**
+	 * Returns <code>true</code> if the logger is enabled for this level.
+	 */
+	abstract boolean isEnabled(Logger logger);
+	
+	/**
+	 * Writes the parameterized message with this level. The message is formatted only if the level is enabled.
+	 */
+	abstract void log(Logger logger, String format, Object argument);
+	
+	/**
+	 * Writes the parameterized message with this level. The message is formatted only if the level is enabled.
+	 */
+	abstract void log(Logger logger, String format, Object first, Object second);
+	
+	/**
+	 * Returns the level logger for the log level.
+	 * 
+	 * @param logLevel Represents the log level.
+	 * @return LevelLogger for the log level, <code>DEBUG</code> if the level is not known.
+	 */
+	static LevelLogger valueOf(LogLevel logLevel) {
+		switch (logLevel) {
+			case TRACE: return TRACE;
+			case DEBUG: return DEBUG;
+			case INFO: return INFO;
+			case WARN: return WARN;
+			case ERROR: return ERROR;
+			default: return DEBUG;
+		}
+	}
+	
+}
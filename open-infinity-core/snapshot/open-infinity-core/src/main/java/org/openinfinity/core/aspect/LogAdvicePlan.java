@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.aspect;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.aspectj.lang.JoinPoint;
+import org.openinfinity.core.annotation.Log;
+import org.openinfinity.core.annotation.Log.LogLevel;
+import org.openinfinity.core.log.RateLimiter;
+import org.openinfinity.core.monitor.AdvisedMethod;
+import org.openinfinity.core.monitor.AdvisedMethodSettings;
+import org.openinfinity.core.monitor.LatencyHistogram;
+import org.openinfinity.core.util.AspectUtil;
+
+/**
+ * Represents the compiled advice plan of a method annotated with <code>org.openinfinity.core.annotation.Log</code>. 
+ * The plan is created once per advised method and holds the trace name, the effective log level, the argument extractor
+ * (generated for the CUSTOM fields when requested) and the sampling state and the slow call threshold, so that the advice does not need to resolve them on every invocation.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.2.0 - Runtime settings of the logged calls.
+ * @since 1.6.0
+ */
+public class LogAdvicePlan {
+	
+	/**
+	 * Represents the argument information when arguments are not shown.
+	 */
+	private static final String NOT_SHOWING_ARGUMENTS = "not showing arguments";
+
+	/**
+	 * Represents the annotation the plan has been compiled from.
+	 */
+	private final Log log;
+	
+	/**
+	 * Represents the trace name of the advised method.
+	 */
+	private final String traceName;
+	
+	/**
+	 * Represents the effective log level of the advised method.
+	 */
+	private final LogLevel level;
+	
+	/**
+	 * Represents the logger bound to the effective log level.
+	 */
+	private final LevelLogger levelLogger;
+	
+	/**
+	 * Represents the argument extractor resolved by the argument strategy.
+	 */
+	private final ArgumentExtractor argumentExtractor;
+	
+	/**
+	 * Represents the latency histogram of the advised method, <code>null</code> when latencies are not recorded.
+	 */
+	private final LatencyHistogram latencyHistogram;
+	
+	/**
+	 * Represents the sample rate of the logged calls.
+	 */
+	private final int sampleRate;
+	
+	/**
+	 * Represents the counter of the sampled calls, <code>null</code> when every call is logged.
+	 */
+	private final AtomicLong sampleCounter;
+	
+	/**
+	 * Represents the rate limiter of the logged calls, <code>null</code> when the calls are not limited.
+	 */
+	private final RateLimiter rateLimiter;
+	
+	/**
+	 * Represents the number of calls suppressed since the previous report, <code>null</code> when every call is logged.
+	 */
+	private final AtomicLong suppressedCalls;
+	
+	/**
+	 * Represents the threshold of the slow calls in nanoseconds, <code>-1</code> when every call is logged.
+	 */
+	private final long slowCallThresholdNanos;
+	
+	/**
+	 * Represents the advised method holding the runtime settings, <code>null</code> when the settings can not be modified at runtime.
+	 */
+	private final AdvisedMethod advisedMethod;
+	
+	LogAdvicePlan(JoinPoint joinPoint, Log log, LogLevel level, LatencyHistogram latencyHistogram, AdvisedMethod advisedMethod) {
+		this.log = log;
+		this.traceName = AspectUtil.createJoinPointTraceName(joinPoint);
+		this.level = level;
+		this.levelLogger = LevelLogger.valueOf(level);
+		this.argumentExtractor = createArgumentExtractor(log, joinPoint.getArgs().length);
+		this.latencyHistogram = latencyHistogram;
+		this.sampleRate = Math.max(1, log.sampleRate());
+		this.sampleCounter = sampleRate > 1 ? new AtomicLong() : null;
+		this.rateLimiter = log.maxPerSecond() > 0 ? new RateLimiter(log.maxPerSecond()) : null;
+		this.suppressedCalls = sampleCounter != null || rateLimiter != null ? new AtomicLong() : null;
+		this.slowCallThresholdNanos = log.slowerThanMillis() >= 0 ? MILLISECONDS.toNanos(log.slowerThanMillis()) : -1;
+		this.advisedMethod = advisedMethod;
+	}
+	
+	private static ArgumentExtractor createArgumentExtractor(final Log log, int argumentCount) {
+		switch (log.argumentStrategy()) {
+			case CUSTOM : return log.generateExtractor() ? new GeneratedArgumentExtractor(log.value(), argumentCount) : new ArgumentExtractor() {
+				private final String[] allowedFields = log.value(); 
+				public String extract(Object[] arguments) {
+					ArgumentBuilder builder = new ArgumentBuilder();
+					builder.extractArgumentInfoByFilteringFields(arguments, allowedFields);
+					return builder.toString();
+				}
+			};
+			case NONE : return new ArgumentExtractor() {
+				public String extract(Object[] arguments) {
+					return NOT_SHOWING_ARGUMENTS;
+				}
+			};
+			default : return new ArgumentExtractor() {
+				public String extract(Object[] arguments) {
+					ArgumentBuilder builder = new ArgumentBuilder();
+					builder.extractArgumentInfo(arguments);
+					return builder.toString();
+				}
+			};
+		}
+	}
+
+	/**
+	 * Returns the annotation the plan has been compiled from.
+	 */
+	public Log getLog() {
+		return log;
+	}
+
+	/**
+	 * Returns the trace name of the advised method.
+	 */
+	public String getTraceName() {
+		return traceName;
+	}
+
+	/**
+	 * Returns the runtime settings of the advised method. The advice reads the settings once per invocation and passes the snapshot on, 
+	 * so that a change made during the call does not apply to a part of it.
+	 * 
+	 * @return AdvisedMethodSettings Represents the current settings, the default settings when the settings can not be modified at runtime.
+	 */
+	public AdvisedMethodSettings getSettings() {
+		return advisedMethod != null ? advisedMethod.getSettings() : AdvisedMethodSettings.DEFAULT;
+	}
+	
+	/**
+	 * Returns the effective log level of the advised method, the level overridden by the settings if defined.
+	 * 
+	 * @param settings Represents the settings read for the invocation.
+	 */
+	public LogLevel getLevel(AdvisedMethodSettings settings) {
+		return settings.getLogLevel() != null ? settings.getLogLevel() : level;
+	}
+	
+	/**
+	 * Returns the logger bound to the effective log level of the advised method.
+	 * 
+	 * @param settings Represents the settings read for the invocation.
+	 */
+	LevelLogger getLevelLogger(AdvisedMethodSettings settings) {
+		return settings.getLogLevel() != null ? LevelLogger.valueOf(settings.getLogLevel()) : levelLogger;
+	}
+	
+	/**
+	 * Returns the latency histogram of the advised method.
+	 * 
+	 * @return LatencyHistogram Represents the histogram, <code>null</code> when latencies are not recorded.
+	 */
+	public LatencyHistogram getLatencyHistogram() {
+		return latencyHistogram;
+	}
+	
+	/**
+	 * Returns <code>true</code> if only the calls slower than the threshold are logged.
+	 */
+	public boolean isSlowCallsOnly() {
+		return slowCallThresholdNanos >= 0;
+	}
+	
+	/**
+	 * Returns <code>true</code> if the elapsed time exceeds the threshold of the slow calls.
+	 * 
+	 * @param elapsedNanos Represents the elapsed time of the call in nanoseconds.
+	 */
+	public boolean isSlowCall(long elapsedNanos) {
+		return elapsedNanos > slowCallThresholdNanos;
+	}
+	
+	/**
+	 * Decides whether the call is logged by the sample rate and the rate limit of the method. Suppressed calls are counted for the next 
+	 * logged call and, when the method is registered, in the total of the advised method exposed by the registry.
+	 * 
+	 * @return <code>true</code> if the call should be logged.
+	 */
+	public boolean isSampled() {
+		if (suppressedCalls == null)
+			return true;
+		if ((sampleCounter == null || sampleCounter.getAndIncrement() % sampleRate == 0) && (rateLimiter == null || rateLimiter.tryAcquire()))
+			return true;
+		suppressedCalls.incrementAndGet();
+		if (advisedMethod != null)
+			advisedMethod.recordSuppressedCall();
+		return false;
+	}
+	
+	/**
+	 * Returns the number of calls suppressed since the previous call of this method and resets the count.
+	 * 
+	 * @return long Represents the number of suppressed calls.
+	 */
+	public long takeSuppressedCalls() {
+		if (suppressedCalls == null || suppressedCalls.get() == 0)
+			return 0;
+		return suppressedCalls.getAndSet(0);
+	}
+	
+	/**
+	 * Returns the argument information of the method arguments.
+	 * 
+	 * @param arguments Represents the actual arguments of the invoked method.
+	 * @return String representing the argument information.
+	 */
+	public String extractArguments(Object[] arguments) {
+		return argumentExtractor.extract(arguments);
+	}
+	
+}
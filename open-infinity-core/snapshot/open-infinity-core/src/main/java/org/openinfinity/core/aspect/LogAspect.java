@@ -15,23 +15,44 @@
  */
 package org.openinfinity.core.aspect;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.lang.reflect.Method;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.openinfinity.core.annotation.Log;
 import org.openinfinity.core.annotation.Log.LogLevel;
-import org.openinfinity.core.util.AspectUtil;
+import org.openinfinity.core.log.AsyncLogDispatcher;
+import org.openinfinity.core.log.JsonEventWriter;
+import org.openinfinity.core.log.OutputFormat;
+import org.openinfinity.core.log.Span;
+import org.openinfinity.core.log.TraceContext;
+import org.openinfinity.core.monitor.AdvisedMethod;
+import org.openinfinity.core.monitor.AdvisedMethodRegistry;
+import org.openinfinity.core.monitor.AdvisedMethodSettings;
+import org.openinfinity.core.monitor.LatencyHistogram;
+import org.openinfinity.core.monitor.LatencyMonitor;
+import org.openinfinity.core.security.InvocationContext;
+import org.openinfinity.core.util.StringUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.core.Ordered;
 
 /**
  * This class is responsible of the logging using AOP with annotation <code>org.openinfinity.core.annotation.Log</code>.
  * 
  * @author Ilkka Leinonen
- * @version 1.0.0
+ * @version 1.2.0 - Compiled advice plans with sampling, slow call logging, JSON and asynchronous output, tracing and latency histograms.
  * @since 1.0.0
  */
 @Aspect
@@ -71,6 +92,16 @@ public class LogAspect extends ArgumentGatheringJoinPointInterceptor implements
 	 */
 	private static final Integer LOG_LEVEL_NOT_SET = -1; 
 	
+	/**
+	 * Represents the return value information of a slow call which threw an exception.
+	 */
+	private static final String WITHOUT_RETURN_VALUE_EXCEPTION_THROWN = "without any return value (exception thrown)";
+	
+	/**
+	 * Represents the maximum number of advice plans cached by the annotation instance.
+	 */
+	private static final int MAX_ADVICE_PLANS_BY_ANNOTATION = 4096;
+	
 	/**
 	 * Represents the default debug level of the application.
 	 */
@@ -81,6 +112,42 @@ public class LogAspect extends ArgumentGatheringJoinPointInterceptor implements
 	 */
 	private int order;
 	
+	/**
+	 * Represents the compiled advice plans of the advised methods.
+	 */
+	private final ConcurrentMap<Method, LogAdvicePlan> advicePlans = new ConcurrentHashMap<Method, LogAdvicePlan>();
+	
+	/**
+	 * Represents the compiled advice plans by the bound annotation instance. The map is copied on write, so that the advice 
+	 * can resolve the plan without locking or allocation.
+	 */
+	private volatile Map<Log, LogAdvicePlan> advicePlansByAnnotation = new IdentityHashMap<Log, LogAdvicePlan>();
+	
+	/**
+	 * Represents the latency monitor recording the per method latency histograms, <code>null</code> when not recorded.
+	 */
+	private LatencyMonitor latencyMonitor;
+	
+	/**
+	 * Represents the registry of the advised methods, <code>null</code> when the methods can not be managed at runtime.
+	 */
+	private AdvisedMethodRegistry advisedMethodRegistry;
+	
+	/**
+	 * Represents the dispatcher writing the log events on a separate thread, <code>null</code> when written on the calling thread.
+	 */
+	private AsyncLogDispatcher asyncLogDispatcher;
+	
+	/**
+	 * Represents the output format of the log events.
+	 */
+	private OutputFormat outputFormat = OutputFormat.TEXT;
+	
+	/**
+	 * Represents whether the advised calls are recorded as spans of the thread bound trace.
+	 */
+	private boolean tracingEnabled;
+	
 	/**
 	 * Setter for the order.
 	 * 
@@ -91,149 +158,306 @@ public class LogAspect extends ArgumentGatheringJoinPointInterceptor implements
 	}
 	
 	/**
-	 *  Uses <code>org.openinfinity.core.annotation.Log</code> annotation for the point cut resolving.
+	 * Setter for the latency monitor. When defined, the latency of every advised method is recorded with <code>System.nanoTime</code>
+	 * into a per method histogram exposed through JMX, regardless of the log level.
+	 * 
+	 * @param latencyMonitor Represents the latency monitor.
+	 */
+	public void setLatencyMonitor(LatencyMonitor latencyMonitor) {
+		this.latencyMonitor = latencyMonitor;
+		clearAdvicePlans();
+	}
+	
+	/**
+	 * Setter for the advised method registry. When defined, the advised methods can be disabled and their log levels overridden through JMX.
+	 * 
+	 * @param advisedMethodRegistry Represents the registry of the advised methods.
+	 */
+	public void setAdvisedMethodRegistry(AdvisedMethodRegistry advisedMethodRegistry) {
+		this.advisedMethodRegistry = advisedMethodRegistry;
+		clearAdvicePlans();
+	}
+	
+	/**
+	 * Setter for the asynchronous log dispatcher. When defined, the log events are captured on the calling thread and written by 
+	 * the writer thread of the dispatcher.
+	 * 
+	 * @param asyncLogDispatcher Represents the asynchronous log dispatcher.
+	 */
+	public void setAsyncLogDispatcher(AsyncLogDispatcher asyncLogDispatcher) {
+		this.asyncLogDispatcher = asyncLogDispatcher;
+	}
+	
+	/**
+	 * Setter for the output format. With <code>JSON</code> every logged call is written as a single JSON object containing the method, 
+	 * duration, user, roles, tenant, arguments and result fields.
+	 * 
+	 * @param outputFormat Represents the output format of the log events.
+	 */
+	public void setOutputFormat(OutputFormat outputFormat) {
+		this.outputFormat = outputFormat;
+	}
+	
+	/**
+	 * Setter for the tracing. When enabled, every advised call is recorded as a span of the thread bound 
+	 * <code>org.openinfinity.core.log.TraceContext</code>, the trace and span ids are available in the MDC under <code>traceId</code> 
+	 * and <code>spanId</code>, and the span tree of the trace is logged once when the outermost advised call of the thread completes.
+	 * 
+	 * @param tracingEnabled Represents whether the advised calls are traced.
+	 */
+	public void setTracingEnabled(boolean tracingEnabled) {
+		this.tracingEnabled = tracingEnabled;
+	}
+	
+	/**
+	 *  Uses <code>org.openinfinity.core.annotation.Log</code> annotation for the point cut resolving. Only execution join points are matched,
+	 *  so that compile time and load time weaving do not advise the call sites of the method as well.
 	 */
-	@Pointcut("@annotation(org.openinfinity.core.annotation.Log)")
-	public void loggedMethod(){}
+	@Pointcut(value="execution(* *(..)) && @annotation(log)", argNames="log")
+	public void loggedMethod(Log log){}
 	
 	/**
-	 * Setter for the default log level.
+	 * Setter for the default log level. Clears the compiled advice plans, since the effective log levels depend on the default log level.
 	 * 
 	 * @param defaultLogLevel Represents the default log level for the aspect.
 	 */
 	public void setDefaultLogLevel(Integer defaultLogLevel) {
 		this.defaultLogLevel = defaultLogLevel;
+		clearAdvicePlans();
 	}
 
 	/**
 	 * Logs the method information based on the <code>org.openinfinity.core.annotation.Logging</code> annotation.
 	 * Log level will be based on the value setted (debug=1, info=2, warn=3, error=4, trace=5) in the 
 	 * configuration file or by the annotation <code>org.openinfinity.core.annotation.Log.LogLevel</code>.
-	 * Highest level will be the actual log level.
+	 * Highest level will be the actual log level. Calls suppressed by <code>sampleRate</code> or <code>maxPerSecond</code> are counted
+	 * and reported with the next logged call of the method, their totals are listed by the advised method registry. With <code>slowerThanMillis</code> the method is only timed and the arguments
+	 * and the return value are logged only for the calls exceeding the threshold. With tracing enabled the call is recorded as a span of the trace.
+	 * The invocation context is bound to the thread for the call unless the call runs within the fused advice.
 	 * 
 	 * @param method Represents the method which has been invoked.
 	 * @return Object Represents the object to be returned.
 	 * @throws Throwable Thrown if something goes wrong and will be handled by the frame itself.
 	 */
-	@Around("loggedMethod() && @annotation(log)")
+	@Around(value="loggedMethod(log)", argNames="log")
 	public Object logMethod(ProceedingJoinPoint method, Log log) throws Throwable {
-		LogLevel level = log.level();
-		if (level.getValue() < this.defaultLogLevel)
-			return this.overrideLevelWithAnnotation(method, level, log);
-		else  
-			return this.debugWithDefaultLevel(method, log);	
-	}
-	
-	private Object debugWithDefaultLevel(ProceedingJoinPoint method, Log log) throws Throwable{
-		if (this.defaultLogLevel == LOG_LEVEL_TRACE)
-			return logTraceAndProceed(method, log);
-		else if (this.defaultLogLevel == LOG_LEVEL_DEBUG)
-			return logDebugAndProceed(method, log);
-		else if (this.defaultLogLevel == LOG_LEVEL_INFO)
-			return logInfoAndProceed(method, log);
-		else if (this.defaultLogLevel == LOG_LEVEL_ERROR)
-			return logErrorAndProceed(method, log);
-		else if (this.defaultLogLevel == LOG_LEVEL_WARN) 
-			return logWarningAndProceed(method, log);
-		else return logDebugAndProceed(method, log);		
+		LogAdvicePlan plan = advicePlansByAnnotation.get(log);
+		if (plan == null)
+			plan = getAdvicePlan(method, log);
+		AdvisedMethodSettings settings = plan.getSettings();
+		if (!settings.isEnabled())
+			return method.proceed();
+		LevelLogger levelLogger = plan.getLevelLogger(settings);
+		if (method instanceof FusedJoinPoint)
+			return tracingEnabled ? this.traceAndProceed(method, plan, levelLogger) : this.adviseAndProceed(method, plan, levelLogger);
+		InvocationContext.begin();
+		try {
+			return tracingEnabled ? this.traceAndProceed(method, plan, levelLogger) : this.adviseAndProceed(method, plan, levelLogger);
+		} finally {
+			InvocationContext.end();
+		}
 	}
-
-	private Object overrideLevelWithAnnotation(ProceedingJoinPoint method, LogLevel level, Log log) throws Throwable {
-		switch (level) {
-			case DEBUG: return (LOGGER.isDebugEnabled())?logDebugAndProceed(method, log):method.proceed();
-			case ERROR: return (LOGGER.isErrorEnabled())?logErrorAndProceed(method, log):method.proceed();
-			case INFO: return (LOGGER.isInfoEnabled())?logInfoAndProceed(method, log):method.proceed();
-			case TRACE: return (LOGGER.isTraceEnabled())?logTraceAndProceed(method, log):method.proceed();
-			case WARN: return (LOGGER.isWarnEnabled())?logWarningAndProceed(method, log):method.proceed();
-			default: return (LOGGER.isDebugEnabled())?logDebugAndProceed(method, log):method.proceed();
+	
+	private Object traceAndProceed(ProceedingJoinPoint method, LogAdvicePlan plan, LevelLogger levelLogger) throws Throwable {
+		Span span = TraceContext.startSpan(plan.getTraceName());
+		try {
+			return this.adviseAndProceed(method, plan, levelLogger);
+		} finally {
+			TraceContext trace = TraceContext.endSpan(span);
+			if (trace != null && levelLogger.isEnabled(LOGGER))
+				logTrace(levelLogger, trace);
+		}
+	}
+	
+	private Object adviseAndProceed(ProceedingJoinPoint method, LogAdvicePlan plan, LevelLogger levelLogger) throws Throwable {
+		if (levelLogger.isEnabled(LOGGER)) {
+			if (plan.isSlowCallsOnly())
+				return this.logSlowCallAndProceed(method, plan, levelLogger);
+			if (plan.isSampled())
+				return outputFormat == OutputFormat.JSON ? this.logJsonAndProceed(method, plan, levelLogger) : this.logAndProceed(method, plan, levelLogger);
 		}
+		if (plan.getLatencyHistogram() != null)
+			return this.recordAndProceed(method, plan.getLatencyHistogram());
+		else
+			return method.proceed();
 	}
 	
-	private String gatherArgumentDetailsToLogBasedOnDesicionLogic(JoinPoint joinPoint, Log log, String name) {
-		ArgumentBuilder builder = new ArgumentBuilder();
-		ArgumentStrategy argumentStrategy = log.argumentStrategy();
-		switch(argumentStrategy) {
-			case ALL : builder.extractArgumentInfo(joinPoint); return builder.toString(); 
-			case CUSTOM : builder.extractArgumentInfoByFilteringFields(joinPoint, log.value()); return builder.toString();
-			case NONE : return "not showing arguments";
-			default: return getArgumentInfo(joinPoint);
+	private LogAdvicePlan getAdvicePlan(JoinPoint joinPoint, Log log) {
+		Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+		LogAdvicePlan plan = advicePlans.get(method);
+		if (plan == null || plan.getLog() != log) {
+			Method targetMethod = getTargetMethod(joinPoint, method);
+			LatencyHistogram latencyHistogram = latencyMonitor != null ? latencyMonitor.getHistogram(LogAspect.class.getSimpleName(), targetMethod) : null;
+			AdvisedMethod advisedMethod = advisedMethodRegistry != null ? advisedMethodRegistry.register(LogAspect.class.getSimpleName(), targetMethod) : null;
+			plan = new LogAdvicePlan(joinPoint, log, resolveEffectiveLogLevel(log.level()), latencyHistogram, advisedMethod);
+			advicePlans.put(method, plan);
+			if (advicePlansByAnnotation.size() < MAX_ADVICE_PLANS_BY_ANNOTATION)
+				publishAdvicePlan(log, plan);
 		}
+		return plan;
+	}
+	
+	private static Method getTargetMethod(JoinPoint joinPoint, Method method) {
+		Object target = joinPoint.getTarget();
+		return target != null ? AopUtils.getMostSpecificMethod(method, AopUtils.getTargetClass(target)) : method;
 	}
 	
-	private Object logWarningAndProceed(ProceedingJoinPoint method, Log log) throws Throwable {
-		String name = AspectUtil.createJoinPointTraceName(method);
-		long startTime = System.currentTimeMillis();
+	private synchronized void publishAdvicePlan(Log log, LogAdvicePlan plan) {
+		if (advicePlansByAnnotation.size() < MAX_ADVICE_PLANS_BY_ANNOTATION) {
+			Map<Log, LogAdvicePlan> plans = new IdentityHashMap<Log, LogAdvicePlan>(advicePlansByAnnotation);
+			plans.put(log, plan);
+			advicePlansByAnnotation = plans;
+		}
+	}
+	
+	private synchronized void clearAdvicePlans() {
+		advicePlans.clear();
+		advicePlansByAnnotation = new IdentityHashMap<Log, LogAdvicePlan>();
+	}
+	
+	private LogLevel resolveEffectiveLogLevel(LogLevel level) {
+		if (level.getValue() < this.defaultLogLevel)
+			return level;
+		for (LogLevel defaultLevel : LogLevel.values()) {
+			if (defaultLevel.getValue().equals(this.defaultLogLevel))
+				return defaultLevel;
+		}
+		return LogLevel.DEBUG;
+	}
+	
+	private Object recordAndProceed(ProceedingJoinPoint method, LatencyHistogram latencyHistogram) throws Throwable {
+		long startTime = System.nanoTime();
 		try {
-			LOGGER.warn(name + ": initialized");
-			String argumentInfo = gatherArgumentDetailsToLogBasedOnDesicionLogic(method, log, name);
-			LOGGER.warn(buildArgumentDetails(name, argumentInfo));
-			Object o = method.proceed();
-			LOGGER.warn(buildReturnValueDetails(name, o));
-			return o;
+			return method.proceed();
 		} finally {
-			LOGGER.warn(name + ": finalized in " + (System.currentTimeMillis()-startTime) + " ms");
+			latencyHistogram.recordValue(System.nanoTime()-startTime);
 		}
 	}
 	
-	private Object logInfoAndProceed(ProceedingJoinPoint method, Log log) throws Throwable {
-		String name = AspectUtil.createJoinPointTraceName(method);
-		long startTime = System.currentTimeMillis();
+	private Object logSlowCallAndProceed(ProceedingJoinPoint method, LogAdvicePlan plan, LevelLogger levelLogger) throws Throwable {
+		long startTime = System.nanoTime();
+		Object o = null;
+		boolean returned = false;
 		try {
-			LOGGER.info(name + ": initialized");
-			String argumentInfo = gatherArgumentDetailsToLogBasedOnDesicionLogic(method, log, name);
-			LOGGER.info(buildArgumentDetails(name, argumentInfo));
-			Object o = method.proceed();
-			LOGGER.info(buildReturnValueDetails(name, o ));
+			o = method.proceed();
+			returned = true;
 			return o;
 		} finally {
-			LOGGER.info(name + ": finalized in " + (System.currentTimeMillis()-startTime) + " ms");
+			long elapsedTime = System.nanoTime()-startTime;
+			if (plan.getLatencyHistogram() != null)
+				plan.getLatencyHistogram().recordValue(elapsedTime);
+			if (plan.isSlowCall(elapsedTime) && plan.isSampled())
+				logSlowCall(method, plan, levelLogger, returned ? (o != null ? o : WITHOUT_RETURN_VALUE) : WITHOUT_RETURN_VALUE_EXCEPTION_THROWN, elapsedTime);
 		}
 	}
 	
-	private Object logErrorAndProceed(ProceedingJoinPoint method, Log log) throws Throwable {
-		String name = AspectUtil.createJoinPointTraceName(method);
-		long startTime = System.currentTimeMillis();
+	private void logSlowCall(ProceedingJoinPoint method, LogAdvicePlan plan, LevelLogger levelLogger, Object returnValue, long elapsedTime) {
+		String argumentInfo = extractArguments(method, plan);
+		if (outputFormat == OutputFormat.JSON) {
+			logJsonEvent(method, plan, levelLogger, argumentInfo, returnValue, elapsedTime);
+			return;
+		}
+		String name = plan.getTraceName();
+		logSuppressedCalls(plan, levelLogger, name);
+		log(levelLogger, "{}: {}", name, argumentInfo.length() > 0 ? argumentInfo : WITHOUT_PARAMETERS);
+		log(levelLogger, "{}: {}", name, renderResult(returnValue));
+		log(levelLogger, "{}: finalized in {} ms exceeding the slow call threshold", name, NANOSECONDS.toMillis(elapsedTime));
+	}
+	
+	private static String renderResult(Object result) {
+		return StringUtil.appendValue(new StringBuilder(), result).toString();
+	}
+	
+	private String extractArguments(ProceedingJoinPoint method, LogAdvicePlan plan) {
+		if (method instanceof FusedJoinPoint && plan.getLog().argumentStrategy() == ArgumentStrategy.ALL)
+			return ((FusedJoinPoint) method).getArgumentInfo();
+		return plan.extractArguments(method.getArgs());
+	}
+	
+	private void logSuppressedCalls(LogAdvicePlan plan, LevelLogger levelLogger, String name) {
+		long suppressedCalls = plan.takeSuppressedCalls();
+		if (suppressedCalls > 0)
+			log(levelLogger, "{}: {} calls suppressed by sampling or rate limit since the previous logged call", name, suppressedCalls);
+	}
+	
+	private Object logAndProceed(ProceedingJoinPoint method, LogAdvicePlan plan, LevelLogger levelLogger) throws Throwable {
+		String name = plan.getTraceName();
+		long startTime = System.nanoTime();
 		try {
-			LOGGER.error(name + ": initialized");
-			String argumentInfo = gatherArgumentDetailsToLogBasedOnDesicionLogic(method, log, name);
-			LOGGER.error(buildArgumentDetails(name, argumentInfo) );
+			logSuppressedCalls(plan, levelLogger, name);
+			log(levelLogger, "{}: initialized", name, null);
+			String argumentInfo = extractArguments(method, plan);
+			log(levelLogger, "{}: {}", name, argumentInfo.length() > 0 ? argumentInfo : WITHOUT_PARAMETERS);
 			Object o = method.proceed();
-			LOGGER.error(buildReturnValueDetails(name, o));
+			log(levelLogger, "{}: {}", name, o != null ? renderResult(o) : WITHOUT_RETURN_VALUE);
 			return o;
 		} finally {
-			LOGGER.error(name + ": finalized in " + (System.currentTimeMillis()-startTime) + " ms");
+			long elapsedTime = System.nanoTime()-startTime;
+			if (plan.getLatencyHistogram() != null)
+				plan.getLatencyHistogram().recordValue(elapsedTime);
+			log(levelLogger, "{}: finalized in {} ms", name, NANOSECONDS.toMillis(elapsedTime));
 		}
 	}
-
-	private Object logTraceAndProceed(ProceedingJoinPoint method, Log log) throws Throwable {
-		String name = AspectUtil.createJoinPointTraceName(method);
-		long startTime = System.currentTimeMillis();
+	
+	private Object logJsonAndProceed(ProceedingJoinPoint method, LogAdvicePlan plan, LevelLogger levelLogger) throws Throwable {
+		long startTime = System.nanoTime();
+		String argumentInfo = extractArguments(method, plan);
+		Object o = null;
+		boolean returned = false;
 		try {
-			LOGGER.trace(name + ": initialized");
-			String argumentInfo = gatherArgumentDetailsToLogBasedOnDesicionLogic(method, log, name);
-			LOGGER.trace(buildArgumentDetails(name, argumentInfo));
-			Object o = method.proceed();
-			LOGGER.trace(buildReturnValueDetails(name, o));
+			o = method.proceed();
+			returned = true;
 			return o;
 		} finally {
-			LOGGER.trace(name + ": finalized in " + (System.currentTimeMillis()-startTime) + " ms");
+			long elapsedTime = System.nanoTime()-startTime;
+			if (plan.getLatencyHistogram() != null)
+				plan.getLatencyHistogram().recordValue(elapsedTime);
+			logJsonEvent(method, plan, levelLogger, argumentInfo, returned ? (o != null ? o : WITHOUT_RETURN_VALUE) : WITHOUT_RETURN_VALUE_EXCEPTION_THROWN, elapsedTime);
 		}
 	}
 	
-	private Object logDebugAndProceed(ProceedingJoinPoint method, Log log) throws Throwable {
-		String name = AspectUtil.createJoinPointTraceName(method);
-		long startTime = System.currentTimeMillis();
+	private void logJsonEvent(ProceedingJoinPoint method, LogAdvicePlan plan, LevelLogger levelLogger, String argumentInfo, Object returnValue, long elapsedTime) {
+		JsonEventWriter writer = JsonEventWriter.begin();
+		String event;
 		try {
-			LOGGER.debug(name + ": initialized");
-			String argumentInfo = gatherArgumentDetailsToLogBasedOnDesicionLogic(method, log, name);
-			LOGGER.debug(buildArgumentDetails(name, argumentInfo));
-			Object o = method.proceed();
-			LOGGER.debug(buildReturnValueDetails(name, o));
-			return o;
+			writer.writeMethod(plan.getTraceName())
+				.writeDuration(NANOSECONDS.toMillis(elapsedTime))
+				.writeInvocationContext(FusedJoinPoint.getInvocationContext(method), true, true)
+				.writeArguments(argumentInfo.length() > 0 ? argumentInfo : WITHOUT_PARAMETERS)
+				.writeResult(returnValue)
+				.writeTraceIds();
+			long suppressedCalls = plan.takeSuppressedCalls();
+			if (suppressedCalls > 0)
+				writer.writeField(JsonEventWriter.FIELD_SUPPRESSED, suppressedCalls);
+			event = writer.end();
+		} finally {
+			writer.release();
+		}
+		log(levelLogger, "{}", event, null);
+	}
+	
+	private void logTrace(LevelLogger levelLogger, TraceContext trace) {
+		if (outputFormat == OutputFormat.JSON)
+			log(levelLogger, "{}", createJsonTrace(trace), null);
+		else
+			log(levelLogger, "Trace {}", trace, null);
+	}
+	
+	private static String createJsonTrace(TraceContext trace) {
+		JsonEventWriter writer = JsonEventWriter.begin();
+		try {
+			return writer.writeTrace(trace).end();
 		} finally {
-			LOGGER.debug(name + ": finalized in " + (System.currentTimeMillis()-startTime) + " ms");
+			writer.release();
 		}
 	}
+	
+	private void log(LevelLogger levelLogger, String format, Object first, Object second) {
+		if (asyncLogDispatcher != null)
+			asyncLogDispatcher.dispatch(LOGGER, levelLogger.getLogLevel(), format, first, second);
+		else
+			levelLogger.log(LOGGER, format, first, second);
+	}
 
 	@Override
 	public int getOrder() {
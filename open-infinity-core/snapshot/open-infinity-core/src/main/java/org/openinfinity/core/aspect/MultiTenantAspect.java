@@ -15,8 +15,6 @@
  */
 package org.openinfinity.core.aspect;
 
-import java.lang.reflect.Field;
-
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
@@ -25,15 +23,13 @@ import org.openinfinity.core.annotation.MultiTenant;
 import org.openinfinity.core.converter.PassthroughConverter;
 import org.openinfinity.core.converter.TypeConverter;
 import org.openinfinity.core.domain.entity.MultiTenantBaseEntity;
+import org.openinfinity.core.reflection.FieldMetadata;
+import org.openinfinity.core.security.InvocationContext;
 import org.openinfinity.core.security.principal.Identity;
 import org.openinfinity.core.util.ExceptionUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.Ordered;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContext;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.util.ReflectionUtils;
 
 /**
  * This class is responsible of the tenant id injection into the domain entity which extends <code>org.openinfinity.core.domain.entity.MultiTenantBaseEntity</code>.
@@ -41,7 +37,7 @@ import org.springframework.util.ReflectionUtils;
  * <code>org.springframework.security.core.context.SecurityContext</code>.
  * 
  * @author Ilkka Leinonen
- * @version 1.0.0
+ * @version 1.1.0 - Tenant id is read once per invocation context.
  * @since 1.4.0
  */
 @Aspect
@@ -88,48 +84,53 @@ public class MultiTenantAspect extends ArgumentGatheringJoinPointInterceptor imp
 	/**
 	 *  Uses <code>org.openinfinity.core.annotation.MultiTenant</code> annotation for the point cut resolving.
 	 */
-	@Pointcut("@annotation(org.openinfinity.core.annotation.MultiTenant)")
-	public void multiTenantMethod(){}
+	@Pointcut(value="execution(* *(..)) && @annotation(multiTenant)", argNames="multiTenant")
+	public void multiTenantMethod(MultiTenant multiTenant){}
 	
 	
 	/**
 	 * Injection of tenant id will be done based on the <code>org.openinfinity.core.annotation.MultiTenant</code> annotation on method level. After injection of the tenant id 
 	 * <code>org.openinfinity.core.domain.entity.MultiTenantBaseEntity</code> can be used to retrieve the actual tenant id. <code>org.openinfinity.core.domain.entity.MultiTenantBaseEntity</code> 
-	 * can be extended by <code>org.openinfinity.core.domain.entity.MultiTenantBaseEntity</code>. 
+	 * can be extended by <code>org.openinfinity.core.domain.entity.MultiTenantBaseEntity</code>. The invocation context is bound to the thread for the call 
+	 * unless the call runs within the fused advice.
 	 * 
 	 * @param method Represents the method to be executed when exposing <code>org.openinfinity.core.annotation.MultiTenant</code> metadata to it.
 	 * @param multiTenant Represents the annotation which executed by the aspect.
 	 * @return Object Represents the original arguments for the method with injected tenant id.
 	 * @throws Throwable Represents the occurred exception during the execution of the aspect.
 	 */
-	@Around("multiTenantMethod() && @annotation(multiTenant)")
+	@Around(value="multiTenantMethod(multiTenant)", argNames="multiTenant")
 	public Object populateTenantIdToMultiTenantEntity(ProceedingJoinPoint method, MultiTenant multiTenant) throws Throwable {
 		if (LOGGER.isDebugEnabled())
 			LOGGER.debug("MultiTenantAspect.populateTenantIdToMultiTenantEntity initialized.");
-		SecurityContext securityContext = SecurityContextHolder.getContext();
-		Authentication authentication = securityContext.getAuthentication();
-		if (authentication instanceof Identity) {
-			Identity identity = (Identity) authentication;
+		if (method instanceof FusedJoinPoint)
+			return this.populateTenantIdAndProceed(method, FusedJoinPoint.getInvocationContext(method));
+		InvocationContext invocationContext = InvocationContext.begin();
+		try {
+			return this.populateTenantIdAndProceed(method, invocationContext);
+		} finally {
+			InvocationContext.end();
+		}
+	}
+
+	private Object populateTenantIdAndProceed(ProceedingJoinPoint method, InvocationContext invocationContext) throws Throwable {
+		if (invocationContext.getAuthentication() instanceof Identity) {
 			Object[] arguments = method.getArgs();
 			for (Object object : arguments) {
 				if (object instanceof MultiTenantBaseEntity) { 
 					if (LOGGER.isDebugEnabled())
 						LOGGER.debug("MultiTenantAspect.populateTenantIdToMultiTenantEntity arguments is istance of MultiTenantBaseEntity.");
 					MultiTenantBaseEntity<?, ?, ?> multiTenantBaseEntity = (MultiTenantBaseEntity<?, ?, ?>) object;
-					Object tenantId = identity.getTenantPrincipal().getId();
-					Field tenantIdField = multiTenantBaseEntity.getClass().getField(TENANT_ID_FIELD);
-					if (!tenantIdField.isAccessible()) {
-						tenantIdField.setAccessible(true);
-					}
-					Object convertedTenantId = typeConverter.convert(tenantId);
-					if (tenantIdField.getType().isAssignableFrom(convertedTenantId.getClass())) {
+					FieldMetadata tenantIdField = FieldMetadata.forField(multiTenantBaseEntity.getClass(), TENANT_ID_FIELD);
+					Object convertedTenantId = invocationContext.getTenantId(typeConverter);
+					if (tenantIdField.getResolvedType().isAssignableFrom(convertedTenantId.getClass())) {
 						if (LOGGER.isDebugEnabled())
 							LOGGER.debug("MultiTenantAspect.populateTenantIdToMultiTenantEntity tenant id is assignable from [" + convertedTenantId.getClass().getName() + ".");
-						ReflectionUtils.setField(tenantIdField, multiTenantBaseEntity, convertedTenantId);
+						tenantIdField.setValue(multiTenantBaseEntity, convertedTenantId);
 						if (LOGGER.isInfoEnabled())
 							LOGGER.info("MultiTenantAspect.populateTenantIdToMultiTenantEntity injected tenant id ["+ convertedTenantId.toString() +"] to the entity.");
 					} else {
-						ExceptionUtil.throwSystemException("Field [" + tenantIdField.getType().getName() + "] is not assignable from [" + convertedTenantId.getClass().getName());
+						ExceptionUtil.throwSystemException("Field [" + tenantIdField.getResolvedType().getName() + "] is not assignable from [" + convertedTenantId.getClass().getName());
 					}
 				}
 			}
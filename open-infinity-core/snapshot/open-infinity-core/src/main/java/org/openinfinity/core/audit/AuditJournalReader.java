@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.audit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.openinfinity.core.util.ExceptionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reader of the records of <code>org.openinfinity.core.audit.MappedAuditJournal</code>. The segments are read in the written order with a read only 
+ * mapping, and the format of every segment is taken from its header. The records of the <code>TEXT</code> segments carry the text only, and the 
+ * records of the <code>BINARY</code> segments are decoded to all fields. The reader can be used while the journal is being written, the records 
+ * written after opening a segment may not be visible.
+ * <br/><br/>
+ * Queries read the <code>BINARY</code> segments through their indexes, see <code>org.openinfinity.core.audit.SegmentIndex</code>: the segments 
+ * outside the time range are skipped, the posting lists of the queried user and tenant are intersected, and only the blocks of records they 
+ * refer to are decoded. The segment being written, and a segment without a valid index, is indexed by scanning it. The <code>TEXT</code> 
+ * segments have no fields to query and are read by the unrestricted queries only. The matching records are streamed to the visitor.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.1.0 - Indexed queries.
+ * @since 1.6.0
+ */
+public class AuditJournalReader {
+
+	/**
+	 * Logger for this class.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(AuditJournalReader.class);
+
+	/**
+	 * Represents the charset of the text payloads.
+	 */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * Represents the directory of the segment files.
+	 */
+	private final File directory;
+
+	/**
+	 * Represents the name prefix of the segment files.
+	 */
+	private final String prefix;
+
+	/**
+	 * Constructor for the reader of the journal with the default prefix.
+	 *
+	 * @param directory Represents the directory of the segment files.
+	 */
+	public AuditJournalReader(File directory) {
+		this(directory, MappedAuditJournal.DEFAULT_PREFIX);
+	}
+
+	/**
+	 * Constructor for the reader of the journal.
+	 *
+	 * @param directory Represents the directory of the segment files.
+	 * @param prefix Represents the name prefix of the segment files.
+	 */
+	public AuditJournalReader(File directory, String prefix) {
+		this.directory = directory;
+		this.prefix = prefix;
+	}
+
+	/**
+	 * Visits the records of the journal in the written order.
+	 *
+	 * @param visitor Represents the visitor of the records.
+	 * @return long Represents the number of the visited records.
+	 */
+	public long read(Visitor visitor) {
+		return visit(null, visitor);
+	}
+
+	/**
+	 * Visits the records of the journal matching the query in the written order.
+	 *
+	 * @param query Represents the criteria of the records.
+	 * @param visitor Represents the visitor of the matching records.
+	 * @return long Represents the number of the visited records.
+	 */
+	public long query(AuditQuery query, Visitor visitor) {
+		return visit(query, visitor);
+	}
+
+	private long visit(AuditQuery query, Visitor visitor) {
+		if (!directory.isDirectory())
+			ExceptionUtil.throwSystemException("Audit journal directory [" + directory + "] does not exist.");
+		RecordVisitor recordVisitor = new RecordVisitor(query, visitor);
+		for (File file : MappedAuditJournal.listSegmentFiles(directory, prefix)) {
+			if (!recordVisitor.proceed)
+				break;
+			visitSegment(file, recordVisitor);
+		}
+		return recordVisitor.records;
+	}
+
+	private void visitSegment(File file, RecordVisitor recordVisitor) {
+		try {
+			JournalSegment segment = JournalSegment.openReadOnly(file, MappedAuditJournal.parseIndex(file, prefix));
+			try {
+				recordVisitor.format = AuditRecordFormat.forId(segment.getFormat());
+				recordVisitor.remaining = Integer.MAX_VALUE;
+				if (recordVisitor.query == null) {
+					recordVisitor.codec.reset();
+					segment.scan(recordVisitor);
+				} else if (recordVisitor.format == AuditRecordFormat.BINARY) {
+					queryIndexed(file, segment, recordVisitor);
+				} else if (recordVisitor.query.isUnrestricted()) {
+					segment.scan(recordVisitor);
+				}
+			} finally {
+				segment.close();
+			}
+		} catch (IOException e) {
+			ExceptionUtil.throwSystemException("Audit journal segment [" + file + "] can not be read.", e);
+		} catch (IllegalArgumentException e) {
+			ExceptionUtil.throwSystemException("Audit journal segment [" + file + "] can not be decoded.", e);
+		}
+	}
+
+	private void queryIndexed(File file, JournalSegment segment, RecordVisitor recordVisitor) {
+		AuditQuery query = recordVisitor.query;
+		SegmentIndex index = loadIndex(file, segment);
+		if (index.getRecords() == 0 || index.getMaxTimestampMillis() < query.getFromMillis() || index.getMinTimestampMillis() > query.getToMillis())
+			return;
+		int[] blocks = selectBlocks(index, query);
+		if (blocks == null)
+			return;
+		for (int field = 0; field < BinaryAuditRecordCodec.FIELD_COUNT; field++)
+			recordVisitor.codec.load(field, index.getValues(field));
+		for (int block : blocks) {
+			if (!recordVisitor.proceed)
+				return;
+			if (!index.overlaps(block, query.getFromMillis(), query.getToMillis()))
+				continue;
+			recordVisitor.remaining = index.getBlockSize();
+			segment.scan(index.getBlockPosition(block), recordVisitor);
+		}
+	}
+
+	private SegmentIndex loadIndex(File file, JournalSegment segment) {
+		File indexFile = SegmentIndex.indexFile(file);
+		if (indexFile.isFile()) {
+			try {
+				SegmentIndex index = SegmentIndex.read(indexFile);
+				if (index.getRecords() == segment.getFrames())
+					return index;
+				LOGGER.warn("Audit journal index [{}] does not match its segment, scanning the segment.", indexFile);
+			} catch (IOException e) {
+				LOGGER.warn("Audit journal index [" + indexFile + "] can not be read, scanning the segment.", e);
+			} catch (IllegalArgumentException e) {
+				LOGGER.warn("Audit journal index [" + indexFile + "] is invalid, scanning the segment.", e);
+			}
+		}
+		BinaryAuditRecordCodec codec = new BinaryAuditRecordCodec();
+		return SegmentIndex.scan(segment, codec, MappedAuditJournal.DEFAULT_INDEX_BLOCK_SIZE).build(codec);
+	}
+
+	private static int[] selectBlocks(SegmentIndex index, AuditQuery query) {
+		int[] blocks = null;
+		if (query.getUsername() != null) {
+			blocks = index.getBlocks(BinaryAuditRecordCodec.FIELD_USER, query.getUsername());
+			if (blocks == null)
+				return null;
+		}
+		if (query.getTenantId() != null) {
+			int[] tenantBlocks = index.getBlocks(BinaryAuditRecordCodec.FIELD_TENANT, query.getTenantId());
+			if (tenantBlocks == null)
+				return null;
+			blocks = blocks == null ? tenantBlocks : intersect(blocks, tenantBlocks);
+		}
+		if (blocks == null) {
+			blocks = new int[index.getBlockCount()];
+			for (int i = 0; i < blocks.length; i++)
+				blocks[i] = i;
+		}
+		return blocks;
+	}
+
+	private static int[] intersect(int[] first, int[] second) {
+		int[] blocks = new int[Math.min(first.length, second.length)];
+		int count = 0;
+		for (int i = 0, j = 0; i < first.length && j < second.length;) {
+			if (first[i] < second[j]) {
+				i++;
+			} else if (first[i] > second[j]) {
+				j++;
+			} else {
+				blocks[count++] = first[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(blocks, count);
+	}
+
+	/**
+	 * Visitor of the records of the journal.
+	 */
+	public interface Visitor {
+
+		/**
+		 * Visits the record.
+		 *
+		 * @param record Represents the record.
+		 * @return boolean <code>false</code> to stop reading.
+		 */
+		boolean visitRecord(AuditRecord record);
+
+	}
+
+	/**
+	 * Adapts the frames of the segments to records, visiting the frames up to the remaining number and the records matching the query.
+	 */
+	private static final class RecordVisitor implements JournalSegment.FrameVisitor {
+
+		private final AuditQuery query;
+
+		private final Visitor visitor;
+
+		private final BinaryAuditRecordCodec codec = new BinaryAuditRecordCodec();
+
+		private AuditRecordFormat format;
+
+		private boolean proceed = true;
+
+		private long records;
+
+		private int remaining;
+
+		RecordVisitor(AuditQuery query, Visitor visitor) {
+			this.query = query;
+			this.visitor = visitor;
+		}
+
+		public boolean visitFrame(ByteBuffer payload) {
+			AuditRecord record;
+			if (format == AuditRecordFormat.BINARY) {
+				record = codec.decode(payload);
+			} else {
+				String text = UTF_8.decode(payload).toString();
+				record = new AuditRecord(0, null, null, null, null, null, text);
+			}
+			remaining--;
+			if (query == null || query.matches(record)) {
+				records++;
+				proceed = visitor.visitRecord(record);
+			}
+			return proceed && remaining > 0;
+		}
+
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.audit;
+
+import java.io.File;
+import java.io.PrintStream;
+
+import org.joda.time.format.ISODateTimeFormat;
+
+/**
+ * Command line tool printing the records of <code>org.openinfinity.core.audit.MappedAuditJournal</code> as text, one record per line. 
+ * The records can be queried by the user, the tenant and the ISO-8601 time range:<br/>
+ * <br/>
+ * <code>java -cp ... org.openinfinity.core.audit.AuditJournalTool [-prefix audit] [-user name] [-tenant id] [-from time] [-to time] &lt;directory&gt;</code>
+ *
+ * @author Ilkka Leinonen
+ * @version 1.1.0 - Query options.
+ * @since 1.6.0
+ */
+public final class AuditJournalTool {
+
+	/**
+	 * Represents the usage of the tool.
+	 */
+	private static final String USAGE = "Usage: AuditJournalTool [-prefix audit] [-user name] [-tenant id] [-from time] [-to time] <directory>";
+
+	private AuditJournalTool() {}
+
+	/**
+	 * Prints the records of the journal matching the query options to the standard output.
+	 *
+	 * @param args Represents the query options followed by the directory of the segment files.
+	 */
+	public static void main(String[] args) {
+		String prefix = MappedAuditJournal.DEFAULT_PREFIX;
+		AuditQuery query = new AuditQuery();
+		int i = 0;
+		try {
+			for (; i < args.length - 1 && args[i].startsWith("-"); i += 2) {
+				String value = args[i + 1];
+				if ("-prefix".equals(args[i]))
+					prefix = value;
+				else if ("-user".equals(args[i]))
+					query.setUsername(value);
+				else if ("-tenant".equals(args[i]))
+					query.setTenantId(value);
+				else if ("-from".equals(args[i]))
+					query.setFromMillis(ISODateTimeFormat.dateTimeParser().parseMillis(value));
+				else if ("-to".equals(args[i]))
+					query.setToMillis(ISODateTimeFormat.dateTimeParser().parseMillis(value));
+				else
+					usage();
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			usage();
+		}
+		if (i != args.length - 1)
+			usage();
+		final PrintStream out = System.out;
+		new AuditJournalReader(new File(args[i]), prefix).query(query, new AuditJournalReader.Visitor() {
+			public boolean visitRecord(AuditRecord record) {
+				out.println(record.getText());
+				return true;
+			}
+		});
+		out.flush();
+	}
+
+	private static void usage() {
+		System.err.println(USAGE);
+		System.exit(1);
+	}
+
+}
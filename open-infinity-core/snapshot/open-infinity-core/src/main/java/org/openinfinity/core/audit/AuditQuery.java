@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.audit;
+
+/**
+ * Criteria of the records queried with <code>org.openinfinity.core.audit.AuditJournalReader</code>. A record matches when its timestamp is 
+ * within the time range, both ends included, and its username and tenant id equal the defined ones. Undefined criteria match all records.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class AuditQuery {
+
+	/**
+	 * Represents the start of the time range in milliseconds since the epoch.
+	 */
+	private long fromMillis = Long.MIN_VALUE;
+
+	/**
+	 * Represents the end of the time range in milliseconds since the epoch.
+	 */
+	private long toMillis = Long.MAX_VALUE;
+
+	/**
+	 * Represents the username of the records.
+	 */
+	private String username;
+
+	/**
+	 * Represents the tenant id of the records.
+	 */
+	private String tenantId;
+
+	/**
+	 * Setter for the start of the time range.
+	 *
+	 * @param fromMillis Represents the earliest timestamp of the records in milliseconds since the epoch.
+	 */
+	public void setFromMillis(long fromMillis) {
+		this.fromMillis = fromMillis;
+	}
+
+	/**
+	 * Setter for the end of the time range.
+	 *
+	 * @param toMillis Represents the latest timestamp of the records in milliseconds since the epoch.
+	 */
+	public void setToMillis(long toMillis) {
+		this.toMillis = toMillis;
+	}
+
+	/**
+	 * Setter for the username.
+	 *
+	 * @param username Represents the username of the records, <code>null</code> for all users.
+	 */
+	public void setUsername(String username) {
+		this.username = username;
+	}
+
+	/**
+	 * Setter for the tenant id.
+	 *
+	 * @param tenantId Represents the tenant id of the records as rendered to the audit trail, <code>null</code> for all tenants.
+	 */
+	public void setTenantId(String tenantId) {
+		this.tenantId = tenantId;
+	}
+
+	/**
+	 * Returns the start of the time range.
+	 */
+	public long getFromMillis() {
+		return fromMillis;
+	}
+
+	/**
+	 * Returns the end of the time range.
+	 */
+	public long getToMillis() {
+		return toMillis;
+	}
+
+	/**
+	 * Returns the username.
+	 */
+	public String getUsername() {
+		return username;
+	}
+
+	/**
+	 * Returns the tenant id.
+	 */
+	public String getTenantId() {
+		return tenantId;
+	}
+
+	/**
+	 * Returns <code>true</code> if no criteria are defined.
+	 */
+	public boolean isUnrestricted() {
+		return fromMillis == Long.MIN_VALUE && toMillis == Long.MAX_VALUE && username == null && tenantId == null;
+	}
+
+	/**
+	 * Returns <code>true</code> if the record matches the criteria.
+	 */
+	public boolean matches(AuditRecord record) {
+		return record.getTimestampMillis() >= fromMillis && record.getTimestampMillis() <= toMillis 
+				&& (username == null || username.equals(record.getUsername())) 
+				&& (tenantId == null || tenantId.equals(record.getTenantId()));
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.audit;
+
+/**
+ * Audit trail event of a single audited method call, written by <code>org.openinfinity.core.aspect.AuditTrailAspect</code> to an
+ * <code>org.openinfinity.core.audit.AuditSink</code>. The fields are kept separately for the sinks storing structured records, 
+ * and the text is the audit trail information as written to the log. A record created without the text renders it from the fields 
+ * when it is first read, in the form of the decoded <code>BINARY</code> records, so that the sinks storing only the fields do not pay for it.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public final class AuditRecord {
+
+	/**
+	 * Represents the time of the call, in milliseconds since the epoch.
+	 */
+	private final long timestampMillis;
+
+	/**
+	 * Represents the name of the audited method.
+	 */
+	private final String method;
+
+	/**
+	 * Represents the username, <code>null</code> when not authenticated.
+	 */
+	private final String username;
+
+	/**
+	 * Represents the granted authorities rendered as <code>{role}{role}</code>.
+	 */
+	private final String roles;
+
+	/**
+	 * Represents the tenant id, <code>null</code> when not available.
+	 */
+	private final String tenantId;
+
+	/**
+	 * Represents the argument information, <code>null</code> with the NONE argument strategy.
+	 */
+	private final String arguments;
+
+	/**
+	 * Represents the audit trail information as written to the log, <code>null</code> until rendered from the fields.
+	 */
+	private String text;
+
+	/**
+	 * Creates a record.
+	 *
+	 * @param timestampMillis Represents the time of the call, in milliseconds since the epoch.
+	 * @param method Represents the name of the audited method.
+	 * @param username Represents the username, <code>null</code> when not authenticated.
+	 * @param roles Represents the granted authorities rendered as <code>{role}{role}</code>.
+	 * @param tenantId Represents the tenant id, <code>null</code> when not available.
+	 * @param arguments Represents the argument information, <code>null</code> when not written.
+	 * @param text Represents the audit trail information as written to the log, <code>null</code> to render it from the fields when first read.
+	 */
+	public AuditRecord(long timestampMillis, String method, String username, String roles, String tenantId, String arguments, String text) {
+		this.timestampMillis = timestampMillis;
+		this.method = method;
+		this.username = username;
+		this.roles = roles;
+		this.tenantId = tenantId;
+		this.arguments = arguments;
+		this.text = text;
+	}
+
+	/**
+	 * Returns the time of the call, in milliseconds since the epoch.
+	 */
+	public long getTimestampMillis() {
+		return timestampMillis;
+	}
+
+	/**
+	 * Returns the name of the audited method.
+	 */
+	public String getMethod() {
+		return method;
+	}
+
+	/**
+	 * Returns the username, <code>null</code> when not authenticated.
+	 */
+	public String getUsername() {
+		return username;
+	}
+
+	/**
+	 * Returns the granted authorities rendered as <code>{role}{role}</code>.
+	 */
+	public String getRoles() {
+		return roles;
+	}
+
+	/**
+	 * Returns the tenant id, <code>null</code> when not available.
+	 */
+	public String getTenantId() {
+		return tenantId;
+	}
+
+	/**
+	 * Returns the argument information, <code>null</code> when not written.
+	 */
+	public String getArguments() {
+		return arguments;
+	}
+
+	/**
+	 * Returns the audit trail information as written to the log.
+	 */
+	public String getText() {
+		String text = this.text;
+		if (text == null) {
+			text = BinaryAuditRecordCodec.renderText(timestampMillis, method, username, roles, tenantId, arguments);
+			this.text = text;
+		}
+		return text;
+	}
+
+	@Override
+	public String toString() {
+		return getText();
+	}
+
+}
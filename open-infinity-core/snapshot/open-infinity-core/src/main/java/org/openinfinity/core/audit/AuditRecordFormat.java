@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.audit;
+
+/**
+ * Format of the record payloads of <code>org.openinfinity.core.audit.MappedAuditJournal</code>, stored in the header of every segment file.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public enum AuditRecordFormat {
+
+	/**
+	 * UTF-8 encoded text of the record as written to the log.
+	 */
+	TEXT,
+
+	/**
+	 * Binary record with dictionary encoded fields, see <code>org.openinfinity.core.audit.BinaryAuditRecordCodec</code>.
+	 */
+	BINARY;
+
+	/**
+	 * Returns the id of the format stored in the segment header.
+	 */
+	public int getId() {
+		return ordinal();
+	}
+
+	/**
+	 * Returns the format of the id.
+	 *
+	 * @param id Represents the id stored in the segment header.
+	 * @return AuditRecordFormat Represents the format.
+	 * @throws IllegalArgumentException Represents an unknown id.
+	 */
+	public static AuditRecordFormat forId(int id) {
+		AuditRecordFormat[] formats = values();
+		if (id < 0 || id >= formats.length)
+			throw new IllegalArgumentException("Unknown audit record format [" + id + "]");
+		return formats[id];
+	}
+
+}
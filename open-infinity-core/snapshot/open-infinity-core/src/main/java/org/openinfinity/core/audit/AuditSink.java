@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.audit;
+
+/**
+ * Destination of the audit trail records of <code>org.openinfinity.core.aspect.AuditTrailAspect</code>. When a sink is defined for the aspect,
+ * the records are written to the sink instead of the log. Implementations must be thread safe, the records are written on the 
+ * calling threads.
+ *
+ * <br/><br/>
+ * <code>
+ * &lt;bean class="org.openinfinity.core.aspect.AuditTrailAspect"&gt;<br/>
+ * &nbsp;&nbsp;&lt;property name="auditSink" ref="auditJournal" /&gt;<br/>
+ * &lt;/bean&gt;
+ * </code>
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public interface AuditSink {
+
+	/**
+	 * Writes the record.
+	 *
+	 * @param record Represents the audit trail record.
+	 * @throws org.openinfinity.core.exception.SystemException Represents the failure of writing the record.
+	 */
+	void write(AuditRecord record);
+
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.audit;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openinfinity.core.util.TimestampUtil;
+
+/**
+ * Encodes the audit trail records into the compact binary payloads of the <code>BINARY</code> format and decodes them back. The method, user, 
+ * roles and tenant are dictionary encoded: a value is written once as a definition with a varint id, and the records refer to the id.
+ * The dictionaries are scoped to a segment file, the definitions of the new values are written in the same payload before the record, 
+ * so that every segment can be decoded on its own. The payload is a sequence of entries:
+ * <br/>
+ * <ul>
+ * 		<li>definition - <code>1, field, id, value</code></li>
+ * 		<li>record - <code>2, timestamp, method id, user id, roles id, tenant id, arguments</code>, the last entry of the payload</li>
+ * </ul>
+ * Integers are unsigned LEB128 varints, the timestamp is in nanoseconds since the epoch, id <code>0</code> stands for <code>null</code> and 
+ * the strings are UTF-8 encoded and prefixed with their length, the arguments with the length incremented by one and <code>0</code> for 
+ * <code>null</code>. The records carry only milliseconds, so the timestamp is the milliseconds scaled to nanoseconds: the unit keeps the format 
+ * open for a finer clock at the cost of about three varint bytes per record, and existing segments stay readable. The text of the records 
+ * is not stored, decoded records render their text from the fields when it is first read.
+ * <br/><br/>
+ * A codec is not thread safe, <code>org.openinfinity.core.audit.MappedAuditJournal</code> uses one codec per journal under its lock.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.1.0 - Dictionaries can be loaded from a segment index.
+ * @since 1.6.0
+ */
+public final class BinaryAuditRecordCodec {
+
+	/**
+	 * Represents the tag of a definition entry.
+	 */
+	static final int ENTRY_DEFINITION = 1;
+
+	/**
+	 * Represents the tag of a record entry.
+	 */
+	static final int ENTRY_RECORD = 2;
+
+	/**
+	 * Represents the dictionary encoded fields.
+	 */
+	static final int FIELD_METHOD = 0, FIELD_USER = 1, FIELD_ROLES = 2, FIELD_TENANT = 3;
+
+	/**
+	 * Represents the number of the dictionary encoded fields.
+	 */
+	static final int FIELD_COUNT = 4;
+
+	/**
+	 * Represents the character set of the strings.
+	 */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * Represents the number of the nanoseconds in a millisecond.
+	 */
+	private static final long NANOS_PER_MILLI = 1000000L;
+
+	/**
+	 * Represents the dictionaries by the field.
+	 */
+	private final Dictionary[] dictionaries = {new Dictionary(), new Dictionary(), new Dictionary(), new Dictionary()};
+
+	/**
+	 * Represents the buffer of the encoded payload.
+	 */
+	private byte[] buffer = new byte[256];
+
+	/**
+	 * Represents the length of the encoded payload.
+	 */
+	private int length;
+
+	/**
+	 * Represents the sizes of the dictionaries before the latest <code>encode</code>.
+	 */
+	private final int[] marks = new int[dictionaries.length];
+
+	/**
+	 * Represents the dictionary ids of the latest encoded or decoded record.
+	 */
+	private final int[] lastIds = new int[dictionaries.length];
+
+	/**
+	 * Clears the dictionaries, called when a new segment is started.
+	 */
+	public void reset() {
+		for (Dictionary dictionary : dictionaries)
+			dictionary.clear();
+	}
+
+	/**
+	 * Encodes the record with the definitions of its new dictionary values into the buffer of the codec.
+	 *
+	 * @param record Represents the record.
+	 * @return int Represents the length of the payload in the buffer.
+	 */
+	public int encode(AuditRecord record) {
+		length = 0;
+		for (int i = 0; i < dictionaries.length; i++)
+			marks[i] = dictionaries[i].values.size();
+		lastIds[FIELD_METHOD] = lookup(FIELD_METHOD, record.getMethod());
+		lastIds[FIELD_USER] = lookup(FIELD_USER, record.getUsername());
+		lastIds[FIELD_ROLES] = lookup(FIELD_ROLES, record.getRoles());
+		lastIds[FIELD_TENANT] = lookup(FIELD_TENANT, record.getTenantId());
+		writeVarint(ENTRY_RECORD);
+		writeVarint(record.getTimestampMillis() * NANOS_PER_MILLI);
+		for (int i = 0; i < lastIds.length; i++)
+			writeVarint(lastIds[i]);
+		if (record.getArguments() == null) {
+			writeVarint(0);
+		} else {
+			byte[] bytes = record.getArguments().getBytes(UTF_8);
+			writeVarint(bytes.length + 1L);
+			writeBytes(bytes);
+		}
+		return length;
+	}
+
+	private int lookup(int field, String value) {
+		if (value == null)
+			return 0;
+		Dictionary dictionary = dictionaries[field];
+		Integer id = dictionary.ids.get(value);
+		if (id != null)
+			return id.intValue();
+		int newId = dictionary.define(value);
+		byte[] bytes = value.getBytes(UTF_8);
+		writeVarint(ENTRY_DEFINITION);
+		writeVarint(field);
+		writeVarint(newId);
+		writeVarint(bytes.length);
+		writeBytes(bytes);
+		return newId;
+	}
+
+	/**
+	 * Removes the definitions of the latest <code>encode</code> from the dictionaries, called when the payload is not written.
+	 */
+	public void discard() {
+		for (int i = 0; i < dictionaries.length; i++)
+			dictionaries[i].truncate(marks[i]);
+		length = 0;
+	}
+
+	/**
+	 * Returns the dictionary id of the field of the latest encoded or decoded record, <code>0</code> for <code>null</code>.
+	 */
+	int getLastId(int field) {
+		return lastIds[field];
+	}
+
+	/**
+	 * Returns the values of the dictionary of the field in the order of their ids.
+	 */
+	List<String> getValues(int field) {
+		return Collections.unmodifiableList(dictionaries[field].values);
+	}
+
+	/**
+	 * Replaces the dictionary of the field with the values in the order of their ids, so that any record of the segment can be decoded 
+	 * without the preceding payloads. The definitions of the loaded values are accepted when they are decoded again.
+	 */
+	void load(int field, List<String> values) {
+		Dictionary dictionary = dictionaries[field];
+		dictionary.clear();
+		for (String value : values)
+			dictionary.define(value);
+	}
+
+	/**
+	 * Returns the buffer of the encoded payload, valid until the next call of <code>encode</code>.
+	 */
+	public byte[] getBuffer() {
+		return buffer;
+	}
+
+	private void writeVarint(long value) {
+		ensureCapacity(10);
+		while ((value & ~0x7FL) != 0) {
+			buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[length++] = (byte) value;
+	}
+
+	private void writeBytes(byte[] bytes) {
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, buffer, length, bytes.length);
+		length += bytes.length;
+	}
+
+	private void ensureCapacity(int additional) {
+		if (length + additional > buffer.length) {
+			byte[] grown = new byte[Math.max(buffer.length * 2, length + additional)];
+			System.arraycopy(buffer, 0, grown, 0, length);
+			buffer = grown;
+		}
+	}
+
+	/**
+	 * Decodes the payload, adding its definitions to the dictionaries.
+	 *
+	 * @param payload Represents the payload.
+	 * @return AuditRecord Represents the record, rendering its text when first read.
+	 * @throws IllegalArgumentException Represents an invalid payload or an undefined dictionary id.
+	 */
+	public AuditRecord decode(ByteBuffer payload) {
+		try {
+			while (payload.hasRemaining()) {
+				int entry = (int) readVarint(payload);
+				if (entry == ENTRY_DEFINITION) {
+					int field = (int) readVarint(payload);
+					int id = (int) readVarint(payload);
+					if (field < 0 || field >= dictionaries.length)
+						throw new IllegalArgumentException("Unknown dictionary field [" + field + "]");
+					dictionaries[field].define(id, readString(payload, (int) readVarint(payload)));
+				} else if (entry == ENTRY_RECORD) {
+					long timestampMillis = readVarint(payload) / NANOS_PER_MILLI;
+					for (int i = 0; i < lastIds.length; i++)
+						lastIds[i] = (int) readVarint(payload);
+					String method = dictionaries[FIELD_METHOD].valueOf(lastIds[FIELD_METHOD]);
+					String username = dictionaries[FIELD_USER].valueOf(lastIds[FIELD_USER]);
+					String roles = dictionaries[FIELD_ROLES].valueOf(lastIds[FIELD_ROLES]);
+					String tenantId = dictionaries[FIELD_TENANT].valueOf(lastIds[FIELD_TENANT]);
+					int argumentsLength = (int) readVarint(payload);
+					String arguments = argumentsLength > 0 ? readString(payload, argumentsLength - 1) : null;
+					return new AuditRecord(timestampMillis, method, username, roles, tenantId, arguments, null);
+				} else {
+					throw new IllegalArgumentException("Unknown entry [" + entry + "]");
+				}
+			}
+		} catch (RuntimeException e) {
+			if (e instanceof IllegalArgumentException)
+				throw e;
+			throw new IllegalArgumentException("Invalid binary audit record", e);
+		}
+		throw new IllegalArgumentException("Binary audit record without a record entry");
+	}
+
+	private static long readVarint(ByteBuffer payload) {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = payload.get();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+
+	private static String readString(ByteBuffer payload, int length) {
+		if (length < 0 || length > payload.remaining())
+			throw new IllegalArgumentException("Invalid string length [" + length + "]");
+		ByteBuffer bytes = payload.slice();
+		bytes.limit(length);
+		payload.position(payload.position() + length);
+		return UTF_8.decode(bytes).toString();
+	}
+
+	/**
+	 * Renders the fields of a record to text in the layout of the text audit trail, followed by the tenant.
+	 *
+	 * @return String Represents the text of the record.
+	 */
+	public static String renderText(long timestampMillis, String method, String username, String roles, String tenantId, String arguments) {
+		StringBuilder builder = new StringBuilder(128);
+		builder.append("Timestamp: [");
+		TimestampUtil.appendIsoTimestamp(builder, timestampMillis).append("] ");
+		builder.append(" Method: [").append(method).append("] ");
+		if (username != null)
+			builder.append(" Username: [").append(username).append("] ");
+		if (roles != null)
+			builder.append(" with granted authorities: [").append(roles).append("] ");
+		if (tenantId != null)
+			builder.append(" Tenant: [").append(tenantId).append("] ");
+		if (arguments != null)
+			builder.append(arguments);
+		return builder.toString();
+	}
+
+	/**
+	 * Represents the dictionary of a field, the ids start from <code>1</code>.
+	 */
+	private static final class Dictionary {
+
+		private final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+		private final List<String> values = new ArrayList<String>();
+
+		int define(String value) {
+			values.add(value);
+			ids.put(value, Integer.valueOf(values.size()));
+			return values.size();
+		}
+
+		void define(int id, String value) {
+			if (id <= values.size() && id > 0 && values.get(id - 1).equals(value))
+				return;
+			if (id != values.size() + 1)
+				throw new IllegalArgumentException("Unexpected dictionary id [" + id + "], expected [" + (values.size() + 1) + "]");
+			define(value);
+		}
+
+		String valueOf(int id) {
+			if (id == 0)
+				return null;
+			if (id < 0 || id > values.size())
+				throw new IllegalArgumentException("Undefined dictionary id [" + id + "]");
+			return values.get(id - 1);
+		}
+
+		void truncate(int size) {
+			while (values.size() > size)
+				ids.remove(values.remove(values.size() - 1));
+		}
+
+		void clear() {
+			ids.clear();
+			values.clear();
+		}
+
+	}
+
+}
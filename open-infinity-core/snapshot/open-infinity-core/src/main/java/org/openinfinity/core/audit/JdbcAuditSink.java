@@ -0,0 +1,602 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.audit;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Audit sink inserting the records to a database table in batches. The records are queued to a bounded queue on the calling thread and 
+ * inserted by the writer thread with <code>org.springframework.jdbc.core.JdbcTemplate.batchUpdate</code>, one transaction per batch, 
+ * when the batch size is reached or the flush interval has passed since the first record of the batch. 
+ * <br/><br/>
+ * A batch failing with a transient data access failure is retried with an exponential back-off. A batch which can not be inserted is 
+ * written to the spill sink, typically a <code>org.openinfinity.core.audit.MappedAuditJournal</code>, and when the queue is full the 
+ * calling thread writes the record to the spill sink. Without a spill sink the calling thread waits for space in the queue and the 
+ * records of a failed batch are logged as lost. The spilled records can be read with <code>org.openinfinity.core.audit.AuditJournalReader</code>.
+ * Before the sink is started and after it has been destroyed the records are inserted on the calling thread. 
+ * <br/><br/>
+ * The default insert statement expects the table:<br/>
+ * <br/>
+ * <code>
+ * CREATE TABLE AUDIT_TRAIL (EVENT_TIME TIMESTAMP NOT NULL, METHOD_NAME VARCHAR(255), USERNAME VARCHAR(255), ROLES VARCHAR(1024), 
+ * TENANT_ID VARCHAR(255), ARGUMENTS CLOB, AUDIT_TEXT CLOB)
+ * </code>
+ *
+ * <br/><br/>
+ * <code>
+ * &lt;bean id="jdbcAuditSink" class="org.openinfinity.core.audit.JdbcAuditSink"&gt;<br/>
+ * &nbsp;&nbsp;&lt;property name="dataSource" ref="dataSource" /&gt;<br/>
+ * &nbsp;&nbsp;&lt;property name="batchSize" value="500" /&gt;<br/>
+ * &nbsp;&nbsp;&lt;property name="spillSink" ref="auditJournal" /&gt;<br/>
+ * &lt;/bean&gt;
+ * </code>
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class JdbcAuditSink implements AuditSink, InitializingBean, DisposableBean {
+
+	/**
+	 * Logger for this class.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(JdbcAuditSink.class);
+
+	/**
+	 * Represents the default insert statement of a record.
+	 */
+	public static final String DEFAULT_INSERT_SQL = 
+			"INSERT INTO AUDIT_TRAIL (EVENT_TIME, METHOD_NAME, USERNAME, ROLES, TENANT_ID, ARGUMENTS, AUDIT_TEXT) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+	/**
+	 * Represents the default capacity of the queue.
+	 */
+	public static final int DEFAULT_CAPACITY = 16384;
+
+	/**
+	 * Represents the default maximum number of the records inserted in one batch.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 500;
+
+	/**
+	 * Represents the default maximum time a record waits for its batch to fill up.
+	 */
+	public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+	/**
+	 * Represents the default number of the retries of a batch failing with a transient failure.
+	 */
+	public static final int DEFAULT_MAX_RETRIES = 3;
+
+	/**
+	 * Represents the default back-off before the first retry, doubled for every further retry.
+	 */
+	public static final long DEFAULT_RETRY_BACKOFF_MILLIS = 100;
+
+	/**
+	 * Represents the default time the writer thread is given to insert the pending records on shutdown.
+	 */
+	public static final long DEFAULT_SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+	/**
+	 * Represents the name of the writer thread.
+	 */
+	private static final String WRITER_THREAD_NAME = "openinfinity-jdbc-audit-writer";
+
+	/**
+	 * Represents the maximum time the writer thread waits for a record before checking whether the sink is still running.
+	 */
+	private static final long WRITER_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	/**
+	 * Represents the time a flushing thread waits before checking the progress again.
+	 */
+	private static final long FLUSH_POLL_MILLIS = 1;
+
+	/**
+	 * Represents the JDBC template of the inserts.
+	 */
+	private JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Represents the transaction template of the batches.
+	 */
+	private TransactionTemplate transactionTemplate;
+
+	/**
+	 * Represents the insert statement of a record.
+	 */
+	private String insertSql = DEFAULT_INSERT_SQL;
+
+	/**
+	 * Represents the capacity of the queue.
+	 */
+	private int capacity = DEFAULT_CAPACITY;
+
+	/**
+	 * Represents the maximum number of the records inserted in one batch.
+	 */
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	/**
+	 * Represents the maximum time a record waits for its batch to fill up.
+	 */
+	private long flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
+
+	/**
+	 * Represents the number of the retries of a batch failing with a transient failure.
+	 */
+	private int maxRetries = DEFAULT_MAX_RETRIES;
+
+	/**
+	 * Represents the back-off before the first retry.
+	 */
+	private long retryBackoffMillis = DEFAULT_RETRY_BACKOFF_MILLIS;
+
+	/**
+	 * Represents the time the writer thread is given to insert the pending records on shutdown.
+	 */
+	private long shutdownTimeoutMillis = DEFAULT_SHUTDOWN_TIMEOUT_MILLIS;
+
+	/**
+	 * Represents the sink of the records which can not be inserted.
+	 */
+	private AuditSink spillSink;
+
+	/**
+	 * Represents the queue between the calling threads and the writer thread.
+	 */
+	private volatile BlockingQueue<AuditRecord> queue;
+
+	/**
+	 * Represents the writer thread.
+	 */
+	private volatile Thread writer;
+
+	/**
+	 * Represents whether the records are handed over to the writer thread.
+	 */
+	private volatile boolean running;
+
+	/**
+	 * Represents the number of the records queued to the writer thread.
+	 */
+	private final AtomicLong queuedRecords = new AtomicLong();
+
+	/**
+	 * Represents the number of the queued records inserted, spilled or lost by the writer thread.
+	 */
+	private final AtomicLong completedRecords = new AtomicLong();
+
+	/**
+	 * Represents the number of the inserted records.
+	 */
+	private final AtomicLong insertedRecords = new AtomicLong();
+
+	/**
+	 * Represents the number of the records written to the spill sink.
+	 */
+	private final AtomicLong spilledRecords = new AtomicLong();
+
+	/**
+	 * Represents the number of the records lost.
+	 */
+	private final AtomicLong lostRecords = new AtomicLong();
+
+	/**
+	 * Represents the number of the inserted batches.
+	 */
+	private final AtomicLong batches = new AtomicLong();
+
+	/**
+	 * Represents the number of the retried batches.
+	 */
+	private final AtomicLong retries = new AtomicLong();
+
+	/**
+	 * Setter for the data source of the audit table.
+	 *
+	 * @param dataSource Represents the data source of the audit table.
+	 */
+	public void setDataSource(DataSource dataSource) {
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+	}
+
+	/**
+	 * Setter for the insert statement, binding the time, method, username, roles, tenant id, arguments and text of the record in this order.
+	 *
+	 * @param insertSql Represents the insert statement of a record.
+	 */
+	public void setInsertSql(String insertSql) {
+		this.insertSql = insertSql;
+	}
+
+	/**
+	 * Setter for the capacity of the queue.
+	 *
+	 * @param capacity Represents the capacity of the queue.
+	 */
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Setter for the batch size.
+	 *
+	 * @param batchSize Represents the maximum number of the records inserted in one batch.
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Setter for the flush interval.
+	 *
+	 * @param flushIntervalMillis Represents the maximum time a record waits for its batch to fill up.
+	 */
+	public void setFlushIntervalMillis(long flushIntervalMillis) {
+		this.flushIntervalMillis = flushIntervalMillis;
+	}
+
+	/**
+	 * Setter for the number of the retries.
+	 *
+	 * @param maxRetries Represents the number of the retries of a batch failing with a transient failure.
+	 */
+	public void setMaxRetries(int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+
+	/**
+	 * Setter for the retry back-off.
+	 *
+	 * @param retryBackoffMillis Represents the back-off before the first retry, doubled for every further retry.
+	 */
+	public void setRetryBackoffMillis(long retryBackoffMillis) {
+		this.retryBackoffMillis = retryBackoffMillis;
+	}
+
+	/**
+	 * Setter for the shutdown timeout.
+	 *
+	 * @param shutdownTimeoutMillis Represents the time the writer thread is given to insert the pending records on shutdown.
+	 */
+	public void setShutdownTimeoutMillis(long shutdownTimeoutMillis) {
+		this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+	}
+
+	/**
+	 * Setter for the spill sink.
+	 *
+	 * @param spillSink Represents the sink of the records which can not be inserted or queued.
+	 */
+	public void setSpillSink(AuditSink spillSink) {
+		this.spillSink = spillSink;
+	}
+
+	/**
+	 * Creates the queue and starts the writer thread.
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		if (jdbcTemplate == null)
+			throw new IllegalArgumentException("Data source of the audit table must be defined.");
+		if (capacity < 1 || batchSize < 1 || flushIntervalMillis < 1 || maxRetries < 0 || retryBackoffMillis < 0)
+			throw new IllegalArgumentException("Invalid JDBC audit sink settings [" + capacity + ", " + batchSize + ", " + flushIntervalMillis + ", " 
+					+ maxRetries + ", " + retryBackoffMillis + "]");
+		this.queue = new ArrayBlockingQueue<AuditRecord>(capacity);
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				writeRecords();
+			}
+		}, WRITER_THREAD_NAME);
+		thread.setDaemon(true);
+		this.writer = thread;
+		this.running = true;
+		thread.start();
+		LOGGER.debug("JDBC audit sink started with capacity of {} records and batch size of {}.", capacity, batchSize);
+	}
+
+	/**
+	 * Queues the record to the writer thread. When the queue is full the record is written to the spill sink, or the calling thread waits for 
+	 * space when there is no spill sink.
+	 */
+	@Override
+	public void write(AuditRecord record) {
+		if (!running) {
+			insert(Collections.singletonList(record));
+			return;
+		}
+		BlockingQueue<AuditRecord> records = this.queue;
+		queuedRecords.incrementAndGet();
+		if (records.offer(record)) {
+			reclaimAfterShutdown(records, record);
+			return;
+		}
+		if (spillSink != null) {
+			queuedRecords.decrementAndGet();
+			spill(Collections.singletonList(record), null);
+			return;
+		}
+		try {
+			while (!records.offer(record, flushIntervalMillis, TimeUnit.MILLISECONDS)) {
+				if (!running) {
+					queuedRecords.decrementAndGet();
+					insert(Collections.singletonList(record));
+					return;
+				}
+			}
+			reclaimAfterShutdown(records, record);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			queuedRecords.decrementAndGet();
+			insert(Collections.singletonList(record));
+		}
+	}
+
+	/**
+	 * Inserts the queued record on the calling thread when the sink has been stopped meanwhile, because the queue may already have been 
+	 * drained by <code>destroy</code>. A record taken by the writer thread or by <code>destroy</code> is not removed from the queue.
+	 */
+	private void reclaimAfterShutdown(BlockingQueue<AuditRecord> records, AuditRecord record) {
+		if (!running && records.remove(record)) {
+			queuedRecords.decrementAndGet();
+			insert(Collections.singletonList(record));
+		}
+	}
+
+	private void writeRecords() {
+		List<AuditRecord> batch = new ArrayList<AuditRecord>(batchSize);
+		while (running || !queue.isEmpty()) {
+			try {
+				collect(batch);
+			} catch (InterruptedException e) {
+				running = false;
+			}
+			if (!batch.isEmpty()) {
+				insert(batch);
+				completedRecords.addAndGet(batch.size());
+				batch.clear();
+			}
+		}
+	}
+
+	private void collect(List<AuditRecord> batch) throws InterruptedException {
+		long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+		AuditRecord first = queue.poll(Math.min(flushIntervalNanos, WRITER_POLL_NANOS), TimeUnit.NANOSECONDS);
+		if (first == null)
+			return;
+		batch.add(first);
+		long deadline = System.nanoTime() + flushIntervalNanos;
+		while (batch.size() < batchSize) {
+			queue.drainTo(batch, batchSize - batch.size());
+			long remaining = deadline - System.nanoTime();
+			if (batch.size() >= batchSize || remaining <= 0 || !running)
+				return;
+			AuditRecord next = queue.poll(Math.min(remaining, WRITER_POLL_NANOS), TimeUnit.NANOSECONDS);
+			if (next != null)
+				batch.add(next);
+		}
+	}
+
+	private void insert(final List<AuditRecord> batch) {
+		for (int attempt = 0;; attempt++) {
+			try {
+				transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+					@Override
+					protected void doInTransactionWithoutResult(TransactionStatus status) {
+						jdbcTemplate.batchUpdate(insertSql, new BatchPreparedStatementSetter() {
+							public void setValues(PreparedStatement statement, int i) throws SQLException {
+								setRecord(statement, batch.get(i));
+							}
+
+							public int getBatchSize() {
+								return batch.size();
+							}
+						});
+					}
+				});
+				insertedRecords.addAndGet(batch.size());
+				batches.incrementAndGet();
+				return;
+			} catch (RuntimeException e) {
+				if (attempt >= maxRetries || !isTransient(e) || !backOff(attempt)) {
+					spill(batch, e);
+					return;
+				}
+				retries.incrementAndGet();
+				LOGGER.debug("Retrying the audit batch of {} records after a transient failure: {}", batch.size(), e.getMessage());
+			}
+		}
+	}
+
+	private static void setRecord(PreparedStatement statement, AuditRecord record) throws SQLException {
+		statement.setTimestamp(1, new Timestamp(record.getTimestampMillis()));
+		setString(statement, 2, record.getMethod());
+		setString(statement, 3, record.getUsername());
+		setString(statement, 4, record.getRoles());
+		setString(statement, 5, record.getTenantId());
+		setString(statement, 6, record.getArguments());
+		setString(statement, 7, record.getText());
+	}
+
+	private static void setString(PreparedStatement statement, int index, String value) throws SQLException {
+		if (value == null)
+			statement.setNull(index, Types.VARCHAR);
+		else
+			statement.setString(index, value);
+	}
+
+	/**
+	 * Returns <code>true</code> if the failure may succeed when retried.
+	 */
+	static boolean isTransient(RuntimeException e) {
+		return e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException 
+				|| e instanceof DataAccessResourceFailureException || e instanceof CannotCreateTransactionException;
+	}
+
+	private boolean backOff(int attempt) {
+		try {
+			Thread.sleep(retryBackoffMillis << Math.min(attempt, 16));
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private void spill(List<AuditRecord> batch, RuntimeException cause) {
+		AuditSink sink = spillSink;
+		int spilled = 0;
+		if (sink != null) {
+			try {
+				for (AuditRecord record : batch) {
+					sink.write(record);
+					spilled++;
+				}
+				if (cause != null)
+					LOGGER.warn("Audit batch of " + batch.size() + " records could not be inserted and was written to the spill sink.", cause);
+			} catch (RuntimeException e) {
+				LOGGER.error("Writing the audit records to the spill sink failed.", e);
+			}
+			spilledRecords.addAndGet(spilled);
+		}
+		if (spilled < batch.size()) {
+			lostRecords.addAndGet(batch.size() - spilled);
+			LOGGER.error((batch.size() - spilled) + " audit records were lost.", cause);
+		}
+	}
+
+	/**
+	 * Waits until the records queued before the call have been inserted or spilled.
+	 */
+	public void flush() {
+		long target = queuedRecords.get();
+		while (completedRecords.get() < target) {
+			Thread thread = writer;
+			if (thread == null || !thread.isAlive())
+				return;
+			try {
+				Thread.sleep(FLUSH_POLL_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Stops the writer thread after the queued records have been inserted, inserting the rest on the closing thread.
+	 */
+	@Override
+	public void destroy() throws InterruptedException {
+		if (!running)
+			return;
+		running = false;
+		Thread thread = writer;
+		thread.join(shutdownTimeoutMillis);
+		if (thread.isAlive()) {
+			LOGGER.warn("JDBC audit writer thread did not finish in {} ms, inserting the pending records on the closing thread.", shutdownTimeoutMillis);
+			thread.interrupt();
+			thread.join();
+		}
+		List<AuditRecord> batch = new ArrayList<AuditRecord>();
+		queue.drainTo(batch);
+		if (!batch.isEmpty()) {
+			insert(batch);
+			completedRecords.addAndGet(batch.size());
+		}
+	}
+
+	/**
+	 * Returns the number of the inserted records.
+	 */
+	public long getInsertedRecords() {
+		return insertedRecords.get();
+	}
+
+	/**
+	 * Returns the number of the records written to the spill sink.
+	 */
+	public long getSpilledRecords() {
+		return spilledRecords.get();
+	}
+
+	/**
+	 * Returns the number of the records which could be neither inserted nor spilled.
+	 */
+	public long getLostRecords() {
+		return lostRecords.get();
+	}
+
+	/**
+	 * Returns the number of the inserted batches.
+	 */
+	public long getBatches() {
+		return batches.get();
+	}
+
+	/**
+	 * Returns the number of the retried batches.
+	 */
+	public long getRetries() {
+		return retries.get();
+	}
+
+	/**
+	 * Returns the number of the records waiting in the queue.
+	 */
+	public int getPendingRecords() {
+		BlockingQueue<AuditRecord> records = this.queue;
+		return records != null ? records.size() : 0;
+	}
+
+	/**
+	 * Returns <code>true</code> if the records are handed over to the writer thread.
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.audit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Pre-allocated memory mapped segment file of <code>org.openinfinity.core.audit.MappedAuditJournal</code>. The segment starts with 
+ * the magic number and the record format, followed by the frames <code>[length][crc32][payload]</code>. The remaining bytes 
+ * are zero, a zero length ends the frames. When an existing segment is opened, the frames are scanned until the first frame with an 
+ * invalid length or checksum, which is the end of a torn write, and appending continues from there. A segment opened for writing 
+ * is confined to the lock of its journal, a segment opened for reading can be read while the journal appends to it.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.1.0 - Read only segments and scanning from a frame position.
+ * @since 1.6.0
+ */
+final class JournalSegment {
+
+	/**
+	 * Represents the magic number of the segment files.
+	 */
+	static final int MAGIC = 0x4F494A31;
+
+	/**
+	 * Represents the size of the segment header, the magic number and the record format.
+	 */
+	static final int SEGMENT_HEADER_SIZE = 8;
+
+	/**
+	 * Represents the size of the frame header, the payload length and the checksum.
+	 */
+	static final int FRAME_HEADER_SIZE = 8;
+
+	/**
+	 * Represents the segment file.
+	 */
+	private final File file;
+
+	/**
+	 * Represents the index of the segment in the journal.
+	 */
+	private final long index;
+
+	/**
+	 * Represents the opened segment file.
+	 */
+	private final RandomAccessFile randomAccessFile;
+
+	/**
+	 * Represents the mapped segment file.
+	 */
+	private final MappedByteBuffer buffer;
+
+	/**
+	 * Represents the format of the payloads.
+	 */
+	private final int format;
+
+	/**
+	 * Represents whether the segment has been opened for reading only.
+	 */
+	private final boolean readOnly;
+
+	/**
+	 * Represents the position of the next frame.
+	 */
+	private int position;
+
+	/**
+	 * Represents the number of the frames.
+	 */
+	private int frames;
+
+	/**
+	 * Represents whether the file has been closed.
+	 */
+	private boolean closed;
+
+	/**
+	 * Represents the checksum calculator.
+	 */
+	private final CRC32 crc = new CRC32();
+
+	private JournalSegment(File file, long index, RandomAccessFile randomAccessFile, MappedByteBuffer buffer, int format, boolean readOnly) {
+		this.file = file;
+		this.index = index;
+		this.randomAccessFile = randomAccessFile;
+		this.buffer = buffer;
+		this.format = format;
+		this.readOnly = readOnly;
+	}
+
+	/**
+	 * Opens the segment file, pre-allocating and initializing it when it does not exist and recovering the frames when it does.
+	 *
+	 * @param file Represents the segment file.
+	 * @param index Represents the index of the segment in the journal.
+	 * @param size Represents the size of a new segment file, an existing file keeps its size.
+	 * @param format Represents the format of the payloads of a new segment file.
+	 * @return JournalSegment Represents the opened segment.
+	 * @throws IOException Represents the failure of opening the file or an invalid file.
+	 */
+	static JournalSegment open(File file, long index, int size, int format) throws IOException {
+		boolean created = !file.exists();
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			if (created)
+				randomAccessFile.setLength(size);
+			long length = randomAccessFile.length();
+			if (length < SEGMENT_HEADER_SIZE || length > Integer.MAX_VALUE)
+				throw new IOException("Invalid audit journal segment size [" + length + "] of [" + file + "]");
+			MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+			int magic = buffer.getInt(0);
+			if (magic == 0) {
+				buffer.putInt(0, MAGIC);
+				buffer.putInt(4, format);
+			} else if (magic != MAGIC) {
+				throw new IOException("File [" + file + "] is not an audit journal segment");
+			}
+			JournalSegment segment = new JournalSegment(file, index, randomAccessFile, buffer, buffer.getInt(4), false);
+			segment.recover();
+			return segment;
+		} catch (IOException e) {
+			randomAccessFile.close();
+			throw e;
+		} catch (RuntimeException e) {
+			randomAccessFile.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens the segment file for reading. The file is not modified, the frames written after opening may not be visible.
+	 *
+	 * @param file Represents the segment file.
+	 * @param index Represents the index of the segment in the journal.
+	 * @return JournalSegment Represents the opened segment.
+	 * @throws IOException Represents the failure of opening the file or an invalid file.
+	 */
+	static JournalSegment openReadOnly(File file, long index) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			long length = randomAccessFile.length();
+			if (length < SEGMENT_HEADER_SIZE || length > Integer.MAX_VALUE)
+				throw new IOException("Invalid audit journal segment size [" + length + "] of [" + file + "]");
+			MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+			int magic = buffer.getInt(0);
+			if (magic != 0 && magic != MAGIC)
+				throw new IOException("File [" + file + "] is not an audit journal segment");
+			JournalSegment segment = new JournalSegment(file, index, randomAccessFile, buffer, buffer.getInt(4), true);
+			segment.position = segment.scan(null);
+			return segment;
+		} catch (IOException e) {
+			randomAccessFile.close();
+			throw e;
+		} catch (RuntimeException e) {
+			randomAccessFile.close();
+			throw e;
+		}
+	}
+
+	private void recover() {
+		position = scan(null);
+		if (position + FRAME_HEADER_SIZE <= buffer.capacity() && buffer.getLong(position) != 0)
+			buffer.putLong(position, 0);
+	}
+
+	/**
+	 * Visits the valid frames of the segment in the written order.
+	 *
+	 * @param visitor Represents the visitor of the payloads, <code>null</code> to count the frames only.
+	 * @return int Represents the position after the last valid frame.
+	 */
+	int scan(FrameVisitor visitor) {
+		return scan(SEGMENT_HEADER_SIZE, visitor);
+	}
+
+	/**
+	 * Visits the valid frames of the segment starting from the frame at the position.
+	 *
+	 * @param from Represents the position of the first frame.
+	 * @param visitor Represents the visitor of the payloads, <code>null</code> to count the frames only.
+	 * @return int Represents the position after the last visited frame.
+	 */
+	int scan(int from, FrameVisitor visitor) {
+		int current = from;
+		int count = 0;
+		while (current + FRAME_HEADER_SIZE <= buffer.capacity()) {
+			int length = buffer.getInt(current);
+			if (length <= 0 || length > buffer.capacity() - current - FRAME_HEADER_SIZE)
+				break;
+			ByteBuffer payload = buffer.duplicate();
+			payload.limit(current + FRAME_HEADER_SIZE + length).position(current + FRAME_HEADER_SIZE);
+			if (checksum(payload.duplicate()) != buffer.getInt(current + 4))
+				break;
+			if (visitor != null && !visitor.visitFrame(payload.slice()))
+				break;
+			current += FRAME_HEADER_SIZE + length;
+			count++;
+		}
+		if (visitor == null && from == SEGMENT_HEADER_SIZE)
+			frames = count;
+		return current;
+	}
+
+	private int checksum(ByteBuffer payload) {
+		crc.reset();
+		if (payload.hasArray()) {
+			crc.update(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+		} else {
+			byte[] chunk = new byte[Math.min(payload.remaining(), 4096)];
+			while (payload.hasRemaining()) {
+				int length = Math.min(chunk.length, payload.remaining());
+				payload.get(chunk, 0, length);
+				crc.update(chunk, 0, length);
+			}
+		}
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Returns <code>true</code> if a payload of the length fits into an empty segment of the size.
+	 */
+	static boolean fits(int length, int size) {
+		return length > 0 && length <= size - SEGMENT_HEADER_SIZE - FRAME_HEADER_SIZE;
+	}
+
+	/**
+	 * Appends the payload as a frame. The payload is written before the checksum and the length, so that a torn frame is not valid.
+	 *
+	 * @param payload Represents the payload.
+	 * @param offset Represents the offset of the payload.
+	 * @param length Represents the length of the payload.
+	 * @return boolean <code>false</code> if the frame does not fit into the segment.
+	 */
+	boolean append(byte[] payload, int offset, int length) {
+		if (position + FRAME_HEADER_SIZE + length > buffer.capacity())
+			return false;
+		buffer.position(position + FRAME_HEADER_SIZE);
+		buffer.put(payload, offset, length);
+		crc.reset();
+		crc.update(payload, offset, length);
+		buffer.putInt(position + 4, (int) crc.getValue());
+		buffer.putInt(position, length);
+		position += FRAME_HEADER_SIZE + length;
+		frames++;
+		return true;
+	}
+
+	/**
+	 * Forces the written frames to the storage device, unless the segment has already been closed.
+	 */
+	void force() {
+		if (!closed)
+			buffer.force();
+	}
+
+	/**
+	 * Forces the written frames to the storage device and closes the file. The mapping is released when the buffer is garbage collected.
+	 *
+	 * @throws IOException Represents the failure of closing the file.
+	 */
+	void close() throws IOException {
+		closed = true;
+		if (!readOnly)
+			buffer.force();
+		randomAccessFile.close();
+	}
+
+	/**
+	 * Returns the segment file.
+	 */
+	File getFile() {
+		return file;
+	}
+
+	/**
+	 * Returns the index of the segment in the journal.
+	 */
+	long getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns the format of the payloads.
+	 */
+	int getFormat() {
+		return format;
+	}
+
+	/**
+	 * Returns the position of the next frame.
+	 */
+	int getPosition() {
+		return position;
+	}
+
+	/**
+	 * Returns the number of the frames.
+	 */
+	int getFrames() {
+		return frames;
+	}
+
+	/**
+	 * Visitor of the frames of a segment.
+	 */
+	interface FrameVisitor {
+
+		/**
+		 * Visits the payload of a frame.
+		 *
+		 * @param payload Represents the payload, valid only during the call.
+		 * @return boolean <code>false</code> to end the scan.
+		 */
+		boolean visitFrame(ByteBuffer payload);
+
+	}
+
+}
@@ -0,0 +1,565 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.audit;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openinfinity.core.util.ExceptionUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Durable append-only audit journal writing the records to pre-allocated memory mapped segment files. A record is copied to the mapped 
+ * segment on the calling thread and becomes durable with the next group commit: the segment is forced to the storage device by the sync 
+ * thread every sync interval, and earlier when the bytes written since the previous sync reach the sync threshold. Without a sync thread 
+ * the writing thread reaching the threshold forces the segment. The segment is forced outside the lock of the writers, so that the 
+ * writing threads do not wait for the storage device. 
+ * A record which does not fit into the current segment rolls the journal to a new segment file.
+ * <br/><br/>
+ * Every record is framed with its length and CRC32 checksum. When the journal is opened, the last segment is scanned up to the last valid 
+ * record and appending continues after it, so that a record torn by a crash is discarded. The segment files are named 
+ * <code>&lt;prefix&gt;-&lt;index&gt;.journal</code>. The payloads are the UTF-8 encoded texts of the records with the <code>TEXT</code> format,
+ * and the dictionary encoded records of <code>org.openinfinity.core.audit.BinaryAuditRecordCodec</code> with the <code>BINARY</code> format.
+ * A segment keeps the format it has been created with, when the format is changed the journal continues in a new segment. 
+ * The records are read and queried with <code>org.openinfinity.core.audit.AuditJournalReader</code>. 
+ * <br/><br/>
+ * The <code>BINARY</code> segments are indexed while the records are written, see <code>org.openinfinity.core.audit.SegmentIndex</code>. 
+ * The index of a segment is written next to it when the journal rolls to a new segment or is closed, and the index of the last segment is 
+ * rebuilt from its records when the journal is opened.
+ *
+ * <br/><br/>
+ * <code>
+ * &lt;bean id="auditJournal" class="org.openinfinity.core.audit.MappedAuditJournal"&gt;<br/>
+ * &nbsp;&nbsp;&lt;property name="directory" value="/var/audit" /&gt;<br/>
+ * &nbsp;&nbsp;&lt;property name="syncIntervalMillis" value="100" /&gt;<br/>
+ * &nbsp;&nbsp;&lt;property name="format" value="BINARY" /&gt;<br/>
+ * &lt;/bean&gt;
+ * </code>
+ *
+ * @author Ilkka Leinonen
+ * @version 1.2.0 - Binary record format, segment indexes.
+ * @since 1.6.0
+ */
+public class MappedAuditJournal implements AuditSink, InitializingBean, DisposableBean {
+
+	/**
+	 * Logger for this class.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(MappedAuditJournal.class);
+
+	/**
+	 * Represents the default size of a segment file.
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * Represents the default interval of the group commits.
+	 */
+	public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 100;
+
+	/**
+	 * Represents the default number of the written bytes forcing a group commit.
+	 */
+	public static final int DEFAULT_SYNC_THRESHOLD_BYTES = 1024 * 1024;
+
+	/**
+	 * Represents the default number of the records in a block of the segment index.
+	 */
+	public static final int DEFAULT_INDEX_BLOCK_SIZE = 64;
+
+	/**
+	 * Represents the default prefix of the segment file names.
+	 */
+	public static final String DEFAULT_PREFIX = "audit";
+
+	/**
+	 * Represents the suffix of the segment file names.
+	 */
+	public static final String SEGMENT_SUFFIX = ".journal";
+
+	/**
+	 * Represents the name of the sync thread.
+	 */
+	private static final String SYNC_THREAD_NAME = "openinfinity-audit-journal-sync";
+
+	/**
+	 * Represents the character set of the text payloads.
+	 */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * Represents the directory of the segment files.
+	 */
+	private File directory;
+
+	/**
+	 * Represents the prefix of the segment file names.
+	 */
+	private String prefix = DEFAULT_PREFIX;
+
+	/**
+	 * Represents the size of a new segment file.
+	 */
+	private int segmentSize = DEFAULT_SEGMENT_SIZE;
+
+	/**
+	 * Represents the interval of the group commits, <code>0</code> to sync by the threshold only.
+	 */
+	private long syncIntervalMillis = DEFAULT_SYNC_INTERVAL_MILLIS;
+
+	/**
+	 * Represents the number of the written bytes forcing a group commit.
+	 */
+	private int syncThresholdBytes = DEFAULT_SYNC_THRESHOLD_BYTES;
+
+	/**
+	 * Represents the format of the record payloads.
+	 */
+	private AuditRecordFormat format = AuditRecordFormat.TEXT;
+
+	/**
+	 * Represents the codec of the binary records of the current segment, guarded by the lock.
+	 */
+	private final BinaryAuditRecordCodec codec = new BinaryAuditRecordCodec();
+
+	/**
+	 * Represents the number of the records in a block of the segment index.
+	 */
+	private int indexBlockSize = DEFAULT_INDEX_BLOCK_SIZE;
+
+	/**
+	 * Represents the index of the current binary segment, guarded by the lock.
+	 */
+	private SegmentIndex.Builder indexBuilder;
+
+	/**
+	 * Represents the lock of the current segment.
+	 */
+	private final Object lock = new Object();
+
+	/**
+	 * Represents the lock of forcing and closing the segments, acquired after the lock of the current segment.
+	 */
+	private final Object syncLock = new Object();
+
+	/**
+	 * Represents the current segment, guarded by the lock.
+	 */
+	private JournalSegment segment;
+
+	/**
+	 * Represents the number of the bytes written since the previous sync, guarded by the lock.
+	 */
+	private int unsyncedBytes;
+
+	/**
+	 * Represents whether the sync thread has been woken up by the sync threshold, guarded by the lock.
+	 */
+	private boolean syncRequested;
+
+	/**
+	 * Represents the number of the records recovered when the journal was opened.
+	 */
+	private int recoveredRecords;
+
+	/**
+	 * Represents the sync thread.
+	 */
+	private volatile Thread syncThread;
+
+	/**
+	 * Represents whether the journal is open.
+	 */
+	private volatile boolean open;
+
+	/**
+	 * Represents the number of the written records.
+	 */
+	private final AtomicLong writtenRecords = new AtomicLong();
+
+	/**
+	 * Represents the number of the group commits.
+	 */
+	private final AtomicLong syncs = new AtomicLong();
+
+	/**
+	 * Setter for the directory of the segment files, created when it does not exist.
+	 *
+	 * @param directory Represents the directory of the segment files.
+	 */
+	public void setDirectory(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Setter for the prefix of the segment file names.
+	 *
+	 * @param prefix Represents the prefix of the segment file names.
+	 */
+	public void setPrefix(String prefix) {
+		this.prefix = prefix;
+	}
+
+	/**
+	 * Setter for the size of a new segment file. The size bounds the size of a single record.
+	 *
+	 * @param segmentSize Represents the size of a new segment file in bytes.
+	 */
+	public void setSegmentSize(int segmentSize) {
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Setter for the interval of the group commits.
+	 *
+	 * @param syncIntervalMillis Represents the interval of the group commits, <code>0</code> to sync by the threshold only.
+	 */
+	public void setSyncIntervalMillis(long syncIntervalMillis) {
+		this.syncIntervalMillis = syncIntervalMillis;
+	}
+
+	/**
+	 * Setter for the sync threshold.
+	 *
+	 * @param syncThresholdBytes Represents the number of the written bytes forcing a group commit, <code>1</code> to sync every record.
+	 */
+	public void setSyncThresholdBytes(int syncThresholdBytes) {
+		this.syncThresholdBytes = syncThresholdBytes;
+	}
+
+	/**
+	 * Setter for the format of the record payloads.
+	 *
+	 * @param format Represents the format of the record payloads of the new segments.
+	 */
+	public void setFormat(AuditRecordFormat format) {
+		this.format = format;
+	}
+
+	/**
+	 * Setter for the block size of the segment index.
+	 *
+	 * @param indexBlockSize Represents the number of the records in a block of the segment index.
+	 */
+	public void setIndexBlockSize(int indexBlockSize) {
+		this.indexBlockSize = indexBlockSize;
+	}
+
+	/**
+	 * Opens the last segment file, recovering its records, or creates the first one and starts the sync thread.
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		if (directory == null)
+			throw new IllegalArgumentException("Audit journal directory must be defined.");
+		if (segmentSize <= JournalSegment.SEGMENT_HEADER_SIZE + JournalSegment.FRAME_HEADER_SIZE || syncIntervalMillis < 0 || syncThresholdBytes < 1 
+				|| indexBlockSize < 1)
+			throw new IllegalArgumentException("Invalid audit journal settings [" + segmentSize + ", " + syncIntervalMillis + ", " + syncThresholdBytes 
+					+ ", " + indexBlockSize + "]");
+		if (!directory.isDirectory() && !directory.mkdirs())
+			ExceptionUtil.throwSystemException("Audit journal directory [" + directory + "] can not be created.");
+		File[] segmentFiles = listSegmentFiles(directory, prefix);
+		long index = segmentFiles.length > 0 ? parseIndex(segmentFiles[segmentFiles.length - 1], prefix) : 0;
+		synchronized (lock) {
+			segment = openSegment(index);
+			recoveredRecords = segment.getFrames();
+			if (segment.getFormat() != format.getId() || (format == AuditRecordFormat.BINARY && !recoverIndex()))
+				roll();
+			else
+				deleteIndex(segment.getFile());
+		}
+		open = true;
+		if (syncIntervalMillis > 0)
+			startSyncThread();
+		LOGGER.debug("Audit journal opened at [{}] with {} recovered records.", segment.getFile(), recoveredRecords);
+	}
+
+	private JournalSegment openSegment(long index) {
+		File file = new File(directory, segmentName(prefix, index));
+		indexBuilder = format == AuditRecordFormat.BINARY ? new SegmentIndex.Builder(indexBlockSize) : null;
+		try {
+			return JournalSegment.open(file, index, segmentSize, format.getId());
+		} catch (IOException e) {
+			ExceptionUtil.throwSystemException("Audit journal segment [" + file + "] can not be opened: " + e.getMessage(), e);
+			return null;
+		}
+	}
+
+	private void deleteIndex(File segmentFile) {
+		File indexFile = SegmentIndex.indexFile(segmentFile);
+		if (indexFile.exists() && !indexFile.delete())
+			ExceptionUtil.throwSystemException("Audit journal index [" + indexFile + "] of the current segment can not be deleted.");
+	}
+
+	private boolean recoverIndex() {
+		try {
+			indexBuilder = SegmentIndex.scan(segment, codec, indexBlockSize);
+			return true;
+		} catch (IllegalArgumentException e) {
+			LOGGER.warn("Audit journal segment [" + segment.getFile() + "] can not be decoded, continuing in a new segment.", e);
+			codec.reset();
+			indexBuilder = null;
+			return false;
+		}
+	}
+
+	private void startSyncThread() {
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				long intervalNanos = TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis);
+				while (open) {
+					LockSupport.parkNanos(this, intervalNanos);
+					try {
+						sync();
+					} catch (RuntimeException e) {
+						LOGGER.error("Audit journal sync failed.", e);
+					}
+				}
+			}
+		}, SYNC_THREAD_NAME);
+		thread.setDaemon(true);
+		this.syncThread = thread;
+		thread.start();
+	}
+
+	/**
+	 * Returns the segment files of the directory in the order of their indexes.
+	 *
+	 * @param directory Represents the directory of the segment files.
+	 * @param prefix Represents the prefix of the segment file names.
+	 * @return File[] Represents the segment files.
+	 */
+	static File[] listSegmentFiles(File directory, final String prefix) {
+		File[] files = directory.listFiles(new FilenameFilter() {
+			public boolean accept(File dir, String name) {
+				return name.startsWith(prefix + "-") && name.endsWith(SEGMENT_SUFFIX);
+			}
+		});
+		if (files == null)
+			return new File[0];
+		Arrays.sort(files);
+		return files;
+	}
+
+	static String segmentName(String prefix, long index) {
+		return prefix + "-" + String.format("%016d", index) + SEGMENT_SUFFIX;
+	}
+
+	static long parseIndex(File file, String prefix) {
+		String name = file.getName();
+		return Long.parseLong(name.substring(prefix.length() + 1, name.length() - SEGMENT_SUFFIX.length()));
+	}
+
+	/**
+	 * Appends the record in the format of the journal, rolling to a new segment when the current one is full. The record is durable after 
+	 * the next group commit.
+	 */
+	@Override
+	public void write(AuditRecord record) {
+		if (format == AuditRecordFormat.TEXT)
+			writeText(record.getText().getBytes(UTF_8));
+		else
+			writeBinary(record);
+		writtenRecords.incrementAndGet();
+	}
+
+	private void writeText(byte[] payload) {
+		checkSize(payload.length);
+		JournalSegment unsyncedSegment;
+		synchronized (lock) {
+			checkOpen();
+			if (!segment.append(payload, 0, payload.length)) {
+				roll();
+				segment.append(payload, 0, payload.length);
+			}
+			unsyncedSegment = appended(payload.length);
+		}
+		if (unsyncedSegment != null)
+			forceSegment(unsyncedSegment);
+	}
+
+	private void writeBinary(AuditRecord record) {
+		JournalSegment unsyncedSegment;
+		synchronized (lock) {
+			checkOpen();
+			int length = codec.encode(record);
+			int position = segment.getPosition();
+			if (!segment.append(codec.getBuffer(), 0, length)) {
+				if (!JournalSegment.fits(length, segmentSize))
+					codec.discard();
+				checkSize(length);
+				roll();
+				length = codec.encode(record);
+				position = segment.getPosition();
+				segment.append(codec.getBuffer(), 0, length);
+			}
+			indexBuilder.add(position, record.getTimestampMillis(), codec);
+			unsyncedSegment = appended(length);
+		}
+		if (unsyncedSegment != null)
+			forceSegment(unsyncedSegment);
+	}
+
+	private void checkSize(int length) {
+		if (!JournalSegment.fits(length, segmentSize))
+			ExceptionUtil.throwSystemException("Audit record of " + length + " bytes does not fit into a segment of " + segmentSize + " bytes.");
+	}
+
+	private void checkOpen() {
+		if (!open)
+			ExceptionUtil.throwSystemException("Audit journal is not open.");
+	}
+
+	/**
+	 * Counts the appended frame. When the sync threshold is reached the sync thread is woken up, or without a sync thread the segment is 
+	 * returned to be forced by the writing thread after releasing the lock.
+	 */
+	private JournalSegment appended(int length) {
+		unsyncedBytes += JournalSegment.FRAME_HEADER_SIZE + length;
+		if (unsyncedBytes < syncThresholdBytes)
+			return null;
+		Thread thread = syncThread;
+		if (thread == null)
+			return takeUnsyncedSegment();
+		if (!syncRequested) {
+			syncRequested = true;
+			LockSupport.unpark(thread);
+		}
+		return null;
+	}
+
+	private JournalSegment takeUnsyncedSegment() {
+		unsyncedBytes = 0;
+		syncRequested = false;
+		return segment;
+	}
+
+	private void roll() {
+		JournalSegment previous = segment;
+		closeSegment();
+		takeUnsyncedSegment();
+		syncs.incrementAndGet();
+		codec.reset();
+		segment = openSegment(previous.getIndex() + 1);
+		LOGGER.debug("Audit journal rolled to [{}].", segment.getFile());
+	}
+
+	/**
+	 * Forces the records written since the previous group commit to the storage device.
+	 */
+	public void sync() {
+		JournalSegment unsyncedSegment;
+		synchronized (lock) {
+			if (!open || unsyncedBytes == 0)
+				return;
+			unsyncedSegment = takeUnsyncedSegment();
+		}
+		forceSegment(unsyncedSegment);
+	}
+
+	private void closeSegment() {
+		try {
+			synchronized (syncLock) {
+				segment.close();
+			}
+		} catch (IOException e) {
+			ExceptionUtil.throwSystemException("Audit journal segment [" + segment.getFile() + "] can not be closed: " + e.getMessage(), e);
+		}
+		if (indexBuilder != null && segment.getFormat() == AuditRecordFormat.BINARY.getId()) {
+			File indexFile = SegmentIndex.indexFile(segment.getFile());
+			try {
+				indexBuilder.write(indexFile, codec);
+			} catch (IOException e) {
+				LOGGER.warn("Audit journal index [" + indexFile + "] can not be written, the segment is scanned by the queries.", e);
+			}
+		}
+	}
+
+	/**
+	 * Forces the segment taken under the lock. A segment closed in the meantime has been forced when it was closed.
+	 */
+	private void forceSegment(JournalSegment unsyncedSegment) {
+		synchronized (syncLock) {
+			unsyncedSegment.force();
+		}
+		syncs.incrementAndGet();
+	}
+
+	/**
+	 * Stops the sync thread, forces the written records and closes the current segment.
+	 */
+	@Override
+	public void destroy() throws InterruptedException {
+		if (!open)
+			return;
+		open = false;
+		Thread thread = syncThread;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+			thread.join();
+		}
+		synchronized (lock) {
+			closeSegment();
+		}
+	}
+
+	/**
+	 * Returns the number of the records recovered from the last segment when the journal was opened.
+	 */
+	public int getRecoveredRecords() {
+		return recoveredRecords;
+	}
+
+	/**
+	 * Returns the number of the records written since the journal was opened.
+	 */
+	public long getWrittenRecords() {
+		return writtenRecords.get();
+	}
+
+	/**
+	 * Returns the number of the group commits.
+	 */
+	public long getSyncs() {
+		return syncs.get();
+	}
+
+	/**
+	 * Returns the index of the current segment.
+	 */
+	public long getSegmentIndex() {
+		synchronized (lock) {
+			return segment != null ? segment.getIndex() : -1;
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if the journal is open.
+	 */
+	public boolean isOpen() {
+		return open;
+	}
+
+}
@@ -0,0 +1,463 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.audit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of a <code>BINARY</code> segment of <code>org.openinfinity.core.audit.MappedAuditJournal</code>, stored next to the segment file 
+ * with the suffix <code>.index</code> when the segment is completed. The records of the segment are indexed in blocks of a fixed number of 
+ * records:
+ * <br/>
+ * <ul>
+ * 		<li>sparse time index - the position of the first frame of every block with the earliest and latest timestamp of the block, the 
+ * 			timestamps are not strictly ordered as the records are written by concurrent threads</li>
+ * 		<li>posting lists - the ascending numbers of the blocks containing the records of every user and every tenant</li>
+ * 		<li>dictionaries - the values of the dictionaries of the segment in the order of their ids, so that the records of any block can be 
+ * 			decoded without the preceding blocks</li>
+ * </ul>
+ * The index is read through a read only mapping and the posting lists are read only for the queried values.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+final class SegmentIndex {
+
+	/**
+	 * Represents the magic number of an index file.
+	 */
+	static final int MAGIC = 0x4F494931;
+
+	/**
+	 * Represents the suffix of the index file names.
+	 */
+	static final String SUFFIX = ".index";
+
+	/**
+	 * Represents the size of the header: magic, block size, records, earliest and latest timestamp and the number of the blocks.
+	 */
+	private static final int HEADER_SIZE = 32;
+
+	/**
+	 * Represents the size of a block entry: position, earliest and latest timestamp.
+	 */
+	private static final int BLOCK_ENTRY_SIZE = 20;
+
+	/**
+	 * Represents the fields having posting lists.
+	 */
+	private static final int[] POSTING_FIELDS = {BinaryAuditRecordCodec.FIELD_USER, BinaryAuditRecordCodec.FIELD_TENANT};
+
+	/**
+	 * Represents the character set of the dictionary values.
+	 */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * Represents the content of the index.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * Represents the number of the records in a block.
+	 */
+	private final int blockSize;
+
+	/**
+	 * Represents the number of the indexed records.
+	 */
+	private final int records;
+
+	/**
+	 * Represents the earliest timestamp of the segment.
+	 */
+	private final long minTimestampMillis;
+
+	/**
+	 * Represents the latest timestamp of the segment.
+	 */
+	private final long maxTimestampMillis;
+
+	/**
+	 * Represents the number of the blocks.
+	 */
+	private final int blockCount;
+
+	/**
+	 * Represents the dictionary values by the field.
+	 */
+	private final List<List<String>> dictionaries = new ArrayList<List<String>>(BinaryAuditRecordCodec.FIELD_COUNT);
+
+	/**
+	 * Represents the positions of the posting list offset tables by the posting field.
+	 */
+	private final int[] postingOffsets = new int[POSTING_FIELDS.length];
+
+	/**
+	 * Represents the dictionary ids by the value for the posting fields.
+	 */
+	private final List<Map<String, Integer>> postingIds = new ArrayList<Map<String, Integer>>(POSTING_FIELDS.length);
+
+	/**
+	 * Parses the index.
+	 *
+	 * @param buffer Represents the content of the index.
+	 * @throws IllegalArgumentException Represents an invalid index.
+	 */
+	SegmentIndex(ByteBuffer buffer) {
+		this.buffer = buffer;
+		try {
+			if (buffer.getInt(0) != MAGIC)
+				throw new IllegalArgumentException("Invalid audit journal index");
+			this.blockSize = buffer.getInt(4);
+			this.records = buffer.getInt(8);
+			this.minTimestampMillis = buffer.getLong(12);
+			this.maxTimestampMillis = buffer.getLong(20);
+			this.blockCount = buffer.getInt(28);
+			ByteBuffer content = buffer.duplicate();
+			content.position(HEADER_SIZE + blockCount * BLOCK_ENTRY_SIZE);
+			for (int field = 0; field < BinaryAuditRecordCodec.FIELD_COUNT; field++) {
+				int count = content.getInt();
+				List<String> values = new ArrayList<String>(count);
+				for (int i = 0; i < count; i++) {
+					byte[] bytes = new byte[content.getInt()];
+					content.get(bytes);
+					values.add(new String(bytes, UTF_8));
+				}
+				dictionaries.add(values);
+			}
+			for (int i = 0; i < POSTING_FIELDS.length; i++) {
+				int count = content.getInt();
+				postingOffsets[i] = content.position();
+				List<String> values = dictionaries.get(POSTING_FIELDS[i]);
+				if (count != values.size())
+					throw new IllegalArgumentException("Invalid audit journal index postings");
+				content.position(content.position() + 4 * count);
+				Map<String, Integer> ids = new HashMap<String, Integer>(count * 4 / 3 + 1);
+				for (int id = count; id > 0; id--)
+					ids.put(values.get(id - 1), id);
+				postingIds.add(ids);
+			}
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Truncated audit journal index", e);
+		} catch (IndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Truncated audit journal index", e);
+		}
+	}
+
+	/**
+	 * Maps the index file read only.
+	 *
+	 * @param file Represents the index file.
+	 * @return SegmentIndex Represents the index.
+	 * @throws IOException Represents the failure of reading the file.
+	 * @throws IllegalArgumentException Represents an invalid index.
+	 */
+	static SegmentIndex read(File file) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			return new SegmentIndex(randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length()));
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Returns the index file of the segment file.
+	 */
+	static File indexFile(File segmentFile) {
+		String name = segmentFile.getName();
+		if (name.endsWith(MappedAuditJournal.SEGMENT_SUFFIX))
+			name = name.substring(0, name.length() - MappedAuditJournal.SEGMENT_SUFFIX.length());
+		return new File(segmentFile.getParentFile(), name + SUFFIX);
+	}
+
+	int getBlockSize() {
+		return blockSize;
+	}
+
+	int getRecords() {
+		return records;
+	}
+
+	long getMinTimestampMillis() {
+		return minTimestampMillis;
+	}
+
+	long getMaxTimestampMillis() {
+		return maxTimestampMillis;
+	}
+
+	int getBlockCount() {
+		return blockCount;
+	}
+
+	/**
+	 * Returns the position of the first frame of the block in the segment.
+	 */
+	int getBlockPosition(int block) {
+		return buffer.getInt(HEADER_SIZE + block * BLOCK_ENTRY_SIZE);
+	}
+
+	/**
+	 * Returns <code>true</code> if the block may contain records of the time range.
+	 */
+	boolean overlaps(int block, long fromMillis, long toMillis) {
+		int entry = HEADER_SIZE + block * BLOCK_ENTRY_SIZE;
+		return buffer.getLong(entry + 4) <= toMillis && buffer.getLong(entry + 12) >= fromMillis;
+	}
+
+	/**
+	 * Returns the values of the dictionary of the field in the order of their ids.
+	 */
+	List<String> getValues(int field) {
+		return dictionaries.get(field);
+	}
+
+	/**
+	 * Returns the ascending numbers of the blocks containing records with the value of the user or tenant field.
+	 *
+	 * @return int[] Represents the block numbers, <code>null</code> if the value does not occur in the segment.
+	 */
+	int[] getBlocks(int field, String value) {
+		int posting = Arrays.binarySearch(POSTING_FIELDS, field);
+		if (posting < 0)
+			throw new IllegalArgumentException("Field [" + field + "] has no posting lists");
+		Integer id = postingIds.get(posting).get(value);
+		if (id == null)
+			return null;
+		ByteBuffer content = buffer.duplicate();
+		content.position(buffer.getInt(postingOffsets[posting] + 4 * (id - 1)));
+		int[] blocks = new int[content.getInt()];
+		for (int i = 0; i < blocks.length; i++)
+			blocks[i] = content.getInt();
+		return blocks;
+	}
+
+	/**
+	 * Scans the records of the segment into a new builder, leaving the dictionaries of the segment to the codec.
+	 *
+	 * @param segment Represents the segment.
+	 * @param codec Represents the codec, reset before scanning.
+	 * @param blockSize Represents the number of the records in a block.
+	 * @return Builder Represents the builder of the index of the scanned records.
+	 * @throws IllegalArgumentException Represents a record which can not be decoded.
+	 */
+	static Builder scan(JournalSegment segment, final BinaryAuditRecordCodec codec, int blockSize) {
+		final Builder builder = new Builder(blockSize);
+		codec.reset();
+		segment.scan(new JournalSegment.FrameVisitor() {
+			private int position = JournalSegment.SEGMENT_HEADER_SIZE;
+
+			public boolean visitFrame(ByteBuffer payload) {
+				int length = payload.remaining();
+				builder.add(position, codec.decode(payload).getTimestampMillis(), codec);
+				position += JournalSegment.FRAME_HEADER_SIZE + length;
+				return true;
+			}
+		});
+		return builder;
+	}
+
+	/**
+	 * Builds the index of a segment while its records are written or scanned.
+	 */
+	static final class Builder {
+
+		private final int blockSize;
+
+		private int records;
+
+		private long minTimestampMillis = Long.MAX_VALUE;
+
+		private long maxTimestampMillis = Long.MIN_VALUE;
+
+		private int blockCount;
+
+		private int[] blockPositions = new int[16];
+
+		private long[] blockMinTimestamps = new long[16];
+
+		private long[] blockMaxTimestamps = new long[16];
+
+		private final List<List<IntList>> postings = new ArrayList<List<IntList>>(POSTING_FIELDS.length);
+
+		Builder(int blockSize) {
+			if (blockSize < 1)
+				throw new IllegalArgumentException("Invalid audit journal index block size [" + blockSize + "]");
+			this.blockSize = blockSize;
+			for (int i = 0; i < POSTING_FIELDS.length; i++)
+				postings.add(new ArrayList<IntList>());
+		}
+
+		/**
+		 * Adds the latest record encoded or decoded by the codec.
+		 *
+		 * @param position Represents the position of the frame of the record in the segment.
+		 * @param timestampMillis Represents the timestamp of the record.
+		 * @param codec Represents the codec of the segment.
+		 */
+		void add(int position, long timestampMillis, BinaryAuditRecordCodec codec) {
+			int block = records / blockSize;
+			if (records % blockSize == 0) {
+				if (blockCount == blockPositions.length) {
+					blockPositions = Arrays.copyOf(blockPositions, blockCount * 2);
+					blockMinTimestamps = Arrays.copyOf(blockMinTimestamps, blockCount * 2);
+					blockMaxTimestamps = Arrays.copyOf(blockMaxTimestamps, blockCount * 2);
+				}
+				blockPositions[blockCount] = position;
+				blockMinTimestamps[blockCount] = timestampMillis;
+				blockMaxTimestamps[blockCount] = timestampMillis;
+				blockCount++;
+			} else {
+				blockMinTimestamps[block] = Math.min(blockMinTimestamps[block], timestampMillis);
+				blockMaxTimestamps[block] = Math.max(blockMaxTimestamps[block], timestampMillis);
+			}
+			minTimestampMillis = Math.min(minTimestampMillis, timestampMillis);
+			maxTimestampMillis = Math.max(maxTimestampMillis, timestampMillis);
+			for (int i = 0; i < POSTING_FIELDS.length; i++) {
+				int id = codec.getLastId(POSTING_FIELDS[i]);
+				if (id == 0)
+					continue;
+				List<IntList> lists = postings.get(i);
+				while (lists.size() < id)
+					lists.add(new IntList());
+				lists.get(id - 1).addBlock(block);
+			}
+			records++;
+		}
+
+		int getRecords() {
+			return records;
+		}
+
+		/**
+		 * Returns the index with the dictionaries of the codec.
+		 */
+		SegmentIndex build(BinaryAuditRecordCodec codec) {
+			return new SegmentIndex(ByteBuffer.wrap(toBytes(codec)));
+		}
+
+		/**
+		 * Writes the index with the dictionaries of the codec, replacing the file atomically.
+		 *
+		 * @param file Represents the index file.
+		 * @param codec Represents the codec of the segment.
+		 * @throws IOException Represents the failure of writing the file.
+		 */
+		void write(File file, BinaryAuditRecordCodec codec) throws IOException {
+			File temporaryFile = new File(file.getParentFile(), file.getName() + ".tmp");
+			FileOutputStream out = new FileOutputStream(temporaryFile);
+			try {
+				out.write(toBytes(codec));
+				out.getFD().sync();
+			} finally {
+				out.close();
+			}
+			if (!temporaryFile.renameTo(file) && !(file.delete() && temporaryFile.renameTo(file)))
+				throw new IOException("Index file [" + file + "] can not be replaced");
+		}
+
+		private byte[] toBytes(BinaryAuditRecordCodec codec) {
+			try {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_SIZE + blockCount * BLOCK_ENTRY_SIZE + 1024);
+				DataOutputStream out = new DataOutputStream(bytes);
+				out.writeInt(MAGIC);
+				out.writeInt(blockSize);
+				out.writeInt(records);
+				out.writeLong(records > 0 ? minTimestampMillis : 0);
+				out.writeLong(records > 0 ? maxTimestampMillis : 0);
+				out.writeInt(blockCount);
+				for (int block = 0; block < blockCount; block++) {
+					out.writeInt(blockPositions[block]);
+					out.writeLong(blockMinTimestamps[block]);
+					out.writeLong(blockMaxTimestamps[block]);
+				}
+				for (int field = 0; field < BinaryAuditRecordCodec.FIELD_COUNT; field++) {
+					List<String> values = codec.getValues(field);
+					out.writeInt(values.size());
+					for (String value : values) {
+						byte[] encoded = value.getBytes(UTF_8);
+						out.writeInt(encoded.length);
+						out.write(encoded);
+					}
+				}
+				int position = bytes.size();
+				for (int i = 0; i < POSTING_FIELDS.length; i++)
+					position += 4 + 4 * codec.getValues(POSTING_FIELDS[i]).size();
+				for (int i = 0; i < POSTING_FIELDS.length; i++) {
+					int count = codec.getValues(POSTING_FIELDS[i]).size();
+					List<IntList> lists = postings.get(i);
+					out.writeInt(count);
+					for (int id = 0; id < count; id++) {
+						out.writeInt(position);
+						position += 4 + 4 * (id < lists.size() ? lists.get(id).size : 0);
+					}
+				}
+				for (int i = 0; i < POSTING_FIELDS.length; i++) {
+					int count = codec.getValues(POSTING_FIELDS[i]).size();
+					List<IntList> lists = postings.get(i);
+					for (int id = 0; id < count; id++) {
+						IntList list = id < lists.size() ? lists.get(id) : null;
+						out.writeInt(list != null ? list.size : 0);
+						for (int j = 0; list != null && j < list.size; j++)
+							out.writeInt(list.values[j]);
+					}
+				}
+				out.flush();
+				return bytes.toByteArray();
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+	}
+
+	/**
+	 * Represents an ascending list of block numbers without duplicates.
+	 */
+	private static final class IntList {
+
+		private int[] values = new int[4];
+
+		private int size;
+
+		void addBlock(int block) {
+			if (size > 0 && values[size - 1] == block)
+				return;
+			if (size == values.length)
+				values = Arrays.copyOf(values, size * 2);
+			values[size++] = block;
+		}
+
+	}
+
+}
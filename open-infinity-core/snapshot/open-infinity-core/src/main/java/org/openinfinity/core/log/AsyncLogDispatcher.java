@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openinfinity.core.annotation.Log.LogLevel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Hands the log events of the aspects over to a dedicated writer thread through a bounded lock-free ring buffer, so that
+ * slow appenders do not block the business threads. Events are captured on the calling thread and written in order by the writer thread.
+ * Pending events are flushed when the application context is closed. Before the dispatcher is started and after it has been destroyed
+ * events are written on the calling thread.
+ *
+ * <br/><br/>
+ * <code>
+ * &lt;bean id="asyncLogDispatcher" class="org.openinfinity.core.log.AsyncLogDispatcher"&gt;<br/>
+ * &nbsp;&nbsp;&lt;property name="capacity" value="8192" /&gt;<br/>
+ * &nbsp;&nbsp;&lt;property name="overflowPolicy" value="DROP" /&gt;<br/>
+ * &lt;/bean&gt;
+ * </code>
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class AsyncLogDispatcher implements InitializingBean, DisposableBean {
+
+	/**
+	 * Logger for this class.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(AsyncLogDispatcher.class);
+
+	/**
+	 * Represents the default capacity of the ring buffer.
+	 */
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	/**
+	 * Represents the default sample rate used by the <code>SAMPLE</code> overflow policy.
+	 */
+	public static final int DEFAULT_SAMPLE_RATE = 10;
+
+	/**
+	 * Represents the default time the writer thread is given to flush the pending events on shutdown.
+	 */
+	public static final long DEFAULT_SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+	/**
+	 * Represents the name of the writer thread.
+	 */
+	private static final String WRITER_THREAD_NAME = "openinfinity-async-log-writer";
+
+	/**
+	 * Represents the maximum time the idle writer thread waits before checking the ring buffer again.
+	 */
+	private static final long WRITER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	/**
+	 * Represents the time a blocked calling thread waits before trying to publish again.
+	 */
+	private static final long PRODUCER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	/**
+	 * Represents the minimum interval between the reports of the dropped events.
+	 */
+	private static final long DROP_REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * Represents the capacity of the ring buffer.
+	 */
+	private int capacity = DEFAULT_CAPACITY;
+
+	/**
+	 * Represents the policy used when the ring buffer is full.
+	 */
+	private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+	/**
+	 * Represents the sample rate, every n:th event is accepted under load with the <code>SAMPLE</code> overflow policy.
+	 */
+	private int sampleRate = DEFAULT_SAMPLE_RATE;
+
+	/**
+	 * Represents the time the writer thread is given to flush the pending events on shutdown.
+	 */
+	private long shutdownTimeoutMillis = DEFAULT_SHUTDOWN_TIMEOUT_MILLIS;
+
+	/**
+	 * Represents the ring buffer between the calling threads and the writer thread.
+	 */
+	private volatile RingBuffer<LogEvent> ringBuffer;
+
+	/**
+	 * Represents the writer thread.
+	 */
+	private volatile Thread writer;
+
+	/**
+	 * Represents whether the events are handed over to the writer thread.
+	 */
+	private volatile boolean running;
+
+	/**
+	 * Represents whether the writer thread is waiting for events.
+	 */
+	private volatile boolean writerWaiting;
+
+	/**
+	 * Represents the number of the events written from the ring buffer.
+	 */
+	private final AtomicLong writtenEvents = new AtomicLong();
+
+	/**
+	 * Represents the number of the dropped events.
+	 */
+	private final AtomicLong droppedEvents = new AtomicLong();
+
+	/**
+	 * Represents the number of the events offered while sampling.
+	 */
+	private final AtomicLong sampledEvents = new AtomicLong();
+
+	/**
+	 * Represents the number of the dropped events already reported, accessed only by the reporting thread.
+	 */
+	private long reportedDroppedEvents;
+
+	/**
+	 * Represents the time of the latest report of the dropped events, accessed only by the reporting thread.
+	 */
+	private long lastDropReportTime = System.nanoTime();
+
+	/**
+	 * Setter for the capacity of the ring buffer, rounded up to the next power of two.
+	 *
+	 * @param capacity Represents the capacity of the ring buffer.
+	 */
+	public void setCapacity(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Setter for the overflow policy.
+	 *
+	 * @param overflowPolicy Represents the policy used when the ring buffer is full.
+	 */
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	/**
+	 * Setter for the sample rate of the <code>SAMPLE</code> overflow policy.
+	 *
+	 * @param sampleRate Represents the sample rate, every n:th event is accepted once the ring buffer is half full.
+	 */
+	public void setSampleRate(int sampleRate) {
+		this.sampleRate = sampleRate;
+	}
+
+	/**
+	 * Setter for the shutdown timeout.
+	 *
+	 * @param shutdownTimeoutMillis Represents the time the writer thread is given to flush the pending events on shutdown.
+	 */
+	public void setShutdownTimeoutMillis(long shutdownTimeoutMillis) {
+		this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+	}
+
+	/**
+	 * Creates the ring buffer and starts the writer thread.
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		if (sampleRate < 1)
+			throw new IllegalArgumentException("Sample rate must be positive: " + sampleRate);
+		this.ringBuffer = new RingBuffer<LogEvent>(capacity);
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				writeEvents();
+			}
+		}, WRITER_THREAD_NAME);
+		thread.setDaemon(true);
+		this.writer = thread;
+		this.running = true;
+		thread.start();
+		LOGGER.debug("Asynchronous log dispatcher started with capacity of {} events and overflow policy {}.", ringBuffer.getCapacity(), overflowPolicy);
+	}
+
+	/**
+	 * Dispatches the log event to the writer thread. The arguments are captured with <code>toString</code> on the calling thread.
+	 *
+	 * @param logger Represents the logger of the event.
+	 * @param level Represents the log level of the event.
+	 * @param format Represents the SLF4J message format.
+	 * @param first Represents the first message argument.
+	 * @param second Represents the second message argument.
+	 */
+	public void dispatch(Logger logger, LogLevel level, String format, Object first, Object second) {
+		if (!running) {
+			new LogEvent(logger, level, format, first, second).write();
+			return;
+		}
+		RingBuffer<LogEvent> buffer = this.ringBuffer;
+		if (overflowPolicy == OverflowPolicy.SAMPLE && isSampledOut(buffer)) {
+			droppedEvents.incrementAndGet();
+			return;
+		}
+		LogEvent event = new LogEvent(logger, level, format, first, second);
+		if (buffer.offer(event)) {
+			signalWriter();
+			drainAfterShutdown();
+		} else if (overflowPolicy == OverflowPolicy.BLOCK) {
+			publishBlocking(buffer, event);
+		} else {
+			droppedEvents.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Dispatches the already rendered message to the writer thread.
+	 *
+	 * @param logger Represents the logger of the event.
+	 * @param level Represents the log level of the event.
+	 * @param message Represents the message.
+	 */
+	public void dispatch(Logger logger, LogLevel level, String message) {
+		dispatch(logger, level, "{}", message, null);
+	}
+
+	private boolean isSampledOut(RingBuffer<LogEvent> buffer) {
+		if (buffer.size() < buffer.getCapacity() >> 1)
+			return false;
+		return sampledEvents.incrementAndGet() % sampleRate != 0;
+	}
+
+	private void publishBlocking(RingBuffer<LogEvent> buffer, LogEvent event) {
+		while (!buffer.offer(event)) {
+			if (!running) {
+				event.write();
+				return;
+			}
+			LockSupport.unpark(writer);
+			LockSupport.parkNanos(PRODUCER_PARK_NANOS);
+		}
+		signalWriter();
+		drainAfterShutdown();
+	}
+
+	/**
+	 * Writes the pending events on the calling thread when the dispatcher has been stopped meanwhile, because the ring buffer may already 
+	 * have been drained by <code>destroy</code>. The events are polled from the buffer, so that each event is written only once.
+	 */
+	private void drainAfterShutdown() {
+		if (!running)
+			drain();
+	}
+
+	private void signalWriter() {
+		if (writerWaiting) {
+			writerWaiting = false;
+			LockSupport.unpark(writer);
+		}
+	}
+
+	private void writeEvents() {
+		while (running) {
+			if (drain() == 0) {
+				writerWaiting = true;
+				if (ringBuffer.isEmpty() && running)
+					LockSupport.parkNanos(this, WRITER_PARK_NANOS);
+				writerWaiting = false;
+			}
+		}
+		drain();
+	}
+
+	private int drain() {
+		RingBuffer<LogEvent> buffer = this.ringBuffer;
+		int count = 0;
+		LogEvent event;
+		while ((event = buffer.poll()) != null) {
+			try {
+				event.write();
+			} catch (RuntimeException e) {
+				LOGGER.error("Writing of the log event failed.", e);
+			}
+			writtenEvents.incrementAndGet();
+			count++;
+		}
+		reportDroppedEvents(false);
+		return count;
+	}
+
+	private synchronized void reportDroppedEvents(boolean force) {
+		long dropped = droppedEvents.get();
+		if (dropped == reportedDroppedEvents)
+			return;
+		long now = System.nanoTime();
+		if (force || now - lastDropReportTime >= DROP_REPORT_INTERVAL_NANOS) {
+			LOGGER.warn("{} log events dropped by the asynchronous log dispatcher since the previous report.", dropped - reportedDroppedEvents);
+			reportedDroppedEvents = dropped;
+			lastDropReportTime = now;
+		}
+	}
+
+	/**
+	 * Waits until the events published before the call have been written.
+	 */
+	public void flush() {
+		RingBuffer<LogEvent> buffer = this.ringBuffer;
+		if (buffer == null)
+			return;
+		long target = buffer.getProducerSequence();
+		while (writtenEvents.get() < target) {
+			Thread thread = writer;
+			if (running && thread.isAlive()) {
+				LockSupport.unpark(thread);
+				LockSupport.parkNanos(PRODUCER_PARK_NANOS);
+			} else {
+				drain();
+			}
+		}
+	}
+
+	/**
+	 * Stops the writer thread after the pending events have been written.
+	 */
+	@Override
+	public void destroy() throws InterruptedException {
+		if (!running)
+			return;
+		running = false;
+		Thread thread = writer;
+		LockSupport.unpark(thread);
+		thread.join(shutdownTimeoutMillis);
+		if (thread.isAlive())
+			LOGGER.warn("Writer thread did not finish in {} ms, writing the pending log events on the closing thread.", shutdownTimeoutMillis);
+		drain();
+		reportDroppedEvents(true);
+	}
+
+	/**
+	 * Returns the number of the events written from the ring buffer.
+	 */
+	public long getWrittenEvents() {
+		return writtenEvents.get();
+	}
+
+	/**
+	 * Returns the number of the dropped events.
+	 */
+	public long getDroppedEvents() {
+		return droppedEvents.get();
+	}
+
+	/**
+	 * Returns the number of the events waiting in the ring buffer.
+	 */
+	public int getPendingEvents() {
+		RingBuffer<LogEvent> buffer = this.ringBuffer;
+		return buffer != null ? buffer.size() : 0;
+	}
+
+	/**
+	 * Returns <code>true</code> if the events are handed over to the writer thread.
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+}
@@ -0,0 +1,445 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.log;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.openinfinity.core.security.InvocationContext;
+import org.openinfinity.core.security.principal.Identity;
+import org.openinfinity.core.security.principal.TenantPrincipal;
+import org.openinfinity.core.util.StringUtil;
+import org.slf4j.MDC;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Writes the log and audit trail events as single line JSON objects with the Jackson streaming <code>org.codehaus.jackson.JsonGenerator</code>.
+ * Every thread reuses its own writer and character buffer, so that writing an event allocates only the resulting string.
+ *
+ * <br/><br/>
+ * Usage: <br/><br/>
+ * <code>
+ * JsonEventWriter writer = JsonEventWriter.begin();<br/>
+ * try {<br/>
+ * &nbsp;&nbsp;String json = writer.writeMethod(name).writeDuration(millis).writeSecurity(authentication, true, true).end();<br/>
+ * } finally {<br/>
+ * &nbsp;&nbsp;writer.release();<br/>
+ * }
+ * </code>
+ *
+ * @author Ilkka Leinonen
+ * @version 1.2.0 - Trace and span fields, security fields of the invocation context.
+ * @since 1.6.0
+ */
+public class JsonEventWriter {
+
+	/**
+	 * Represents the field name of the event timestamp.
+	 */
+	public static final String FIELD_TIMESTAMP = "timestamp";
+
+	/**
+	 * Represents the field name of the invoked method.
+	 */
+	public static final String FIELD_METHOD = "method";
+
+	/**
+	 * Represents the field name of the duration in milliseconds.
+	 */
+	public static final String FIELD_DURATION = "duration";
+
+	/**
+	 * Represents the field name of the username.
+	 */
+	public static final String FIELD_USER = "user";
+
+	/**
+	 * Represents the field name of the granted authorities.
+	 */
+	public static final String FIELD_ROLES = "roles";
+
+	/**
+	 * Represents the field name of the tenant id.
+	 */
+	public static final String FIELD_TENANT = "tenant";
+
+	/**
+	 * Represents the field name of the argument information.
+	 */
+	public static final String FIELD_ARGUMENTS = "arguments";
+
+	/**
+	 * Represents the field name of the return value.
+	 */
+	public static final String FIELD_RESULT = "result";
+
+	/**
+	 * Represents the field name of the number of calls suppressed by sampling or rate limit.
+	 */
+	public static final String FIELD_SUPPRESSED = "suppressed";
+
+	/**
+	 * Represents the field name of the trace id.
+	 */
+	public static final String FIELD_TRACE_ID = "traceId";
+
+	/**
+	 * Represents the field name of the span id, and of the id of a span in the spans array.
+	 */
+	public static final String FIELD_SPAN_ID = "spanId";
+
+	/**
+	 * Represents the field name of the parent span id, and of the parent id of a span in the spans array.
+	 */
+	public static final String FIELD_PARENT_SPAN_ID = "parentSpanId";
+
+	/**
+	 * Represents the field name of the spans array of a trace.
+	 */
+	public static final String FIELD_SPANS = "spans";
+
+	/**
+	 * Represents the field name of the start offset of a span in the spans array.
+	 */
+	public static final String FIELD_START = "start";
+
+	/**
+	 * Represents the field name of the number of spans dropped from a trace.
+	 */
+	public static final String FIELD_DROPPED = "dropped";
+
+	/**
+	 * Represents the maximum capacity of the buffer retained by a thread between the events.
+	 */
+	private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+	/**
+	 * Represents the JSON factory shared by the threads. The factory recycles the internal buffers of the generators per thread.
+	 */
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	static {
+		JSON_FACTORY.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+	}
+
+	/**
+	 * Represents the event writers of the threads.
+	 */
+	private static final ThreadLocal<JsonEventWriter> WRITERS = new ThreadLocal<JsonEventWriter>() {
+		@Override
+		protected JsonEventWriter initialValue() {
+			return new JsonEventWriter();
+		}
+	};
+
+	/**
+	 * Represents the reusable buffer of the thread.
+	 */
+	private final StringBuilderWriter buffer = new StringBuilderWriter();
+
+	/**
+	 * Represents the generator of the current event.
+	 */
+	private JsonGenerator generator;
+
+	/**
+	 * Represents whether an event is being written.
+	 */
+	private boolean inUse;
+
+	private JsonEventWriter() {}
+
+	/**
+	 * Starts a new event on the writer of the current thread.
+	 *
+	 * @return JsonEventWriter Represents the writer of the event.
+	 */
+	public static JsonEventWriter begin() {
+		JsonEventWriter writer = WRITERS.get();
+		if (writer.inUse)
+			writer = new JsonEventWriter();
+		writer.start();
+		return writer;
+	}
+
+	private void start() {
+		try {
+			inUse = true;
+			buffer.reset();
+			generator = JSON_FACTORY.createJsonGenerator(buffer);
+			generator.writeStartObject();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Writes the string field, <code>null</code> values are written as JSON nulls.
+	 *
+	 * @param name Represents the name of the field.
+	 * @param value Represents the value of the field.
+	 * @return JsonEventWriter Represents this writer.
+	 */
+	public JsonEventWriter writeField(String name, String value) {
+		try {
+			generator.writeStringField(name, value);
+			return this;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Writes the numeric field.
+	 *
+	 * @param name Represents the name of the field.
+	 * @param value Represents the value of the field.
+	 * @return JsonEventWriter Represents this writer.
+	 */
+	public JsonEventWriter writeField(String name, long value) {
+		try {
+			generator.writeNumberField(name, value);
+			return this;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Writes the timestamp field.
+	 */
+	public JsonEventWriter writeTimestamp(String timestamp) {
+		return writeField(FIELD_TIMESTAMP, timestamp);
+	}
+
+	/**
+	 * Writes the method field.
+	 */
+	public JsonEventWriter writeMethod(String method) {
+		return writeField(FIELD_METHOD, method);
+	}
+
+	/**
+	 * Writes the duration field in milliseconds.
+	 */
+	public JsonEventWriter writeDuration(long durationMillis) {
+		return writeField(FIELD_DURATION, durationMillis);
+	}
+
+	/**
+	 * Writes the arguments field.
+	 */
+	public JsonEventWriter writeArguments(String arguments) {
+		return writeField(FIELD_ARGUMENTS, arguments);
+	}
+
+	/**
+	 * Writes the result field, the value is rendered with <code>org.openinfinity.core.util.StringUtil.appendValue</code> within the same limits as the arguments.
+	 */
+	public JsonEventWriter writeResult(Object result) {
+		return writeField(FIELD_RESULT, result != null ? StringUtil.appendValue(new StringBuilder(), result).toString() : null);
+	}
+
+	/**
+	 * Writes the user, roles and tenant fields of the authentication. The tenant is written when the authentication is an
+	 * <code>org.openinfinity.core.security.principal.Identity</code> with a tenant principal.
+	 *
+	 * @param authentication Represents the authentication, may be <code>null</code>.
+	 * @param isUsernameEnabled Represents whether the user field is written.
+	 * @param isRolesEnabled Represents whether the roles field is written.
+	 * @return JsonEventWriter Represents this writer.
+	 */
+	public JsonEventWriter writeSecurity(Authentication authentication, boolean isUsernameEnabled, boolean isRolesEnabled) {
+		try {
+			if (isUsernameEnabled)
+				generator.writeStringField(FIELD_USER, authentication != null ? authentication.getName() : null);
+			if (isRolesEnabled && authentication != null && authentication.getAuthorities() != null) {
+				generator.writeArrayFieldStart(FIELD_ROLES);
+				for (GrantedAuthority grantedAuthority : authentication.getAuthorities())
+					generator.writeString(grantedAuthority.getAuthority());
+				generator.writeEndArray();
+			}
+			if (authentication instanceof Identity) {
+				TenantPrincipal<?> tenantPrincipal = ((Identity) authentication).getTenantPrincipal();
+				if (tenantPrincipal != null && tenantPrincipal.getId() != null)
+					generator.writeStringField(FIELD_TENANT, tenantPrincipal.getId().toString());
+			}
+			return this;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Writes the user, roles and tenant fields of the invocation context without reading the authentication again.
+	 *
+	 * @param invocationContext Represents the invocation context.
+	 * @param isUsernameEnabled Represents whether the user field is written.
+	 * @param isRolesEnabled Represents whether the roles field is written.
+	 * @return JsonEventWriter Represents this writer.
+	 */
+	public JsonEventWriter writeInvocationContext(InvocationContext invocationContext, boolean isUsernameEnabled, boolean isRolesEnabled) {
+		try {
+			if (isUsernameEnabled)
+				generator.writeStringField(FIELD_USER, invocationContext.getUsername());
+			if (isRolesEnabled && invocationContext.getAuthentication() != null) {
+				generator.writeArrayFieldStart(FIELD_ROLES);
+				for (String role : invocationContext.getRoles())
+					generator.writeString(role);
+				generator.writeEndArray();
+			}
+			if (invocationContext.getTenantId() != null)
+				generator.writeStringField(FIELD_TENANT, invocationContext.getTenantId().toString());
+			return this;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Writes the trace and span ids found from the MDC, nothing when no trace is active.
+	 *
+	 * @return JsonEventWriter Represents this writer.
+	 */
+	public JsonEventWriter writeTraceIds() {
+		String traceId = MDC.get(TraceContext.TRACE_ID_KEY);
+		if (traceId != null) {
+			writeField(FIELD_TRACE_ID, traceId);
+			String spanId = MDC.get(TraceContext.SPAN_ID_KEY);
+			if (spanId != null)
+				writeField(FIELD_SPAN_ID, spanId);
+		}
+		return this;
+	}
+
+	/**
+	 * Writes the trace id and the recorded spans of the completed trace. Every span is written with its id, parent id, method, 
+	 * start offset from the first span and duration, both in milliseconds with microsecond precision.
+	 *
+	 * @param trace Represents the completed trace.
+	 * @return JsonEventWriter Represents this writer.
+	 */
+	public JsonEventWriter writeTrace(TraceContext trace) {
+		try {
+			generator.writeStringField(FIELD_TRACE_ID, trace.getTraceId());
+			if (trace.getParentSpanId() != 0)
+				generator.writeNumberField(FIELD_PARENT_SPAN_ID, trace.getParentSpanId());
+			generator.writeArrayFieldStart(FIELD_SPANS);
+			long origin = trace.getSpans().isEmpty() ? 0 : trace.getSpans().get(0).getStartNanos();
+			for (Span span : trace.getSpans()) {
+				generator.writeStartObject();
+				generator.writeNumberField(FIELD_SPAN_ID, span.getId());
+				generator.writeNumberField(FIELD_PARENT_SPAN_ID, span.getParentId());
+				generator.writeStringField(FIELD_METHOD, span.getName());
+				generator.writeNumberField(FIELD_START, toMillis(span.getStartNanos() - origin));
+				generator.writeNumberField(FIELD_DURATION, toMillis(span.getDurationNanos()));
+				generator.writeEndObject();
+			}
+			generator.writeEndArray();
+			if (trace.getDroppedSpans() > 0)
+				generator.writeNumberField(FIELD_DROPPED, trace.getDroppedSpans());
+			return this;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static double toMillis(long nanos) {
+		return NANOSECONDS.toMicros(nanos) / 1000d;
+	}
+
+	/**
+	 * Ends the event.
+	 *
+	 * @return String Represents the event as a JSON object.
+	 */
+	public String end() {
+		try {
+			generator.writeEndObject();
+			generator.close();
+			return buffer.toString();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			generator = null;
+			inUse = false;
+		}
+	}
+
+	/**
+	 * Releases the writer when the event has not been ended, so that a failure between <code>begin</code> and <code>end</code> does not leave 
+	 * the writer of the thread in use. Called in a finally block, does nothing after <code>end</code>.
+	 */
+	public void release() {
+		if (!inUse)
+			return;
+		try {
+			generator.close();
+		} catch (IOException e) {
+			// the buffer is reset by the next event
+		} finally {
+			generator = null;
+			inUse = false;
+		}
+	}
+
+	/**
+	 * Writer appending to a reusable <code>java.lang.StringBuilder</code>.
+	 */
+	private static final class StringBuilderWriter extends Writer {
+
+		private final StringBuilder builder = new StringBuilder(256);
+
+		void reset() {
+			builder.setLength(0);
+			if (builder.capacity() > MAX_RETAINED_CAPACITY)
+				builder.trimToSize();
+		}
+
+		@Override
+		public void write(char[] characters, int offset, int length) {
+			builder.append(characters, offset, length);
+		}
+
+		@Override
+		public void write(String string, int offset, int length) {
+			builder.append(string, offset, offset + length);
+		}
+
+		@Override
+		public void write(int character) {
+			builder.append((char) character);
+		}
+
+		@Override
+		public void flush() {}
+
+		@Override
+		public void close() {}
+
+		@Override
+		public String toString() {
+			return builder.toString();
+		}
+
+	}
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.log;
+
+import org.openinfinity.core.annotation.Log.LogLevel;
+import org.slf4j.Logger;
+import org.slf4j.MDC;
+
+/**
+ * Represents a log event captured on the calling thread and written later by the writer thread. Message arguments are
+ * captured as strings, so that the event does not refer to objects the calling thread may still modify.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.1.0 - Trace and span ids of the calling thread are carried to the writer thread.
+ * @since 1.6.0
+ */
+public class LogEvent {
+
+	/**
+	 * Represents the MDC key holding the name of the thread which created the event.
+	 */
+	public static final String CALLER_THREAD_KEY = "callerThread";
+
+	/**
+	 * Represents the logger of the event.
+	 */
+	private final Logger logger;
+
+	/**
+	 * Represents the log level of the event.
+	 */
+	private final LogLevel level;
+
+	/**
+	 * Represents the SLF4J message format.
+	 */
+	private final String format;
+
+	/**
+	 * Represents the captured first message argument.
+	 */
+	private final String first;
+
+	/**
+	 * Represents the captured second message argument.
+	 */
+	private final String second;
+
+	/**
+	 * Represents the name of the thread which created the event.
+	 */
+	private final String threadName;
+
+	/**
+	 * Represents the trace id of the calling thread, <code>null</code> when no trace is active.
+	 */
+	private final String traceId;
+
+	/**
+	 * Represents the span id of the calling thread, <code>null</code> when no trace is active.
+	 */
+	private final String spanId;
+
+	/**
+	 * Creates the event and captures the message arguments.
+	 *
+	 * @param logger Represents the logger of the event.
+	 * @param level Represents the log level of the event.
+	 * @param format Represents the SLF4J message format.
+	 * @param first Represents the first message argument.
+	 * @param second Represents the second message argument.
+	 */
+	public LogEvent(Logger logger, LogLevel level, String format, Object first, Object second) {
+		this.logger = logger;
+		this.level = level;
+		this.format = format;
+		this.first = capture(first);
+		this.second = capture(second);
+		this.threadName = Thread.currentThread().getName();
+		this.traceId = MDC.get(TraceContext.TRACE_ID_KEY);
+		this.spanId = traceId != null ? MDC.get(TraceContext.SPAN_ID_KEY) : null;
+	}
+
+	private static String capture(Object argument) {
+		return argument == null ? null : argument.toString();
+	}
+
+	/**
+	 * Writes the event to the logger. The name of the calling thread is available in the MDC under <code>callerThread</code>,
+	 * the trace and span ids of the calling thread under <code>traceId</code> and <code>spanId</code>.
+	 */
+	public void write() {
+		MDC.put(CALLER_THREAD_KEY, threadName);
+		if (traceId != null)
+			MDC.put(TraceContext.TRACE_ID_KEY, traceId);
+		if (spanId != null)
+			MDC.put(TraceContext.SPAN_ID_KEY, spanId);
+		try {
+			switch (level) {
+				case TRACE: logger.trace(format, first, second); return;
+				case INFO: logger.info(format, first, second); return;
+				case WARN: logger.warn(format, first, second); return;
+				case ERROR: logger.error(format, first, second); return;
+				default: logger.debug(format, first, second); return;
+			}
+		} finally {
+			MDC.remove(CALLER_THREAD_KEY);
+			if (traceId != null)
+				MDC.remove(TraceContext.TRACE_ID_KEY);
+			if (spanId != null)
+				MDC.remove(TraceContext.SPAN_ID_KEY);
+		}
+	}
+
+	/**
+	 * Returns the logger of the event.
+	 */
+	public Logger getLogger() {
+		return logger;
+	}
+
+	/**
+	 * Returns the log level of the event.
+	 */
+	public LogLevel getLevel() {
+		return level;
+	}
+
+	/**
+	 * Returns the name of the thread which created the event.
+	 */
+	public String getThreadName() {
+		return threadName;
+	}
+
+}
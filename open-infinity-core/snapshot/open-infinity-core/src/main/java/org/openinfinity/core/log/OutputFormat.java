@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.log;
+
+/**
+ * Defines the output format of the log and audit trail events:
+ * <br/>
+ * <ul>
+ * 		<li>TEXT - human readable messages</li>
+ * 		<li>JSON - one JSON object per event with the field names defined in <code>org.openinfinity.core.log.JsonEventWriter</code></li>
+ * </ul>
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public enum OutputFormat {
+
+	/**
+	 * Used when the events should be written as human readable messages.
+	 */
+	TEXT,
+	/**
+	 * Used when the events should be written as JSON objects.
+	 */
+	JSON
+
+}
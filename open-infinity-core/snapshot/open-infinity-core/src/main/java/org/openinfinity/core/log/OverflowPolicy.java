@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.log;
+
+/**
+ * Defines how the <code>org.openinfinity.core.log.AsyncLogDispatcher</code> behaves when the ring buffer fills up:
+ * <br/>
+ * <ul>
+ * 		<li>BLOCK - the calling thread waits until the writer thread has released space, no events are lost</li>
+ * 		<li>DROP - the event is dropped and counted, the calling thread never waits</li>
+ * 		<li>SAMPLE - once the buffer is half full only every n:th event is accepted, the rest are dropped and counted</li>
+ * </ul>
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public enum OverflowPolicy {
+
+	/**
+	 * Used when the calling thread should wait for space.
+	 */
+	BLOCK,
+	/**
+	 * Used when the overflowing events should be dropped.
+	 */
+	DROP,
+	/**
+	 * Used when only a sample of the events should be accepted under load.
+	 */
+	SAMPLE
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket allowing a fixed number of permits per second with a burst of one second's worth of permits.
+ * The bucket is kept as the theoretical arrival time of the next permit, so that acquiring a permit is a single compare-and-set.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class RateLimiter {
+
+	/**
+	 * Represents the time between two permits in nanoseconds.
+	 */
+	private final long intervalNanos;
+
+	/**
+	 * Represents the maximum time the theoretical arrival time may run ahead of the clock, i.e. the size of the bucket.
+	 */
+	private final long burstNanos;
+
+	/**
+	 * Represents the theoretical arrival time of the next permit.
+	 */
+	private final AtomicLong nextPermitNanos;
+
+	/**
+	 * Creates the rate limiter.
+	 *
+	 * @param permitsPerSecond Represents the number of permits per second.
+	 */
+	public RateLimiter(int permitsPerSecond) {
+		if (permitsPerSecond < 1)
+			throw new IllegalArgumentException("Permits per second must be positive: " + permitsPerSecond);
+		this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+		this.burstNanos = intervalNanos * permitsPerSecond;
+		this.nextPermitNanos = new AtomicLong(System.nanoTime() - burstNanos);
+	}
+
+	/**
+	 * Acquires a permit if one is available.
+	 *
+	 * @return <code>true</code> if the permit was acquired, <code>false</code> if the rate has been exceeded.
+	 */
+	public boolean tryAcquire() {
+		return tryAcquire(System.nanoTime());
+	}
+
+	boolean tryAcquire(long nowNanos) {
+		for (;;) {
+			long next = nextPermitNanos.get();
+			long updated = Math.max(next, nowNanos - burstNanos) + intervalNanos;
+			if (updated - nowNanos > 0)
+				return false;
+			if (nextPermitNanos.compareAndSet(next, updated))
+				return true;
+		}
+	}
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer. Every slot carries a sequence number telling whether the slot is free for the producer
+ * or published for the consumer, so that producers and consumers claim slots with a single compare-and-set and never block each other.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class RingBuffer<E> {
+
+	/**
+	 * Represents the mask used for wrapping the sequences into slot indexes.
+	 */
+	private final int mask;
+
+	/**
+	 * Represents the elements of the slots.
+	 */
+	private final AtomicReferenceArray<E> elements;
+
+	/**
+	 * Represents the sequences of the slots.
+	 */
+	private final AtomicLongArray sequences;
+
+	/**
+	 * Represents the next sequence to be claimed by a producer.
+	 */
+	private final AtomicLong producerSequence = new AtomicLong();
+
+	/**
+	 * Represents the next sequence to be claimed by a consumer.
+	 */
+	private final AtomicLong consumerSequence = new AtomicLong();
+
+	/**
+	 * Creates the ring buffer. The capacity is rounded up to the next power of two.
+	 *
+	 * @param capacity Represents the minimum capacity of the buffer.
+	 */
+	public RingBuffer(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30)
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+		this.mask = size - 1;
+		this.elements = new AtomicReferenceArray<E>(size);
+		this.sequences = new AtomicLongArray(size);
+		for (int index = 0; index < size; index++) {
+			sequences.set(index, index);
+		}
+	}
+
+	/**
+	 * Publishes the element into the buffer.
+	 *
+	 * @param element Represents the element to be published.
+	 * @return <code>true</code> if the element was published, <code>false</code> if the buffer is full.
+	 */
+	public boolean offer(E element) {
+		if (element == null)
+			throw new NullPointerException("Element must not be null.");
+		long sequence = producerSequence.get();
+		for (;;) {
+			int index = (int) sequence & mask;
+			long difference = sequences.get(index) - sequence;
+			if (difference == 0) {
+				if (producerSequence.compareAndSet(sequence, sequence + 1)) {
+					elements.lazySet(index, element);
+					sequences.lazySet(index, sequence + 1);
+					return true;
+				}
+				sequence = producerSequence.get();
+			} else if (difference < 0) {
+				return false;
+			} else {
+				sequence = producerSequence.get();
+			}
+		}
+	}
+
+	/**
+	 * Removes the oldest published element from the buffer.
+	 *
+	 * @return E Represents the element, <code>null</code> if the buffer is empty.
+	 */
+	public E poll() {
+		long sequence = consumerSequence.get();
+		for (;;) {
+			int index = (int) sequence & mask;
+			long difference = sequences.get(index) - (sequence + 1);
+			if (difference == 0) {
+				if (consumerSequence.compareAndSet(sequence, sequence + 1)) {
+					E element = elements.get(index);
+					elements.lazySet(index, null);
+					sequences.lazySet(index, sequence + mask + 1);
+					return element;
+				}
+				sequence = consumerSequence.get();
+			} else if (difference < 0) {
+				return null;
+			} else {
+				sequence = consumerSequence.get();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of elements claimed by the producers since the buffer was created.
+	 */
+	public long getProducerSequence() {
+		return producerSequence.get();
+	}
+
+	/**
+	 * Returns the number of elements in the buffer.
+	 */
+	public int size() {
+		long size = producerSequence.get() - consumerSequence.get();
+		return (int) Math.max(0, Math.min(size, getCapacity()));
+	}
+
+	/**
+	 * Returns <code>true</code> if there are no elements in the buffer.
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Returns the capacity of the buffer.
+	 */
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+}
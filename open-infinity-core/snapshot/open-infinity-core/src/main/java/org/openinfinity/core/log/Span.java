@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.log;
+
+/**
+ * Represents the timing of a single advised call within a trace. Spans are created and ended by 
+ * <code>org.openinfinity.core.log.TraceContext</code> on the thread executing the call.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class Span {
+
+	/**
+	 * Represents the id of the span, unique within the trace.
+	 */
+	private final int id;
+
+	/**
+	 * Represents the id of the parent span, <code>0</code> for the root span of the trace.
+	 */
+	private final int parentId;
+
+	/**
+	 * Represents the enclosing span on the same thread, <code>null</code> for the outermost span of the thread.
+	 */
+	private final Span parent;
+
+	/**
+	 * Represents the nesting depth of the span on the thread, <code>0</code> for the outermost span.
+	 */
+	private final int depth;
+
+	/**
+	 * Represents the name of the advised method.
+	 */
+	private final String name;
+
+	/**
+	 * Represents the start time in nanoseconds.
+	 */
+	private final long startNanos;
+
+	/**
+	 * Represents the duration in nanoseconds, <code>-1</code> while the span is open.
+	 */
+	private long durationNanos = -1;
+
+	Span(int id, int parentId, Span parent, String name) {
+		this.id = id;
+		this.parentId = parentId;
+		this.parent = parent;
+		this.depth = parent != null ? parent.depth + 1 : 0;
+		this.name = name;
+		this.startNanos = System.nanoTime();
+	}
+
+	void end() {
+		durationNanos = System.nanoTime() - startNanos;
+	}
+
+	Span getParent() {
+		return parent;
+	}
+
+	/**
+	 * Returns the id of the span.
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the id of the parent span, <code>0</code> for the root span of the trace.
+	 */
+	public int getParentId() {
+		return parentId;
+	}
+
+	/**
+	 * Returns the nesting depth of the span on the thread.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Returns the name of the advised method.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the start time in nanoseconds.
+	 */
+	public long getStartNanos() {
+		return startNanos;
+	}
+
+	/**
+	 * Returns the duration of the span in nanoseconds, <code>-1</code> while the span is open.
+	 */
+	public long getDurationNanos() {
+		return durationNanos;
+	}
+
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.log;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.MDC;
+
+/**
+ * Thread bound trace of the advised calls. The outermost span of a thread starts the trace and assigns the correlation id, 
+ * nested spans are recorded into the buffer of the trace with their parent span id. The trace id and the id of the current span are
+ * available in the SLF4J MDC under <code>traceId</code> and <code>spanId</code>. A trace id already found from the MDC, 
+ * for example set by a servlet filter, is adopted instead of creating a new one.
+ * 
+ * <br/><br/>
+ * Work handed off to other threads can be correlated by wrapping the task, spans of the task are recorded as children of the current span:
+ * <br/><br/>
+ * <code>
+ * executor.execute(TraceContext.wrap(runnable));
+ * </code>
+ *
+ * @author Ilkka Leinonen
+ * @version 1.1.0 - New trace ids are available as correlation ids.
+ * @since 1.6.0
+ */
+public class TraceContext {
+
+	/**
+	 * Represents the MDC key of the trace id.
+	 */
+	public static final String TRACE_ID_KEY = "traceId";
+
+	/**
+	 * Represents the MDC key of the current span id.
+	 */
+	public static final String SPAN_ID_KEY = "spanId";
+
+	/**
+	 * Represents the maximum number of spans recorded per trace and thread, further spans are counted as dropped.
+	 */
+	public static final int MAX_SPANS = 512;
+
+	/**
+	 * Represents the increment of the trace id sequence, the golden ratio spreads the consecutive ids over the whole range.
+	 */
+	private static final long TRACE_ID_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * Represents the trace id sequence.
+	 */
+	private static final AtomicLong TRACE_ID_SEQUENCE = new AtomicLong(System.nanoTime() ^ System.currentTimeMillis() << 20);
+
+	/**
+	 * Represents the trace contexts of the threads.
+	 */
+	private static final ThreadLocal<TraceContext> CURRENT = new ThreadLocal<TraceContext>();
+
+	/**
+	 * Represents the correlation id of the trace.
+	 */
+	private final String traceId;
+
+	/**
+	 * Represents the id of the span the trace was handed off from, <code>0</code> when the trace started on this thread.
+	 */
+	private final int parentSpanId;
+
+	/**
+	 * Represents the span id sequence shared by the threads of the trace.
+	 */
+	private final AtomicInteger spanIdSequence;
+
+	/**
+	 * Represents whether the context outlives its spans, i.e. it has been installed for a wrapped task.
+	 */
+	private final boolean pinned;
+
+	/**
+	 * Represents whether the trace id has been put to the MDC by this context.
+	 */
+	private final boolean traceIdOwner;
+
+	/**
+	 * Represents the span id found from the MDC when the context was installed.
+	 */
+	private final String previousSpanId;
+
+	/**
+	 * Represents the recorded spans in start order.
+	 */
+	private final List<Span> spans = new ArrayList<Span>();
+
+	/**
+	 * Represents the innermost open span of the thread.
+	 */
+	private Span currentSpan;
+
+	/**
+	 * Represents the number of spans not recorded because the buffer was full.
+	 */
+	private int droppedSpans;
+
+	private TraceContext(String traceId, int parentSpanId, AtomicInteger spanIdSequence, boolean pinned) {
+		String existingTraceId = MDC.get(TRACE_ID_KEY);
+		this.traceIdOwner = existingTraceId == null || !existingTraceId.equals(traceId);
+		this.traceId = traceId;
+		this.parentSpanId = parentSpanId;
+		this.spanIdSequence = spanIdSequence;
+		this.pinned = pinned;
+		this.previousSpanId = MDC.get(SPAN_ID_KEY);
+		if (traceIdOwner)
+			MDC.put(TRACE_ID_KEY, traceId);
+		if (parentSpanId != 0)
+			MDC.put(SPAN_ID_KEY, String.valueOf(parentSpanId));
+	}
+
+	private static TraceContext install(String traceId, int parentSpanId, AtomicInteger spanIdSequence, boolean pinned) {
+		TraceContext context = new TraceContext(traceId, parentSpanId, spanIdSequence, pinned);
+		CURRENT.set(context);
+		return context;
+	}
+
+	/**
+	 * Returns a new trace id, 16 hexadecimal digits.
+	 * 
+	 * @return String Represents the trace id.
+	 */
+	public static String nextTraceId() {
+		long z = TRACE_ID_SEQUENCE.addAndGet(TRACE_ID_GAMMA);
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		z = z ^ (z >>> 33);
+		String hex = Long.toHexString(z);
+		return hex.length() < 16 ? "0000000000000000".substring(hex.length()) + hex : hex;
+	}
+
+	/**
+	 * Returns the trace context of the current thread.
+	 * 
+	 * @return TraceContext Represents the context, <code>null</code> when no trace is active.
+	 */
+	public static TraceContext current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Starts a span on the current thread. The first span of the thread starts the trace.
+	 * 
+	 * @param name Represents the name of the advised method.
+	 * @return Span Represents the started span to be passed to <code>endSpan</code>.
+	 */
+	public static Span startSpan(String name) {
+		TraceContext context = CURRENT.get();
+		if (context == null) {
+			String traceId = MDC.get(TRACE_ID_KEY);
+			context = install(traceId != null ? traceId : nextTraceId(), 0, new AtomicInteger(), false);
+		}
+		return context.start(name);
+	}
+
+	/**
+	 * Ends the span started by <code>startSpan</code>. When the outermost span of the thread ends, the trace is detached 
+	 * from the thread and returned for emitting its spans.
+	 * 
+	 * @param span Represents the span to be ended.
+	 * @return TraceContext Represents the completed trace, <code>null</code> while enclosing spans are still open.
+	 */
+	public static TraceContext endSpan(Span span) {
+		TraceContext context = CURRENT.get();
+		if (context == null)
+			return null;
+		return context.end(span);
+	}
+
+	/**
+	 * Wraps the task so that the spans it records on the executing thread belong to the trace of the current thread.
+	 * 
+	 * @param task Represents the task to be handed off.
+	 * @return Runnable Represents the wrapped task, the task itself when no trace is active.
+	 */
+	public static Runnable wrap(final Runnable task) {
+		final TraceContext context = CURRENT.get();
+		if (context == null)
+			return task;
+		final int spanId = context.getCurrentSpanId();
+		return new Runnable() {
+			public void run() {
+				TraceContext previous = context.fork(spanId);
+				try {
+					task.run();
+				} finally {
+					restore(previous);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Wraps the task so that the spans it records on the executing thread belong to the trace of the current thread.
+	 * 
+	 * @param task Represents the task to be handed off.
+	 * @return Callable Represents the wrapped task, the task itself when no trace is active.
+	 */
+	public static <V> Callable<V> wrap(final Callable<V> task) {
+		final TraceContext context = CURRENT.get();
+		if (context == null)
+			return task;
+		final int spanId = context.getCurrentSpanId();
+		return new Callable<V>() {
+			public V call() throws Exception {
+				TraceContext previous = context.fork(spanId);
+				try {
+					return task.call();
+				} finally {
+					restore(previous);
+				}
+			}
+		};
+	}
+
+	private TraceContext fork(int spanId) {
+		TraceContext previous = CURRENT.get();
+		install(traceId, spanId, spanIdSequence, true);
+		return previous;
+	}
+
+	private static void restore(TraceContext previous) {
+		TraceContext context = CURRENT.get();
+		if (context != null)
+			context.clearMdc();
+		if (previous != null) {
+			CURRENT.set(previous);
+			previous.putMdc();
+		} else {
+			CURRENT.remove();
+		}
+	}
+
+	private Span start(String name) {
+		Span span = new Span(spanIdSequence.incrementAndGet(), getCurrentSpanId(), currentSpan, name);
+		if (spans.size() < MAX_SPANS)
+			spans.add(span);
+		else
+			droppedSpans++;
+		currentSpan = span;
+		MDC.put(SPAN_ID_KEY, String.valueOf(span.getId()));
+		return span;
+	}
+
+	private TraceContext end(Span span) {
+		span.end();
+		currentSpan = span.getParent();
+		if (currentSpan != null) {
+			MDC.put(SPAN_ID_KEY, String.valueOf(currentSpan.getId()));
+			return null;
+		}
+		clearMdc();
+		if (pinned)
+			install(traceId, parentSpanId, spanIdSequence, true);
+		else
+			CURRENT.remove();
+		return this;
+	}
+
+	private void putMdc() {
+		MDC.put(TRACE_ID_KEY, traceId);
+		int spanId = getCurrentSpanId();
+		if (spanId != 0)
+			MDC.put(SPAN_ID_KEY, String.valueOf(spanId));
+	}
+
+	private void clearMdc() {
+		if (traceIdOwner)
+			MDC.remove(TRACE_ID_KEY);
+		if (previousSpanId != null)
+			MDC.put(SPAN_ID_KEY, previousSpanId);
+		else
+			MDC.remove(SPAN_ID_KEY);
+	}
+
+	private int getCurrentSpanId() {
+		return currentSpan != null ? currentSpan.getId() : parentSpanId;
+	}
+
+	/**
+	 * Returns the correlation id of the trace.
+	 */
+	public String getTraceId() {
+		return traceId;
+	}
+
+	/**
+	 * Returns the id of the span the trace was handed off from, <code>0</code> when the trace started on this thread.
+	 */
+	public int getParentSpanId() {
+		return parentSpanId;
+	}
+
+	/**
+	 * Returns the recorded spans in start order.
+	 */
+	public List<Span> getSpans() {
+		return Collections.unmodifiableList(spans);
+	}
+
+	/**
+	 * Returns the number of spans not recorded because the buffer was full.
+	 */
+	public int getDroppedSpans() {
+		return droppedSpans;
+	}
+
+	/**
+	 * Returns the spans as an indented tree with the durations in milliseconds.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(64 + spans.size() * 64);
+		builder.append(traceId);
+		if (parentSpanId != 0)
+			builder.append(" from span ").append(parentSpanId);
+		builder.append(": ").append(spans.size()).append(" spans");
+		if (droppedSpans > 0)
+			builder.append(", ").append(droppedSpans).append(" dropped");
+		for (Span span : spans) {
+			builder.append("\n  ");
+			for (int i = 0; i < span.getDepth(); i++)
+				builder.append("  ");
+			builder.append('[').append(span.getId()).append("] ").append(span.getName()).append(' ');
+			appendMillis(builder, span.getDurationNanos());
+		}
+		return builder.toString();
+	}
+
+	private static void appendMillis(StringBuilder builder, long nanos) {
+		if (nanos < 0) {
+			builder.append("open");
+			return;
+		}
+		long micros = NANOSECONDS.toMicros(nanos);
+		long fraction = micros % 1000;
+		builder.append(micros / 1000).append('.');
+		if (fraction < 100)
+			builder.append(fraction < 10 ? "00" : "0");
+		builder.append(fraction).append(" ms");
+	}
+
+}
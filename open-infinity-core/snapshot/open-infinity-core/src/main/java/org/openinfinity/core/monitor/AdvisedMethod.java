@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openinfinity.core.annotation.Log.LogLevel;
+
+/**
+ * Represents a method advised by an aspect and registered in the <code>org.openinfinity.core.monitor.AdvisedMethodRegistry</code>.
+ * The aspects keep a reference to the advised method and read the current settings once per invocation.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class AdvisedMethod {
+	
+	/**
+	 * Represents the name of the advised method in format <code>Aspect:package.Class.method(package.ParameterType,...)</code>.
+	 */
+	private final String name;
+	
+	/**
+	 * Represents the current settings of the method.
+	 */
+	private volatile AdvisedMethodSettings settings = AdvisedMethodSettings.DEFAULT;
+	
+	/**
+	 * Represents the number of calls suppressed by sampling or rate limit since the registration.
+	 */
+	private final AtomicLong suppressedCalls = new AtomicLong();
+	
+	AdvisedMethod(String name) {
+		this.name = name;
+	}
+	
+	/**
+	 * Returns the name of the advised method in format <code>Aspect:package.Class.method(package.ParameterType,...)</code>.
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * Returns the current settings of the method.
+	 */
+	public AdvisedMethodSettings getSettings() {
+		return settings;
+	}
+	
+	/**
+	 * Returns the number of calls suppressed by sampling or rate limit since the registration.
+	 */
+	public long getSuppressedCalls() {
+		return suppressedCalls.get();
+	}
+	
+	/**
+	 * Counts a call suppressed by sampling or rate limit.
+	 */
+	public void recordSuppressedCall() {
+		suppressedCalls.incrementAndGet();
+	}
+	
+	synchronized void setEnabled(boolean enabled) {
+		this.settings = settings.withEnabled(enabled);
+	}
+	
+	synchronized void setLogLevel(LogLevel logLevel) {
+		this.settings = settings.withLogLevel(logLevel);
+	}
+	
+	synchronized void reset() {
+		this.settings = AdvisedMethodSettings.DEFAULT;
+	}
+	
+	@Override
+	public String toString() {
+		return name + " [" + settings + "]";
+	}
+	
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.monitor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.openinfinity.core.annotation.Log.LogLevel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Registry of the methods advised by <code>org.openinfinity.core.aspect.LogAspect</code> and <code>org.openinfinity.core.aspect.AuditTrailAspect</code>.
+ * The registry is exposed as an MBean under <code>org.openinfinity.core:type=AdvisedMethodRegistry</code>, so that a single method can be disabled 
+ * or its log level overridden at runtime without a redeploy.
+ * 
+ * <br/><br/>
+ * <code>
+ * &lt;bean id="advisedMethodRegistry" class="org.openinfinity.core.monitor.AdvisedMethodRegistry" /&gt;
+ * </code>
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class AdvisedMethodRegistry implements AdvisedMethodRegistryMBean, InitializingBean, DisposableBean {
+	
+	/**
+	 * Logger for this class.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(AdvisedMethodRegistry.class);
+	
+	/**
+	 * Represents the object name of the registry.
+	 */
+	public static final String OBJECT_NAME = "org.openinfinity.core:type=AdvisedMethodRegistry";
+	
+	/**
+	 * Represents the advised methods by the name.
+	 */
+	private final ConcurrentMap<String, AdvisedMethod> advisedMethods = new ConcurrentHashMap<String, AdvisedMethod>();
+	
+	/**
+	 * Represents the MBean server where the registry is registered, platform MBean server by default.
+	 */
+	private MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+	
+	/**
+	 * Setter for the MBean server.
+	 * 
+	 * @param mBeanServer Represents the MBean server where the registry is registered.
+	 */
+	public void setMBeanServer(MBeanServer mBeanServer) {
+		this.mBeanServer = mBeanServer;
+	}
+	
+	/**
+	 * Registers the registry to the MBean server.
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		try {
+			ObjectName objectName = new ObjectName(OBJECT_NAME);
+			if (!mBeanServer.isRegistered(objectName)) {
+				mBeanServer.registerMBean(this, objectName);
+			}
+		} catch (Throwable throwable) {
+			LOGGER.warn("Advised method registry could not be registered: " + throwable.getMessage());
+		}
+	}
+	
+	/**
+	 * Returns the advised method, registering it if needed.
+	 * 
+	 * @param aspect Represents the name of the advising aspect.
+	 * @param method Represents the advised method.
+	 * @return AdvisedMethod Represents the registered method.
+	 */
+	public AdvisedMethod register(String aspect, Method method) {
+		String name = aspect + ":" + LatencyMonitor.createMethodName(method);
+		AdvisedMethod advisedMethod = advisedMethods.get(name);
+		if (advisedMethod == null) {
+			AdvisedMethod created = new AdvisedMethod(name);
+			advisedMethod = advisedMethods.putIfAbsent(name, created);
+			if (advisedMethod == null)
+				advisedMethod = created;
+		}
+		return advisedMethod;
+	}
+	
+	@Override
+	public String[] getAdvisedMethods() {
+		String[] names = advisedMethods.keySet().toArray(new String[0]);
+		Arrays.sort(names);
+		return names;
+	}
+	
+	@Override
+	public String[] getAdvisedMethodSettings() {
+		String[] names = getAdvisedMethods();
+		String[] settings = new String[names.length];
+		for (int index = 0; index < names.length; index++) {
+			settings[index] = advisedMethods.get(names[index]).toString();
+		}
+		return settings;
+	}
+	
+	@Override
+	public String[] getSuppressedCalls() {
+		List<String> suppressedCalls = new ArrayList<String>();
+		for (String name : getAdvisedMethods()) {
+			long count = advisedMethods.get(name).getSuppressedCalls();
+			if (count > 0)
+				suppressedCalls.add(name + ": " + count);
+		}
+		return suppressedCalls.toArray(new String[suppressedCalls.size()]);
+	}
+	
+	@Override
+	public void enable(String name) {
+		getAdvisedMethod(name).setEnabled(true);
+		LOGGER.info("Advice enabled for [{}].", name);
+	}
+	
+	@Override
+	public void disable(String name) {
+		getAdvisedMethod(name).setEnabled(false);
+		LOGGER.info("Advice disabled for [{}].", name);
+	}
+	
+	@Override
+	public void setLogLevel(String name, String level) {
+		LogLevel logLevel = level == null || level.trim().length() == 0 ? null : LogLevel.valueOf(level.trim().toUpperCase());
+		getAdvisedMethod(name).setLogLevel(logLevel);
+		LOGGER.info("Log level of [{}] set to [{}].", name, logLevel != null ? logLevel : "annotation level");
+	}
+	
+	@Override
+	public void reset() {
+		for (AdvisedMethod advisedMethod : advisedMethods.values()) {
+			advisedMethod.reset();
+		}
+	}
+	
+	private AdvisedMethod getAdvisedMethod(String name) {
+		AdvisedMethod advisedMethod = advisedMethods.get(name);
+		if (advisedMethod == null)
+			throw new IllegalArgumentException("Method [" + name + "] has not been advised.");
+		return advisedMethod;
+	}
+	
+	/**
+	 * Unregisters the registry from the MBean server.
+	 */
+	@Override
+	public void destroy() {
+		try {
+			ObjectName objectName = new ObjectName(OBJECT_NAME);
+			if (mBeanServer.isRegistered(objectName)) {
+				mBeanServer.unregisterMBean(objectName);
+			}
+		} catch (Throwable throwable) {
+			LOGGER.warn("Advised method registry could not be unregistered: " + throwable.getMessage());
+		}
+	}
+	
+}
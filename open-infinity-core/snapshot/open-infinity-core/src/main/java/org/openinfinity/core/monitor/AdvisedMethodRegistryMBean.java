@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.monitor;
+
+/**
+ * Management interface of the <code>org.openinfinity.core.monitor.AdvisedMethodRegistry</code>. Methods are identified by names in format
+ * <code>Aspect:package.Class.method(package.ParameterType,...)</code>, for example <code>LogAspect:com.example.AccountService.save(com.example.Account)</code>, 
+ * as listed by <code>getAdvisedMethods</code>. Operations can be invoked through any JMX client, for example Jolokia: 
+ * <code>/jolokia/exec/org.openinfinity.core:type=AdvisedMethodRegistry/disable/LogAspect:com.example.AccountService.save(com.example.Account)</code>.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public interface AdvisedMethodRegistryMBean {
+	
+	/**
+	 * Returns the names of the advised methods, which are accepted by the operations.
+	 */
+	public String[] getAdvisedMethods();
+	
+	/**
+	 * Returns the advised methods with their current settings, in format <code>name [enabled, level LEVEL]</code>.
+	 */
+	public String[] getAdvisedMethodSettings();
+	
+	/**
+	 * Returns the advised methods with calls suppressed by sampling or rate limit, in format <code>name: count</code>. The counts are totals 
+	 * since the registration of the methods, so that they are available even when no further call of a method is logged.
+	 */
+	public String[] getSuppressedCalls();
+	
+	/**
+	 * Applies the aspect to the method.
+	 * 
+	 * @param name Represents the name of the advised method.
+	 */
+	public void enable(String name);
+	
+	/**
+	 * Stops applying the aspect to the method, the method is only proceeded.
+	 * 
+	 * @param name Represents the name of the advised method.
+	 */
+	public void disable(String name);
+	
+	/**
+	 * Overrides the log level of the method.
+	 * 
+	 * @param name Represents the name of the advised method.
+	 * @param level Represents the log level (TRACE, DEBUG, INFO, WARN, ERROR), empty to use the level of the annotation.
+	 */
+	public void setLogLevel(String name, String level);
+	
+	/**
+	 * Restores the settings of all methods.
+	 */
+	public void reset();
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.monitor;
+
+import org.openinfinity.core.annotation.Log.LogLevel;
+
+/**
+ * Represents the immutable runtime settings of an advised method. A new instance is published on every change, so that the advice
+ * reads all of the settings with a single volatile read.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public final class AdvisedMethodSettings {
+	
+	/**
+	 * Represents the settings of a method which has not been modified at runtime.
+	 */
+	public static final AdvisedMethodSettings DEFAULT = new AdvisedMethodSettings(true, null);
+	
+	/**
+	 * Represents whether the aspect is applied to the method.
+	 */
+	private final boolean enabled;
+	
+	/**
+	 * Represents the overriding log level, <code>null</code> when the level of the annotation is used.
+	 */
+	private final LogLevel logLevel;
+	
+	private AdvisedMethodSettings(boolean enabled, LogLevel logLevel) {
+		this.enabled = enabled;
+		this.logLevel = logLevel;
+	}
+	
+	/**
+	 * Returns <code>true</code> if the aspect is applied to the method.
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+	
+	/**
+	 * Returns the overriding log level, <code>null</code> when the level of the annotation is used.
+	 */
+	public LogLevel getLogLevel() {
+		return logLevel;
+	}
+	
+	/**
+	 * Returns a copy of the settings with the given enablement.
+	 */
+	public AdvisedMethodSettings withEnabled(boolean enabled) {
+		return new AdvisedMethodSettings(enabled, logLevel);
+	}
+	
+	/**
+	 * Returns a copy of the settings with the given overriding log level.
+	 */
+	public AdvisedMethodSettings withLogLevel(LogLevel logLevel) {
+		return new AdvisedMethodSettings(enabled, logLevel);
+	}
+	
+	@Override
+	public String toString() {
+		return (enabled ? "enabled" : "disabled") + (logLevel != null ? ", level " + logLevel : "");
+	}
+	
+}
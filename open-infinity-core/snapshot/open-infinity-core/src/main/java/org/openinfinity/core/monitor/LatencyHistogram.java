@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with logarithmic buckets. Each power of two range is divided into 32 linear sub-buckets, which 
+ * keeps the relative error of the reported percentiles below ~3% from nanoseconds up to about 36 minutes. Recording a value is a 
+ * single atomic increment, reading the percentiles walks a snapshot of the bucket counts.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+	
+	/**
+	 * Represents the number of bits used for the linear sub-buckets.
+	 */
+	private static final int SUB_BUCKET_BITS = 5;
+	
+	/**
+	 * Represents the number of linear sub-buckets of each power of two range.
+	 */
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	
+	/**
+	 * Represents the highest tracked bit, larger values are recorded into the last bucket.
+	 */
+	private static final int HIGHEST_TRACKED_BIT = 40;
+	
+	/**
+	 * Represents the highest trackable value in nanoseconds.
+	 */
+	private static final long HIGHEST_TRACKABLE_VALUE = (1L << (HIGHEST_TRACKED_BIT + 1)) - 1;
+	
+	/**
+	 * Represents the number of nanoseconds in a microsecond.
+	 */
+	private static final double NANOS_PER_MICRO = 1000d;
+	
+	/**
+	 * Represents the bucket counts.
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(bucketIndex(HIGHEST_TRACKABLE_VALUE) + 1);
+	
+	/**
+	 * Represents the total count of the recorded values.
+	 */
+	private final AtomicLong totalCount = new AtomicLong();
+	
+	/**
+	 * Represents the sum of the recorded values in nanoseconds.
+	 */
+	private final AtomicLong totalValue = new AtomicLong();
+	
+	/**
+	 * Represents the maximum recorded value in nanoseconds.
+	 */
+	private final AtomicLong maxValue = new AtomicLong();
+	
+	/**
+	 * Represents the start of the current recording period.
+	 */
+	private volatile long startTimeNanos = System.nanoTime();
+	
+	/**
+	 * Records the latency value.
+	 * 
+	 * @param nanos Represents the latency in nanoseconds.
+	 */
+	public void recordValue(long nanos) {
+		long value = nanos < 0 ? 0 : nanos;
+		counts.incrementAndGet(bucketIndex(Math.min(value, HIGHEST_TRACKABLE_VALUE)));
+		totalCount.incrementAndGet();
+		totalValue.addAndGet(value);
+		long max = maxValue.get();
+		while (value > max && !maxValue.compareAndSet(max, value)) {
+			max = maxValue.get();
+		}
+	}
+	
+	/**
+	 * Returns the highest value equivalent to the given percentile in nanoseconds.
+	 * 
+	 * @param percentile Represents the percentile between 0 and 100.
+	 * @return long Represents the value at the percentile, 0 if no values have been recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long[] snapshot = new long[counts.length()];
+		long total = 0;
+		for (int index = 0; index < snapshot.length; index++) {
+			snapshot[index] = counts.get(index);
+			total += snapshot[index];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long threshold = Math.max(1, (long) Math.ceil(Math.min(percentile, 100d) / 100d * total));
+		long accumulated = 0;
+		for (int index = 0; index < snapshot.length; index++) {
+			accumulated += snapshot[index];
+			if (accumulated >= threshold) {
+				return Math.min(highestEquivalentValue(index), maxValue.get());
+			}
+		}
+		return maxValue.get();
+	}
+	
+	public long getCount() {
+		return totalCount.get();
+	}
+
+	public double getMean() {
+		long count = totalCount.get();
+		return count == 0 ? 0d : totalValue.get() / (double) count / NANOS_PER_MICRO;
+	}
+	
+	public double getP50() {
+		return getValueAtPercentile(50d) / NANOS_PER_MICRO;
+	}
+	
+	public double getP90() {
+		return getValueAtPercentile(90d) / NANOS_PER_MICRO;
+	}
+
+	public double getP99() {
+		return getValueAtPercentile(99d) / NANOS_PER_MICRO;
+	}
+
+	public double getP999() {
+		return getValueAtPercentile(99.9d) / NANOS_PER_MICRO;
+	}
+
+	public double getMax() {
+		return maxValue.get() / NANOS_PER_MICRO;
+	}
+	
+	public double getThroughput() {
+		long elapsedNanos = System.nanoTime() - startTimeNanos;
+		return elapsedNanos <= 0 ? 0d : totalCount.get() * 1000000000d / elapsedNanos;
+	}
+	
+	public void reset() {
+		for (int index = 0; index < counts.length(); index++) {
+			counts.set(index, 0);
+		}
+		totalCount.set(0);
+		totalValue.set(0);
+		maxValue.set(0);
+		startTimeNanos = System.nanoTime();
+	}
+	
+	static int bucketIndex(long value) {
+		if (value < (SUB_BUCKET_COUNT << 1)) {
+			return (int) value;
+		}
+		int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+		return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+	}
+	
+	static long highestEquivalentValue(int index) {
+		if (index < (SUB_BUCKET_COUNT << 1)) {
+			return index;
+		}
+		int shift = (index >> SUB_BUCKET_BITS) - 1;
+		long subBucket = (index & (SUB_BUCKET_COUNT - 1)) + SUB_BUCKET_COUNT;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+}
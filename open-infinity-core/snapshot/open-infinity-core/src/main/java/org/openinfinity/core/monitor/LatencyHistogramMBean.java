@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.monitor;
+
+/**
+ * Management interface of the <code>org.openinfinity.core.monitor.LatencyHistogram</code>. Latencies are presented in 
+ * microseconds and throughput in calls per second since the last reset. Attributes can be read through any JMX client, 
+ * for example Jolokia: <code>/jolokia/read/org.openinfinity.core:type=LatencyHistogram,*</code>.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public interface LatencyHistogramMBean {
+	
+	/**
+	 * Returns the number of recorded calls.
+	 */
+	public long getCount();
+	
+	/**
+	 * Returns the mean latency in microseconds.
+	 */
+	public double getMean();
+	
+	/**
+	 * Returns the median latency in microseconds.
+	 */
+	public double getP50();
+	
+	/**
+	 * Returns the 90th percentile latency in microseconds.
+	 */
+	public double getP90();
+	
+	/**
+	 * Returns the 99th percentile latency in microseconds.
+	 */
+	public double getP99();
+	
+	/**
+	 * Returns the 99.9th percentile latency in microseconds.
+	 */
+	public double getP999();
+	
+	/**
+	 * Returns the maximum latency in microseconds.
+	 */
+	public double getMax();
+	
+	/**
+	 * Returns the throughput in calls per second since the last reset.
+	 */
+	public double getThroughput();
+	
+	/**
+	 * Clears the recorded values and starts a new recording period.
+	 */
+	public void reset();
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.monitor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+/**
+ * Registry of the per method latency histograms. Histograms are created on first use and registered as MBeans under the 
+ * <code>org.openinfinity.core:type=LatencyHistogram</code> domain, so that they can be read through JMX or Jolokia.
+ * 
+ * <br/><br/>
+ * <code>
+ * &lt;bean id="latencyMonitor" class="org.openinfinity.core.monitor.LatencyMonitor" /&gt;
+ * </code>
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class LatencyMonitor implements DisposableBean {
+	
+	/**
+	 * Logger for this class.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(LatencyMonitor.class);
+	
+	/**
+	 * Represents the JMX domain of the histograms.
+	 */
+	private static final String DOMAIN = "org.openinfinity.core";
+	
+	/**
+	 * Represents the histograms by the method name.
+	 */
+	private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+	
+	/**
+	 * Represents the MBean server where the histograms are registered, platform MBean server by default.
+	 */
+	private MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+	
+	/**
+	 * Setter for the MBean server.
+	 * 
+	 * @param mBeanServer Represents the MBean server where the histograms are registered.
+	 */
+	public void setMBeanServer(MBeanServer mBeanServer) {
+		this.mBeanServer = mBeanServer;
+	}
+	
+	/**
+	 * Returns the histogram of the method, creating and registering it if needed.
+	 * 
+	 * @param aspect Represents the name of the recording aspect.
+	 * @param method Represents the advised method.
+	 * @return LatencyHistogram Represents the histogram of the method.
+	 */
+	public LatencyHistogram getHistogram(String aspect, Method method) {
+		String name = createMethodName(method);
+		String key = aspect + ":" + name;
+		LatencyHistogram histogram = histograms.get(key);
+		if (histogram == null) {
+			LatencyHistogram created = new LatencyHistogram();
+			histogram = histograms.putIfAbsent(key, created);
+			if (histogram == null) {
+				histogram = created;
+				register(aspect, name, histogram);
+			}
+		}
+		return histogram;
+	}
+	
+	/**
+	 * Returns the histogram of the method if it exists.
+	 * 
+	 * @param aspect Represents the name of the recording aspect.
+	 * @param methodName Represents the method name in format <code>package.Class.method(package.ParameterType,...)</code>.
+	 * @return LatencyHistogram Represents the histogram or <code>null</code> if the method has not been recorded.
+	 */
+	public LatencyHistogram findHistogram(String aspect, String methodName) {
+		return histograms.get(aspect + ":" + methodName);
+	}
+	
+	/**
+	 * Unregisters all histograms from the MBean server.
+	 */
+	public void destroy() {
+		for (String key : histograms.keySet()) {
+			int separator = key.indexOf(':');
+			unregister(key.substring(0, separator), key.substring(separator + 1));
+		}
+		histograms.clear();
+	}
+	
+	/**
+	 * Creates the method name in format <code>package.Class.method(package.ParameterType,...)</code> with fully qualified type names, 
+	 * which distinguishes overloaded methods and same named classes of different packages.
+	 * 
+	 * @param method Represents the method.
+	 * @return String Represents the method name.
+	 */
+	public static String createMethodName(Method method) {
+		StringBuilder builder = new StringBuilder();
+		builder.append(method.getDeclaringClass().getName()).append('.').append(method.getName()).append('(');
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		for (int index = 0; index < parameterTypes.length; index++) {
+			if (index > 0) 
+				builder.append(',');
+			appendTypeName(builder, parameterTypes[index]);
+		}
+		return builder.append(')').toString();
+	}
+	
+	private static void appendTypeName(StringBuilder builder, Class<?> type) {
+		if (type.isArray()) {
+			appendTypeName(builder, type.getComponentType());
+			builder.append("[]");
+		} else {
+			builder.append(type.getName());
+		}
+	}
+	
+	private void register(String aspect, String name, LatencyHistogram histogram) {
+		try {
+			ObjectName objectName = createObjectName(aspect, name);
+			if (!mBeanServer.isRegistered(objectName)) {
+				mBeanServer.registerMBean(histogram, objectName);
+			}
+		} catch (Throwable throwable) {
+			LOGGER.warn("Latency histogram for [" + name + "] could not be registered: " + throwable.getMessage());
+		}
+	}
+	
+	private void unregister(String aspect, String name) {
+		try {
+			ObjectName objectName = createObjectName(aspect, name);
+			if (mBeanServer.isRegistered(objectName)) {
+				mBeanServer.unregisterMBean(objectName);
+			}
+		} catch (Throwable throwable) {
+			LOGGER.warn("Latency histogram for [" + name + "] could not be unregistered: " + throwable.getMessage());
+		}
+	}
+
+	private ObjectName createObjectName(String aspect, String name) throws Exception {
+		return new ObjectName(DOMAIN + ":type=LatencyHistogram,aspect=" + aspect + ",method=" + ObjectName.quote(name));
+	}
+
+}
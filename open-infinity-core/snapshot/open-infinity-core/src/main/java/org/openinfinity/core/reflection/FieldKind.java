@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.reflection;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Defines the type tag of a field resolved into <code>org.openinfinity.core.reflection.FieldMetadata</code>:
+ * <br/>
+ * <ul>
+ * 		<li>PRIMITIVE - primitive types</li>
+ * 		<li>VALUE - wrappers of the primitive types, strings, enums and other numbers and character sequences</li>
+ * 		<li>ARRAY - arrays</li>
+ * 		<li>COLLECTION - implementations of <code>java.util.Collection</code></li>
+ * 		<li>MAP - implementations of <code>java.util.Map</code></li>
+ * 		<li>OBJECT - any other type</li>
+ * </ul>
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public enum FieldKind {
+
+	/**
+	 * Used for the primitive types.
+	 */
+	PRIMITIVE,
+	/**
+	 * Used for the wrappers of the primitive types, strings, enums and other numbers and character sequences.
+	 */
+	VALUE,
+	/**
+	 * Used for the arrays.
+	 */
+	ARRAY,
+	/**
+	 * Used for the collections.
+	 */
+	COLLECTION,
+	/**
+	 * Used for the maps.
+	 */
+	MAP,
+	/**
+	 * Used for any other type.
+	 */
+	OBJECT;
+
+	/**
+	 * Returns the type tag of the type.
+	 *
+	 * @param type Represents the type of the field.
+	 * @return FieldKind Represents the type tag.
+	 */
+	public static FieldKind valueOf(Class<?> type) {
+		if (type.isPrimitive())
+			return PRIMITIVE;
+		if (type.isArray())
+			return ARRAY;
+		if (Collection.class.isAssignableFrom(type))
+			return COLLECTION;
+		if (Map.class.isAssignableFrom(type))
+			return MAP;
+		if (Number.class.isAssignableFrom(type) || CharSequence.class.isAssignableFrom(type) || type.isEnum()
+				|| type == Boolean.class || type == Character.class)
+			return VALUE;
+		return OBJECT;
+	}
+
+}
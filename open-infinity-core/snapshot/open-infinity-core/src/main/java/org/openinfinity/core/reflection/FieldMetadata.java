@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.reflection;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Metadata of a field resolved from a class and cached by the class and the field name. The field is looked up from the class
+ * and its superclasses, made accessible once when the metadata is created, and its generic type is resolved against the class,
+ * so that for example the <code>tenantId</code> of an entity extending <code>MultiTenantBaseEntity&lt;Long, ?, ?&gt;</code>
+ * resolves to <code>java.lang.Long</code>, and tagged with its <code>org.openinfinity.core.reflection.FieldKind</code>. 
+ * Field names not found from the class are cached as missing.
+ * <br/><br/>
+ * The cache is shared by the aspects accessing the argument fields and is safe for concurrent use.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.1.0 - Type tags of the fields.
+ * @since 1.6.0
+ */
+public final class FieldMetadata {
+
+	/**
+	 * Represents the missing fields in the cache.
+	 */
+	private static final FieldMetadata MISSING = new FieldMetadata();
+
+	/**
+	 * Represents the resolved field metadata by the class and the field name.
+	 */
+	private static final ConcurrentMap<Class<?>, ConcurrentMap<String, FieldMetadata>> FIELDS =
+			new ConcurrentHashMap<Class<?>, ConcurrentMap<String, FieldMetadata>>();
+
+	/**
+	 * Represents the accessible field.
+	 */
+	private final Field field;
+
+	/**
+	 * Represents the type of the field resolved against the class the metadata has been created for.
+	 */
+	private final Class<?> resolvedType;
+
+	/**
+	 * Represents the type tag of the resolved type.
+	 */
+	private final FieldKind kind;
+
+	/**
+	 * Represents whether the field is static or final.
+	 */
+	private final boolean constant;
+
+	private FieldMetadata() {
+		this.field = null;
+		this.resolvedType = null;
+		this.kind = null;
+		this.constant = false;
+	}
+
+	FieldMetadata(Class<?> type, Field field) {
+		ReflectionUtils.makeAccessible(field);
+		this.field = field;
+		this.resolvedType = GenericTypeResolver.resolveType(field.getGenericType(), GenericTypeResolver.getTypeVariableMap(type));
+		this.kind = FieldKind.valueOf(resolvedType);
+		this.constant = Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers());
+	}
+
+	/**
+	 * Returns the cached metadata of the field, resolving it on the first call for the class and the field name.
+	 *
+	 * @param type Represents the class declaring or inheriting the field.
+	 * @param name Represents the name of the field.
+	 * @return FieldMetadata Represents the metadata, <code>null</code> when the class has no such field.
+	 */
+	public static FieldMetadata forField(Class<?> type, String name) {
+		ConcurrentMap<String, FieldMetadata> fields = FIELDS.get(type);
+		if (fields == null) {
+			fields = new ConcurrentHashMap<String, FieldMetadata>();
+			ConcurrentMap<String, FieldMetadata> existing = FIELDS.putIfAbsent(type, fields);
+			if (existing != null)
+				fields = existing;
+		}
+		FieldMetadata fieldMetadata = fields.get(name);
+		if (fieldMetadata == null) {
+			Field field = ReflectionUtils.findField(type, name);
+			fieldMetadata = field != null ? new FieldMetadata(type, field) : MISSING;
+			FieldMetadata existing = fields.putIfAbsent(name, fieldMetadata);
+			if (existing != null)
+				fieldMetadata = existing;
+		}
+		return fieldMetadata != MISSING ? fieldMetadata : null;
+	}
+
+	/**
+	 * Returns the accessible field.
+	 */
+	public Field getField() {
+		return field;
+	}
+
+	/**
+	 * Returns the name of the field.
+	 */
+	public String getName() {
+		return field.getName();
+	}
+
+	/**
+	 * Returns the type of the field resolved against the class, the declared type when the field is not generic.
+	 */
+	public Class<?> getResolvedType() {
+		return resolvedType;
+	}
+
+	/**
+	 * Returns the type tag of the resolved type.
+	 */
+	public FieldKind getKind() {
+		return kind;
+	}
+
+	/**
+	 * Returns <code>true</code> if the field is static or final.
+	 */
+	public boolean isConstant() {
+		return constant;
+	}
+
+	/**
+	 * Returns the value of the field.
+	 *
+	 * @param object Represents the object holding the field.
+	 * @return Object Represents the value of the field.
+	 */
+	public Object getValue(Object object) {
+		return ReflectionUtils.getField(field, object);
+	}
+
+	/**
+	 * Sets the value of the field.
+	 *
+	 * @param object Represents the object holding the field.
+	 * @param value Represents the new value of the field.
+	 */
+	public void setValue(Object object, Object value) {
+		ReflectionUtils.setField(field, object, value);
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.reflection;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable walk plan of the instance fields of a class, computed once per class and cached. The plan contains the non-static 
+ * and non-final fields declared by the class and its superclasses, in the order of <code>ReflectionUtils.doWithFields</code>: 
+ * fields of the class first, then the fields of each superclass up to <code>java.lang.Object</code>. Every field is made accessible 
+ * and tagged with its <code>org.openinfinity.core.reflection.FieldKind</code> when the plan is computed, so that walking the fields 
+ * of an argument is a plain loop.
+ * <br/><br/>
+ * Usage: <br/><br/>
+ * <code>
+ * FieldPlan plan = FieldPlan.forClass(object.getClass());<br/>
+ * for (int i = 0; i &lt; plan.size(); i++) <br/>
+ * &nbsp;&nbsp;plan.get(i).getValue(object);
+ * </code>
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public final class FieldPlan {
+
+	/**
+	 * Represents the computed plans by the class.
+	 */
+	private static final ConcurrentMap<Class<?>, FieldPlan> PLANS = new ConcurrentHashMap<Class<?>, FieldPlan>();
+
+	/**
+	 * Represents the eligible fields in the walk order.
+	 */
+	private final FieldMetadata[] fields;
+
+	private FieldPlan(Class<?> type) {
+		List<FieldMetadata> eligibleFields = new ArrayList<FieldMetadata>();
+		for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+			for (Field field : current.getDeclaredFields()) {
+				FieldMetadata fieldMetadata = new FieldMetadata(type, field);
+				if (!fieldMetadata.isConstant())
+					eligibleFields.add(fieldMetadata);
+			}
+		}
+		this.fields = eligibleFields.toArray(new FieldMetadata[eligibleFields.size()]);
+	}
+
+	/**
+	 * Returns the cached plan of the class, computing it on the first call.
+	 *
+	 * @param type Represents the class to be walked.
+	 * @return FieldPlan Represents the plan of the class.
+	 */
+	public static FieldPlan forClass(Class<?> type) {
+		FieldPlan plan = PLANS.get(type);
+		if (plan == null) {
+			plan = new FieldPlan(type);
+			FieldPlan existing = PLANS.putIfAbsent(type, plan);
+			if (existing != null)
+				plan = existing;
+		}
+		return plan;
+	}
+
+	/**
+	 * Returns the number of fields in the plan.
+	 */
+	public int size() {
+		return fields.length;
+	}
+
+	/**
+	 * Returns the field at the index of the walk order.
+	 *
+	 * @param index Represents the index of the field.
+	 * @return FieldMetadata Represents the metadata of the field.
+	 */
+	public FieldMetadata get(int index) {
+		return fields[index];
+	}
+
+}
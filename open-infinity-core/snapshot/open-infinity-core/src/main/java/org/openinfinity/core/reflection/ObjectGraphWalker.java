@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.reflection;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Walks the object graph of an argument through the fields of the <code>org.openinfinity.core.reflection.FieldPlan</code> of every reached object.
+ * Values of the fields are descended into when the visitor asks for it and the value is an object, a collection, a map or an array of objects,
+ * so that nested value objects and collections such as <code>BaseEntity.updateInformations</code> are reached. Classes of the
+ * <code>java</code> and <code>javax</code> packages are not descended into, their fields are values.
+ * <br/><br/>
+ * The cost of a walk is bounded: objects are visited once by identity, so cycles end the descent, the fields of the argument have the depth
+ * <code>0</code> and fields deeper than the maximum depth are not visited, at most the maximum number of elements of a collection, a map or
+ * an array are visited and the walk ends after the maximum number of objects. The walker is immutable and can be shared by threads.
+ * <br/><br/>
+ * Usage: <br/><br/>
+ * <code>
+ * new ObjectGraphWalker(2, 100, 1000).walk(argument, visitor);
+ * </code>
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public final class ObjectGraphWalker {
+
+	/**
+	 * Represents the maximum depth of the visited fields.
+	 */
+	private final int maxDepth;
+
+	/**
+	 * Represents the maximum number of visited elements of a collection, a map or an array.
+	 */
+	private final int maxElements;
+
+	/**
+	 * Represents the maximum number of objects visited by a walk.
+	 */
+	private final int maxObjects;
+
+	/**
+	 * Creates a walker.
+	 *
+	 * @param maxDepth Represents the maximum depth of the visited fields, <code>0</code> visits only the fields of the argument.
+	 * @param maxElements Represents the maximum number of visited elements of a collection, a map or an array.
+	 * @param maxObjects Represents the maximum number of objects, collections, maps and arrays visited by a walk.
+	 */
+	public ObjectGraphWalker(int maxDepth, int maxElements, int maxObjects) {
+		if (maxDepth < 0 || maxElements < 0 || maxObjects < 1)
+			throw new IllegalArgumentException("Invalid limits [" + maxDepth + ", " + maxElements + ", " + maxObjects + "]");
+		this.maxDepth = maxDepth;
+		this.maxElements = maxElements;
+		this.maxObjects = maxObjects;
+	}
+
+	/**
+	 * Returns the maximum depth of the visited fields.
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Returns the maximum number of visited elements of a collection, a map or an array.
+	 */
+	public int getMaxElements() {
+		return maxElements;
+	}
+
+	/**
+	 * Returns the maximum number of objects visited by a walk.
+	 */
+	public int getMaxObjects() {
+		return maxObjects;
+	}
+
+	/**
+	 * Returns <code>true</code> if the fields of the values reached from the fields at the depth are visited.
+	 *
+	 * @param depth Represents the depth of a field.
+	 */
+	public boolean canDescend(int depth) {
+		return depth < maxDepth;
+	}
+
+	/**
+	 * Returns <code>true</code> if the value is an object, a collection, a map or an array of objects the walker can descend into.
+	 *
+	 * @param value Represents the value of a field.
+	 */
+	public static boolean isNavigable(Object value) {
+		if (value == null)
+			return false;
+		Class<?> type = value.getClass();
+		switch (FieldKind.valueOf(type)) {
+			case OBJECT : return !isPlatformType(type);
+			case COLLECTION : case MAP : return true;
+			case ARRAY : return !type.getComponentType().isPrimitive();
+			default : return false;
+		}
+	}
+
+	private static boolean isPlatformType(Class<?> type) {
+		String name = type.getName();
+		return name.startsWith("java.") || name.startsWith("javax.");
+	}
+
+	/**
+	 * Walks the object graph of the argument. A collection, a map or an array as the argument is walked through its elements.
+	 *
+	 * @param root Represents the argument.
+	 * @param visitor Represents the visitor of the fields.
+	 */
+	public void walk(Object root, Visitor visitor) {
+		if (isNavigable(root))
+			new Walk(visitor).walkValue(root, 0);
+	}
+
+	/**
+	 * Visitor of the fields reached by the walker.
+	 */
+	public interface Visitor {
+
+		/**
+		 * Visits a field of an object in the graph.
+		 *
+		 * @param owner Represents the object holding the field.
+		 * @param field Represents the metadata of the field.
+		 * @param value Represents the value of the field.
+		 * @param path Represents the path of the field from the argument, for example <code>updateInformations[0].user</code>,
+		 * valid only during the call.
+		 * @param depth Represents the depth of the field, <code>0</code> for the fields of the argument.
+		 * @return boolean <code>true</code> to descend into the value, effective when the value is navigable and the depth is below the maximum.
+		 */
+		boolean visitField(Object owner, FieldMetadata field, Object value, CharSequence path, int depth);
+
+	}
+
+	/**
+	 * Represents the state of a single walk.
+	 */
+	private final class Walk {
+
+		private final Visitor visitor;
+
+		private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+		private final StringBuilder path = new StringBuilder();
+
+		Walk(Visitor visitor) {
+			this.visitor = visitor;
+		}
+
+		void walkValue(Object value, int depth) {
+			if (visited.size() >= maxObjects || !visited.add(value))
+				return;
+			if (value instanceof Collection) {
+				int index = 0;
+				for (Object element : (Collection<?>) value) {
+					if (index >= maxElements)
+						return;
+					walkElement(element, index++, depth);
+				}
+			} else if (value instanceof Map) {
+				int index = 0;
+				for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+					if (index++ >= maxElements)
+						return;
+					walkElement(entry.getValue(), entry.getKey(), depth);
+				}
+			} else if (value instanceof Object[]) {
+				Object[] elements = (Object[]) value;
+				for (int i = 0; i < elements.length && i < maxElements; i++)
+					walkElement(elements[i], i, depth);
+			} else {
+				walkFields(value, depth);
+			}
+		}
+
+		private void walkElement(Object element, Object key, int depth) {
+			if (!isNavigable(element))
+				return;
+			int length = path.length();
+			path.append('[').append(key).append(']');
+			walkValue(element, depth);
+			path.setLength(length);
+		}
+
+		private void walkFields(Object object, int depth) {
+			FieldPlan fieldPlan = FieldPlan.forClass(object.getClass());
+			for (int i = 0; i < fieldPlan.size(); i++) {
+				FieldMetadata field = fieldPlan.get(i);
+				Object value = field.getValue(object);
+				int length = path.length();
+				if (length > 0)
+					path.append('.');
+				path.append(field.getName());
+				if (visitor.visitField(object, field, value, path, depth) && canDescend(depth) && isNavigable(value))
+					walkValue(value, depth + 1);
+				path.setLength(length);
+			}
+		}
+
+	}
+
+}
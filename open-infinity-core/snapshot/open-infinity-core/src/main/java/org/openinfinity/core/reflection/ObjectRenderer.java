@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.reflection;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * Renders objects into a caller supplied <code>java.lang.StringBuilder</code> within limits of the string length, the number of
+ * elements of collections, maps and arrays, and the nesting depth. The rendering of every class is computed once and cached: the
+ * type tag, whether the class renders itself with <code>toString</code> and the labels and the metadata of the instance fields.
+ * <br/><br/>
+ * Objects are rendered by their fields, <code>className@identityHashCode[field=value,...]</code>, and values by their own rules:
+ * <br/>
+ * <ul>
+ * 		<li>strings, numbers and other values, and objects implementing <code>toString</code> - the text truncated to the maximum string length</li>
+ * 		<li>collections and arrays - <code>[element, element, ...N more]</code>, <code>[size=N]</code> at the maximum depth</li>
+ * 		<li>maps - <code>{key=value, ...N more}</code>, <code>{size=N}</code> at the maximum depth</li>
+ * 		<li>objects rendered by their fields - <code>className@identityHashCode</code> at the maximum depth and when already being rendered</li>
+ * </ul>
+ * The renderer is immutable and can be shared by threads.
+ * <br/><br/>
+ * Usage: <br/><br/>
+ * <code>
+ * ObjectRenderer.DEFAULT.appendFields(builder, object);
+ * </code>
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public final class ObjectRenderer {
+
+	/**
+	 * Represents the default maximum length of a rendered string.
+	 */
+	public static final int DEFAULT_MAX_STRING_LENGTH = 256;
+
+	/**
+	 * Represents the default maximum number of rendered elements of a collection, a map or an array.
+	 */
+	public static final int DEFAULT_MAX_ELEMENTS = 16;
+
+	/**
+	 * Represents the default maximum nesting depth.
+	 */
+	public static final int DEFAULT_MAX_DEPTH = 2;
+
+	/**
+	 * Represents the renderer with the default limits.
+	 */
+	public static final ObjectRenderer DEFAULT = new ObjectRenderer(DEFAULT_MAX_STRING_LENGTH, DEFAULT_MAX_ELEMENTS, DEFAULT_MAX_DEPTH);
+
+	/**
+	 * Represents the computed renderings by the class.
+	 */
+	private static final ConcurrentMap<Class<?>, ClassRendering> RENDERINGS = new ConcurrentHashMap<Class<?>, ClassRendering>();
+
+	/**
+	 * Represents the maximum length of a rendered string.
+	 */
+	private final int maxStringLength;
+
+	/**
+	 * Represents the maximum number of rendered elements of a collection, a map or an array.
+	 */
+	private final int maxElements;
+
+	/**
+	 * Represents the maximum nesting depth.
+	 */
+	private final int maxDepth;
+
+	/**
+	 * Creates a renderer.
+	 *
+	 * @param maxStringLength Represents the maximum length of a rendered string.
+	 * @param maxElements Represents the maximum number of rendered elements of a collection, a map or an array.
+	 * @param maxDepth Represents the maximum nesting depth, <code>0</code> renders the nested objects, collections, maps and arrays as summaries.
+	 */
+	public ObjectRenderer(int maxStringLength, int maxElements, int maxDepth) {
+		if (maxStringLength < 0 || maxElements < 0 || maxDepth < 0)
+			throw new IllegalArgumentException("Invalid limits [" + maxStringLength + ", " + maxElements + ", " + maxDepth + "]");
+		this.maxStringLength = maxStringLength;
+		this.maxElements = maxElements;
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Returns the maximum length of a rendered string.
+	 */
+	public int getMaxStringLength() {
+		return maxStringLength;
+	}
+
+	/**
+	 * Returns the maximum number of rendered elements of a collection, a map or an array.
+	 */
+	public int getMaxElements() {
+		return maxElements;
+	}
+
+	/**
+	 * Returns the maximum nesting depth.
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Appends the object rendered by its fields, also when the class implements <code>toString</code>, so that the method can be used
+	 * to implement <code>toString</code>. The fields holding objects which do not implement <code>toString</code> are rendered by
+	 * their fields as well.
+	 *
+	 * @param builder Represents the buffer.
+	 * @param object Represents the object.
+	 * @return StringBuilder Represents the buffer.
+	 */
+	public StringBuilder appendFields(StringBuilder builder, Object object) {
+		if (object == null)
+			return builder.append("null");
+		new Rendering(builder, true).appendFields(object, forClass(object.getClass()), 0);
+		return builder;
+	}
+
+	/**
+	 * Appends the value rendered by its own rules, objects are rendered with <code>toString</code> truncated to the maximum
+	 * string length.
+	 *
+	 * @param builder Represents the buffer.
+	 * @param value Represents the value.
+	 * @return StringBuilder Represents the buffer.
+	 */
+	public StringBuilder appendValue(StringBuilder builder, Object value) {
+		new Rendering(builder, false).appendValue(value, 0);
+		return builder;
+	}
+
+	private static ClassRendering forClass(Class<?> type) {
+		ClassRendering rendering = RENDERINGS.get(type);
+		if (rendering == null) {
+			rendering = new ClassRendering(type);
+			ClassRendering existing = RENDERINGS.putIfAbsent(type, rendering);
+			if (existing != null)
+				rendering = existing;
+		}
+		return rendering;
+	}
+
+	/**
+	 * Represents the cached rendering of a class.
+	 */
+	private static final class ClassRendering {
+
+		private final FieldKind kind;
+
+		private final boolean renderedByFields;
+
+		private final String prefix;
+
+		private final FieldMetadata[] fields;
+
+		private final String[] labels;
+
+		ClassRendering(Class<?> type) {
+			this.kind = FieldKind.valueOf(type);
+			this.renderedByFields = kind == FieldKind.OBJECT && !isPlatformType(type) && !implementsToString(type);
+			this.prefix = type.getName() + "@";
+			List<FieldMetadata> instanceFields = new ArrayList<FieldMetadata>();
+			if (kind == FieldKind.OBJECT && !isPlatformType(type)) {
+				for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+					for (Field field : current.getDeclaredFields()) {
+						if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic())
+							instanceFields.add(new FieldMetadata(type, field));
+					}
+				}
+			}
+			this.fields = instanceFields.toArray(new FieldMetadata[instanceFields.size()]);
+			this.labels = new String[fields.length];
+			for (int i = 0; i < fields.length; i++)
+				labels[i] = (i > 0 ? "," : "") + fields[i].getName() + "=";
+		}
+
+		private static boolean isPlatformType(Class<?> type) {
+			String name = type.getName();
+			return name.startsWith("java.") || name.startsWith("javax.");
+		}
+
+		private static boolean implementsToString(Class<?> type) {
+			return ReflectionUtils.findMethod(type, "toString").getDeclaringClass() != Object.class;
+		}
+
+	}
+
+	/**
+	 * Represents the state of a single rendering.
+	 */
+	private final class Rendering {
+
+		private final StringBuilder builder;
+
+		private final boolean renderingFields;
+
+		private final Set<Object> rendered;
+
+		Rendering(StringBuilder builder, boolean renderingFields) {
+			this.builder = builder;
+			this.renderingFields = renderingFields;
+			this.rendered = renderingFields ? Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>()) : null;
+		}
+
+		void appendValue(Object value, int depth) {
+			if (value == null) {
+				builder.append("null");
+				return;
+			}
+			ClassRendering rendering = forClass(value.getClass());
+			switch (rendering.kind) {
+				case ARRAY : appendArray(value, depth); break;
+				case COLLECTION : appendCollection((Collection<?>) value, depth); break;
+				case MAP : appendMap((Map<?, ?>) value, depth); break;
+				case OBJECT : appendObject(value, rendering, depth); break;
+				default : appendText(value instanceof CharSequence ? (CharSequence) value : String.valueOf(value));
+			}
+		}
+
+		private void appendObject(Object object, ClassRendering rendering, int depth) {
+			if (!renderingFields || !rendering.renderedByFields)
+				appendText(String.valueOf(object));
+			else if (depth < maxDepth && !rendered.contains(object))
+				appendFields(object, rendering, depth + 1);
+			else
+				appendIdentity(object, rendering);
+		}
+
+		void appendFields(Object object, ClassRendering rendering, int depth) {
+			rendered.add(object);
+			appendIdentity(object, rendering);
+			builder.append('[');
+			for (int i = 0; i < rendering.fields.length; i++) {
+				builder.append(rendering.labels[i]);
+				appendValue(rendering.fields[i].getValue(object), depth);
+			}
+			builder.append(']');
+			rendered.remove(object);
+		}
+
+		private void appendIdentity(Object object, ClassRendering rendering) {
+			builder.append(rendering.prefix).append(Integer.toHexString(System.identityHashCode(object)));
+		}
+
+		private void appendText(CharSequence text) {
+			if (text.length() <= maxStringLength)
+				builder.append(text);
+			else
+				builder.append(text, 0, maxStringLength).append("...");
+		}
+
+		private void appendCollection(Collection<?> collection, int depth) {
+			int size = collection.size();
+			if (depth >= maxDepth && size > 0) {
+				builder.append("[size=").append(size).append(']');
+				return;
+			}
+			builder.append('[');
+			Iterator<?> iterator = collection.iterator();
+			for (int i = 0; i < maxElements && iterator.hasNext(); i++) {
+				if (i > 0)
+					builder.append(", ");
+				appendValue(iterator.next(), depth + 1);
+			}
+			appendRemaining(size);
+			builder.append(']');
+		}
+
+		private void appendMap(Map<?, ?> map, int depth) {
+			int size = map.size();
+			if (depth >= maxDepth && size > 0) {
+				builder.append("{size=").append(size).append('}');
+				return;
+			}
+			builder.append('{');
+			Iterator<? extends Map.Entry<?, ?>> iterator = map.entrySet().iterator();
+			for (int i = 0; i < maxElements && iterator.hasNext(); i++) {
+				Map.Entry<?, ?> entry = iterator.next();
+				if (i > 0)
+					builder.append(", ");
+				appendValue(entry.getKey(), depth + 1);
+				builder.append('=');
+				appendValue(entry.getValue(), depth + 1);
+			}
+			appendRemaining(size);
+			builder.append('}');
+		}
+
+		private void appendArray(Object array, int depth) {
+			int length = Array.getLength(array);
+			if (depth >= maxDepth && length > 0) {
+				builder.append("[size=").append(length).append(']');
+				return;
+			}
+			builder.append('[');
+			for (int i = 0; i < maxElements && i < length; i++) {
+				if (i > 0)
+					builder.append(", ");
+				appendValue(Array.get(array, i), depth + 1);
+			}
+			appendRemaining(length);
+			builder.append(']');
+		}
+
+		private void appendRemaining(int size) {
+			if (size > maxElements)
+				builder.append(maxElements > 0 ? ", ..." : "...").append(size - maxElements).append(" more");
+		}
+
+	}
+
+}
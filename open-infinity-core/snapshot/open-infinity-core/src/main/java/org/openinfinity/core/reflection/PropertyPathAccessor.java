@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.reflection;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+import org.apache.commons.jxpath.CompiledExpression;
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.JXPathException;
+import org.apache.commons.jxpath.JXPathNotFoundException;
+import org.springframework.beans.BeanUtils;
+
+/**
+ * Compiled accessor of a property path such as <code>name</code> or <code>auto/tire/screw</code> used in the <code>value()</code> of 
+ * <code>org.openinfinity.core.annotation.Log</code>, <code>org.openinfinity.core.annotation.AuditTrail</code>, 
+ * <code>org.openinfinity.core.annotation.Encrypt</code> and <code>org.openinfinity.core.annotation.Decrypt</code>.
+ * Accessors are compiled once per argument class and path into a chain of getter methods and cached. Paths which are not plain 
+ * property names separated by slashes, and paths crossing collections or arrays, are evaluated by a precompiled JXPath expression, 
+ * so that the results are the same as with <code>JXPathContext.getValue</code>. 
+ * Paths not readable from the argument class are cached as missing.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public final class PropertyPathAccessor {
+	
+	/**
+	 * Represents the property paths which can be compiled into getter chains.
+	 */
+	static final Pattern SIMPLE_PATH = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*(/[A-Za-z_$][A-Za-z0-9_$]*)*");
+	
+	/**
+	 * Represents the compiled accessors by the argument class and the path.
+	 */
+	private static final ConcurrentMap<Class<?>, ConcurrentMap<String, PropertyPathAccessor>> ACCESSORS = 
+			new ConcurrentHashMap<Class<?>, ConcurrentMap<String, PropertyPathAccessor>>();
+	
+	/**
+	 * Represents the property path.
+	 */
+	private final String path;
+	
+	/**
+	 * Represents the getter chain, <code>null</code> when the path is evaluated by JXPath or is missing.
+	 */
+	private final Step[] steps;
+	
+	/**
+	 * Represents the precompiled JXPath expression used for the paths which can not be compiled into getter chains.
+	 */
+	private final CompiledExpression expression;
+	
+	/**
+	 * Represents whether the path can not be read from the argument class.
+	 */
+	private final boolean missing;
+	
+	/**
+	 * Represents whether the missing path has been reported.
+	 */
+	private final AtomicBoolean missingReported = new AtomicBoolean();
+	
+	private PropertyPathAccessor(String path, Step[] steps, CompiledExpression expression, boolean missing) {
+		this.path = path;
+		this.steps = steps;
+		this.expression = expression;
+		this.missing = missing;
+	}
+	
+	/**
+	 * Returns the compiled accessor of the path for the argument class.
+	 * 
+	 * @param type Represents the class of the argument.
+	 * @param path Represents the property path.
+	 * @return PropertyPathAccessor Represents the cached accessor.
+	 */
+	public static PropertyPathAccessor forPath(Class<?> type, String path) {
+		ConcurrentMap<String, PropertyPathAccessor> accessors = ACCESSORS.get(type);
+		if (accessors == null) {
+			accessors = new ConcurrentHashMap<String, PropertyPathAccessor>();
+			ConcurrentMap<String, PropertyPathAccessor> existing = ACCESSORS.putIfAbsent(type, accessors);
+			if (existing != null)
+				accessors = existing;
+		}
+		PropertyPathAccessor accessor = accessors.get(path);
+		if (accessor == null) {
+			accessor = compile(type, path);
+			PropertyPathAccessor existing = accessors.putIfAbsent(path, accessor);
+			if (existing != null)
+				accessor = existing;
+		}
+		return accessor;
+	}
+	
+	private static PropertyPathAccessor compile(Class<?> type, String path) {
+		CompiledExpression expression = JXPathContext.compile(path);
+		if (!SIMPLE_PATH.matcher(path).matches() || isEvaluatedByJXPath(type))
+			return new PropertyPathAccessor(path, null, expression, false);
+		String[] names = path.split("/");
+		Step[] steps = new Step[names.length];
+		for (int i = 0; i < names.length; i++) {
+			steps[i] = new Step(names[i]);
+		}
+		Getter first = Getter.resolve(type, names[0]);
+		if (first.isMissing())
+			return new PropertyPathAccessor(path, null, null, true);
+		steps[0].cached = first;
+		return new PropertyPathAccessor(path, steps, expression, false);
+	}
+	
+	private static boolean isEvaluatedByJXPath(Class<?> type) {
+		return type.isArray() || Collection.class.isAssignableFrom(type) || org.w3c.dom.Node.class.isAssignableFrom(type);
+	}
+	
+	/**
+	 * Returns the property path.
+	 */
+	public String getPath() {
+		return path;
+	}
+	
+	/**
+	 * Returns <code>true</code> if the path can not be read from the argument class. Missing paths are not evaluated.
+	 */
+	public boolean isMissing() {
+		return missing;
+	}
+	
+	/**
+	 * Returns <code>true</code> only for the first call on a missing path, so that the missing path is reported once.
+	 */
+	public boolean reportMissing() {
+		return missing && missingReported.compareAndSet(false, true);
+	}
+	
+	/**
+	 * Returns the value of the path.
+	 * 
+	 * @param root Represents the argument the path is evaluated on.
+	 * @return Object Represents the value, <code>null</code> when the last property is <code>null</code>.
+	 * @throws JXPathException Thrown when the path has no value, like <code>JXPathContext.getValue</code>.
+	 */
+	public Object getValue(Object root) {
+		if (missing || root == null)
+			throw new JXPathNotFoundException("No value for xpath: " + path);
+		if (steps == null)
+			return expression.getValue(JXPathContext.newContext(root));
+		Object value = root;
+		for (int i = 0; i < steps.length; i++) {
+			if (value == null)
+				throw new JXPathNotFoundException("No value for xpath: " + path);
+			if (i > 0 && isEvaluatedByJXPath(value.getClass()))
+				return expression.getValue(JXPathContext.newContext(root));
+			value = steps[i].get(value, path);
+		}
+		return value;
+	}
+	
+	/**
+	 * Represents a single property of the path with the getter of the last seen class.
+	 */
+	private static final class Step {
+		
+		private final String name;
+		
+		private volatile Getter cached;
+		
+		Step(String name) {
+			this.name = name;
+		}
+		
+		Object get(Object target, String path) {
+			Getter getter = cached;
+			if (getter == null || getter.type != target.getClass()) {
+				getter = Getter.resolve(target.getClass(), name);
+				cached = getter;
+			}
+			return getter.get(target, path);
+		}
+		
+	}
+	
+	/**
+	 * Represents the resolved read access of a property on a class.
+	 */
+	private static final class Getter {
+		
+		private final Class<?> type;
+		
+		private final Method method;
+		
+		private final String key;
+		
+		private Getter(Class<?> type, Method method, String key) {
+			this.type = type;
+			this.method = method;
+			this.key = key;
+		}
+		
+		static Getter resolve(Class<?> type, String name) {
+			if (Map.class.isAssignableFrom(type))
+				return new Getter(type, null, name);
+			PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(type, name);
+			if (descriptor == null || descriptor.getReadMethod() == null)
+				return new Getter(type, null, null);
+			Method method = descriptor.getReadMethod();
+			if (!method.isAccessible())
+				method.setAccessible(true);
+			return new Getter(type, method, null);
+		}
+		
+		boolean isMissing() {
+			return method == null && key == null;
+		}
+		
+		Object get(Object target, String path) {
+			if (key != null)
+				return ((Map<?, ?>) target).get(key);
+			if (method == null)
+				throw new JXPathNotFoundException("No value for xpath: " + path);
+			try {
+				return method.invoke(target);
+			} catch (IllegalAccessException e) {
+				throw new JXPathException("Cannot access property: " + path, e);
+			} catch (InvocationTargetException e) {
+				throw new JXPathException("Cannot access property: " + path, e.getTargetException());
+			}
+		}
+		
+	}
+	
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.reflection;
+
+/**
+ * Appends the value of a property path of an argument to a buffer as <code>className.path=[value] </code>, the format of 
+ * the CUSTOM argument strategy. Implementations are generated by <code>org.openinfinity.core.reflection.PropertyPathAppenderGenerator</code>
+ * for a single argument class and path, and invoke the getters of the path directly.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public interface PropertyPathAppender {
+
+	/**
+	 * Represents the result when the value has been appended.
+	 */
+	int APPENDED = 0;
+
+	/**
+	 * Represents the result when an intermediate value of the path is <code>null</code>, nothing has been appended.
+	 */
+	int NO_VALUE = 1;
+
+	/**
+	 * Represents the result when the path must be evaluated by <code>org.openinfinity.core.reflection.PropertyPathAccessor</code>, 
+	 * nothing has been appended.
+	 */
+	int UNSUPPORTED = 2;
+
+	/**
+	 * Appends the value of the path.
+	 *
+	 * @param argument Represents the argument, an instance of the class the appender has been generated for.
+	 * @param builder Represents the buffer.
+	 * @return int Represents the result, <code>APPENDED</code>, <code>NO_VALUE</code> or <code>UNSUPPORTED</code>.
+	 */
+	int append(Object argument, StringBuilder builder);
+
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.reflection;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openinfinity.core.util.StringUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.beans.BeanUtils;
+
+/**
+ * Generates <code>org.openinfinity.core.reflection.PropertyPathAppender</code> classes with ASM for an argument class and a property path.
+ * The generated class casts the argument to its class, invokes the getters of the path directly, checks the intermediate values for
+ * <code>null</code> and appends the class name, the path and the value to the buffer without reflection or boxing of primitive values,
+ * the same code which would be written by hand. Object values are rendered with <code>org.openinfinity.core.util.StringUtil.appendValue</code>. The output equals the CUSTOM argument strategy evaluated with
+ * <code>org.openinfinity.core.reflection.PropertyPathAccessor</code>.
+ * <br/><br/>
+ * Appenders are generated on the first use and cached by the class and the path. Only paths of plain property names on public classes
+ * with public getters are generated. Any other path, and a path crossing a collection, a map or a DOM node at runtime, is reported as
+ * <code>UNSUPPORTED</code>, so that the caller evaluates it with <code>org.openinfinity.core.reflection.PropertyPathAccessor</code>.
+ * The classes are defined by a class loader per argument class loader and do not require access to non-public members.
+ * <br/><br/>
+ * The caches hold the argument classes and their class loaders strongly, so the library is meant to be deployed with the application, 
+ * for example in <code>WEB-INF/lib</code>, where the caches are released with the class loader of the application. Deployed to a class 
+ * loader shared by several applications, the caches keep the class loaders of the undeployed applications.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.1.0 - Object values are rendered within the limits of StringUtil.
+ * @since 1.6.0
+ */
+public final class PropertyPathAppenderGenerator {
+
+	/**
+	 * Logger for this class.
+	 */
+	private static final Logger LOGGER = LoggerFactory.getLogger(PropertyPathAppenderGenerator.class);
+
+	/**
+	 * Represents the appender of the paths which can not be generated.
+	 */
+	public static final PropertyPathAppender UNSUPPORTED_APPENDER = new PropertyPathAppender() {
+		public int append(Object argument, StringBuilder builder) {
+			return UNSUPPORTED;
+		}
+	};
+
+	/**
+	 * Represents the types which are evaluated by <code>org.openinfinity.core.reflection.PropertyPathAccessor</code> when met as intermediate values.
+	 */
+	private static final Class<?>[] UNSUPPORTED_TYPES = {Collection.class, Map.class, org.w3c.dom.Node.class};
+
+	/**
+	 * Represents the internal name of the appender interface.
+	 */
+	private static final String APPENDER_TYPE = Type.getInternalName(PropertyPathAppender.class);
+
+	/**
+	 * Represents the internal name of the buffer.
+	 */
+	private static final String BUILDER_TYPE = Type.getInternalName(StringBuilder.class);
+
+	/**
+	 * Represents the descriptor of the method rendering the object values.
+	 */
+	private static final String APPEND_VALUE_DESCRIPTOR = "(L" + BUILDER_TYPE + ";Ljava/lang/Object;)L" + BUILDER_TYPE + ";";
+
+	/**
+	 * Represents the descriptor of the generated append method.
+	 */
+	private static final String APPEND_DESCRIPTOR = "(Ljava/lang/Object;Ljava/lang/StringBuilder;)I";
+
+	/**
+	 * Represents the local variable holding the value of the path.
+	 */
+	private static final int VALUE_VARIABLE = 3;
+
+	/**
+	 * Represents the generated appenders by the argument class and the path.
+	 */
+	private static final ConcurrentMap<Class<?>, ConcurrentMap<String, PropertyPathAppender>> APPENDERS =
+			new ConcurrentHashMap<Class<?>, ConcurrentMap<String, PropertyPathAppender>>();
+
+	/**
+	 * Represents the class loaders of the generated classes by the class loader of the argument classes.
+	 */
+	private static final ConcurrentMap<ClassLoader, GeneratingClassLoader> CLASS_LOADERS = new ConcurrentHashMap<ClassLoader, GeneratingClassLoader>();
+
+	/**
+	 * Represents the sequence of the generated class names.
+	 */
+	private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+	private PropertyPathAppenderGenerator() {}
+
+	/**
+	 * Returns the cached appender of the path for the argument class, generating it on the first call.
+	 *
+	 * @param type Represents the class of the argument.
+	 * @param path Represents the property path.
+	 * @return PropertyPathAppender Represents the appender, an appender returning <code>UNSUPPORTED</code> when the path can not be generated.
+	 */
+	public static PropertyPathAppender forPath(Class<?> type, String path) {
+		ConcurrentMap<String, PropertyPathAppender> appenders = APPENDERS.get(type);
+		if (appenders == null) {
+			appenders = new ConcurrentHashMap<String, PropertyPathAppender>();
+			ConcurrentMap<String, PropertyPathAppender> existing = APPENDERS.putIfAbsent(type, appenders);
+			if (existing != null)
+				appenders = existing;
+		}
+		PropertyPathAppender appender = appenders.get(path);
+		if (appender == null) {
+			appender = generate(type, path);
+			PropertyPathAppender existing = appenders.putIfAbsent(path, appender);
+			if (existing != null)
+				appender = existing;
+		}
+		return appender;
+	}
+
+	/**
+	 * Returns <code>true</code> if the appender has been generated, <code>false</code> for the paths which can not be generated.
+	 *
+	 * @param appender Represents the appender returned by <code>forPath</code>.
+	 */
+	public static boolean isGenerated(PropertyPathAppender appender) {
+		return appender != UNSUPPORTED_APPENDER;
+	}
+
+	private static PropertyPathAppender generate(Class<?> type, String path) {
+		Method[] getters = resolveGetters(type, path);
+		if (getters == null)
+			return UNSUPPORTED_APPENDER;
+		try {
+			String className = PropertyPathAppender.class.getName() + "$$Generated" + SEQUENCE.incrementAndGet();
+			byte[] bytes = createClass(className.replace('.', '/'), type, path, getters);
+			return (PropertyPathAppender) getClassLoader(type).define(className, bytes).newInstance();
+		} catch (Throwable throwable) {
+			LOGGER.warn("Generating the appender of " + type.getName() + "." + path + " failed, the path is evaluated by reflection.", throwable);
+			return UNSUPPORTED_APPENDER;
+		}
+	}
+
+	private static Method[] resolveGetters(Class<?> type, String path) {
+		if (!PropertyPathAccessor.SIMPLE_PATH.matcher(path).matches() || !isNavigable(type))
+			return null;
+		String[] names = path.split("/");
+		Method[] getters = new Method[names.length];
+		Class<?> current = type;
+		for (int i = 0; i < names.length; i++) {
+			if (!isNavigable(current))
+				return null;
+			PropertyDescriptor descriptor = BeanUtils.getPropertyDescriptor(current, names[i]);
+			if (descriptor == null || descriptor.getReadMethod() == null)
+				return null;
+			Method getter = descriptor.getReadMethod();
+			if (!Modifier.isPublic(getter.getModifiers()) || !isPublic(getter.getDeclaringClass()))
+				return null;
+			getters[i] = getter;
+			current = getter.getReturnType();
+		}
+		return getters;
+	}
+
+	private static boolean isNavigable(Class<?> type) {
+		if (type.isPrimitive() || type.isArray() || type == Object.class || !isPublic(type))
+			return false;
+		for (Class<?> unsupportedType : UNSUPPORTED_TYPES) {
+			if (unsupportedType.isAssignableFrom(type))
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isPublic(Class<?> type) {
+		for (Class<?> current = type; current != null; current = current.getEnclosingClass()) {
+			if (!Modifier.isPublic(current.getModifiers()))
+				return false;
+		}
+		return true;
+	}
+
+	private static byte[] createClass(String className, Class<?> type, String path, Method[] getters) {
+		ClassWriter classWriter = new ClassWriter(true);
+		classWriter.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, className, null, "java/lang/Object", new String[] {APPENDER_TYPE});
+		MethodVisitor constructor = classWriter.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		constructor.visitCode();
+		constructor.visitVarInsn(Opcodes.ALOAD, 0);
+		constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+		constructor.visitInsn(Opcodes.RETURN);
+		constructor.visitMaxs(0, 0);
+		constructor.visitEnd();
+		MethodVisitor append = classWriter.visitMethod(Opcodes.ACC_PUBLIC, "append", APPEND_DESCRIPTOR, null, null);
+		append.visitCode();
+		append.visitVarInsn(Opcodes.ALOAD, 1);
+		append.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(type));
+		Class<?> owner = type;
+		for (int i = 0; i < getters.length; i++) {
+			if (i > 0)
+				visitIntermediateValueChecks(append, owner);
+			append.visitMethodInsn(owner.isInterface() ? Opcodes.INVOKEINTERFACE : Opcodes.INVOKEVIRTUAL,
+					Type.getInternalName(owner), getters[i].getName(), Type.getMethodDescriptor(getters[i]));
+			owner = getters[i].getReturnType();
+		}
+		Type valueType = Type.getType(owner);
+		append.visitVarInsn(valueType.getOpcode(Opcodes.ISTORE), VALUE_VARIABLE);
+		append.visitVarInsn(Opcodes.ALOAD, 2);
+		visitAppendString(append, type.getName() + "." + path + "=[");
+		append.visitVarInsn(valueType.getOpcode(Opcodes.ILOAD), VALUE_VARIABLE);
+		if (owner.isPrimitive()) {
+			append.visitMethodInsn(Opcodes.INVOKEVIRTUAL, BUILDER_TYPE, "append", "(" + getAppendedDescriptor(owner) + ")L" + BUILDER_TYPE + ";");
+		} else {
+			Label notNull = new Label();
+			append.visitInsn(Opcodes.DUP);
+			append.visitJumpInsn(Opcodes.IFNONNULL, notNull);
+			append.visitInsn(Opcodes.POP);
+			append.visitLdcInsn("null value");
+			append.visitLabel(notNull);
+			append.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(StringUtil.class), "appendValue", APPEND_VALUE_DESCRIPTOR);
+		}
+		visitAppendString(append, "] ");
+		append.visitInsn(Opcodes.POP);
+		append.visitInsn(Opcodes.ICONST_0 + PropertyPathAppender.APPENDED);
+		append.visitInsn(Opcodes.IRETURN);
+		append.visitMaxs(0, 0);
+		append.visitEnd();
+		classWriter.visitEnd();
+		return classWriter.toByteArray();
+	}
+
+	private static void visitIntermediateValueChecks(MethodVisitor append, Class<?> type) {
+		Label notNull = new Label();
+		append.visitInsn(Opcodes.DUP);
+		append.visitJumpInsn(Opcodes.IFNONNULL, notNull);
+		append.visitInsn(Opcodes.POP);
+		append.visitInsn(Opcodes.ICONST_0 + PropertyPathAppender.NO_VALUE);
+		append.visitInsn(Opcodes.IRETURN);
+		append.visitLabel(notNull);
+		if (Modifier.isFinal(type.getModifiers()))
+			return;
+		for (Class<?> unsupportedType : UNSUPPORTED_TYPES) {
+			Label supported = new Label();
+			append.visitInsn(Opcodes.DUP);
+			append.visitTypeInsn(Opcodes.INSTANCEOF, Type.getInternalName(unsupportedType));
+			append.visitJumpInsn(Opcodes.IFEQ, supported);
+			append.visitInsn(Opcodes.POP);
+			append.visitInsn(Opcodes.ICONST_0 + PropertyPathAppender.UNSUPPORTED);
+			append.visitInsn(Opcodes.IRETURN);
+			append.visitLabel(supported);
+		}
+	}
+
+	private static void visitAppendString(MethodVisitor append, String text) {
+		append.visitLdcInsn(text);
+		append.visitMethodInsn(Opcodes.INVOKEVIRTUAL, BUILDER_TYPE, "append", "(Ljava/lang/String;)L" + BUILDER_TYPE + ";");
+	}
+
+	private static String getAppendedDescriptor(Class<?> type) {
+		if (type == byte.class || type == short.class)
+			return "I";
+		return Type.getDescriptor(type);
+	}
+
+	private static GeneratingClassLoader getClassLoader(Class<?> type) {
+		ClassLoader parent = type.getClassLoader() != null ? type.getClassLoader() : PropertyPathAppender.class.getClassLoader();
+		GeneratingClassLoader classLoader = CLASS_LOADERS.get(parent);
+		if (classLoader == null) {
+			classLoader = new GeneratingClassLoader(parent);
+			GeneratingClassLoader existing = CLASS_LOADERS.putIfAbsent(parent, classLoader);
+			if (existing != null)
+				classLoader = existing;
+		}
+		return classLoader;
+	}
+
+	/**
+	 * Class loader defining the generated classes on top of the class loader of the argument classes. The appender interface and 
+	 * <code>org.openinfinity.core.util.StringUtil</code> are resolved from the class loader of this class, so that arguments loaded by 
+	 * a parent class loader are supported.
+	 */
+	private static final class GeneratingClassLoader extends ClassLoader {
+
+		GeneratingClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		synchronized Class<?> define(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			if (name.equals(PropertyPathAppender.class.getName()))
+				return PropertyPathAppender.class;
+			if (name.equals(StringUtil.class.getName()))
+				return StringUtil.class;
+			return super.findClass(name);
+		}
+
+	}
+
+}
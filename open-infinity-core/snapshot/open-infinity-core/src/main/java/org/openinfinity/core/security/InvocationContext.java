@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.security;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.openinfinity.core.converter.TypeConverter;
+import org.openinfinity.core.log.TraceContext;
+import org.openinfinity.core.security.principal.Identity;
+import org.openinfinity.core.security.principal.TenantPrincipal;
+import org.slf4j.MDC;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Thread bound invocation context shared by the core aspects. The context is built from the <code>org.springframework.security.core.Authentication</code> 
+ * of the security context and holds the username, the tenant id of an <code>org.openinfinity.core.security.principal.Identity</code>, the granted authorities 
+ * with their pre-rendered presentation, the correlation id and the start timestamp of the call.
+ * <br/><br/>
+ * The context is bound to the thread between <code>begin</code> and <code>end</code>, which the outermost advised call of each core aspect runs in a try/finally 
+ * block, and nested calls share it. The correlation id is the trace id of the <code>org.openinfinity.core.log.TraceContext</code> of the thread, or of the SLF4J MDC, 
+ * when first read, otherwise a new trace id. Within the scope, <code>current</code> builds a new context when the authentication of the security context is another instance than 
+ * the one of the context, for example after a login. Changes made to the same authentication instance are not detected. Outside a scope <code>current</code> 
+ * builds a context which is not bound to the thread, so that pooled threads do not keep the authentication of a previous request.
+ * <br/><br/>
+ * The username, the tenant id, the converted tenant id and the granted authorities are cached per thread for the last authentication instance, which is referenced 
+ * weakly, so that consecutive calls of the same user share them whether or not a scope is open. The granted authorities are copied and rendered when first read.
+ * <br/><br/>
+ * Usage: <br/><br/>
+ * <code>
+ * InvocationContext context = InvocationContext.begin();<br/>
+ * try {<br/>
+ * &nbsp;&nbsp;String username = context.getUsername();<br/>
+ * } finally {<br/>
+ * &nbsp;&nbsp;InvocationContext.end();<br/>
+ * }
+ * </code>
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public final class InvocationContext {
+
+	/**
+	 * Represents the contexts of the threads.
+	 */
+	private static final ThreadLocal<InvocationContext> CURRENT = new ThreadLocal<InvocationContext>();
+
+	/**
+	 * Represents the details of the last authentication of the threads.
+	 */
+	private static final ThreadLocal<AuthenticationDetails> LAST_AUTHENTICATION_DETAILS = new ThreadLocal<AuthenticationDetails>();
+
+	/**
+	 * Represents the authentication the context has been built from, <code>null</code> when not authenticated.
+	 */
+	private final Authentication authentication;
+
+	/**
+	 * Represents the details of the authentication.
+	 */
+	private final AuthenticationDetails authenticationDetails;
+
+	/**
+	 * Represents the time the context has been built, in milliseconds.
+	 */
+	private final long startTimeMillis;
+
+	/**
+	 * Represents the correlation id, resolved when first read.
+	 */
+	private String correlationId;
+
+	/**
+	 * Represents the number of open scopes of the thread.
+	 */
+	private int depth;
+
+	private InvocationContext(Authentication authentication, long startTimeMillis) {
+		this.authentication = authentication;
+		this.authenticationDetails = getAuthenticationDetails(authentication);
+		this.startTimeMillis = startTimeMillis;
+	}
+
+	private static AuthenticationDetails getAuthenticationDetails(Authentication authentication) {
+		AuthenticationDetails authenticationDetails = LAST_AUTHENTICATION_DETAILS.get();
+		if (authenticationDetails == null || !authenticationDetails.isBuiltFrom(authentication)) {
+			authenticationDetails = new AuthenticationDetails(authentication);
+			LAST_AUTHENTICATION_DETAILS.set(authenticationDetails);
+		}
+		return authenticationDetails;
+	}
+
+	/**
+	 * Returns the context of the current thread, built from the authentication of the security context. Within a scope a new context keeping 
+	 * the correlation id and the start timestamp is built when the authentication has changed, outside a scope a new context not bound to the thread is built on every call.
+	 *
+	 * @return InvocationContext Represents the context of the thread.
+	 */
+	public static InvocationContext current() {
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		InvocationContext context = CURRENT.get();
+		if (context == null)
+			return new InvocationContext(authentication, System.currentTimeMillis());
+		if (context.authentication != authentication) {
+			InvocationContext rebuilt = new InvocationContext(authentication, context.startTimeMillis);
+			rebuilt.correlationId = context.correlationId;
+			rebuilt.depth = context.depth;
+			CURRENT.set(rebuilt);
+			return rebuilt;
+		}
+		return context;
+	}
+
+	/**
+	 * Opens a scope and binds the context to the current thread. A scope opened within another one shares its context. Every call must be 
+	 * followed by <code>end</code> in a finally block.
+	 *
+	 * @return InvocationContext Represents the context of the thread.
+	 */
+	public static InvocationContext begin() {
+		InvocationContext context = CURRENT.get();
+		if (context == null) {
+			context = new InvocationContext(SecurityContextHolder.getContext().getAuthentication(), System.currentTimeMillis());
+			CURRENT.set(context);
+		} else {
+			context = current();
+		}
+		context.depth++;
+		return context;
+	}
+
+	/**
+	 * Closes the scope opened by <code>begin</code>. The context is removed from the thread when the outermost scope is closed.
+	 */
+	public static void end() {
+		InvocationContext context = CURRENT.get();
+		if (context != null && --context.depth <= 0)
+			CURRENT.remove();
+	}
+
+	/**
+	 * Removes the context and the cached authentication details of the current thread regardless of the open scopes.
+	 */
+	public static void clear() {
+		CURRENT.remove();
+		LAST_AUTHENTICATION_DETAILS.remove();
+	}
+
+	/**
+	 * Returns the authentication the context has been built from, <code>null</code> when not authenticated.
+	 */
+	public Authentication getAuthentication() {
+		return authentication;
+	}
+
+	/**
+	 * Returns the username, <code>null</code> when not authenticated.
+	 */
+	public String getUsername() {
+		return authenticationDetails.username;
+	}
+
+	/**
+	 * Returns the tenant id of the identity, <code>null</code> when the authentication is not an identity or has no tenant.
+	 */
+	public Object getTenantId() {
+		return authenticationDetails.tenantId;
+	}
+
+	/**
+	 * Returns the tenant id converted by the converter. The converted tenant id is cached for the last used converter.
+	 *
+	 * @param converter Represents the converter of the tenant id.
+	 * @return Object Represents the converted tenant id.
+	 */
+	public Object getTenantId(TypeConverter<Object, Object> converter) {
+		return authenticationDetails.getTenantId(converter);
+	}
+
+	/**
+	 * Returns the names of the granted authorities, an empty list when none.
+	 */
+	public List<String> getRoles() {
+		return authenticationDetails.getRoles(authentication);
+	}
+
+	/**
+	 * Returns the granted authorities rendered as <code>{role}{role}</code>, an empty string when none.
+	 */
+	public String getRenderedRoles() {
+		return authenticationDetails.getRenderedRoles(authentication);
+	}
+
+	/**
+	 * Returns the correlation id, the trace id of the thread when the id is first read or a new trace id when no trace is active.
+	 */
+	public String getCorrelationId() {
+		if (correlationId == null) {
+			TraceContext traceContext = TraceContext.current();
+			String traceId = traceContext != null ? traceContext.getTraceId() : MDC.get(TraceContext.TRACE_ID_KEY);
+			correlationId = traceId != null ? traceId : TraceContext.nextTraceId();
+		}
+		return correlationId;
+	}
+
+	/**
+	 * Returns the time the context has been built, in milliseconds.
+	 */
+	public long getStartTimeMillis() {
+		return startTimeMillis;
+	}
+
+	/**
+	 * Represents the details of an authentication cached for the consecutive calls of the thread.
+	 */
+	private static final class AuthenticationDetails {
+
+		/**
+		 * Represents the authentication the details have been built from, <code>null</code> when not authenticated.
+		 */
+		private final WeakReference<Authentication> authentication;
+
+		/**
+		 * Represents the username, <code>null</code> when not authenticated.
+		 */
+		private final String username;
+
+		/**
+		 * Represents the tenant id of the identity, <code>null</code> when not available.
+		 */
+		private final Object tenantId;
+
+		/**
+		 * Represents the names of the granted authorities, <code>null</code> until first read.
+		 */
+		private List<String> roles;
+
+		/**
+		 * Represents the granted authorities rendered as <code>{role}{role}</code>, <code>null</code> until first read.
+		 */
+		private String renderedRoles;
+
+		/**
+		 * Represents the converter of the cached converted tenant id.
+		 */
+		private TypeConverter<Object, Object> tenantIdConverter;
+
+		/**
+		 * Represents the tenant id converted by the cached converter.
+		 */
+		private Object convertedTenantId;
+
+		AuthenticationDetails(Authentication authentication) {
+			this.authentication = authentication != null ? new WeakReference<Authentication>(authentication) : null;
+			this.username = authentication != null ? authentication.getName() : null;
+			this.tenantId = resolveTenantId(authentication);
+		}
+
+		private static Object resolveTenantId(Authentication authentication) {
+			if (!(authentication instanceof Identity))
+				return null;
+			TenantPrincipal<?> tenantPrincipal = ((Identity) authentication).getTenantPrincipal();
+			return tenantPrincipal != null ? tenantPrincipal.getId() : null;
+		}
+
+		boolean isBuiltFrom(Authentication authentication) {
+			return this.authentication == null ? authentication == null : authentication != null && this.authentication.get() == authentication;
+		}
+
+		Object getTenantId(TypeConverter<Object, Object> converter) {
+			if (converter != tenantIdConverter) {
+				convertedTenantId = converter.convert(tenantId);
+				tenantIdConverter = converter;
+			}
+			return convertedTenantId;
+		}
+
+		List<String> getRoles(Authentication authentication) {
+			if (roles == null)
+				renderRoles(authentication);
+			return roles;
+		}
+
+		String getRenderedRoles(Authentication authentication) {
+			if (renderedRoles == null)
+				renderRoles(authentication);
+			return renderedRoles;
+		}
+
+		private void renderRoles(Authentication authentication) {
+			Collection<? extends GrantedAuthority> grantedAuthorities = authentication != null ? authentication.getAuthorities() : null;
+			if (grantedAuthorities != null && !grantedAuthorities.isEmpty()) {
+				List<String> authorities = new ArrayList<String>(grantedAuthorities.size());
+				StringBuilder builder = new StringBuilder();
+				for (GrantedAuthority grantedAuthority : grantedAuthorities) {
+					authorities.add(grantedAuthority.getAuthority());
+					builder.append('{').append(grantedAuthority.getAuthority()).append('}');
+				}
+				this.roles = Collections.unmodifiableList(authorities);
+				this.renderedRoles = builder.toString();
+			} else {
+				this.roles = Collections.emptyList();
+				this.renderedRoles = "";
+			}
+		}
+
+	}
+
+}
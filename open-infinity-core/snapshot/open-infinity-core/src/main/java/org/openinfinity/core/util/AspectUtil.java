@@ -17,41 +17,90 @@ package org.openinfinity.core.util;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.Signature;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.openinfinity.core.exception.SystemException;
 import org.springframework.aop.framework.AopConfigException;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotationUtils;
 
 /**
  * Utility for handling aspect specific features.
  * 
  * @author Ilkka Leinonen
- * @version 1.0.0
+ * @version 1.1.0 - Annotations are resolved once per method, target class and annotation type and cached.
  * @since 1.0.0
  */
 public class AspectUtil {
 	
+	/**
+	 * Represents the missing annotation in the annotation cache.
+	 */
+	private static final Object NO_ANNOTATION = new Object();
+	
+	/**
+	 * Represents the resolved annotations by the method, the target class and the annotation type.
+	 */
+	private static final ConcurrentMap<AnnotationKey, Object> ANNOTATIONS = new ConcurrentHashMap<AnnotationKey, Object>();
+	
 	/**
 	 * Returns the specified annotation.
 	 * 
 	 * @param joinPoint Represents the join point.
-	 * @return 
-	 * @return LogLevel representing the log level.
+	 * @param requiredAnnotationClass Represents the type of the annotation.
+	 * @return T representing the annotation.
+	 * @throws SystemException if the annotation is not found.
 	 */
 	public static <T extends Annotation> T getAnnotation(JoinPoint joinPoint, Class<T> requiredAnnotationClass) {
-		Method[] methods = joinPoint.getTarget().getClass().getMethods();
-		for (Method method : methods) {
-			if (method.getName().equals(joinPoint.getSignature().getName())) {
-				Annotation[] annotations = method.getDeclaredAnnotations();
-				for(Annotation annotation : annotations) {				
-					if (requiredAnnotationClass.isAssignableFrom(annotation.getClass())) {
-						return (T)annotation;
-					}	
-				}
-			}
+		T annotation = findAnnotation(joinPoint, requiredAnnotationClass);
+		if (annotation == null)
+			throw new SystemException(new AopConfigException("Annotation not found."));
+		return annotation;
+	}
+	
+	/**
+	 * Returns the specified annotation of the method executed by the join point, or <code>null</code> if the method is not annotated.
+	 * The method is the exact method of the <code>MethodSignature</code>, resolved to the most specific method of the target class,
+	 * so that proxies, bridge methods and annotations declared on interfaces and superclasses are handled. The annotation is resolved on 
+	 * the first call and cached.
+	 * 
+	 * @param joinPoint Represents the join point.
+	 * @param requiredAnnotationClass Represents the type of the annotation.
+	 * @return T representing the annotation or <code>null</code>.
+	 */
+	public static <T extends Annotation> T findAnnotation(JoinPoint joinPoint, Class<T> requiredAnnotationClass) {
+		Signature signature = joinPoint.getSignature();
+		if (!(signature instanceof MethodSignature))
+			return null;
+		Object target = joinPoint.getTarget();
+		return findAnnotation(((MethodSignature) signature).getMethod(), target == null ? null : AopUtils.getTargetClass(target), requiredAnnotationClass);
+	}
+	
+	/**
+	 * Returns the specified annotation of the method invoked on the target class, or <code>null</code> if the method is not annotated.
+	 * 
+	 * @param method Represents the invoked method.
+	 * @param targetClass Represents the class of the target, <code>null</code> for the declaring class of the method.
+	 * @param requiredAnnotationClass Represents the type of the annotation.
+	 * @return T representing the annotation or <code>null</code>.
+	 */
+	public static <T extends Annotation> T findAnnotation(Method method, Class<?> targetClass, Class<T> requiredAnnotationClass) {
+		AnnotationKey key = new AnnotationKey(method, targetClass, requiredAnnotationClass);
+		Object annotation = ANNOTATIONS.get(key);
+		if (annotation == null) {
+			Method specificMethod = targetClass == null ? method : AopUtils.getMostSpecificMethod(method, targetClass);
+			annotation = AnnotationUtils.findAnnotation(specificMethod, requiredAnnotationClass);
+			if (annotation == null && specificMethod != method)
+				annotation = AnnotationUtils.findAnnotation(method, requiredAnnotationClass);
+			if (annotation == null)
+				annotation = NO_ANNOTATION;
+			ANNOTATIONS.putIfAbsent(key, annotation);
 		}
-		throw new SystemException(new AopConfigException("Annotation not found."));
+		return annotation == NO_ANNOTATION ? null : requiredAnnotationClass.cast(annotation);
 	}
 	
 	public static String createJoinPointTraceName(JoinPoint joinPoint) {
@@ -62,5 +111,41 @@ public class AspectUtil {
 		return sb.toString();
 	}
 
+	/**
+	 * Represents the key of the annotation cache.
+	 */
+	private static final class AnnotationKey {
+		
+		private final Method method;
+		
+		private final Class<?> targetClass;
+		
+		private final Class<?> annotationType;
+		
+		private final int hashCode;
+		
+		AnnotationKey(Method method, Class<?> targetClass, Class<?> annotationType) {
+			this.method = method;
+			this.targetClass = targetClass;
+			this.annotationType = annotationType;
+			this.hashCode = (method.hashCode() * 31 + (targetClass == null ? 0 : targetClass.hashCode())) * 31 + annotationType.hashCode();
+		}
+		
+		@Override
+		public boolean equals(Object object) {
+			if (this == object)
+				return true;
+			if (!(object instanceof AnnotationKey))
+				return false;
+			AnnotationKey other = (AnnotationKey) object;
+			return method.equals(other.method) && targetClass == other.targetClass && annotationType == other.annotationType;
+		}
+		
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+		
+	}
 
 }
\ No newline at end of file
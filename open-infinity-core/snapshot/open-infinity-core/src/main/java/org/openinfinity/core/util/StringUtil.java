@@ -15,13 +15,14 @@
  */
 package org.openinfinity.core.util;
 
-import org.apache.commons.lang.builder.ToStringBuilder;
+import org.openinfinity.core.reflection.ObjectRenderer;
 
 /**
- * Helper class for handling Strings.
+ * Helper class for handling Strings. Objects are rendered by <code>org.openinfinity.core.reflection.ObjectRenderer.DEFAULT</code>,
+ * so that the length of the rendered strings, the number of rendered elements of collections, maps and arrays, and the nesting depth are bounded.
  * 
  * @author Ilkka Leinonen
- * @version 1.0.0
+ * @version 1.1.0 - Objects are rendered by their fields with the cached and bounded renderer.
  * @since 1.0.0
  */
 public class StringUtil {
@@ -33,8 +34,29 @@ public class StringUtil {
 	 * @return String - Presentation of the Object.
 	 */
 	public static String toString(Object object) {
-		ToStringBuilder toStringBuilder = new ToStringBuilder(object);
-		return toStringBuilder.toString();
+		return appendTo(new StringBuilder(), object).toString();
+	}
+
+	/**
+	 * Appends the object rendered by its fields to the buffer.
+	 * 
+	 * @param builder - Buffer to be appended.
+	 * @param object - Object to be rendered.
+	 * @return StringBuilder - The buffer.
+	 */
+	public static StringBuilder appendTo(StringBuilder builder, Object object) {
+		return ObjectRenderer.DEFAULT.appendFields(builder, object);
+	}
+
+	/**
+	 * Appends the value rendered with its <code>toString</code> to the buffer, the collections, maps and arrays are rendered by their elements.
+	 * 
+	 * @param builder - Buffer to be appended.
+	 * @param value - Value to be rendered.
+	 * @return StringBuilder - The buffer.
+	 */
+	public static StringBuilder appendValue(StringBuilder builder, Object value) {
+		return ObjectRenderer.DEFAULT.appendValue(builder, value);
 	}
 
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.util;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.ISODateTimeFormat;
+
+/**
+ * Helper class for formatting timestamps in the ISO-8601 format of <code>org.joda.time.format.ISODateTimeFormat.dateTime()</code> in the 
+ * default time zone. The formatted date, time and zone of the latest second are cached and the milliseconds are appended to them, so that 
+ * formatting a timestamp within the cached second allocates nothing.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class TimestampUtil {
+
+	/**
+	 * Represents the formatted second of the latest timestamp.
+	 */
+	private static volatile FormattedSecond formattedSecond;
+
+	/**
+	 * Appends the timestamp formatted as <code>yyyy-MM-dd'T'HH:mm:ss.SSSZZ</code> in the default time zone to the buffer.
+	 *
+	 * @param builder - Buffer to be appended.
+	 * @param timestampMillis - Timestamp in milliseconds since the epoch.
+	 * @return StringBuilder - The buffer.
+	 */
+	public static StringBuilder appendIsoTimestamp(StringBuilder builder, long timestampMillis) {
+		FormattedSecond second = getFormattedSecond(timestampMillis);
+		int millis = (int) (timestampMillis - second.secondMillis);
+		builder.append(second.prefix);
+		if (millis < 100)
+			builder.append('0');
+		if (millis < 10)
+			builder.append('0');
+		return builder.append(millis).append(second.suffix);
+	}
+
+	/**
+	 * Formats the timestamp as <code>yyyy-MM-dd'T'HH:mm:ss.SSSZZ</code> in the default time zone.
+	 *
+	 * @param timestampMillis - Timestamp in milliseconds since the epoch.
+	 * @return String - The formatted timestamp.
+	 */
+	public static String formatIsoTimestamp(long timestampMillis) {
+		return appendIsoTimestamp(new StringBuilder(32), timestampMillis).toString();
+	}
+
+	private static FormattedSecond getFormattedSecond(long timestampMillis) {
+		FormattedSecond second = formattedSecond;
+		DateTimeZone zone = DateTimeZone.getDefault();
+		if (second == null || timestampMillis < second.secondMillis || timestampMillis - second.secondMillis >= 1000 || second.zone != zone) {
+			long secondMillis = timestampMillis - (((timestampMillis % 1000) + 1000) % 1000);
+			String text = ISODateTimeFormat.dateTime().withZone(zone).print(secondMillis);
+			int millisStart = text.lastIndexOf('.') + 1;
+			second = new FormattedSecond(secondMillis, zone, text.substring(0, millisStart), text.substring(millisStart + 3));
+			formattedSecond = second;
+		}
+		return second;
+	}
+
+	/**
+	 * Represents a second formatted before and after its milliseconds.
+	 */
+	private static final class FormattedSecond {
+
+		private final long secondMillis;
+
+		private final DateTimeZone zone;
+
+		private final String prefix;
+
+		private final String suffix;
+
+		FormattedSecond(long secondMillis, DateTimeZone zone, String prefix, String suffix) {
+			this.secondMillis = secondMillis;
+			this.zone = zone;
+			this.prefix = prefix;
+			this.suffix = suffix;
+		}
+
+	}
+
+}
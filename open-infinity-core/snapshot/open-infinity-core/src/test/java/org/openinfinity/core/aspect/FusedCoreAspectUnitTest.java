@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.aspect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openinfinity.core.annotation.AuditTrail;
+import org.openinfinity.core.annotation.Decrypt;
+import org.openinfinity.core.annotation.Log;
+import org.openinfinity.core.annotation.Log.LogLevel;
+import org.openinfinity.core.annotation.MultiTenant;
+import org.openinfinity.core.audit.AuditRecord;
+import org.openinfinity.core.audit.AuditSink;
+import org.openinfinity.core.common.domain.Account;
+import org.openinfinity.core.log.AsyncLogDispatcher;
+import org.openinfinity.core.security.InvocationContext;
+import org.openinfinity.core.security.principal.Identity;
+import org.openinfinity.core.security.principal.RolePrincipal;
+import org.openinfinity.core.security.principal.TenantPrincipal;
+import org.openinfinity.core.security.principal.UserPrincipal;
+import org.openinfinity.core.util.TimestampUtil;
+import org.slf4j.Logger;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Unit test for the fused advice of the core aspects.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.2.0 - Audit sink, reused audit trail buffers.
+ * @since 1.6.0
+ */
+public class FusedCoreAspectUnitTest {
+
+	private static final String UNIQUE_TENANT_ID = "test-tenant";
+
+	private final List<String> auditTrails = new ArrayList<String>();
+	
+	private final List<AuditRecord> auditRecords = new ArrayList<AuditRecord>();
+	
+	private AuditSink auditSink;
+
+	private final Service service = new Service();
+
+	@Before
+	public void setUp() {
+		Identity identity = new Identity();
+		identity.setAuthenticated(true);
+		identity.setUserPrincipal(new UserPrincipal("test-name"));
+		identity.setRolePrincipals(Collections.singletonList(new RolePrincipal("test-role")));
+		identity.setTenantPrincipal(new TenantPrincipal<String>(UNIQUE_TENANT_ID));
+		SecurityContextHolder.getContext().setAuthentication(identity);
+	}
+
+	@After
+	public void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	public void givenStackedAnnotationsWhenInvokingThenStagesMustRunOnceInTheConfiguredOrder() {
+		Account account = proxy(1, 2).save(new Account("1", "Name1"));
+		assertEquals(UNIQUE_TENANT_ID, account.getTenantId());
+		assertEquals(1, service.invocations);
+		assertEquals(1, auditTrails.size());
+		assertTrue(auditTrails.get(0), auditTrails.get(0).contains(".tenantId=[" + UNIQUE_TENANT_ID + "]"));
+		assertNotSame(InvocationContext.current(), InvocationContext.current());
+	}
+
+	@Test
+	public void givenAuditTrailOrderedBeforeTenantInjectionWhenInvokingThenAuditTrailMustPrecedeTheInjection() {
+		Account account = proxy(2, 1).save(new Account("1", "Name1"));
+		assertEquals(UNIQUE_TENANT_ID, account.getTenantId());
+		assertEquals(1, auditTrails.size());
+		assertTrue(auditTrails.get(0), auditTrails.get(0).contains(".tenantId=[null value]"));
+	}
+
+	@Test
+	public void givenAnnotationOfUnconfiguredAspectWhenInvokingThenMethodMustProceed() {
+		assertEquals("text", proxy(1, 2).decrypt("text"));
+		assertEquals(1, service.invocations);
+		assertTrue(auditTrails.isEmpty());
+	}
+
+	@Test
+	public void givenAuditSinkWhenInvokingThenRecordMustBeWrittenToTheSinkInsteadOfTheLog() {
+		auditSink = new AuditSink() {
+			public void write(AuditRecord record) {
+				auditRecords.add(record);
+			}
+		};
+		proxy(1, 2).save(new Account("1", "Name1"));
+		assertTrue(auditTrails.isEmpty());
+		assertEquals(1, auditRecords.size());
+		AuditRecord record = auditRecords.get(0);
+		assertEquals("save", record.getMethod());
+		assertEquals("test-name", record.getUsername());
+		assertEquals(UNIQUE_TENANT_ID, record.getTenantId());
+		assertTrue(record.getRoles(), record.getRoles().contains("{test-role}"));
+		assertTrue(record.getArguments(), record.getArguments().contains(".tenantId=[" + UNIQUE_TENANT_ID + "]"));
+		assertTrue(record.getText(), record.getText().endsWith(record.getArguments()));
+		assertTrue(record.getText(), record.getText().contains(" Tenant: [" + UNIQUE_TENANT_ID + "] "));
+		assertTrue(record.getText(), record.getText().startsWith("Timestamp: [" + TimestampUtil.formatIsoTimestamp(record.getTimestampMillis()) + "] "));
+	}
+
+	@Test
+	public void givenRepeatedCallsWhenBuildingAuditTrailThenReusedBuffersMustNotCarryPreviousContent() {
+		Service proxy = proxy(1, 2);
+		proxy.save(new Account("1", "Name1"));
+		proxy.save(new Account("2", "Name2"));
+		assertEquals(2, auditTrails.size());
+		assertEquals(1, count(auditTrails.get(1), "Timestamp: ["));
+		assertEquals(1, count(auditTrails.get(1), " Method: [save] "));
+		assertTrue(auditTrails.get(1), auditTrails.get(1).contains(" Username: [test-name] ") && auditTrails.get(1).contains("{test-role}"));
+	}
+
+	@Test
+	public void givenTargetsSharingAnInterfaceMethodWhenInvokingAlternatelyThenEachTargetMustRunItsOwnStages() {
+		FusedCoreAspect fusedCoreAspect = fusedCoreAspect(1, 2);
+		Repository audited = proxy(fusedCoreAspect, new AuditedRepository());
+		Repository logged = proxy(fusedCoreAspect, new LoggedRepository());
+		for (int i = 0; i < 3; i++) {
+			audited.find(new Account("1", "Name1"));
+			logged.find(new Account("2", "Name2"));
+		}
+		assertEquals(3, auditTrails.size());
+		assertTrue(auditTrails.get(2), auditTrails.get(2).contains(".tenantId=["));
+	}
+
+	private static int count(String text, String part) {
+		int count = 0;
+		for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1))
+			count++;
+		return count;
+	}
+
+	private Service proxy(int multiTenantOrder, int auditTrailOrder) {
+		AspectJProxyFactory proxyFactory = new AspectJProxyFactory(service);
+		proxyFactory.setProxyTargetClass(true);
+		proxyFactory.addAspect(fusedCoreAspect(multiTenantOrder, auditTrailOrder));
+		return proxyFactory.getProxy();
+	}
+
+	private static Repository proxy(FusedCoreAspect fusedCoreAspect, Repository repository) {
+		AspectJProxyFactory proxyFactory = new AspectJProxyFactory(repository);
+		proxyFactory.addAspect(fusedCoreAspect);
+		return proxyFactory.getProxy();
+	}
+
+	private FusedCoreAspect fusedCoreAspect(int multiTenantOrder, int auditTrailOrder) {
+		MultiTenantAspect multiTenantAspect = new MultiTenantAspect();
+		multiTenantAspect.setOrder(multiTenantOrder);
+		AuditTrailAspect auditTrailAspect = new AuditTrailAspect();
+		auditTrailAspect.setOrder(auditTrailOrder);
+		auditTrailAspect.setAsyncLogDispatcher(new AsyncLogDispatcher() {
+			@Override
+			public void dispatch(Logger logger, LogLevel level, String message) {
+				auditTrails.add(message);
+			}
+		});
+		auditTrailAspect.setAuditSink(auditSink);
+		FusedCoreAspect fusedCoreAspect = new FusedCoreAspect();
+		fusedCoreAspect.setLogAspect(new LogAspect());
+		fusedCoreAspect.setMultiTenantAspect(multiTenantAspect);
+		fusedCoreAspect.setAuditTrailAspect(auditTrailAspect);
+		return fusedCoreAspect;
+	}
+
+	public static class Service {
+		private int invocations;
+
+		@Log
+		@AuditTrail(argumentStrategy = ArgumentStrategy.CUSTOM, value = {"tenantId"})
+		@MultiTenant
+		public Account save(Account account) {
+			invocations++;
+			return account;
+		}
+
+		@Decrypt
+		public String decrypt(String text) {
+			invocations++;
+			return text;
+		}
+	}
+
+	public interface Repository {
+		Account find(Account account);
+	}
+
+	public static class AuditedRepository implements Repository {
+		@AuditTrail(argumentStrategy = ArgumentStrategy.CUSTOM, value = {"tenantId"})
+		public Account find(Account account) {
+			return account;
+		}
+	}
+
+	public static class LoggedRepository implements Repository {
+		@Log
+		public Account find(Account account) {
+			return account;
+		}
+	}
+
+}
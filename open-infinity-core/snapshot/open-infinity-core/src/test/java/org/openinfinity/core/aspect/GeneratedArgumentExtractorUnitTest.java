@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.aspect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.openinfinity.core.reflection.PropertyPathAppenderGenerator;
+
+/**
+ * Unit test for the generated argument extractors.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class GeneratedArgumentExtractorUnitTest {
+
+	private static final String[] PATHS = {"name", "count", "ratio", "active", "tire/brand", "tire/studs", "unknown", "parts/name"};
+
+	@Test
+	public void givenPublicGettersWhenGeneratingThenAppendersMustBeGenerated() {
+		assertTrue(PropertyPathAppenderGenerator.isGenerated(PropertyPathAppenderGenerator.forPath(Car.class, "tire/brand")));
+		assertTrue(PropertyPathAppenderGenerator.isGenerated(PropertyPathAppenderGenerator.forPath(Car.class, "count")));
+		assertFalse(PropertyPathAppenderGenerator.isGenerated(PropertyPathAppenderGenerator.forPath(Car.class, "tire/studs")));
+		assertFalse(PropertyPathAppenderGenerator.isGenerated(PropertyPathAppenderGenerator.forPath(Car.class, "parts/name")));
+		assertFalse(PropertyPathAppenderGenerator.isGenerated(PropertyPathAppenderGenerator.forPath(Hidden.class, "name")));
+	}
+
+	@Test
+	public void givenArgumentsWhenExtractingThenOutputMustEqualTheReflectiveExtraction() {
+		assertSameOutput(new Object[] {new Car("Saab", 3, 0.5, true, new Tire("Nokian")), "text"});
+		assertSameOutput(new Object[] {new Car(null, 0, 0, false, new WinterTire("Hakkapeliitta", 120)), null});
+		assertSameOutput(new Object[] {new Car("Volvo", 1, 1, true, null), new Hidden("hidden")});
+		assertSameOutput(new Object[] {});
+	}
+
+	@Test
+	public void givenIntermediateCollectionAtRuntimeWhenExtractingThenOutputMustEqualTheReflectiveExtraction() {
+		Garage garage = new Garage(new Tires(Collections.singletonList(new Tire("first"))));
+		String[] paths = {"tire/brand"};
+		ArgumentBuilder builder = new ArgumentBuilder();
+		builder.extractArgumentInfoByFilteringFields(new Object[] {garage}, paths);
+		assertEquals(builder.toString(), new GeneratedArgumentExtractor(paths, 1).extract(new Object[] {garage}));
+	}
+
+	@Test
+	public void givenFailingGetterWhenExtractingThenOutputMustEqualTheReflectiveExtraction() {
+		assertTrue(PropertyPathAppenderGenerator.isGenerated(PropertyPathAppenderGenerator.forPath(Failing.class, "name")));
+		assertSameOutput(new Object[] {new Failing(), "text"});
+	}
+
+	private void assertSameOutput(Object[] arguments) {
+		ArgumentBuilder builder = new ArgumentBuilder();
+		builder.extractArgumentInfoByFilteringFields(arguments, PATHS);
+		GeneratedArgumentExtractor extractor = new GeneratedArgumentExtractor(PATHS, arguments.length);
+		assertEquals(builder.toString(), extractor.extract(arguments));
+		assertEquals(builder.toString(), extractor.extract(arguments));
+	}
+
+	public static class Car {
+		private final String name;
+		private final int count;
+		private final double ratio;
+		private final boolean active;
+		private final Tire tire;
+
+		public Car(String name, int count, double ratio, boolean active, Tire tire) {
+			this.name = name;
+			this.count = count;
+			this.ratio = ratio;
+			this.active = active;
+			this.tire = tire;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public double getRatio() {
+			return ratio;
+		}
+
+		public boolean isActive() {
+			return active;
+		}
+
+		public Tire getTire() {
+			return tire;
+		}
+
+		public List<Tire> getParts() {
+			return Arrays.asList(tire);
+		}
+	}
+
+	public static class Tire {
+		private final String brand;
+
+		public Tire(String brand) {
+			this.brand = brand;
+		}
+
+		public String getBrand() {
+			return brand;
+		}
+	}
+
+	public static class WinterTire extends Tire {
+		private final int studs;
+
+		public WinterTire(String brand, int studs) {
+			super(brand);
+			this.studs = studs;
+		}
+
+		public int getStuds() {
+			return studs;
+		}
+	}
+
+	public static class Tires extends Tire implements Collection<Tire> {
+		private final List<Tire> tires;
+
+		public Tires(List<Tire> tires) {
+			super("all");
+			this.tires = tires;
+		}
+
+		public int size() { return tires.size(); }
+		public boolean isEmpty() { return tires.isEmpty(); }
+		public boolean contains(Object o) { return tires.contains(o); }
+		public java.util.Iterator<Tire> iterator() { return tires.iterator(); }
+		public Object[] toArray() { return tires.toArray(); }
+		public <T> T[] toArray(T[] a) { return tires.toArray(a); }
+		public boolean add(Tire e) { throw new UnsupportedOperationException(); }
+		public boolean remove(Object o) { throw new UnsupportedOperationException(); }
+		public boolean containsAll(Collection<?> c) { return tires.containsAll(c); }
+		public boolean addAll(Collection<? extends Tire> c) { throw new UnsupportedOperationException(); }
+		public boolean removeAll(Collection<?> c) { throw new UnsupportedOperationException(); }
+		public boolean retainAll(Collection<?> c) { throw new UnsupportedOperationException(); }
+		public void clear() { throw new UnsupportedOperationException(); }
+	}
+
+	public static class Garage {
+		private final Tire tire;
+
+		public Garage(Tire tire) {
+			this.tire = tire;
+		}
+
+		public Tire getTire() {
+			return tire;
+		}
+	}
+
+	public static class Failing {
+		public String getName() {
+			throw new IllegalStateException("Failing getter");
+		}
+	}
+
+	static class Hidden {
+		private final String name;
+
+		Hidden(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
+}
@@ -16,11 +16,13 @@
 package org.openinfinity.core.aspect;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
@@ -30,6 +32,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.openinfinity.core.common.IntegrationTest;
 import org.openinfinity.core.common.domain.Account;
+import org.openinfinity.core.monitor.AdvisedMethodRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.AbstractJUnit4SpringContextTests;
@@ -51,6 +54,9 @@ public class LogInterceptorIntegrationTest extends AbstractJUnit4SpringContextTe
 
 	@Autowired
 	private IntegrationTest integrationTest;
+	
+	@Autowired
+	private AdvisedMethodRegistry advisedMethodRegistry;
 
 	@Before
 	public void setUp() {
@@ -133,6 +139,63 @@ public class LogInterceptorIntegrationTest extends AbstractJUnit4SpringContextTe
 		}
 	}
 
+	@Test
+	public void givenSampledMethodWhenAccessingRepeatedlyThenOnlyEveryThirdCallMustBeLoggedAndSuppressedCallsReported() {
+		try {
+			for (int i = 1; i <= 4; i++) {
+				this.integrationTest.logMeSampled("Sampled call " + i + "!");
+			}
+			String content = readLogFileContent(file);
+			assertTrue(content.contains("Sampled call 1!"));
+			assertFalse(content.contains("Sampled call 2!"));
+			assertFalse(content.contains("Sampled call 3!"));
+			assertTrue(content.contains("Sampled call 4!"));
+			assertTrue(content.contains("2 calls suppressed by sampling or rate limit"));
+			String name = "LogAspect:org.openinfinity.core.common.IntegrationTestBean.logMeSampled(java.lang.String)";
+			assertTrue(Arrays.asList(this.advisedMethodRegistry.getSuppressedCalls()).contains(name + ": 2"));
+		} catch (Throwable throwable) {
+			throwable.printStackTrace();
+			fail();
+		}
+	}
+
+	@Test
+	public void givenSlowCallThresholdWhenAccessingMethodThenOnlyTheCallsExceedingTheThresholdMustBeLogged() {
+		try {
+			this.integrationTest.logMeIfSlow("Fast call!", 0);
+			this.integrationTest.logMeIfSlow("Slow call!", 100);
+			String content = readLogFileContent(file);
+			assertFalse(content.contains("Fast call!"));
+			assertTrue(content.contains("Slow call!"));
+			assertTrue(content.contains("exceeding the slow call threshold"));
+		} catch (Throwable throwable) {
+			throwable.printStackTrace();
+			fail();
+		}
+	}
+
+	@Test
+	public void givenMethodDisabledThroughRegistryWhenAccessingMethodThenCallMustNotBeLoggedUntilEnabled() {
+		try {
+			String name = "LogAspect:org.openinfinity.core.common.IntegrationTestBean.logMeWithNoArguments(java.lang.String)";
+			this.integrationTest.logMeWithNoArguments("Registering call!");
+			assertTrue(Arrays.asList(this.advisedMethodRegistry.getAdvisedMethods()).contains(name));
+			this.advisedMethodRegistry.disable(name);
+			assertTrue(Arrays.asList(this.advisedMethodRegistry.getAdvisedMethodSettings()).contains(name + " [disabled]"));
+			this.integrationTest.logMeWithNoArguments("Disabled call!");
+			this.advisedMethodRegistry.enable(name);
+			this.integrationTest.logMeWithNoArguments("Enabled call!");
+			String content = readLogFileContent(file);
+			assertFalse(content.contains("Disabled call!"));
+			assertTrue(content.contains("Enabled call!"));
+		} catch (Throwable throwable) {
+			throwable.printStackTrace();
+			fail();
+		} finally {
+			this.advisedMethodRegistry.reset();
+		}
+	}
+
 	public String readLogFileContent(File file) throws Throwable {
 		return FileUtils.readFileToString(file, "UTF-8");	
 	}
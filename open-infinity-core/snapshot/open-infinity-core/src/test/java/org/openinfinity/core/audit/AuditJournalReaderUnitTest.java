@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.audit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit test for the indexed queries of the audit journal reader.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class AuditJournalReaderUnitTest {
+
+	private static final long BASE_TIMESTAMP = 1400000000000L;
+
+	private static final int RECORDS = 300;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private MappedAuditJournal journal;
+
+	@After
+	public void tearDown() throws InterruptedException {
+		if (journal != null)
+			journal.destroy();
+	}
+
+	@Test
+	public void givenUserTenantAndTimeRangeWhenQueryingThenOnlyMatchingRecordsMustBeReturned() throws InterruptedException {
+		writeRecords();
+		journal.destroy();
+		AuditQuery query = query("user2", "tenant1", timestamp(50), timestamp(250));
+		List<AuditRecord> expected = filter(query);
+		assertFalse(expected.isEmpty());
+		assertEquals(expected.toString(), query(query).toString());
+	}
+
+	@Test
+	public void givenCompletedSegmentsWhenQueryingThenIndexesMustBeUsedAndTheCurrentSegmentScanned() throws Exception {
+		writeRecords();
+		File[] segmentFiles = MappedAuditJournal.listSegmentFiles(folder.getRoot(), MappedAuditJournal.DEFAULT_PREFIX);
+		assertTrue(segmentFiles.length > 2);
+		for (int i = 0; i < segmentFiles.length - 1; i++)
+			assertTrue(SegmentIndex.indexFile(segmentFiles[i]).isFile());
+		assertFalse(SegmentIndex.indexFile(segmentFiles[segmentFiles.length - 1]).exists());
+		SegmentIndex index = SegmentIndex.read(SegmentIndex.indexFile(segmentFiles[0]));
+		assertNull(index.getBlocks(BinaryAuditRecordCodec.FIELD_USER, "unknown"));
+		assertTrue(index.getBlocks(BinaryAuditRecordCodec.FIELD_USER, "user0").length <= index.getBlockCount());
+		AuditQuery query = query("user4", null, Long.MIN_VALUE, Long.MAX_VALUE);
+		assertEquals(filter(query).toString(), query(query).toString());
+		assertEquals(RECORDS / 5, query(query).size());
+	}
+
+	@Test
+	public void givenMissingOrInvalidIndexWhenQueryingThenSegmentMustBeScanned() throws Exception {
+		writeRecords();
+		journal.destroy();
+		File[] segmentFiles = MappedAuditJournal.listSegmentFiles(folder.getRoot(), MappedAuditJournal.DEFAULT_PREFIX);
+		assertTrue(SegmentIndex.indexFile(segmentFiles[0]).delete());
+		assertTrue(SegmentIndex.indexFile(segmentFiles[1]).delete());
+		assertTrue(SegmentIndex.indexFile(segmentFiles[1]).createNewFile());
+		AuditQuery query = query(null, "tenant2", timestamp(0), timestamp(100));
+		assertEquals(filter(query).toString(), query(query).toString());
+	}
+
+	@Test
+	public void givenReopenedJournalWhenQueryingThenRecoveredSegmentMustBeIndexedAgain() throws Exception {
+		writeRecords();
+		journal.destroy();
+		journal = open();
+		journal.write(record(RECORDS));
+		AuditQuery query = query("user0", "tenant0", Long.MIN_VALUE, Long.MAX_VALUE);
+		List<AuditRecord> records = query(query);
+		assertEquals(filter(query).toString(), records.toString());
+		assertEquals("record" + RECORDS, records.get(records.size() - 1).getArguments());
+	}
+
+	@Test
+	public void givenStoppingVisitorWhenQueryingThenNoFurtherRecordsMustBeVisited() {
+		writeRecords();
+		final List<AuditRecord> records = new ArrayList<AuditRecord>();
+		long visited = new AuditJournalReader(folder.getRoot()).query(query("user1", null, Long.MIN_VALUE, Long.MAX_VALUE), new AuditJournalReader.Visitor() {
+			public boolean visitRecord(AuditRecord record) {
+				records.add(record);
+				return records.size() < 3;
+			}
+		});
+		assertEquals(3, visited);
+		assertEquals(3, records.size());
+	}
+
+	@Test
+	public void givenBlocksOfTheSegmentWhenBuildingIndexThenPostingListsMustReferToTheBlocksOfTheValues() {
+		BinaryAuditRecordCodec codec = new BinaryAuditRecordCodec();
+		SegmentIndex.Builder builder = new SegmentIndex.Builder(2);
+		for (int i = 0; i < 6; i++) {
+			codec.encode(new AuditRecord(timestamp(i), "save", i < 2 ? "first" : "second", null, i == 5 ? "tenant" : null, null, null));
+			builder.add(100 * i, timestamp(5 - i), codec);
+		}
+		SegmentIndex index = builder.build(codec);
+		assertEquals(6, index.getRecords());
+		assertEquals(3, index.getBlockCount());
+		assertEquals(200, index.getBlockPosition(1));
+		assertArrayEquals(new int[] {0}, index.getBlocks(BinaryAuditRecordCodec.FIELD_USER, "first"));
+		assertArrayEquals(new int[] {1, 2}, index.getBlocks(BinaryAuditRecordCodec.FIELD_USER, "second"));
+		assertArrayEquals(new int[] {2}, index.getBlocks(BinaryAuditRecordCodec.FIELD_TENANT, "tenant"));
+		assertTrue(index.overlaps(0, timestamp(4), timestamp(4)));
+		assertFalse(index.overlaps(0, timestamp(0), timestamp(3)));
+		assertEquals(timestamp(0), index.getMinTimestampMillis());
+		assertEquals(timestamp(5), index.getMaxTimestampMillis());
+	}
+
+	private void writeRecords() {
+		journal = open();
+		for (int i = 0; i < RECORDS; i++)
+			journal.write(record(i));
+	}
+
+	private MappedAuditJournal open() {
+		MappedAuditJournal mappedAuditJournal = new MappedAuditJournal();
+		mappedAuditJournal.setDirectory(folder.getRoot());
+		mappedAuditJournal.setSegmentSize(4096);
+		mappedAuditJournal.setSyncIntervalMillis(0);
+		mappedAuditJournal.setFormat(AuditRecordFormat.BINARY);
+		mappedAuditJournal.setIndexBlockSize(8);
+		mappedAuditJournal.afterPropertiesSet();
+		return mappedAuditJournal;
+	}
+
+	private static AuditRecord record(int i) {
+		long jitter = i % 3 == 0 ? -1500 : 0;
+		return new AuditRecord(timestamp(i) + jitter, "save", "user" + (i % 5), "{ROLE_USER}", "tenant" + (i % 3), "record" + i, null);
+	}
+
+	private static long timestamp(int i) {
+		return BASE_TIMESTAMP + i * 1000L;
+	}
+
+	private static AuditQuery query(String username, String tenantId, long fromMillis, long toMillis) {
+		AuditQuery query = new AuditQuery();
+		query.setUsername(username);
+		query.setTenantId(tenantId);
+		query.setFromMillis(fromMillis);
+		query.setToMillis(toMillis);
+		return query;
+	}
+
+	private List<AuditRecord> query(AuditQuery query) {
+		final List<AuditRecord> records = new ArrayList<AuditRecord>();
+		new AuditJournalReader(folder.getRoot()).query(query, new AuditJournalReader.Visitor() {
+			public boolean visitRecord(AuditRecord record) {
+				records.add(record);
+				return true;
+			}
+		});
+		return records;
+	}
+
+	private List<AuditRecord> filter(final AuditQuery query) {
+		final List<AuditRecord> records = new ArrayList<AuditRecord>();
+		new AuditJournalReader(folder.getRoot()).read(new AuditJournalReader.Visitor() {
+			public boolean visitRecord(AuditRecord record) {
+				if (query.matches(record))
+					records.add(record);
+				return true;
+			}
+		});
+		return records;
+	}
+
+}
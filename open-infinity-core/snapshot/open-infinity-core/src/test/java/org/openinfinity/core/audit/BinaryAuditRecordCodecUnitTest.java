@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the binary audit record codec.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class BinaryAuditRecordCodecUnitTest {
+
+	private static final long TIMESTAMP = 1400000000123L;
+
+	private final BinaryAuditRecordCodec encoder = new BinaryAuditRecordCodec();
+
+	private final BinaryAuditRecordCodec decoder = new BinaryAuditRecordCodec();
+
+	@Test
+	public void givenEncodedRecordWhenDecodingThenFieldsAndTextMustBeRestored() {
+		AuditRecord record = new AuditRecord(TIMESTAMP, "save", "user", "{ROLE_USER}", "42", "Account.id=[1]", null);
+		AuditRecord decoded = roundTrip(record);
+		assertEquals(TIMESTAMP, decoded.getTimestampMillis());
+		assertEquals("save", decoded.getMethod());
+		assertEquals("user", decoded.getUsername());
+		assertEquals("{ROLE_USER}", decoded.getRoles());
+		assertEquals("42", decoded.getTenantId());
+		assertEquals("Account.id=[1]", decoded.getArguments());
+		assertEquals(BinaryAuditRecordCodec.renderText(TIMESTAMP, "save", "user", "{ROLE_USER}", "42", "Account.id=[1]"), decoded.getText());
+		assertTrue(decoded.getText(), decoded.getText().contains(" Method: [save] ") && decoded.getText().contains(" Tenant: [42] "));
+	}
+
+	@Test
+	public void givenRecordWithoutOptionalFieldsWhenDecodingThenFieldsMustBeNull() {
+		AuditRecord decoded = roundTrip(new AuditRecord(TIMESTAMP, "find", null, null, null, null, null));
+		assertEquals("find", decoded.getMethod());
+		assertNull(decoded.getUsername());
+		assertNull(decoded.getRoles());
+		assertNull(decoded.getTenantId());
+		assertNull(decoded.getArguments());
+	}
+
+	@Test
+	public void givenRepeatedFieldValuesWhenEncodingThenDefinitionsMustBeWrittenOnlyOnce() {
+		AuditRecord record = new AuditRecord(TIMESTAMP, "save", "user", "{ROLE_USER}", "42", "", null);
+		int first = encoder.encode(record);
+		int second = encoder.encode(record);
+		assertTrue(first + " > " + second, second < first);
+		assertTrue(String.valueOf(second), second < 16);
+	}
+
+	@Test
+	public void givenDiscardedEncodingWhenEncodingAgainThenDefinitionsMustBeWrittenAgain() {
+		AuditRecord record = new AuditRecord(TIMESTAMP, "save", "user", "{ROLE_USER}", "42", null, null);
+		int first = encoder.encode(record);
+		encoder.discard();
+		assertEquals(first, encoder.encode(record));
+		assertEquals("save", decoder.decode(ByteBuffer.wrap(encoder.getBuffer(), 0, first)).getMethod());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void givenRecordReferringToUndefinedValueWhenDecodingThenDecodingMustFail() {
+		AuditRecord record = new AuditRecord(TIMESTAMP, "save", null, null, null, null, null);
+		encoder.encode(record);
+		int length = encoder.encode(record);
+		decoder.decode(ByteBuffer.wrap(encoder.getBuffer(), 0, length));
+	}
+
+	private AuditRecord roundTrip(AuditRecord record) {
+		int length = encoder.encode(record);
+		return decoder.decode(ByteBuffer.wrap(encoder.getBuffer(), 0, length));
+	}
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Unit test for the batched JDBC audit sink against an in-memory HSQLDB database.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class JdbcAuditSinkUnitTest {
+
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FailingDataSource dataSource;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private JdbcAuditSink sink;
+
+	private MappedAuditJournal spillJournal;
+
+	@Before
+	public void setUp() {
+		dataSource = new FailingDataSource("jdbc:hsqldb:mem:audit" + DATABASES.incrementAndGet());
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE TABLE AUDIT_TRAIL (EVENT_TIME TIMESTAMP NOT NULL, METHOD_NAME VARCHAR(255), USERNAME VARCHAR(255), "
+				+ "ROLES VARCHAR(1024), TENANT_ID VARCHAR(255), ARGUMENTS CLOB, AUDIT_TEXT CLOB)");
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		if (sink != null)
+			sink.destroy();
+		if (spillJournal != null)
+			spillJournal.destroy();
+		jdbcTemplate.execute("SHUTDOWN");
+	}
+
+	@Test
+	public void givenRecordsWhenFlushingThenRecordsMustBeInsertedInBatches() {
+		sink = createSink(10);
+		for (int i = 0; i < 25; i++)
+			sink.write(record(i));
+		sink.flush();
+		assertEquals(25, sink.getInsertedRecords());
+		assertTrue(String.valueOf(sink.getBatches()), sink.getBatches() < 25);
+		assertEquals(25, jdbcTemplate.queryForInt("SELECT COUNT(*) FROM AUDIT_TRAIL"));
+		assertEquals(1, jdbcTemplate.queryForInt("SELECT COUNT(*) FROM AUDIT_TRAIL WHERE ARGUMENTS = 'record7' AND USERNAME IS NULL AND TENANT_ID = '42'"));
+	}
+
+	@Test
+	public void givenTransientFailureWhenInsertingThenBatchMustBeRetried() {
+		sink = createSink(10);
+		dataSource.failures.set(2);
+		sink.write(record(0));
+		sink.flush();
+		assertEquals(2, sink.getRetries());
+		assertEquals(1, sink.getInsertedRecords());
+		assertEquals(0, sink.getSpilledRecords());
+		assertEquals(1, jdbcTemplate.queryForInt("SELECT COUNT(*) FROM AUDIT_TRAIL"));
+	}
+
+	@Test
+	public void givenFailingInsertWhenRetriesAreExhaustedThenRecordsMustBeSpilledToTheJournal() {
+		spillJournal = new MappedAuditJournal();
+		spillJournal.setDirectory(folder.getRoot());
+		spillJournal.setSegmentSize(4096);
+		spillJournal.setFormat(AuditRecordFormat.BINARY);
+		spillJournal.afterPropertiesSet();
+		sink = new JdbcAuditSink();
+		sink.setDataSource(dataSource);
+		sink.setInsertSql("INSERT INTO MISSING_AUDIT_TRAIL VALUES (?, ?, ?, ?, ?, ?, ?)");
+		sink.setSpillSink(spillJournal);
+		sink.setFlushIntervalMillis(50);
+		sink.afterPropertiesSet();
+		for (int i = 0; i < 3; i++)
+			sink.write(record(i));
+		sink.flush();
+		assertEquals(3, sink.getSpilledRecords());
+		assertEquals(0, sink.getLostRecords());
+		assertEquals(0, sink.getRetries());
+		final List<String> arguments = new ArrayList<String>();
+		new AuditJournalReader(folder.getRoot()).read(new AuditJournalReader.Visitor() {
+			public boolean visitRecord(AuditRecord record) {
+				arguments.add(record.getArguments());
+				return true;
+			}
+		});
+		assertEquals(3, arguments.size());
+		assertEquals("record2", arguments.get(2));
+	}
+
+	@Test
+	public void givenQueuedRecordsWhenDestroyingThenRecordsMustBeInserted() throws InterruptedException {
+		sink = createSink(1000);
+		sink.setFlushIntervalMillis(60000);
+		for (int i = 0; i < 50; i++)
+			sink.write(record(i));
+		sink.destroy();
+		assertEquals(50, sink.getInsertedRecords());
+		assertEquals(50, jdbcTemplate.queryForInt("SELECT COUNT(*) FROM AUDIT_TRAIL"));
+	}
+
+	@Test
+	public void givenConcurrentWritersWhenDestroyingThenEveryRecordMustBeInserted() throws InterruptedException {
+		sink = createSink(10);
+		final int writers = 4;
+		final int recordsPerWriter = 500;
+		Thread[] threads = new Thread[writers];
+		for (int t = 0; t < writers; t++) {
+			threads[t] = new Thread(new Runnable() {
+				public void run() {
+					for (int i = 0; i < recordsPerWriter; i++)
+						sink.write(record(i));
+				}
+			});
+			threads[t].start();
+		}
+		Thread.sleep(5);
+		sink.destroy();
+		for (Thread thread : threads)
+			thread.join();
+		assertEquals(writers * recordsPerWriter, sink.getInsertedRecords());
+		assertEquals(writers * recordsPerWriter, jdbcTemplate.queryForInt("SELECT COUNT(*) FROM AUDIT_TRAIL"));
+	}
+
+	private JdbcAuditSink createSink(int batchSize) {
+		JdbcAuditSink jdbcAuditSink = new JdbcAuditSink();
+		jdbcAuditSink.setDataSource(dataSource);
+		jdbcAuditSink.setBatchSize(batchSize);
+		jdbcAuditSink.setFlushIntervalMillis(50);
+		jdbcAuditSink.setRetryBackoffMillis(1);
+		jdbcAuditSink.afterPropertiesSet();
+		return jdbcAuditSink;
+	}
+
+	private static AuditRecord record(int i) {
+		return new AuditRecord(System.currentTimeMillis(), "save", null, "{ROLE_USER}", "42", "record" + i, "text" + i);
+	}
+
+	private static class FailingDataSource extends DriverManagerDataSource {
+
+		private final AtomicInteger failures = new AtomicInteger();
+
+		FailingDataSource(String url) {
+			super(url, "SA", "");
+			setDriverClassName("org.hsqldb.jdbcDriver");
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			if (failures.getAndDecrement() > 0)
+				throw new SQLException("Connection refused");
+			return super.getConnection();
+		}
+
+	}
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit test for the memory mapped audit journal.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.1.0 - Binary record format.
+ * @since 1.6.0
+ */
+public class MappedAuditJournalUnitTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final List<MappedAuditJournal> journals = new ArrayList<MappedAuditJournal>();
+
+	@After
+	public void tearDown() throws InterruptedException {
+		for (MappedAuditJournal journal : journals)
+			journal.destroy();
+	}
+
+	@Test
+	public void givenWrittenRecordsWhenReopeningThenRecordsMustBeRecoveredAndAppendingMustContinue() throws Exception {
+		MappedAuditJournal journal = open(4096, 1024);
+		for (int i = 0; i < 10; i++)
+			journal.write(record("record" + i));
+		journal.destroy();
+		MappedAuditJournal reopened = open(4096, 1024);
+		assertEquals(10, reopened.getRecoveredRecords());
+		reopened.write(record("record10"));
+		reopened.destroy();
+		assertEquals(expectedTexts(11), readAll());
+	}
+
+	@Test
+	public void givenFullSegmentWhenWritingThenJournalMustRollToNewSegments() throws Exception {
+		MappedAuditJournal journal = open(128, 1024);
+		for (int i = 0; i < 20; i++)
+			journal.write(record("record" + i));
+		assertTrue(journal.getSegmentIndex() > 0);
+		journal.destroy();
+		assertEquals(journal.getSegmentIndex() + 1, MappedAuditJournal.listSegmentFiles(folder.getRoot(), MappedAuditJournal.DEFAULT_PREFIX).length);
+		assertEquals(expectedTexts(20), readAll());
+	}
+
+	@Test
+	public void givenTornRecordWhenReopeningThenJournalMustRecoverUpToTheLastValidRecord() throws Exception {
+		MappedAuditJournal journal = open(4096, 1024);
+		for (int i = 0; i < 3; i++)
+			journal.write(record("record" + i));
+		journal.destroy();
+		File segmentFile = MappedAuditJournal.listSegmentFiles(folder.getRoot(), MappedAuditJournal.DEFAULT_PREFIX)[0];
+		RandomAccessFile file = new RandomAccessFile(segmentFile, "rw");
+		int thirdPayload = JournalSegment.SEGMENT_HEADER_SIZE + 2 * (JournalSegment.FRAME_HEADER_SIZE + 7) + JournalSegment.FRAME_HEADER_SIZE;
+		file.seek(thirdPayload);
+		file.write('X');
+		file.close();
+		MappedAuditJournal reopened = open(4096, 1024);
+		assertEquals(2, reopened.getRecoveredRecords());
+		reopened.write(record("record3"));
+		reopened.destroy();
+		List<String> expected = expectedTexts(2);
+		expected.add("record3");
+		assertEquals(expected, readAll());
+	}
+
+	@Test
+	public void givenSyncThresholdWhenWritingThenRecordsMustBeSyncedInGroups() {
+		MappedAuditJournal journal = open(4096, 3 * (JournalSegment.FRAME_HEADER_SIZE + 7));
+		for (int i = 0; i < 9; i++)
+			journal.write(record("record" + i));
+		assertEquals(3, journal.getSyncs());
+		assertEquals(9, journal.getWrittenRecords());
+	}
+
+	@Test
+	public void givenSyncThreadWhenSyncThresholdIsReachedThenSyncThreadMustForceTheSegmentBeforeTheInterval() throws Exception {
+		MappedAuditJournal journal = new MappedAuditJournal();
+		journal.setDirectory(folder.getRoot());
+		journal.setSyncIntervalMillis(60000);
+		journal.setSyncThresholdBytes(JournalSegment.FRAME_HEADER_SIZE + 7);
+		journal.afterPropertiesSet();
+		journals.add(journal);
+		journal.write(record("record0"));
+		long deadline = System.currentTimeMillis() + 5000;
+		while (journal.getSyncs() == 0 && System.currentTimeMillis() < deadline)
+			Thread.sleep(1);
+		assertEquals(1, journal.getSyncs());
+	}
+
+	@Test
+	public void givenBinaryFormatWhenRollingAndReopeningThenReaderMustDecodeAllRecords() throws Exception {
+		MappedAuditJournal journal = open(256, 1024, AuditRecordFormat.BINARY);
+		for (int i = 0; i < 15; i++)
+			journal.write(record("record" + i));
+		assertTrue(journal.getSegmentIndex() > 0);
+		journal.destroy();
+		MappedAuditJournal reopened = open(256, 1024, AuditRecordFormat.BINARY);
+		for (int i = 15; i < 20; i++)
+			reopened.write(record("record" + i));
+		reopened.destroy();
+		List<AuditRecord> records = readRecords();
+		assertEquals(20, records.size());
+		for (int i = 0; i < records.size(); i++) {
+			AuditRecord record = records.get(i);
+			assertEquals("method", record.getMethod());
+			assertEquals("user", record.getUsername());
+			assertEquals("record" + i, record.getArguments());
+			assertTrue(record.getText(), record.getText().endsWith("record" + i));
+		}
+	}
+
+	@Test
+	public void givenChangedFormatWhenReopeningThenJournalMustContinueInNewSegment() throws Exception {
+		MappedAuditJournal journal = open(4096, 1024);
+		journal.write(record("record0"));
+		journal.destroy();
+		MappedAuditJournal reopened = open(4096, 1024, AuditRecordFormat.BINARY);
+		assertEquals(1, reopened.getRecoveredRecords());
+		assertEquals(1, reopened.getSegmentIndex());
+		reopened.write(record("record1"));
+		reopened.destroy();
+		List<AuditRecord> records = readRecords();
+		assertEquals(2, records.size());
+		assertEquals("record0", records.get(0).getText());
+		assertEquals("record1", records.get(1).getArguments());
+	}
+
+	private MappedAuditJournal open(int segmentSize, int syncThresholdBytes) {
+		return open(segmentSize, syncThresholdBytes, AuditRecordFormat.TEXT);
+	}
+
+	private MappedAuditJournal open(int segmentSize, int syncThresholdBytes, AuditRecordFormat format) {
+		MappedAuditJournal journal = new MappedAuditJournal();
+		journal.setFormat(format);
+		journal.setDirectory(folder.getRoot());
+		journal.setSegmentSize(segmentSize);
+		journal.setSyncIntervalMillis(0);
+		journal.setSyncThresholdBytes(syncThresholdBytes);
+		journal.afterPropertiesSet();
+		journals.add(journal);
+		return journal;
+	}
+
+	private static AuditRecord record(String text) {
+		return new AuditRecord(System.currentTimeMillis(), "method", "user", "{role}", null, text, text);
+	}
+
+	private static List<String> expectedTexts(int count) {
+		List<String> texts = new ArrayList<String>();
+		for (int i = 0; i < count; i++)
+			texts.add("record" + i);
+		return texts;
+	}
+
+	private List<AuditRecord> readRecords() {
+		final List<AuditRecord> records = new ArrayList<AuditRecord>();
+		new AuditJournalReader(folder.getRoot()).read(new AuditJournalReader.Visitor() {
+			public boolean visitRecord(AuditRecord record) {
+				records.add(record);
+				return true;
+			}
+		});
+		return records;
+	}
+
+	private List<String> readAll() throws Exception {
+		final List<String> texts = new ArrayList<String>();
+		long index = 0;
+		for (File segmentFile : MappedAuditJournal.listSegmentFiles(folder.getRoot(), MappedAuditJournal.DEFAULT_PREFIX)) {
+			JournalSegment segment = JournalSegment.open(segmentFile, index++, 0, AuditRecordFormat.TEXT.getId());
+			segment.scan(new JournalSegment.FrameVisitor() {
+				public boolean visitFrame(ByteBuffer payload) {
+					texts.add(UTF_8.decode(payload).toString());
+					return true;
+				}
+			});
+			segment.close();
+		}
+		return texts;
+	}
+
+}
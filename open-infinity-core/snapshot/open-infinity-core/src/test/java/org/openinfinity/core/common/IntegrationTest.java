@@ -36,6 +36,10 @@ public interface IntegrationTest {
 	
 	public void logMeWithFalseArguments(Account account);
 	
+	public String logMeSampled(String sampledMessage);
+	
+	public String logMeIfSlow(String slowMessage, long sleepMillis);
+	
 	public void auditMeWithFalseField(Account account);
 	
 	public void auditMeWithNoArguments(Account account);
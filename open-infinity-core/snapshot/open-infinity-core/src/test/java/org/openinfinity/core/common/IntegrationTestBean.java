@@ -86,6 +86,21 @@ public class IntegrationTestBean implements IntegrationTest {
 	public void logMeWithFalseArguments(Account account) {
 	}
 	
+	@Log(sampleRate = 3)
+	public String logMeSampled(String sampledMessage) {
+		return sampledMessage;
+	}
+	
+	@Log(slowerThanMillis = 50)
+	public String logMeIfSlow(String slowMessage, long sleepMillis) {
+		try {
+			Thread.sleep(sleepMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return slowMessage;
+	}
+	
 	@AuditTrail({"id","name","asdasd"})
 	public void auditMeWithFalseField(Account account) {
 	}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.openinfinity.core.annotation.Log.LogLevel;
+import org.slf4j.Logger;
+
+/**
+ * Unit test for the ring buffer and the asynchronous log dispatcher.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class AsyncLogDispatcherUnitTest {
+
+	@Test
+	public void givenFullRingBufferWhenOfferingThenElementMustBeRejectedAndElementsPolledInOrder() {
+		RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(3);
+		assertEquals(4, ringBuffer.getCapacity());
+		for (int i = 0; i < 4; i++) {
+			assertTrue(ringBuffer.offer(i));
+		}
+		assertFalse(ringBuffer.offer(4));
+		assertEquals(4, ringBuffer.size());
+		for (int i = 0; i < 4; i++) {
+			assertEquals(Integer.valueOf(i), ringBuffer.poll());
+		}
+		assertNull(ringBuffer.poll());
+		assertTrue(ringBuffer.isEmpty());
+	}
+
+	@Test
+	public void givenConcurrentProducersWhenPublishingThenEveryElementMustBeConsumedOnce() throws InterruptedException {
+		final RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(64);
+		final int producers = 4;
+		final int elementsPerProducer = 20000;
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int p = 0; p < producers; p++) {
+			final int offset = p * elementsPerProducer;
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					for (int i = 0; i < elementsPerProducer; i++) {
+						while (!ringBuffer.offer(offset + i)) {
+							Thread.yield();
+						}
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		boolean[] consumed = new boolean[producers * elementsPerProducer];
+		for (int count = 0; count < consumed.length;) {
+			Integer element = ringBuffer.poll();
+			if (element == null) {
+				Thread.yield();
+				continue;
+			}
+			assertFalse(consumed[element]);
+			consumed[element] = true;
+			count++;
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(ringBuffer.isEmpty());
+	}
+
+	@Test
+	public void givenBlockingPolicyWhenDestroyingThenAllPendingEventsMustBeWritten() throws Exception {
+		AtomicInteger written = new AtomicInteger();
+		AsyncLogDispatcher dispatcher = createDispatcher(16, OverflowPolicy.BLOCK);
+		Logger logger = createLogger(written, null);
+		for (int i = 0; i < 1000; i++) {
+			dispatcher.dispatch(logger, LogLevel.INFO, "{}: {}", "event", i);
+		}
+		dispatcher.destroy();
+		assertEquals(1000, written.get());
+		assertEquals(0, dispatcher.getDroppedEvents());
+		dispatcher.dispatch(logger, LogLevel.INFO, "written on the calling thread");
+		assertEquals(1001, written.get());
+	}
+
+	@Test
+	public void givenDestroyBetweenRunningCheckAndOfferWhenDispatchingThenEventMustBeWrittenOnCallingThread() throws Exception {
+		AtomicInteger written = new AtomicInteger();
+		final AsyncLogDispatcher dispatcher = createDispatcher(16, OverflowPolicy.DROP);
+		Logger logger = createLogger(written, null);
+		Object destroyingArgument = new Object() {
+			@Override
+			public String toString() {
+				try {
+					dispatcher.destroy();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return "destroyed while dispatching";
+			}
+		};
+		dispatcher.dispatch(logger, LogLevel.INFO, "{}", destroyingArgument, null);
+		assertFalse(dispatcher.isRunning());
+		assertEquals(1, written.get());
+		assertEquals(0, dispatcher.getPendingEvents());
+	}
+
+	@Test
+	public void givenDropPolicyWhenWriterIsStalledThenOverflowingEventsMustBeDroppedAndCounted() throws Exception {
+		AtomicInteger written = new AtomicInteger();
+		CountDownLatch stall = new CountDownLatch(1);
+		AsyncLogDispatcher dispatcher = createDispatcher(4, OverflowPolicy.DROP);
+		Logger logger = createLogger(written, stall);
+		for (int i = 0; i < 100; i++) {
+			dispatcher.dispatch(logger, LogLevel.DEBUG, "{}: {}", "event", i);
+		}
+		stall.countDown();
+		dispatcher.flush();
+		assertTrue(dispatcher.getDroppedEvents() > 0);
+		assertEquals(100, written.get() + dispatcher.getDroppedEvents());
+		dispatcher.destroy();
+	}
+
+	private static AsyncLogDispatcher createDispatcher(int capacity, OverflowPolicy overflowPolicy) {
+		AsyncLogDispatcher dispatcher = new AsyncLogDispatcher();
+		dispatcher.setCapacity(capacity);
+		dispatcher.setOverflowPolicy(overflowPolicy);
+		dispatcher.afterPropertiesSet();
+		return dispatcher;
+	}
+
+	private static Logger createLogger(final AtomicInteger written, final CountDownLatch stall) {
+		return (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[] {Logger.class}, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getReturnType() == boolean.class)
+					return Boolean.TRUE;
+				if (method.getReturnType() == String.class)
+					return AsyncLogDispatcherUnitTest.class.getName();
+				if (stall != null)
+					stall.await();
+				written.incrementAndGet();
+				return null;
+			}
+		});
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Test;
+import org.openinfinity.core.util.StringUtil;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * Unit test for the JSON event writer.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class JsonEventWriterUnitTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	public void givenEventFieldsWhenWritingThenJsonObjectMustContainTheFixedFieldNames() throws Exception {
+		Authentication authentication = new UsernamePasswordAuthenticationToken("john", "N/A",
+				Arrays.<GrantedAuthority>asList(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_\"ADMIN\"")));
+		String json = JsonEventWriter.begin()
+				.writeMethod("IntegrationTestBean.logMe")
+				.writeDuration(12)
+				.writeSecurity(authentication, true, true)
+				.writeArguments("Account: {id=2}")
+				.writeResult(Boolean.TRUE)
+				.end();
+		assertFalse(json.contains("\n"));
+		JsonNode event = objectMapper.readTree(json);
+		assertEquals("IntegrationTestBean.logMe", event.get(JsonEventWriter.FIELD_METHOD).getTextValue());
+		assertEquals(12, event.get(JsonEventWriter.FIELD_DURATION).getLongValue());
+		assertEquals("john", event.get(JsonEventWriter.FIELD_USER).getTextValue());
+		assertEquals("ROLE_\"ADMIN\"", event.get(JsonEventWriter.FIELD_ROLES).get(1).getTextValue());
+		assertEquals("Account: {id=2}", event.get(JsonEventWriter.FIELD_ARGUMENTS).getTextValue());
+		assertEquals("true", event.get(JsonEventWriter.FIELD_RESULT).getTextValue());
+	}
+
+	@Test
+	public void givenLargeCollectionResultWhenWritingThenResultMustBeRenderedWithinTheLimits() throws Exception {
+		List<Integer> result = new ArrayList<Integer>();
+		for (int i = 0; i < 100000; i++)
+			result.add(i);
+		JsonNode event = objectMapper.readTree(JsonEventWriter.begin().writeResult(result).end());
+		String rendered = event.get(JsonEventWriter.FIELD_RESULT).getTextValue();
+		assertEquals(StringUtil.appendValue(new StringBuilder(), result).toString(), rendered);
+		assertTrue(rendered, rendered.length() < 1024);
+	}
+
+	@Test
+	public void givenEventBeingWrittenWhenBeginningAnotherEventOnTheSameThreadThenEventsMustNotBeMixed() throws Exception {
+		JsonEventWriter outer = JsonEventWriter.begin().writeMethod("outer");
+		String inner = JsonEventWriter.begin().writeMethod("inner").writeSecurity(null, true, true).end();
+		String json = outer.writeDuration(1).end();
+		assertEquals("{\"method\":\"inner\",\"user\":null}", inner);
+		assertEquals("{\"method\":\"outer\",\"duration\":1}", json);
+		assertEquals("{\"method\":\"next\"}", JsonEventWriter.begin().writeMethod("next").end());
+	}
+
+	@Test
+	public void givenEventFailedBeforeEndWhenReleasedThenNextEventMustReuseTheWriterOfTheThread() throws Exception {
+		JsonEventWriter failed = JsonEventWriter.begin();
+		try {
+			failed.writeMethod("failed");
+			throw new IllegalStateException("failure between begin and end");
+		} catch (IllegalStateException e) {
+			// the event is not ended
+		} finally {
+			failed.release();
+		}
+		JsonEventWriter next = JsonEventWriter.begin();
+		try {
+			assertSame(failed, next);
+			assertEquals("next", objectMapper.readTree(next.writeMethod("next").end()).get(JsonEventWriter.FIELD_METHOD).getTextValue());
+		} finally {
+			next.release();
+		}
+	}
+
+	@Test
+	public void givenCompletedTraceWhenWritingThenSpansMustBeWrittenWithParentIds() throws Exception {
+		Span outer = TraceContext.startSpan("outer");
+		TraceContext.endSpan(TraceContext.startSpan("inner"));
+		TraceContext trace = TraceContext.endSpan(outer);
+		JsonNode event = objectMapper.readTree(JsonEventWriter.begin().writeTrace(trace).end());
+		assertEquals(trace.getTraceId(), event.get(JsonEventWriter.FIELD_TRACE_ID).getTextValue());
+		JsonNode spans = event.get(JsonEventWriter.FIELD_SPANS);
+		assertEquals(2, spans.size());
+		assertEquals("inner", spans.get(1).get(JsonEventWriter.FIELD_METHOD).getTextValue());
+		assertEquals(outer.getId(), spans.get(1).get(JsonEventWriter.FIELD_PARENT_SPAN_ID).getIntValue());
+	}
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.log;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the token bucket rate limiter.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class RateLimiterUnitTest {
+
+	@Test
+	public void givenExhaustedBucketWhenTimePassesThenPermitsMustBeRefilledAtTheConfiguredRate() {
+		RateLimiter rateLimiter = new RateLimiter(10);
+		long now = System.nanoTime();
+		for (int i = 0; i < 10; i++) {
+			assertTrue(rateLimiter.tryAcquire(now));
+		}
+		assertFalse(rateLimiter.tryAcquire(now));
+		assertFalse(rateLimiter.tryAcquire(now + TimeUnit.MILLISECONDS.toNanos(50)));
+		assertTrue(rateLimiter.tryAcquire(now + TimeUnit.MILLISECONDS.toNanos(100)));
+		assertFalse(rateLimiter.tryAcquire(now + TimeUnit.MILLISECONDS.toNanos(100)));
+	}
+
+}
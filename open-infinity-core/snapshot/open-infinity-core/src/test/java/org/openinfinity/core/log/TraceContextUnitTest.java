@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+/**
+ * Unit test for the thread bound trace context.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class TraceContextUnitTest {
+
+	@After
+	public void tearDown() {
+		MDC.clear();
+	}
+
+	@Test
+	public void givenNestedSpansWhenOutermostSpanEndsThenTraceMustContainSpansWithParentIds() {
+		Span outer = TraceContext.startSpan("outer");
+		String traceId = MDC.get(TraceContext.TRACE_ID_KEY);
+		assertNotNull(traceId);
+		Span inner = TraceContext.startSpan("inner");
+		assertEquals(String.valueOf(inner.getId()), MDC.get(TraceContext.SPAN_ID_KEY));
+		assertNull(TraceContext.endSpan(inner));
+		assertEquals(String.valueOf(outer.getId()), MDC.get(TraceContext.SPAN_ID_KEY));
+		TraceContext trace = TraceContext.endSpan(outer);
+		assertNotNull(trace);
+		assertEquals(traceId, trace.getTraceId());
+		assertEquals(2, trace.getSpans().size());
+		assertEquals(0, trace.getSpans().get(0).getParentId());
+		assertEquals(outer.getId(), trace.getSpans().get(1).getParentId());
+		assertEquals(1, trace.getSpans().get(1).getDepth());
+		assertTrue(outer.getDurationNanos() >= inner.getDurationNanos());
+		assertNull(TraceContext.current());
+		assertNull(MDC.get(TraceContext.TRACE_ID_KEY));
+		assertNull(MDC.get(TraceContext.SPAN_ID_KEY));
+	}
+
+	@Test
+	public void givenTraceIdInMdcWhenStartingSpanThenTraceIdMustBeAdoptedAndKeptInMdc() {
+		MDC.put(TraceContext.TRACE_ID_KEY, "request-1");
+		Span span = TraceContext.startSpan("adopted");
+		TraceContext trace = TraceContext.endSpan(span);
+		assertEquals("request-1", trace.getTraceId());
+		assertEquals("request-1", MDC.get(TraceContext.TRACE_ID_KEY));
+	}
+
+	@Test
+	public void givenWrappedTaskWhenExecutedOnAnotherThreadThenSpansMustBelongToTheCallingTrace() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			// the worker thread is started before the trace, since log4j copies the MDC to the child threads
+			executor.submit(new Runnable() {
+				public void run() {}
+			}).get();
+			final AtomicReference<TraceContext> forkedTrace = new AtomicReference<TraceContext>();
+			Span span = TraceContext.startSpan("caller");
+			Future<?> future = executor.submit(TraceContext.wrap(new Runnable() {
+				public void run() {
+					forkedTrace.set(TraceContext.endSpan(TraceContext.startSpan("task")));
+				}
+			}));
+			future.get();
+			TraceContext trace = TraceContext.endSpan(span);
+			assertEquals(trace.getTraceId(), forkedTrace.get().getTraceId());
+			assertEquals(span.getId(), forkedTrace.get().getParentSpanId());
+			assertEquals(span.getId(), forkedTrace.get().getSpans().get(0).getParentId());
+			assertTrue(forkedTrace.get().getSpans().get(0).getId() != span.getId());
+			assertNull(executor.submit(new Runnable() {
+				public void run() {
+					assertNull(TraceContext.current());
+					assertNull(MDC.get(TraceContext.TRACE_ID_KEY));
+				}
+			}).get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void givenNoActiveTraceWhenWrappingTaskThenTaskMustBeReturnedAsIs() {
+		Runnable task = new Runnable() {
+			public void run() {}
+		};
+		assertSame(task, TraceContext.wrap(task));
+	}
+
+	@Test
+	public void givenMoreSpansThanBufferWhenTraceCompletesThenExcessSpansMustBeCountedAsDropped() {
+		Span root = TraceContext.startSpan("root");
+		for (int i = 0; i < TraceContext.MAX_SPANS; i++)
+			TraceContext.endSpan(TraceContext.startSpan("child"));
+		TraceContext trace = TraceContext.endSpan(root);
+		assertEquals(TraceContext.MAX_SPANS, trace.getSpans().size());
+		assertEquals(1, trace.getDroppedSpans());
+		assertTrue(trace.toString().contains("1 dropped"));
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.monitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for latency histograms and their JMX registration.
+ * 
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class LatencyHistogramUnitTest {
+	
+	private LatencyHistogram latencyHistogram;
+	
+	private LatencyMonitor latencyMonitor;
+	
+	@Before
+	public void setUp() {
+		this.latencyHistogram = new LatencyHistogram();
+		this.latencyMonitor = new LatencyMonitor();
+	}
+	
+	@Test
+	public void givenRecordedValuesWhenReadingPercentilesThenValuesMustBeWithinRelativeErrorOfTheActualPercentiles() {
+		for (long value = 1; value <= 100000; value++) {
+			latencyHistogram.recordValue(value * 1000);
+		}
+		assertEquals(100000, latencyHistogram.getCount());
+		assertWithinRelativeError(50000d, latencyHistogram.getP50());
+		assertWithinRelativeError(90000d, latencyHistogram.getP90());
+		assertWithinRelativeError(99000d, latencyHistogram.getP99());
+		assertWithinRelativeError(99900d, latencyHistogram.getP999());
+		assertEquals(100000d, latencyHistogram.getMax(), 0d);
+		assertWithinRelativeError(50000.5d, latencyHistogram.getMean());
+	}
+	
+	@Test
+	public void givenSmallValuesWhenReadingPercentilesThenValuesMustBeExact() {
+		for (long value = 0; value < 64; value++) {
+			latencyHistogram.recordValue(value);
+		}
+		assertEquals(31, latencyHistogram.getValueAtPercentile(50d));
+		assertEquals(63, latencyHistogram.getValueAtPercentile(100d));
+	}
+	
+	@Test
+	public void givenBucketIndexesWhenResolvingHighestEquivalentValuesThenBucketsMustBeContinuous() {
+		for (int index = 1; index < LatencyHistogram.bucketIndex(1L << 40); index++) {
+			long lowest = LatencyHistogram.highestEquivalentValue(index - 1) + 1;
+			assertEquals(index, LatencyHistogram.bucketIndex(lowest));
+			assertEquals(index, LatencyHistogram.bucketIndex(LatencyHistogram.highestEquivalentValue(index)));
+		}
+	}
+	
+	@Test
+	public void givenResetHistogramWhenReadingThenRecordedValuesMustBeCleared() {
+		latencyHistogram.recordValue(1000);
+		latencyHistogram.reset();
+		assertEquals(0, latencyHistogram.getCount());
+		assertEquals(0d, latencyHistogram.getP99(), 0d);
+	}
+	
+	@Test
+	public void givenAdvisedMethodWhenRequestingHistogramThenHistogramMustBeRegisteredAsMBean() throws Exception {
+		Method method = LatencyHistogramUnitTest.class.getMethod("setUp");
+		LatencyHistogram histogram = latencyMonitor.getHistogram("TestAspect", method);
+		histogram.recordValue(2000);
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = new ObjectName("org.openinfinity.core:type=LatencyHistogram,aspect=TestAspect,method=" + ObjectName.quote(LatencyHistogramUnitTest.class.getName() + ".setUp()"));
+		assertTrue(mBeanServer.isRegistered(objectName));
+		assertEquals(1L, mBeanServer.getAttribute(objectName, "Count"));
+		assertEquals(histogram, latencyMonitor.getHistogram("TestAspect", method));
+	}
+	
+	@Test
+	public void givenSameSimpleNamedParameterTypesWhenRequestingHistogramsThenHistogramsMustBeSeparate() throws Exception {
+		Method utilDateMethod = LatencyHistogramUnitTest.class.getMethod("sample", java.util.Date.class);
+		Method sqlDateMethod = LatencyHistogramUnitTest.class.getMethod("sample", java.sql.Date.class);
+		assertEquals(LatencyHistogramUnitTest.class.getName() + ".sample(java.util.Date)", LatencyMonitor.createMethodName(utilDateMethod));
+		assertNotSame(latencyMonitor.getHistogram("TestAspect", utilDateMethod), latencyMonitor.getHistogram("TestAspect", sqlDateMethod));
+		assertEquals(LatencyHistogramUnitTest.class.getName() + ".sample(java.lang.String[])", 
+				LatencyMonitor.createMethodName(LatencyHistogramUnitTest.class.getMethod("sample", String[].class)));
+	}
+	
+	public void sample(java.util.Date date) {}
+	
+	public void sample(java.sql.Date date) {}
+	
+	public void sample(String[] values) {}
+	
+	@After
+	public void tearDown() {
+		latencyMonitor.destroy();
+	}
+
+	private void assertWithinRelativeError(double expected, double actual) {
+		assertTrue("Expected " + expected + " but was " + actual, Math.abs(actual - expected) <= expected * 0.035d);
+	}
+	
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.reflection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.openinfinity.core.common.domain.Account;
+
+/**
+ * Unit test for the cached field metadata.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class FieldMetadataUnitTest {
+
+	@Test
+	public void givenInheritedPrivateFieldWhenResolvingThenFieldMustBeAccessibleAndCached() {
+		FieldMetadata fieldMetadata = FieldMetadata.forField(Subclass.class, "secret");
+		assertTrue(fieldMetadata.getField().isAccessible());
+		assertFalse(fieldMetadata.isConstant());
+		assertSame(fieldMetadata, FieldMetadata.forField(Subclass.class, "secret"));
+		Subclass subclass = new Subclass();
+		fieldMetadata.setValue(subclass, "changed");
+		assertEquals("changed", fieldMetadata.getValue(subclass));
+	}
+
+	@Test
+	public void givenGenericFieldWhenResolvingThenTypeMustBeResolvedAgainstTheClass() {
+		assertEquals(String.class, FieldMetadata.forField(Account.class, "tenantId").getResolvedType());
+		assertEquals(Long.class, FieldMetadata.forField(Subclass.class, "value").getResolvedType());
+		assertEquals(Object.class, FieldMetadata.forField(Generic.class, "value").getResolvedType());
+	}
+
+	@Test
+	public void givenUnknownFieldWhenResolvingThenNullMustBeReturned() {
+		assertNull(FieldMetadata.forField(Subclass.class, "unknown"));
+		assertNull(FieldMetadata.forField(Subclass.class, "unknown"));
+	}
+
+	@Test
+	public void givenConcurrentLookupsWhenResolvingThenEveryThreadMustGetTheSameMetadata() throws Exception {
+		final int threads = 8;
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executorService = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<FieldMetadata>> futures = new ArrayList<Future<FieldMetadata>>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executorService.submit(new Callable<FieldMetadata>() {
+					public FieldMetadata call() throws Exception {
+						start.await();
+						return FieldMetadata.forField(Concurrent.class, "field");
+					}
+				}));
+			}
+			start.countDown();
+			FieldMetadata first = futures.get(0).get();
+			for (Future<FieldMetadata> future : futures)
+				assertSame(first, future.get());
+		} finally {
+			executorService.shutdown();
+		}
+	}
+
+	static class Generic<T> {
+		T value;
+	}
+
+	static class Subclass extends Generic<Long> {
+		@SuppressWarnings("unused")
+		private String secret = "secret";
+	}
+
+	static class Concurrent {
+		int field;
+	}
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.reflection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.ReflectionUtils.FieldCallback;
+
+/**
+ * Unit test for the cached field walk plans.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class FieldPlanUnitTest {
+
+	@Test
+	public void givenClassHierarchyWhenPlanningThenFieldsMustBeInTheOrderOfDoWithFields() {
+		final List<String> expected = new ArrayList<String>();
+		ReflectionUtils.doWithFields(Entity.class, new FieldCallback() {
+			public void doWith(Field field) {
+				if (!(Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())))
+					expected.add(field.getName());
+			}
+		});
+		FieldPlan plan = FieldPlan.forClass(Entity.class);
+		List<String> actual = new ArrayList<String>();
+		for (int i = 0; i < plan.size(); i++) {
+			actual.add(plan.get(i).getName());
+			assertTrue(plan.get(i).getField().isAccessible());
+		}
+		assertEquals(expected, actual);
+		assertSame(plan, FieldPlan.forClass(Entity.class));
+	}
+
+	@Test
+	public void givenFieldTypesWhenPlanningThenFieldsMustBeTaggedByKind() {
+		FieldPlan plan = FieldPlan.forClass(Entity.class);
+		assertEquals(FieldKind.VALUE, plan.get(0).getKind());
+		assertEquals(FieldKind.PRIMITIVE, plan.get(1).getKind());
+		assertEquals(FieldKind.MAP, plan.get(2).getKind());
+		assertEquals(FieldKind.ARRAY, plan.get(3).getKind());
+		assertEquals(FieldKind.VALUE, plan.get(4).getKind());
+		assertEquals(5, plan.size());
+	}
+
+	static class Base<ID> {
+		static int instances;
+		final String constant = "constant";
+		private byte[] data;
+		ID id;
+	}
+
+	static class Entity extends Base<Long> {
+		private static final long serialVersionUID = 1L;
+		private String name;
+		private int count;
+		private Map<String, Object> attributes;
+	}
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.reflection;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.openinfinity.core.aspect.ArgumentBuilder;
+
+/**
+ * Unit test for the bounded object graph walker.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class ObjectGraphWalkerUnitTest {
+
+	@Test
+	public void givenNestedObjectsAndCollectionsWhenWalkingThenFieldsMustBeVisitedWithPaths() {
+		Node root = new Node("root", new Node("child", null));
+		root.children = Arrays.asList(new Node("first", null), new Node("second", null));
+		root.attributes = Collections.<String, Object>singletonMap("key", new Node("mapped", null));
+		root.array = new Node[] {new Node("element", null)};
+		assertEquals(Arrays.asList("name=root", "next=", "next.name=child", "next.next=null", "next.children=null", "next.attributes=null", "next.array=null",
+				"next.created=null", "children=", "children[0].name=first", "children[0].next=null", "children[0].children=null", "children[0].attributes=null",
+				"children[0].array=null", "children[0].created=null", "children[1].name=second", "children[1].next=null", "children[1].children=null",
+				"children[1].attributes=null", "children[1].array=null", "children[1].created=null", "attributes=", "attributes[key].name=mapped",
+				"attributes[key].next=null", "attributes[key].children=null", "attributes[key].attributes=null", "attributes[key].array=null",
+				"attributes[key].created=null", "array=", "array[0].name=element", "array[0].next=null", "array[0].children=null", "array[0].attributes=null",
+				"array[0].array=null", "array[0].created=null", "created=null"),
+				walk(new ObjectGraphWalker(1, 10, 100), root));
+	}
+
+	@Test
+	public void givenCycleWhenWalkingThenObjectsMustBeVisitedOnce() {
+		Node first = new Node("first", null);
+		Node second = new Node("second", first);
+		first.next = second;
+		assertEquals(Arrays.asList("name=first", "next=", "next.name=second", "next.next=", "next.children=null", "next.attributes=null", "next.array=null",
+				"next.created=null", "children=null", "attributes=null", "array=null", "created=null"),
+				walk(new ObjectGraphWalker(10, 10, 100), first));
+	}
+
+	@Test
+	public void givenLimitsWhenWalkingThenDepthElementsAndObjectsMustBeBounded() {
+		Node root = new Node("root", new Node("child", new Node("grandchild", null)));
+		root.children = new ArrayList<Node>();
+		for (int i = 0; i < 100; i++)
+			root.children.add(new Node("element" + i, null));
+		root.created = new Date(0);
+		assertEquals(6, walk(new ObjectGraphWalker(0, 2, 100), root).size());
+		assertEquals(6 + 6 + 2 * 6, walk(new ObjectGraphWalker(1, 2, 100), root).size());
+		assertEquals(6 + 6, walk(new ObjectGraphWalker(1, 2, 2), root).size());
+	}
+
+	@Test
+	public void givenWalkerWhenExtractingArgumentInfoThenNestedFieldsMustBeWrittenWithinTheDepth() {
+		Node root = new Node("root", new Node("child", new Node("grandchild", null)));
+		ArgumentBuilder builder = new ArgumentBuilder();
+		builder.extractArgumentInfoByWalkingFields(new Object[] {root, "text"}, new ObjectGraphWalker(1, 10, 100));
+		assertEquals(Node.class.getName() + "=[name=root, next.name=child, next.next={...}, next.children=null, next.attributes=null, next.array=null, "
+				+ "next.created=null, children=null, attributes=null, array=null, created=null] java.lang.String=[text] ", builder.toString());
+	}
+
+	private List<String> walk(ObjectGraphWalker walker, Object root) {
+		final List<String> visited = new ArrayList<String>();
+		walker.walk(root, new ObjectGraphWalker.Visitor() {
+			public boolean visitField(Object owner, FieldMetadata field, Object value, CharSequence path, int depth) {
+				visited.add(path + "=" + (value == null || value instanceof String ? value : ""));
+				return true;
+			}
+		});
+		return visited;
+	}
+
+	static class Node {
+		String name;
+		Node next;
+		List<Node> children;
+		Map<String, Object> attributes;
+		Node[] array;
+		Date created;
+
+		Node(String name, Node next) {
+			this.name = name;
+			this.next = next;
+		}
+	}
+
+}
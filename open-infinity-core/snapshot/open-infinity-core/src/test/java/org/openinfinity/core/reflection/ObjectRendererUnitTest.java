@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.reflection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.openinfinity.core.exception.ExceptionDetails;
+import org.openinfinity.core.exception.ExceptionLevel;
+
+/**
+ * Unit test for the bounded object renderer.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class ObjectRendererUnitTest {
+
+	@Test
+	public void givenValuesWhenRenderingThenStringsAndCollectionsMustBeBounded() {
+		ObjectRenderer renderer = new ObjectRenderer(5, 2, 1);
+		assertEquals("text", render(renderer, "text"));
+		assertEquals("long ...", render(renderer, "long text"));
+		assertEquals("[1, 2, ...3 more]", render(renderer, Arrays.asList(1, 2, 3, 4, 5)));
+		assertEquals("[1, 2, ...1 more]", render(renderer, new int[] {1, 2, 3}));
+		assertEquals("{key=value}", render(renderer, Collections.singletonMap("key", "value")));
+		assertEquals("[[size=2], []]", render(renderer, Arrays.asList(Arrays.asList(1, 2), new ArrayList<Object>())));
+		assertEquals("[null]", render(renderer, Collections.singletonList(null)));
+		assertEquals("null", render(renderer, null));
+	}
+
+	@Test
+	public void givenObjectsWhenRenderingFieldsThenNestedObjectsMustBeRenderedWithinTheDepth() {
+		Node root = new Node("root", new Node("child", new Node("grandchild", null)));
+		String rendered = new ObjectRenderer(256, 16, 1).appendFields(new StringBuilder(), root).toString();
+		assertEquals(identity(root) + "[name=root,next=" + identity(root.next) + "[name=child,next=" + identity(root.next.next) + ",children=[]],children=[]]", rendered);
+	}
+
+	@Test
+	public void givenCycleWhenRenderingFieldsThenRenderedObjectsMustBeWrittenByIdentity() {
+		Node first = new Node("first", null);
+		first.next = first;
+		String rendered = ObjectRenderer.DEFAULT.appendFields(new StringBuilder(), first).toString();
+		assertEquals(identity(first) + "[name=first,next=" + identity(first) + ",children=[]]", rendered);
+	}
+
+	@Test
+	public void givenObjectImplementingToStringWhenRenderingValueThenToStringMustBeUsed() {
+		ExceptionDetails<String> exceptionDetails = new ExceptionDetails<String>("domain");
+		exceptionDetails.addExceptionLevelBasedUniqueId(ExceptionLevel.ERROR, "error.id");
+		assertEquals(exceptionDetails.toString(), render(ObjectRenderer.DEFAULT, exceptionDetails));
+		assertTrue(exceptionDetails.toString(), exceptionDetails.toString().contains("{error=[error.id]}"));
+	}
+
+	private String render(ObjectRenderer renderer, Object value) {
+		return renderer.appendValue(new StringBuilder(), value).toString();
+	}
+
+	private String identity(Object object) {
+		return object.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(object));
+	}
+
+	static class Node {
+		final String name;
+		Node next;
+		final List<Node> children = new ArrayList<Node>();
+
+		Node(String name, Node next) {
+			this.name = name;
+			this.next = next;
+		}
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.reflection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.JXPathNotFoundException;
+import org.junit.Test;
+
+/**
+ * Unit test for the compiled property path accessors.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class PropertyPathAccessorUnitTest {
+
+	@Test
+	public void givenNestedPathWhenReadingThenValueMustEqualJXPathValue() {
+		Car car = new Car(new Tire("Nokian"));
+		PropertyPathAccessor accessor = PropertyPathAccessor.forPath(Car.class, "tire/brand");
+		assertEquals(JXPathContext.newContext(car).getValue("tire/brand"), accessor.getValue(car));
+		assertSame(accessor, PropertyPathAccessor.forPath(Car.class, "tire/brand"));
+	}
+
+	@Test
+	public void givenSubclassValueWhenReadingNestedPathThenGetterOfTheRuntimeClassMustBeUsed() {
+		PropertyPathAccessor accessor = PropertyPathAccessor.forPath(Car.class, "tire/studs");
+		assertEquals(120, accessor.getValue(new Car(new WinterTire("Hakkapeliitta", 120))));
+	}
+
+	@Test
+	public void givenPathCrossingCollectionWhenReadingThenValueMustEqualJXPathValue() {
+		Garage garage = new Garage(Arrays.asList(new Car(new Tire("first")), new Car(new Tire("second"))));
+		PropertyPathAccessor accessor = PropertyPathAccessor.forPath(Garage.class, "cars/tire/brand");
+		assertEquals(JXPathContext.newContext(garage).getValue("cars/tire/brand"), accessor.getValue(garage));
+	}
+
+	@Test
+	public void givenMapArgumentWhenReadingThenKeyMustBeUsedAsProperty() {
+		assertEquals("value", PropertyPathAccessor.forPath(Collections.singletonMap("key", "value").getClass(), "key")
+				.getValue(Collections.singletonMap("key", "value")));
+	}
+
+	@Test
+	public void givenUnknownPropertyWhenCompilingThenAccessorMustBeMissingAndReportedOnce() {
+		PropertyPathAccessor accessor = PropertyPathAccessor.forPath(Tire.class, "unknown");
+		assertTrue(accessor.isMissing());
+		assertTrue(accessor.reportMissing());
+		assertFalse(accessor.reportMissing());
+		assertSame(accessor, PropertyPathAccessor.forPath(Tire.class, "unknown"));
+	}
+
+	@Test(expected = JXPathNotFoundException.class)
+	public void givenNullIntermediateValueWhenReadingThenNoValueMustBeThrownLikeJXPath() {
+		PropertyPathAccessor.forPath(Car.class, "tire/brand").getValue(new Car(null));
+	}
+
+	@Test
+	public void givenNullLastValueWhenReadingThenNullMustBeReturned() {
+		assertNull(PropertyPathAccessor.forPath(Tire.class, "brand").getValue(new Tire(null)));
+	}
+
+	@Test
+	public void givenXPathExpressionWhenReadingThenJXPathMustEvaluateIt() {
+		Garage garage = new Garage(Arrays.asList(new Car(new Tire("first")), new Car(new Tire("second"))));
+		assertEquals("second", PropertyPathAccessor.forPath(Garage.class, "cars[2]/tire/brand").getValue(garage));
+	}
+
+	public static class Garage {
+		private final List<Car> cars;
+		public Garage(List<Car> cars) {
+			this.cars = cars;
+		}
+		public List<Car> getCars() {
+			return cars;
+		}
+	}
+
+	public static class Car {
+		private final Tire tire;
+		public Car(Tire tire) {
+			this.tire = tire;
+		}
+		public Tire getTire() {
+			return tire;
+		}
+	}
+
+	public static class Tire {
+		private final String brand;
+		public Tire(String brand) {
+			this.brand = brand;
+		}
+		public String getBrand() {
+			return brand;
+		}
+	}
+
+	public static class WinterTire extends Tire {
+		private final int studs;
+		public WinterTire(String brand, int studs) {
+			super(brand);
+			this.studs = studs;
+		}
+		public int getStuds() {
+			return studs;
+		}
+	}
+
+}
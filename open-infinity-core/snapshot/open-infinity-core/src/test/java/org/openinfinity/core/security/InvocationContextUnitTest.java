@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openinfinity.core.converter.TypeConverter;
+import org.openinfinity.core.log.Span;
+import org.openinfinity.core.log.TraceContext;
+import org.openinfinity.core.security.principal.Identity;
+import org.openinfinity.core.security.principal.RolePrincipal;
+import org.openinfinity.core.security.principal.TenantPrincipal;
+import org.openinfinity.core.security.principal.UserPrincipal;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Unit test for the per thread invocation context.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class InvocationContextUnitTest {
+
+	@After
+	public void tearDown() {
+		SecurityContextHolder.clearContext();
+		InvocationContext.clear();
+	}
+
+	@Test
+	public void givenAuthenticationWhenReadingContextThenUsernameAndRolesMustBeRenderedOnce() {
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("test-name", null, 
+				Arrays.<GrantedAuthority>asList(new SimpleGrantedAuthority("ADMIN"), new SimpleGrantedAuthority("USER"))));
+		InvocationContext context = InvocationContext.begin();
+		assertEquals("test-name", context.getUsername());
+		assertEquals(Arrays.asList("ADMIN", "USER"), context.getRoles());
+		assertEquals("{ADMIN}{USER}", context.getRenderedRoles());
+		assertNull(context.getTenantId());
+		assertSame(context, InvocationContext.current());
+	}
+
+	@Test
+	public void givenChangedAuthenticationWhenReadingContextThenContextMustBeRebuilt() {
+		InvocationContext anonymous = InvocationContext.begin();
+		assertNull(anonymous.getUsername());
+		assertEquals("", anonymous.getRenderedRoles());
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("test-name", null, 
+				Collections.<GrantedAuthority>emptyList()));
+		InvocationContext authenticated = InvocationContext.current();
+		assertNotSame(anonymous, authenticated);
+		assertEquals("test-name", authenticated.getUsername());
+		assertSame(authenticated, InvocationContext.current());
+	}
+
+	@Test
+	public void givenIdentityWhenConvertingTenantIdThenConvertedValueMustBeCachedPerConverter() {
+		Identity identity = new Identity();
+		identity.setAuthenticated(true);
+		identity.setUserPrincipal(new UserPrincipal("test-name"));
+		identity.setRolePrincipals(Collections.singletonList(new RolePrincipal("test-role")));
+		identity.setTenantPrincipal(new TenantPrincipal<String>("42"));
+		SecurityContextHolder.getContext().setAuthentication(identity);
+		final AtomicInteger conversions = new AtomicInteger();
+		TypeConverter<Object, Object> converter = new TypeConverter<Object, Object>() {
+			public Object convert(Object object) {
+				conversions.incrementAndGet();
+				return Long.valueOf(object.toString());
+			}
+		};
+		InvocationContext context = InvocationContext.begin();
+		assertEquals("42", context.getTenantId());
+		assertTrue(context.getRenderedRoles().contains("{test-role}"));
+		assertEquals(Long.valueOf(42), context.getTenantId(converter));
+		assertEquals(Long.valueOf(42), InvocationContext.current().getTenantId(converter));
+		assertEquals(1, conversions.get());
+	}
+
+	@Test
+	public void givenNestedScopesWhenEndingOutermostScopeThenContextMustBeRemovedFromTheThread() {
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("test-name", null, 
+				Collections.<GrantedAuthority>emptyList()));
+		InvocationContext outer = InvocationContext.begin();
+		assertSame(outer, InvocationContext.begin());
+		InvocationContext.end();
+		assertSame(outer, InvocationContext.current());
+		InvocationContext.end();
+		assertNotSame(outer, InvocationContext.current());
+		assertNotSame(InvocationContext.current(), InvocationContext.current());
+	}
+
+	@Test
+	public void givenSameAuthenticationWhenReadingUnboundContextsThenRenderedRolesMustBeShared() {
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("test-name", null, 
+				Arrays.<GrantedAuthority>asList(new SimpleGrantedAuthority("ADMIN"))));
+		InvocationContext first = InvocationContext.current();
+		InvocationContext second = InvocationContext.current();
+		assertNotSame(first, second);
+		assertSame(first.getRenderedRoles(), second.getRenderedRoles());
+		assertSame(first.getRoles(), second.getRoles());
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("test-name", null, 
+				Arrays.<GrantedAuthority>asList(new SimpleGrantedAuthority("ADMIN"))));
+		assertNotSame(first.getRenderedRoles(), InvocationContext.current().getRenderedRoles());
+		assertEquals("{ADMIN}", InvocationContext.current().getRenderedRoles());
+	}
+
+	@Test
+	public void givenActiveTraceWhenReadingCorrelationIdThenTraceIdMustBeKeptAfterLogin() {
+		Span span = TraceContext.startSpan("test");
+		try {
+			InvocationContext anonymous = InvocationContext.begin();
+			assertEquals(TraceContext.current().getTraceId(), anonymous.getCorrelationId());
+			SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("test-name", null, 
+					Collections.<GrantedAuthority>emptyList()));
+			InvocationContext authenticated = InvocationContext.current();
+			assertNotSame(anonymous, authenticated);
+			assertEquals(anonymous.getCorrelationId(), authenticated.getCorrelationId());
+			assertEquals(anonymous.getStartTimeMillis(), authenticated.getStartTimeMillis());
+		} finally {
+			TraceContext.endSpan(span);
+		}
+	}
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Method;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.Test;
+import org.openinfinity.core.annotation.AuditTrail;
+import org.openinfinity.core.annotation.Log;
+import org.openinfinity.core.exception.SystemException;
+import org.springframework.aop.framework.ProxyFactory;
+
+/**
+ * Unit test for the annotation lookup of the aspect utility.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class AspectUtilUnitTest {
+
+	@Test
+	public void givenOverloadedMethodsWhenFindingAnnotationThenAnnotationOfTheExactMethodMustBeReturned() throws Exception {
+		Service service = new Service();
+		assertNotNull(AspectUtil.findAnnotation(joinPoint(service, Service.class.getMethod("process", String.class)), AuditTrail.class));
+		assertNull(AspectUtil.findAnnotation(joinPoint(service, Service.class.getMethod("process", int.class)), AuditTrail.class));
+	}
+
+	@Test
+	public void givenAnnotationOnInterfaceWhenFindingAnnotationThenAnnotationMustBeReturned() throws Exception {
+		Log log = AspectUtil.findAnnotation(joinPoint(new Service(), Handler.class.getMethod("handle", Object.class)), Log.class);
+		assertNotNull(log);
+		assertEquals(log, AspectUtil.findAnnotation(joinPoint(new Service(), Handler.class.getMethod("handle", Object.class)), Log.class));
+	}
+
+	@Test
+	public void givenBridgeMethodWhenFindingAnnotationThenAnnotationOfTheBridgedMethodMustBeReturned() throws Exception {
+		Method bridge = Service.class.getMethod("handle", Object.class);
+		assertEquals(true, bridge.isBridge());
+		assertNotNull(AspectUtil.findAnnotation(joinPoint(new Service(), bridge), AuditTrail.class));
+	}
+
+	@Test
+	public void givenClassProxyWhenFindingAnnotationThenAnnotationOfTheTargetClassMustBeReturned() throws Exception {
+		ProxyFactory proxyFactory = new ProxyFactory(new Service());
+		proxyFactory.setProxyTargetClass(true);
+		Object proxy = proxyFactory.getProxy();
+		assertNotNull(AspectUtil.findAnnotation(joinPoint(proxy, Handler.class.getMethod("handle", Object.class)), AuditTrail.class));
+	}
+
+	@Test(expected = SystemException.class)
+	public void givenMissingAnnotationWhenGettingAnnotationThenSystemExceptionMustBeThrown() throws Exception {
+		AspectUtil.getAnnotation(joinPoint(new Service(), Service.class.getMethod("process", int.class)), Log.class);
+	}
+
+	private JoinPoint joinPoint(Object target, Method method) {
+		MethodSignature signature = mock(MethodSignature.class);
+		when(signature.getMethod()).thenReturn(method);
+		JoinPoint joinPoint = mock(JoinPoint.class);
+		when(joinPoint.getSignature()).thenReturn(signature);
+		when(joinPoint.getTarget()).thenReturn(target);
+		return joinPoint;
+	}
+
+	public interface Handler<T> {
+		@Log
+		void handle(T value);
+	}
+
+	public static class Service implements Handler<String> {
+		@AuditTrail
+		public void handle(String value) {
+		}
+
+		@AuditTrail
+		public void process(String value) {
+		}
+
+		public void process(int value) {
+		}
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2011-2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openinfinity.core.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.ISODateTimeFormat;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit test for the cached timestamp formatting.
+ *
+ * @author Ilkka Leinonen
+ * @version 1.0.0
+ * @since 1.6.0
+ */
+public class TimestampUtilUnitTest {
+
+	private static final long[] TIMESTAMPS = {0L, 7L, 999L, 1000L, 1400000000005L, 1400000000050L, 1400000000500L, 1400000001000L, 1400000000999L, -1L, -1001L};
+
+	private final DateTimeZone defaultZone = DateTimeZone.getDefault();
+
+	@After
+	public void tearDown() {
+		DateTimeZone.setDefault(defaultZone);
+	}
+
+	@Test
+	public void givenTimestampsWithinAndAcrossSecondsWhenFormattingThenResultMustEqualTheIsoFormatter() {
+		assertFormattedLikeIsoFormatter();
+	}
+
+	@Test
+	public void givenChangedDefaultZoneWhenFormattingThenNewZoneMustBeUsed() {
+		DateTimeZone.setDefault(DateTimeZone.UTC);
+		assertFormattedLikeIsoFormatter();
+		assertEquals("2014-05-13T16:53:20.005Z", TimestampUtil.formatIsoTimestamp(1400000000005L));
+		DateTimeZone.setDefault(DateTimeZone.forID("Europe/Helsinki"));
+		assertFormattedLikeIsoFormatter();
+		assertEquals("2014-05-13T19:53:20.005+03:00", TimestampUtil.formatIsoTimestamp(1400000000005L));
+	}
+
+	@Test
+	public void givenBufferWhenAppendingThenTimestampMustBeAppendedAfterTheContent() {
+		StringBuilder builder = new StringBuilder("[");
+		TimestampUtil.appendIsoTimestamp(builder, 1400000000123L).append(']');
+		assertEquals("[" + ISODateTimeFormat.dateTime().print(1400000000123L) + "]", builder.toString());
+	}
+
+	private static void assertFormattedLikeIsoFormatter() {
+		for (long timestamp : TIMESTAMPS)
+			assertEquals(ISODateTimeFormat.dateTime().print(timestamp), TimestampUtil.formatIsoTimestamp(timestamp));
+	}
+
+}